@@ -1,11 +1,32 @@
 package com.flatmanager;
 
+import com.flatmanager.database.BackupService;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.ExternalChangeWatcher;
+import com.flatmanager.database.ShardRouter;
+import com.flatmanager.load.LoadHarness;
+import com.flatmanager.load.LoadReport;
+import com.flatmanager.server.ApiServer;
+import com.flatmanager.service.SchedulerService;
+import com.flatmanager.service.WriteBehindBuffer;
+import com.flatmanager.storage.DataGenerator;
+import com.flatmanager.ui.DashboardScreen;
+import com.flatmanager.ui.ImageCache;
 import com.flatmanager.ui.LoginScreen;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.input.InputEvent;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
 public class App extends Application {
     private static Stage primaryStage;
 
@@ -17,18 +38,44 @@ public class App extends Application {
         primaryStage.setWidth(1280);
         primaryStage.setHeight(800);
 
+        // Gemeinsamer Scheduler für alle periodischen Refreshes; pausiert, solange das Fenster
+        // minimiert ist oder der Benutzer länger nichts eingibt
+        SchedulerService scheduler = SchedulerService.get();
+        scheduler.start();
+        primaryStage.iconifiedProperty().addListener((obs, was, iconified) -> scheduler.setMinimized(iconified));
+        primaryStage.addEventFilter(InputEvent.ANY, e -> scheduler.markActivity());
+        // Änderungen anderer App-Instanzen an derselben Datenbankdatei erkennen
+        scheduler.schedule("db.watch", Duration.ofSeconds(1), Duration.ofSeconds(1), () -> ExternalChangeWatcher.get().poll());
+        scheduleDatabaseJobs(scheduler);
+
+        // häufig benutzte Icons schon beim Start im Hintergrund dekodieren
+        ImageCache.preload(DashboardScreen.ICON_SIZE, "Dashboard_icon.png", "Putzplan_icon.png", "Einkaufsliste_icon.png", "Haushaltsbuch_icon.png");
+        ImageCache.preload(20, "Einstellungen_icon.png", "Mitbewohner_icon.png");
+        ImageCache.preload(16, "Löschen_icon.png");
+
         // Show login screen
         showLoginScreen();
 
         primaryStage.show();
     }
 
+    // Sicherung und Pflege der Datenbankdateien; Oberfläche und API-Server brauchen sie gleichermaßen
+    private static void scheduleDatabaseJobs(SchedulerService scheduler) {
+        // Sicherung im Hintergrund, sofern sich seit der letzten etwas geändert hat
+        scheduler.schedule("db.backup", Duration.ofMinutes(5), Duration.ofHours(6), () -> BackupService.get().backupIfChangedAsync());
+        if (ShardRouter.isEnabled()) {
+            // eine Datei je WG: unbenutzte WG-Pools schließen und alle WG-Dateien regelmäßig prüfen
+            scheduler.schedule("db.shards.idle", Duration.ofMinutes(1), Duration.ofMinutes(1), () -> ShardRouter.get().closeIdle());
+            scheduler.schedule("db.shards.maintenance", Duration.ofMinutes(10), Duration.ofHours(6), () -> ShardRouter.get().runMaintenanceAsync());
+        }
+    }
+
     public static void showLoginScreen() {
         LoginScreen loginScreen = new LoginScreen();
         Scene scene = new Scene(loginScreen.getView(), 800, 600);
 
         // styles.css aus src/main/resources laden
-        scene.getStylesheets().add(App.class.getResource("/styles.css").toExternalForm());
+        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
 
         // Apply current theme (light/dark)
         com.flatmanager.ui.ThemeManager.applyToScene(scene);
@@ -42,10 +89,160 @@ public class App extends Application {
 
     @Override
     public void stop() {
-        // Falls DatabaseManager entfernt wurde, hier nichts aufrufen
+        // gepufferte Änderungen vor dem Beenden schreiben
+        WriteBehindBuffer.get().close();
+        SchedulerService.get().stop();
+        ExternalChangeWatcher.get().shutdown();
     }
 
+    /**
+     * Startet die Oberfläche. Mit {@code --server} läuft stattdessen nur die JSON-API ({@link ApiServer}),
+     * optional mit {@code --host=}, {@code --port=} und {@code --threads=}. Mit {@code --load} läuft ein
+     * Lasttest ({@link LoadHarness}); siehe {@link #runLoad(String[])}. Mit {@code --restore=<Datei>} spielt der
+     * Betreiber eine Sicherung zurück; siehe {@link #runRestore(String[])}.
+     */
     public static void main(String[] args) {
+        for (String arg : args) {
+            if ("--server".equals(arg)) {
+                runServer(args);
+                return;
+            }
+            if ("--load".equals(arg)) {
+                runLoad(args);
+                return;
+            }
+            if (arg.startsWith("--restore=")) {
+                runRestore(args);
+                return;
+            }
+        }
         launch(args);
     }
-}
\ No newline at end of file
+
+    private static void runServer(String[] args) {
+        String host = "127.0.0.1";
+        int port = ApiServer.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) host = arg.substring("--host=".length());
+            else if (arg.startsWith("--port=")) port = Integer.parseInt(arg.substring("--port=".length()));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring("--threads=".length()));
+        }
+        try {
+            ApiServer server = ApiServer.start(host, port, threads);
+            SchedulerService scheduler = SchedulerService.get();
+            // ohne Fenster gibt es keine Eingaben: die Leerlauf-Pause würde alle Jobs anhalten
+            scheduler.setIdleTimeout(ChronoUnit.FOREVER.getDuration());
+            scheduler.start();
+            scheduleDatabaseJobs(scheduler);
+            scheduler.schedule("api.sessions", ApiServer.SESSION_SWEEP_PERIOD, ApiServer.SESSION_SWEEP_PERIOD, server::sweepSessions);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                scheduler.stop();
+            }, "flatmanager-api-shutdown"));
+            Thread.currentThread().join();
+        } catch (IOException e) {
+            System.err.println("[App] API-Server konnte nicht gestartet werden: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Betreiberpfad zum Zurückspielen einer Sicherung ohne Oberfläche, z.B. für eine gelöschte WG, deren Benutzer
+     * sich nicht mehr anmelden können. Mit {@code --household=<id>} nur diese WG
+     * ({@link BackupService#restoreHousehold(Path, long)}), sonst die ganze Datei ({@link BackupService#restore(Path)});
+     * in einer gemeinsamen Datei setzt das alle WGs zurück.
+     */
+    private static void runRestore(String[] args) {
+        Path backup = null;
+        long household = -1;
+        for (String arg : args) {
+            if (arg.startsWith("--restore=")) backup = Path.of(arg.substring("--restore=".length()));
+            else if (arg.startsWith("--household=")) household = Long.parseLong(arg.substring("--household=".length()));
+        }
+        try {
+            if (household > 0) BackupService.get().restoreHousehold(backup, household);
+            else BackupService.get().restore(backup);
+            System.out.println("[App] Sicherung zurückgespielt: " + backup);
+        } catch (SQLException | IOException e) {
+            System.err.println("[App] Wiederherstellung fehlgeschlagen: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+    }
+
+    /**
+     * Lasttest gegen die konfigurierte Datenbank. Optionen: {@code --users=}, {@code --ops=} bzw. {@code --seconds=},
+     * {@code --think=MIN-MAX} (ms), {@code --write-ratio=}, {@code --generate=SEED} mit {@code --households=}
+     * (vorher synthetische WGs anlegen) und {@code --out=} (Verzeichnis für JSON und HTML). {@code --journal=},
+     * {@code --pool=} und {@code --batched=} nehmen kommagetrennte Listen; jede Kombination ist ein Lauf im Bericht,
+     * z.B. {@code --journal=DELETE,WAL --pool=4,16}.
+     */
+    private static void runLoad(String[] args) {
+        String[] journals = {System.getProperty("db.journal_mode", "DELETE")};
+        String[] pools = {Integer.toString(DatabaseManager.maxPoolSize())};
+        String[] batched = {"false"};
+        Path out = Path.of("load-report");
+        List<String> options = new ArrayList<>();
+        Long generateSeed = null;
+        int households = 1;
+        for (String arg : args) {
+            if (arg.startsWith("--journal=")) journals = arg.substring("--journal=".length()).split(",");
+            else if (arg.startsWith("--pool=")) pools = arg.substring("--pool=".length()).split(",");
+            else if (arg.startsWith("--batched=")) batched = arg.substring("--batched=".length()).split(",");
+            else if (arg.startsWith("--out=")) out = Path.of(arg.substring("--out=".length()));
+            else if (arg.startsWith("--generate=")) generateSeed = Long.parseLong(arg.substring("--generate=".length()));
+            else if (arg.startsWith("--households=")) households = Integer.parseInt(arg.substring("--households=".length()));
+            else options.add(arg);
+        }
+        try {
+            List<Long> targets = List.of();
+            if (generateSeed != null) {
+                targets = new DataGenerator(generateSeed).households(households).generate().households;
+            }
+            List<LoadReport> reports = new ArrayList<>();
+            for (String journal : journals) {
+                for (String pool : pools) {
+                    for (String batch : batched) {
+                        System.setProperty("db.journal_mode", journal.trim());
+                        System.setProperty(DatabaseManager.POOL_SIZE_PROPERTY, pool.trim());
+                        // neue Connections, damit Journal-Modus und Poolgröße greifen
+                        DatabaseManager.closeConnection();
+                        String label = journal.trim() + " / Pool " + pool.trim() + (Boolean.parseBoolean(batch.trim()) ? " / gebündelt" : "");
+                        LoadHarness harness = loadHarness(label, options).batchedWrites(Boolean.parseBoolean(batch.trim())).households(targets);
+                        LoadReport report = harness.run();
+                        System.out.println("[App] " + label + ": " + report.overall.count + " Operationen, "
+                                + String.format("%.1f", report.throughput()) + "/s, p99 " + String.format("%.2f", report.overall.p99)
+                                + " ms, BUSY " + report.busy + ", Fehler " + report.errors);
+                        reports.add(report);
+                    }
+                }
+            }
+            LoadReport.export(out, reports);
+            System.out.println("[App] Bericht: " + out.resolve(LoadReport.HTML_FILE).toAbsolutePath());
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.err.println("[App] Lasttest fehlgeschlagen: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+    }
+
+    private static LoadHarness loadHarness(String label, List<String> options) {
+        LoadHarness harness = new LoadHarness(label);
+        for (String arg : options) {
+            if (arg.startsWith("--users=")) harness.users(Integer.parseInt(arg.substring("--users=".length())));
+            else if (arg.startsWith("--ops=")) harness.operations(Integer.parseInt(arg.substring("--ops=".length())));
+            else if (arg.startsWith("--seconds=")) harness.duration(Duration.ofSeconds(Long.parseLong(arg.substring("--seconds=".length()))));
+            else if (arg.startsWith("--write-ratio=")) harness.writeRatio(Double.parseDouble(arg.substring("--write-ratio=".length())));
+            else if (arg.startsWith("--think=")) {
+                String[] range = arg.substring("--think=".length()).split("-");
+                harness.thinkTime(Integer.parseInt(range[0]), Integer.parseInt(range[range.length - 1]));
+            }
+        }
+        return harness;
+    }
+}
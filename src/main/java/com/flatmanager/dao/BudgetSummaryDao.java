@@ -0,0 +1,100 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.storage.Database;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregationen über {@code budget_transactions}, die direkt in SQLite berechnet werden
+ * (GROUP BY Kategorie, Zahler und Monat). Die Ansichten erhalten so nur kleine Ergebnismengen
+ * statt alle Transaktionen in Java aufzusummieren. Alle Summen beziehen sich auf eine WG; die Indizes
+ * beginnen mit {@code household_id}, sodass nur deren Buchungen gelesen werden.
+ */
+public class BudgetSummaryDao {
+
+    /** Kategorie, unter der Transaktionen ohne Kategorie zusammengefasst werden. */
+    public static final String DEFAULT_CATEGORY = "Sonstiges";
+
+    /** Ein aggregierter Wert: Gruppierungsschlüssel, Summe der Beträge und Anzahl Transaktionen. */
+    public static final class Total {
+        public final String key;
+        public final double sum;
+        public final int count;
+
+        public Total(String key, double sum, int count) {
+            this.key = key;
+            this.sum = sum;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return "Total{" + key + ", sum=" + sum + ", count=" + count + '}';
+        }
+    }
+
+    private final long household;
+
+    /** Summen der aktiven WG ({@link DatabaseManager#currentHousehold()} zum Zeitpunkt des Aufrufs). */
+    public BudgetSummaryDao() {
+        this(-1);
+    }
+
+    /** Summen einer bestimmten WG. */
+    public BudgetSummaryDao(long householdId) {
+        this.household = householdId;
+    }
+
+    private long household() {
+        return household > 0 ? household : DatabaseManager.currentHousehold();
+    }
+
+    public void init() throws SQLException {
+        // Covering-Indizes: die Aggregationen werden vollständig aus dem Index beantwortet
+        try (Connection conn = Database.getConnection(household());
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE INDEX IF NOT EXISTS idx_budget_tx_category_amount ON budget_transactions(household_id, category, amount)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_budget_tx_paid_by_amount ON budget_transactions(household_id, paid_by, amount)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_budget_tx_month_amount ON budget_transactions(household_id, substr(date, 1, 7), amount)");
+        }
+    }
+
+    public List<Total> totalsByCategory() throws SQLException {
+        return query("SELECT COALESCE(NULLIF(TRIM(category), ''), '" + DEFAULT_CATEGORY + "') AS k, " +
+                "SUM(amount) AS s, COUNT(*) AS c FROM budget_transactions WHERE household_id = " + household() + " GROUP BY k ORDER BY k");
+    }
+
+    public List<Total> totalsByPayer() throws SQLException {
+        return query("SELECT COALESCE(paid_by, '') AS k, SUM(amount) AS s, COUNT(*) AS c " +
+                "FROM budget_transactions WHERE household_id = " + household() + " GROUP BY paid_by ORDER BY s DESC");
+    }
+
+    /** Summen pro Monat (Schlüssel {@code yyyy-MM}), neueste zuerst. Transaktionen ohne Datum fehlen. */
+    public List<Total> totalsByMonth() throws SQLException {
+        return query("SELECT substr(date, 1, 7) AS k, SUM(amount) AS s, COUNT(*) AS c " +
+                "FROM budget_transactions WHERE household_id = " + household() + " AND date IS NOT NULL GROUP BY substr(date, 1, 7) ORDER BY k DESC");
+    }
+
+    public double grandTotal() throws SQLException {
+        try (Connection conn = Database.getConnection(household());
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(SUM(amount), 0) FROM budget_transactions WHERE household_id = " + household())) {
+            return rs.next() ? rs.getDouble(1) : 0.0;
+        }
+    }
+
+    private List<Total> query(String sql) throws SQLException {
+        List<Total> list = new ArrayList<>();
+        try (Connection conn = Database.getConnection(household());
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                list.add(new Total(rs.getString("k"), rs.getDouble("s"), rs.getInt("c")));
+            }
+        }
+        return list;
+    }
+}
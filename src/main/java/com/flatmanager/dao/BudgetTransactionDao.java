@@ -1,5 +1,6 @@
 package com.flatmanager.dao;
 
+import com.flatmanager.database.DatabaseManager;
 import com.flatmanager.model.BudgetTransaction;
 import com.flatmanager.storage.Database;
 
@@ -10,51 +11,74 @@ import java.util.List;
 
 public class BudgetTransactionDao {
 
+    private final long household;
+
+    /** DAO für die aktive WG ({@link DatabaseManager#currentHousehold()} zum Zeitpunkt des Aufrufs). */
+    public BudgetTransactionDao() {
+        this(-1);
+    }
+
+    /** DAO, dessen Abfragen und Änderungen auf eine WG beschränkt sind. */
+    public BudgetTransactionDao(long householdId) {
+        this.household = householdId;
+    }
+
+    private long household() {
+        return household > 0 ? household : DatabaseManager.currentHousehold();
+    }
+
     public void init() throws SQLException {
-        Connection conn = Database.getConnection();
-        try (Statement st = conn.createStatement()) {
+        try (Connection conn = Database.getConnection(household());
+             Statement st = conn.createStatement()) {
             st.execute("CREATE TABLE IF NOT EXISTS budget_transactions (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
                     "amount REAL NOT NULL, " +
                     "date TEXT NOT NULL, " +
                     "description TEXT, " +
-                    "category TEXT)");
+                    "category TEXT, " +
+                    "household_id INTEGER NOT NULL DEFAULT 1, " +
+                    "version INTEGER NOT NULL DEFAULT 0)");
         }
     }
 
     public List<BudgetTransaction> listAll() throws SQLException {
         List<BudgetTransaction> list = new ArrayList<>();
-        String sql = "SELECT id, amount, date, description, category FROM budget_transactions ORDER BY date DESC";
-        Connection conn = Database.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                double amount = rs.getDouble("amount");
-                String dateText = rs.getString("date");
-                LocalDate date = (dateText != null && !dateText.isBlank()) ? LocalDate.parse(dateText) : null;
-
-                BudgetTransaction t = new BudgetTransaction();
-                t.setAmount(amount);
-                t.setDate(date);
-                t.setId(rs.getInt("id"));
-                t.setDescription(rs.getString("description"));
-                t.setCategory(rs.getString("category"));
-
-                list.add(t);
+        String sql = "SELECT id, amount, date, description, category, version FROM budget_transactions WHERE household_id = ? ORDER BY date DESC";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, household());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    double amount = rs.getDouble("amount");
+                    String dateText = rs.getString("date");
+                    LocalDate date = (dateText != null && !dateText.isBlank()) ? LocalDate.parse(dateText) : null;
+
+                    BudgetTransaction t = new BudgetTransaction();
+                    t.setAmount(amount);
+                    t.setDate(date);
+                    t.setId(rs.getInt("id"));
+                    t.setDescription(rs.getString("description"));
+                    t.setCategory(rs.getString("category"));
+                    t.setVersion(rs.getInt("version"));
+
+                    list.add(t);
+                }
             }
         }
         return list;
     }
 
     public void insert(BudgetTransaction t) throws SQLException {
-        String sql = "INSERT INTO budget_transactions (amount, date, description, category) VALUES (?, ?, ?, ?)";
-        Connection conn = Database.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        String sql = "INSERT INTO budget_transactions (amount, date, description, category, household_id) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setDouble(1, t.getAmount());
             ps.setString(2, t.getDate() != null ? t.getDate().toString() : null);
             ps.setString(3, t.getDescription());
             ps.setString(4, t.getCategory());
+            ps.setLong(5, household());
             ps.executeUpdate();
+            t.setVersion(0);
 
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys != null && keys.next()) {
@@ -71,24 +95,35 @@ public class BudgetTransactionDao {
         }
     }
 
+    /**
+     * Compare-and-Set-Update: schreibt nur, wenn die Zeile noch die geladene Version hat, sonst
+     * {@link VersionConflictException}. Objekte ohne bekannte Version werden ohne Prüfung geschrieben.
+     */
     public void update(BudgetTransaction t) throws SQLException {
-        String sql = "UPDATE budget_transactions SET amount = ?, date = ?, description = ?, category = ? WHERE id = ?";
-        Connection conn = Database.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        String sql = "UPDATE budget_transactions SET amount = ?, date = ?, description = ?, category = ?, version = version + 1 " +
+                "WHERE id = ? AND household_id = ? AND (? < 0 OR version = ?)";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setDouble(1, t.getAmount());
             ps.setString(2, t.getDate() != null ? t.getDate().toString() : null);
             ps.setString(3, t.getDescription());
             ps.setString(4, t.getCategory());
             ps.setInt(5, t.getId());
-            ps.executeUpdate();
+            ps.setLong(6, household());
+            ps.setInt(7, t.getVersion());
+            ps.setInt(8, t.getVersion());
+            int updated = ps.executeUpdate();
+            VersionConflictException.check(conn, "budget_transactions", t.getId(), t.getVersion(), updated);
+            if (updated > 0 && t.getVersion() >= 0) t.setVersion(t.getVersion() + 1);
         }
     }
 
     public void deleteById(int id) throws SQLException {
-        String sql = "DELETE FROM budget_transactions WHERE id = ?";
-        Connection conn = Database.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        String sql = "DELETE FROM budget_transactions WHERE id = ? AND household_id = ?";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
+            ps.setLong(2, household());
             ps.executeUpdate();
         }
     }
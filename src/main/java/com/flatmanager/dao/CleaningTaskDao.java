@@ -1,18 +1,59 @@
 package com.flatmanager.dao;
 
+import com.flatmanager.database.DatabaseManager;
 import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.RecurrenceRule;
 import com.flatmanager.storage.Database;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-public class CleaningTaskDao {
+public class CleaningTaskDao implements CleaningTaskStore {
+
+    // Erledigt-Status einzelner Termine wiederkehrender Aufgaben; die Serie selbst bleibt eine Zeile
+    static final String COMPLETIONS_DDL = "CREATE TABLE IF NOT EXISTS cleaning_task_completions (" +
+            "task_id INTEGER NOT NULL, " +
+            "occurrence TEXT NOT NULL, " +
+            "PRIMARY KEY (task_id, occurrence)) WITHOUT ROWID";
+
+    // Geplante Zuständige einzelner Termine (Rotationsplan); ohne Eintrag gilt die Zuweisung der Serie
+    static final String ASSIGNMENTS_DDL = "CREATE TABLE IF NOT EXISTS cleaning_task_assignments (" +
+            "task_id INTEGER NOT NULL, " +
+            "occurrence TEXT NOT NULL, " +
+            "assigned_to TEXT, " +
+            "PRIMARY KEY (task_id, occurrence)) WITHOUT ROWID";
+
+    // Termine hängen nur über task_id an der WG: jeder Zugriff prüft, dass die Serie zur eigenen WG gehört
+    private static final String OWN_TASK = " AND task_id IN (SELECT id FROM cleaning_tasks WHERE household_id = ?)";
+    // Plan-Eintrag nur für Serien der eigenen WG (?1 Termin, ?2 Zuständiger, ?3 Serie, ?4 WG)
+    private static final String ASSIGN_SQL = "INSERT OR REPLACE INTO cleaning_task_assignments (task_id, occurrence, assigned_to) " +
+            "SELECT id, ?, ? FROM cleaning_tasks WHERE id = ? AND household_id = ?";
+
+    private final long household;
+
+    /** DAO für die aktive WG ({@link DatabaseManager#currentHousehold()} zum Zeitpunkt des Aufrufs). */
+    public CleaningTaskDao() {
+        this(-1);
+    }
+
+    /** DAO, dessen Abfragen und Änderungen auf eine WG beschränkt sind. */
+    public CleaningTaskDao(long householdId) {
+        this.household = householdId;
+    }
+
+    private long household() {
+        return household > 0 ? household : DatabaseManager.currentHousehold();
+    }
 
     public void init() throws SQLException {
         // Ensure table exists
-        try (Connection conn = Database.getConnection();
+        try (Connection conn = Database.getConnection(household());
              Statement st = conn.createStatement()) {
             st.execute("CREATE TABLE IF NOT EXISTS cleaning_tasks (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -21,14 +62,26 @@ public class CleaningTaskDao {
                     "assigned_to TEXT, " +
                     "recurrence TEXT, " +
                     "urgent INTEGER DEFAULT 0, " +
-                    "completed INTEGER DEFAULT 0)");
+                    "completed INTEGER DEFAULT 0, " +
+                    "household_id INTEGER NOT NULL DEFAULT 1, " +
+                    "version INTEGER NOT NULL DEFAULT 0)");
+            ensureVersionColumn(conn);
+            st.execute(COMPLETIONS_DDL);
+            st.execute(ASSIGNMENTS_DDL);
+            // Zeitfenster-Abfragen (listWindow/listByAssignee) laufen über diese Indizes statt über die ganze Tabelle;
+            // vorne die WG, damit nur deren Bereich gelesen wird
+            st.execute("CREATE INDEX IF NOT EXISTS idx_cleaning_tasks_due ON cleaning_tasks(household_id, due)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_cleaning_tasks_assignee_due ON cleaning_tasks(household_id, assigned_to COLLATE NOCASE, due)");
+            // listOccurrences liest vor dem Fenster nur offene Aufgaben und Serien
+            st.execute("CREATE INDEX IF NOT EXISTS idx_cleaning_tasks_open_due ON cleaning_tasks(household_id, due) WHERE completed = 0");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_cleaning_tasks_series_due ON cleaning_tasks(household_id, due) WHERE recurrence IS NOT NULL");
         }
     }
 
     public List<CleaningTask> listAll() throws SQLException {
         List<CleaningTask> list = new ArrayList<>();
-        String sql = "SELECT id, title, due, assigned_to, recurrence, urgent, completed FROM cleaning_tasks ORDER BY (due IS NULL), due ASC";
-        try (Connection conn = Database.getConnection();
+        String sql = "SELECT id, title, due, assigned_to, recurrence, urgent, completed, version FROM cleaning_tasks WHERE household_id = " + household() + " ORDER BY (due IS NULL), due ASC";
+        try (Connection conn = Database.getConnection(household());
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -44,6 +97,7 @@ public class CleaningTaskDao {
                 CleaningTask t = new CleaningTask(title, due, (assignedTo != null && !assignedTo.trim().isEmpty()) ? assignedTo : null, recurrence, urgent);
                 t.setId(id);
                 t.setCompleted(completed);
+                t.setVersion(rs.getInt("version"));
                 list.add(t);
             }
         }
@@ -53,8 +107,8 @@ public class CleaningTaskDao {
     // Neue Methode: listet alle als erledigt markierten Aufgaben (wird vor dem Löschen aufgerufen)
     public List<CleaningTask> listCompleted() throws SQLException {
         List<CleaningTask> list = new ArrayList<>();
-        String sql = "SELECT id, title, due, assigned_to, recurrence, urgent, completed FROM cleaning_tasks WHERE completed = 1 ORDER BY (due IS NULL), due ASC";
-        try (Connection conn = Database.getConnection();
+        String sql = "SELECT id, title, due, assigned_to, recurrence, urgent, completed, version FROM cleaning_tasks WHERE household_id = " + household() + " AND completed = 1 ORDER BY (due IS NULL), due ASC";
+        try (Connection conn = Database.getConnection(household());
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -70,6 +124,7 @@ public class CleaningTaskDao {
                 CleaningTask t = new CleaningTask(title, due, (assignedTo != null && !assignedTo.trim().isEmpty()) ? assignedTo : null, recurrence, urgent);
                 t.setId(id);
                 t.setCompleted(completed);
+                t.setVersion(rs.getInt("version"));
                 list.add(t);
             }
         }
@@ -77,8 +132,8 @@ public class CleaningTaskDao {
     }
 
     public void insert(CleaningTask task) throws SQLException {
-        String sql = "INSERT INTO cleaning_tasks (title, due, assigned_to, recurrence, urgent, completed) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = Database.getConnection();
+        String sql = "INSERT INTO cleaning_tasks (title, due, assigned_to, recurrence, urgent, completed, household_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = Database.getConnection(household());
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, task.getTitle());
             ps.setString(2, task.getDue() != null ? task.getDue().toString() : null);
@@ -86,7 +141,9 @@ public class CleaningTaskDao {
             ps.setString(4, task.getRecurrence());
             ps.setInt(5, task.isUrgent() ? 1 : 0);
             ps.setInt(6, task.isCompleted() ? 1 : 0);
+            ps.setLong(7, household());
             ps.executeUpdate();
+            task.setVersion(0);
 
             // Try generated keys first; fall back to SQLite's last_insert_rowid() wenn nicht unterstützt
             try {
@@ -110,9 +167,16 @@ public class CleaningTaskDao {
         }
     }
 
+    /**
+     * Compare-and-Set-Update: schreibt nur, wenn die Zeile noch die geladene Version hat, und erhöht sie.
+     * Hat eine andere App-Instanz die Zeile inzwischen geändert oder gelöscht, wird eine
+     * {@link VersionConflictException} geworfen. Aufgaben ohne bekannte Version (nicht geladen)
+     * werden wie bisher ohne Prüfung geschrieben.
+     */
     public void update(CleaningTask task) throws SQLException {
-        String sql = "UPDATE cleaning_tasks SET title = ?, due = ?, assigned_to = ?, recurrence = ?, urgent = ?, completed = ? WHERE id = ?";
-        try (Connection conn = Database.getConnection();
+        String sql = "UPDATE cleaning_tasks SET title = ?, due = ?, assigned_to = ?, recurrence = ?, urgent = ?, completed = ?, " +
+                "version = version + 1 WHERE id = ? AND household_id = ? AND (? < 0 OR version = ?)";
+        try (Connection conn = Database.getConnection(household());
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, task.getTitle());
             ps.setString(2, task.getDue() != null ? task.getDue().toString() : null);
@@ -121,15 +185,461 @@ public class CleaningTaskDao {
             ps.setInt(5, task.isUrgent() ? 1 : 0);
             ps.setInt(6, task.isCompleted() ? 1 : 0);
             ps.setInt(7, task.getId());
-            ps.executeUpdate();
+            ps.setLong(8, household());
+            ps.setInt(9, task.getVersion());
+            ps.setInt(10, task.getVersion());
+            int updated = ps.executeUpdate();
+            VersionConflictException.check(conn, "cleaning_tasks", task.getId(), task.getVersion(), updated);
+            if (updated > 0 && task.getVersion() >= 0) task.setVersion(task.getVersion() + 1);
         }
     }
 
     public void deleteCompleted() throws SQLException {
-        String sql = "DELETE FROM cleaning_tasks WHERE completed = 1";
-        try (Connection conn = Database.getConnection();
+        String done = "SELECT id FROM cleaning_tasks WHERE household_id = " + household() + " AND completed = 1";
+        try (Connection conn = Database.getConnection(household());
+             Statement st = conn.createStatement()) {
+            // Termine der gelöschten Aufgaben zuerst, solange sie sich noch über die WG finden lassen
+            st.executeUpdate("DELETE FROM cleaning_task_completions WHERE task_id IN (" + done + ")");
+            st.executeUpdate("DELETE FROM cleaning_task_assignments WHERE task_id IN (" + done + ")");
+            st.executeUpdate("DELETE FROM cleaning_tasks WHERE id IN (" + done + ")");
+        }
+    }
+
+    // Serien-Schlüssel: wiederkehrende Zeilen mit gleichem Titel und gleicher Regel gelten als eine Serie,
+    // einmalige und undatierte Zeilen bilden jeweils eine eigene Gruppe
+    private static final String RECURRING_SQL =
+            "(due IS NOT NULL AND recurrence IS NOT NULL AND lower(trim(recurrence)) NOT IN ('', 'einmalig'))";
+
+    private static final String COLUMNS = "id, title, due, assigned_to, recurrence, urgent, completed, version";
+
+    // eine Zeile je Gruppe aus %s (Quelle); vor dem Fenster (?3) erledigte Zeilen einer Serie nur, wenn sie keine offene hat
+    private static final String DEDUP_SQL =
+            "SELECT " + COLUMNS + " FROM (" +
+            " SELECT " + COLUMNS + "," +
+            "  ROW_NUMBER() OVER (PARTITION BY CASE WHEN " + RECURRING_SQL +
+            "    THEN lower(trim(title)) || '|' || lower(trim(recurrence)) ELSE 'id:' || id END" +
+            "   ORDER BY (completed <> 0 AND due < ?3), due ASC, id ASC) AS rn" +
+            " FROM %s" +
+            ") WHERE rn = 1 ORDER BY (due IS NULL), due ASC, id ASC";
+
+    // ?1 WG, ?2 to, ?3 from (NULL: ohne Untergrenze), ?4 undatierte einschließen, ?5 Zuständige(r)
+    private static final String WINDOW_SQL = String.format(DEDUP_SQL,
+            "cleaning_tasks WHERE household_id = ?1 AND ((due IS NOT NULL AND due <= ?2 AND (?3 IS NULL OR due >= ?3 OR " + RECURRING_SQL + "))" +
+            "        OR (?4 = 1 AND due IS NULL))%s");
+
+    // Quelle für listOccurrences: vor dem Fenster nur offene Aufgaben und Serienzeilen, jeweils über einen Teilindex;
+    // erledigte einmalige Aufgaben aus der Vergangenheit werden nicht gelesen
+    private static final String OCCURRENCE_SQL = String.format(DEDUP_SQL,
+            "(SELECT " + COLUMNS + " FROM cleaning_tasks WHERE household_id = ?1 AND due >= ?3 AND due <= ?2" +
+            " UNION SELECT " + COLUMNS + " FROM cleaning_tasks WHERE household_id = ?1 AND completed = 0 AND due < ?3" +
+            " UNION SELECT " + COLUMNS + " FROM cleaning_tasks WHERE household_id = ?1 AND recurrence IS NOT NULL AND due < ?3 AND " + RECURRING_SQL +
+            " UNION SELECT " + COLUMNS + " FROM cleaning_tasks WHERE household_id = ?1 AND due IS NULL)");
+
+    /**
+     * Aufgaben für das Zeitfenster {@code [from, to]}, gefiltert und dedupliziert in SQL.
+     * Einmalige Aufgaben erscheinen, wenn ihr Datum im Fenster liegt ({@code from == null}: auch alle überfälligen);
+     * wiederkehrende Serien, sobald ihr Start nicht nach {@code to} liegt, und zwar nur mit der Zeile
+     * mit dem nächstliegenden Datum je Serie (Titel + Regel); vor {@code from} erledigte Zeilen zählen nur,
+     * wenn die Serie keine andere hat. Undatierte Aufgaben nur mit {@code includeUndated}.
+     */
+    public List<CleaningTask> listWindow(LocalDate from, LocalDate to, boolean includeUndated) throws SQLException {
+        return queryWindow(from, to, includeUndated, null);
+    }
+
+    /**
+     * Wie {@link #listWindow(LocalDate, LocalDate, boolean)}, aber nur Aufgaben des Benutzers
+     * (Vergleich ohne Groß-/Kleinschreibung); undatierte Aufgaben sind enthalten.
+     */
+    public List<CleaningTask> listByAssignee(String assignee, LocalDate from, LocalDate to) throws SQLException {
+        if (assignee == null || assignee.trim().isEmpty()) return new ArrayList<>();
+        return queryWindow(from, to, true, assignee.trim());
+    }
+
+    private List<CleaningTask> queryWindow(LocalDate from, LocalDate to, boolean includeUndated, String assignee) throws SQLException {
+        List<CleaningTask> list = new ArrayList<>();
+        String sql = String.format(WINDOW_SQL, assignee != null ? " AND assigned_to = ?5 COLLATE NOCASE" : "");
+        try (Connection conn = Database.getConnection(household());
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, household());
+            ps.setString(2, to.toString());
+            ps.setString(3, from != null ? from.toString() : null);
+            ps.setInt(4, includeUndated ? 1 : 0);
+            if (assignee != null) ps.setString(5, assignee);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(readRow(rs));
+            }
+        }
+        return list;
+    }
+
+    // Zeilen für listOccurrences: alles im Fenster, Undatiertes, offene überfällige Aufgaben und je Serie
+    // die früheste offene Zeile vor dem Fenster
+    private List<CleaningTask> queryOccurrenceRows(LocalDate from, LocalDate to) throws SQLException {
+        List<CleaningTask> list = new ArrayList<>();
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(OCCURRENCE_SQL)) {
+            ps.setLong(1, household());
+            ps.setString(2, to.toString());
+            ps.setString(3, from.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(readRow(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Liefert die Termine im Fenster {@code [from, to]}: einmalige Aufgaben (ohne Datum, im Fenster fällig oder
+     * überfällig und noch offen) unverändert, wiederkehrende Aufgaben als einzelne Termine. Je Serie erscheinen ein überfälliger Starttermin
+     * (falls vor {@code from}) und alle Termine im Fenster; frühere Termine werden nicht erzeugt.
+     * Termin-Objekte tragen die ID der Serie, das Termindatum als {@code due} und ihren eigenen Erledigt-Status.
+     */
+    public List<CleaningTask> listOccurrences(LocalDate from, LocalDate to) throws SQLException {
+        List<CleaningTask> rows = queryOccurrenceRows(from, to);
+        Map<Integer, Set<LocalDate>> done = new HashMap<>();
+        // nur Erledigungen im Fenster bzw. des (ggf. überfälligen) Starttermins, nicht die ganze Historie
+        String sql = "SELECT c.task_id, c.occurrence FROM cleaning_task_completions c JOIN cleaning_tasks t ON t.id = c.task_id " +
+                "WHERE t.household_id = ? AND ((c.occurrence >= ? AND c.occurrence <= ?) OR c.occurrence = t.due)";
+        Map<Integer, Map<LocalDate, String>> planned = new HashMap<>();
+        try (Connection conn = Database.getConnection(household())) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, household());
+                ps.setString(2, from.toString());
+                ps.setString(3, to.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        done.computeIfAbsent(rs.getInt(1), k -> new HashSet<>()).add(LocalDate.parse(rs.getString(2)));
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT a.task_id, a.occurrence, a.assigned_to FROM cleaning_task_assignments a JOIN cleaning_tasks t ON t.id = a.task_id " +
+                    "WHERE t.household_id = ? AND a.occurrence >= ? AND a.occurrence <= ?")) {
+                ps.setLong(1, household());
+                ps.setString(2, from.toString());
+                ps.setString(3, to.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        planned.computeIfAbsent(rs.getInt(1), k -> new HashMap<>()).put(LocalDate.parse(rs.getString(2)), rs.getString(3));
+                    }
+                }
+            }
+        }
+
+        List<CleaningTask> out = new ArrayList<>();
+        for (CleaningTask t : rows) {
+            if (!t.isRecurring()) {
+                out.add(t);
+                continue;
+            }
+            RecurrenceRule rule = t.getRecurrenceRule();
+            Set<LocalDate> completed = done.getOrDefault(t.getId(), Set.of());
+            LocalDate start = t.getDue();
+            if (start.isBefore(from)) {
+                out.add(occurrence(t, start, t.isCompleted() || completed.contains(start)));
+            }
+            Map<LocalDate, String> plan = planned.getOrDefault(t.getId(), Map.of());
+            for (LocalDate d : rule.occurrences(start, from, to)) {
+                boolean isDone = completed.contains(d) || (d.equals(start) && t.isCompleted());
+                CleaningTask o = occurrence(t, d, isDone);
+                if (plan.containsKey(d)) o.setAssignedTo(blankToNull(plan.get(d)));
+                out.add(o);
+            }
+        }
+        return out;
+    }
+
+    /** Alle wiederkehrenden Serien (mit Regel und Startdatum). */
+    public List<CleaningTask> listRecurring() throws SQLException {
+        List<CleaningTask> list = new ArrayList<>();
+        String sql = "SELECT id, title, due, assigned_to, recurrence, urgent, completed, version FROM cleaning_tasks " +
+                "WHERE household_id = " + household() + " AND due IS NOT NULL AND recurrence IS NOT NULL ORDER BY id";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                CleaningTask t = readRow(rs);
+                if (t.isRecurring()) list.add(t);
+            }
+        }
+        return list;
+    }
+
+    /** Erledigte Termine einer Serie; Serien anderer WGs liefern nichts. */
+    public Set<LocalDate> listCompletedOccurrences(int taskId) throws SQLException {
+        Set<LocalDate> out = new HashSet<>();
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement("SELECT occurrence FROM cleaning_task_completions WHERE task_id = ?" + OWN_TASK)) {
+            ps.setInt(1, taskId);
+            ps.setLong(2, household());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(LocalDate.parse(rs.getString(1)));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Setzt den Erledigt-Status eines einzelnen Termins. Beim Zurücksetzen wird auch ein altes
+     * {@code completed}-Flag der Serie gelöscht, falls es für genau diesen (Start-)Termin gesetzt war.
+     */
+    public void setOccurrenceCompleted(int taskId, LocalDate occurrence, boolean completed) throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            if (completed) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO cleaning_task_completions (task_id, occurrence) " +
+                        "SELECT id, ? FROM cleaning_tasks WHERE id = ? AND household_id = ?")) {
+                    ps.setString(1, occurrence.toString());
+                    ps.setInt(2, taskId);
+                    ps.setLong(3, household());
+                    ps.executeUpdate();
+                }
+            } else {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM cleaning_task_completions WHERE occurrence = ? AND task_id = ?" + OWN_TASK)) {
+                    ps.setString(1, occurrence.toString());
+                    ps.setInt(2, taskId);
+                    ps.setLong(3, household());
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE cleaning_tasks SET completed = 0, version = version + 1 WHERE id = ? AND household_id = ? AND due = ? AND completed = 1")) {
+                    ps.setInt(1, taskId);
+                    ps.setLong(2, household());
+                    ps.setString(3, occurrence.toString());
+                    ps.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Schiebt eine Serie auf einen neuen Starttermin: Die Serie wird durch eine neue Zeile ersetzt
+     * (neuer Start, neuer Zuständiger, nicht erledigt), spätere Termin-Erledigungen wandern mit,
+     * ältere werden verworfen. Die Tabelle wächst dadurch nicht mit vergangenen Terminen.
+     * @return die neue Serie mit gesetzter ID
+     */
+    public CleaningTask advance(CleaningTask series, LocalDate newStart, String assignee) throws SQLException {
+        CleaningTask next = new CleaningTask(series.getTitle(), newStart, assignee, series.getRecurrence(), series.isUrgent());
+        try (Connection conn = Database.getConnection(household())) {
+            boolean originalAuto = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                // alte Zeile per Compare-and-Set beanspruchen: rückt eine andere Instanz dieselbe Serie
+                // gleichzeitig vor, gewinnt nur eine und es entsteht keine doppelte Serie
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE cleaning_tasks SET version = version + 1 WHERE id = ? AND household_id = ? AND (? < 0 OR version = ?)")) {
+                    ps.setInt(1, series.getId());
+                    ps.setLong(2, household());
+                    ps.setInt(3, series.getVersion());
+                    ps.setInt(4, series.getVersion());
+                    VersionConflictException.check(conn, "cleaning_tasks", series.getId(), series.getVersion(), ps.executeUpdate());
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO cleaning_tasks (title, due, assigned_to, recurrence, urgent, completed, household_id) VALUES (?, ?, ?, ?, ?, 0, ?)")) {
+                    ps.setString(1, next.getTitle());
+                    ps.setString(2, newStart.toString());
+                    ps.setString(3, assignee);
+                    ps.setString(4, next.getRecurrence());
+                    ps.setInt(5, next.isUrgent() ? 1 : 0);
+                    ps.setLong(6, household());
+                    ps.executeUpdate();
+                }
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+                    if (rs.next()) next.setId(rs.getInt(1));
+                }
+                for (String table : new String[]{"cleaning_task_completions", "cleaning_task_assignments"}) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE " + table + " SET task_id = ? WHERE task_id = ? AND occurrence >= ?")) {
+                        ps.setInt(1, next.getId());
+                        ps.setInt(2, series.getId());
+                        ps.setString(3, newStart.toString());
+                        ps.executeUpdate();
+                    }
+                }
+                // ein geplanter Zuständiger für den neuen Starttermin hat Vorrang vor der einfachen Rotation
+                String plannedStart = applyStartAssignments(conn, household(), next.getId());
+                if (plannedStart != null) next.setAssignedTo(blankToNull(plannedStart));
+                next.setVersion(plannedStart != null ? 1 : 0);
+                deleteSeries(conn, household(), series.getId());
+                conn.commit();
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            } finally {
+                try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
+            }
+        }
+        return next;
+    }
+
+    /** Löscht eine Aufgabe bzw. Serie samt Termin-Erledigungen. */
+    public void deleteSeries(int taskId) throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            deleteSeries(conn, household(), taskId);
+        }
+    }
+
+    // Aufgaben anderer WGs bleiben samt Terminen unangetastet
+    private static void deleteSeries(Connection conn, long household, int taskId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM cleaning_tasks WHERE id = ? AND household_id = ?")) {
+            ps.setInt(1, taskId);
+            ps.setLong(2, household);
+            if (ps.executeUpdate() == 0) return;
+        }
+        for (String table : new String[]{"cleaning_task_completions", "cleaning_task_assignments"}) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + table + " WHERE task_id = ?")) {
+                ps.setInt(1, taskId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Weist einen einzelnen Termin einer Serie zu. Für den Starttermin wird die Serie selbst geändert
+     * (damit die Rotation beim Vorrücken beim tatsächlichen Zuständigen weitermacht), sonst ein Plan-Eintrag gesetzt.
+     */
+    public void assignOccurrence(int taskId, LocalDate occurrence, String assignee) throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            assignOccurrence(conn, taskId, occurrence, assignee);
+        }
+    }
+
+    /** Wie {@link #assignOccurrence(int, LocalDate, String)}, aber auf einer vorhandenen Verbindung (z.B. in einer Transaktion). */
+    public void assignOccurrence(Connection conn, int taskId, LocalDate occurrence, String assignee) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ASSIGN_SQL)) {
+            ps.setString(1, occurrence.toString());
+            ps.setString(2, assignee);
+            ps.setInt(3, taskId);
+            ps.setLong(4, household());
             ps.executeUpdate();
         }
+        applyStartAssignments(conn, household(), taskId);
+    }
+
+    /** Wie {@link #setAssignee(Connection, CleaningTask, String)} auf einer eigenen Verbindung. */
+    public void setAssignee(CleaningTask task, String assignee) throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            setAssignee(conn, task, assignee);
+        }
+    }
+
+    /**
+     * Setzt nur den Zuständigen einer Aufgabe, auf einer vorhandenen Verbindung; Compare-and-Set wie
+     * {@link #update(CleaningTask)}. Bei Erfolg wird die Version von {@code task} mitgezogen.
+     */
+    public void setAssignee(Connection conn, CleaningTask task, String assignee) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE cleaning_tasks SET assigned_to = ?, version = version + 1 WHERE id = ? AND household_id = ? AND (? < 0 OR version = ?)")) {
+            ps.setString(1, assignee);
+            ps.setInt(2, task.getId());
+            ps.setLong(3, household());
+            ps.setInt(4, task.getVersion());
+            ps.setInt(5, task.getVersion());
+            int updated = ps.executeUpdate();
+            VersionConflictException.check(conn, "cleaning_tasks", task.getId(), task.getVersion(), updated);
+            if (updated > 0 && task.getVersion() >= 0) task.setVersion(task.getVersion() + 1);
+        }
+    }
+
+    /**
+     * Speichert einen Rotationsplan in einer Transaktion: bestehende Plan-Einträge im Fenster {@code [from, to]}
+     * werden ersetzt, die neuen per Batch eingefügt. Übergeben werden Termin-Objekte
+     * (ID der Serie, Termindatum als {@code due}, geplanter Zuständiger).
+     */
+    public void saveAssignments(LocalDate from, LocalDate to, List<CleaningTask> occurrences) throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            boolean originalAuto = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM cleaning_task_assignments WHERE occurrence >= ? AND occurrence <= ? " +
+                        "AND task_id IN (SELECT id FROM cleaning_tasks WHERE household_id = ?)")) {
+                    ps.setString(1, from.toString());
+                    ps.setString(2, to.toString());
+                    ps.setLong(3, household());
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(ASSIGN_SQL)) {
+                    for (CleaningTask o : occurrences) {
+                        ps.setString(1, o.getDue().toString());
+                        ps.setString(2, o.getAssignedTo());
+                        ps.setInt(3, o.getId());
+                        ps.setLong(4, household());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                applyStartAssignments(conn, household(), null);
+                conn.commit();
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            } finally {
+                try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    // Plan-Einträge, die auf den Starttermin einer Serie fallen, in die Serie übernehmen.
+    // Liefert bei einer einzelnen Serie den übernommenen Wert ("" für "nicht zugewiesen"), sonst null.
+    private static String applyStartAssignments(Connection conn, long household, Integer taskId) throws SQLException {
+        String filter = " AND t.household_id = " + household + (taskId != null ? " AND t.id = " + taskId : "");
+        String applied = null;
+        if (taskId != null) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT COALESCE(a.assigned_to, '') FROM cleaning_task_assignments a JOIN cleaning_tasks t " +
+                    "ON t.id = a.task_id AND t.due = a.occurrence WHERE 1 = 1" + filter);
+                 ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) applied = rs.getString(1);
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE cleaning_tasks SET assigned_to = (SELECT a.assigned_to FROM cleaning_task_assignments a " +
+                    "WHERE a.task_id = cleaning_tasks.id AND a.occurrence = cleaning_tasks.due), version = version + 1 " +
+                    "WHERE EXISTS (SELECT 1 FROM cleaning_task_assignments a JOIN cleaning_tasks t ON t.id = a.task_id " +
+                    "AND t.due = a.occurrence WHERE t.id = cleaning_tasks.id" + filter + ")");
+            st.executeUpdate("DELETE FROM cleaning_task_assignments WHERE EXISTS (SELECT 1 FROM cleaning_tasks t " +
+                    "WHERE t.id = cleaning_task_assignments.task_id AND t.due = cleaning_task_assignments.occurrence" + filter + ")");
+        }
+        return applied;
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.trim().isEmpty() ? null : s;
+    }
+
+    private static CleaningTask readRow(ResultSet rs) throws SQLException {
+        String dueText = rs.getString("due");
+        LocalDate due = (dueText != null && !dueText.isBlank()) ? LocalDate.parse(dueText) : null;
+        String assignedTo = rs.getString("assigned_to");
+        CleaningTask t = new CleaningTask(rs.getString("title"), due,
+                (assignedTo != null && !assignedTo.trim().isEmpty()) ? assignedTo : null,
+                rs.getString("recurrence"), rs.getInt("urgent") != 0);
+        t.setId(rs.getInt("id"));
+        t.setCompleted(rs.getInt("completed") != 0);
+        t.setVersion(rs.getInt("version"));
+        return t;
+    }
+
+    private static CleaningTask occurrence(CleaningTask series, LocalDate date, boolean completed) {
+        CleaningTask o = new CleaningTask(series.getId(), series.getTitle(), date, series.getAssignedTo(),
+                series.getRecurrence(), completed, series.isUrgent());
+        o.setVersion(series.getVersion());
+        return o;
+    }
+
+    // Tabellen aus älteren Versionen ohne Versionsspalte nachrüsten
+    private static void ensureVersionColumn(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(cleaning_tasks)")) {
+            while (rs.next()) {
+                if ("version".equalsIgnoreCase(rs.getString("name"))) return;
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER TABLE cleaning_tasks ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.model.CleaningTask;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Putzaufgaben einer WG, so wie Putzplan und {@link com.flatmanager.service.RotationPlanner} sie brauchen:
+ * direkt auf der Datenbank ({@link CleaningTaskDao}) oder als Thin Client über den API-Server
+ * ({@code ApiClient#cleaningTasks()}). Die Bedeutung der Methoden steht bei {@link CleaningTaskDao}; Konflikte
+ * kommen in beiden Fällen als {@link VersionConflictException}.
+ */
+public interface CleaningTaskStore {
+
+    void init() throws SQLException;
+
+    List<CleaningTask> listWindow(LocalDate from, LocalDate to, boolean includeUndated) throws SQLException;
+
+    List<CleaningTask> listOccurrences(LocalDate from, LocalDate to) throws SQLException;
+
+    List<CleaningTask> listRecurring() throws SQLException;
+
+    Set<LocalDate> listCompletedOccurrences(int taskId) throws SQLException;
+
+    void insert(CleaningTask task) throws SQLException;
+
+    void update(CleaningTask task) throws SQLException;
+
+    void setOccurrenceCompleted(int taskId, LocalDate occurrence, boolean completed) throws SQLException;
+
+    void assignOccurrence(int taskId, LocalDate occurrence, String assignee) throws SQLException;
+
+    void setAssignee(CleaningTask task, String assignee) throws SQLException;
+
+    CleaningTask advance(CleaningTask series, LocalDate newStart, String assignee) throws SQLException;
+
+    void deleteSeries(int taskId) throws SQLException;
+
+    void deleteCompleted() throws SQLException;
+
+    void saveAssignments(LocalDate from, LocalDate to, List<CleaningTask> occurrences) throws SQLException;
+}
@@ -0,0 +1,378 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.SchemaVersions;
+import com.flatmanager.storage.Database;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Pflegt die Tabelle {@code dashboard_summary}, die per SQLite-Trigger auf {@code cleaning_tasks},
+ * {@code shopping_items}, {@code budget_transactions}, {@code budget_shares} und {@code users}
+ * aktuell gehalten wird. Das Dashboard liest daraus mit einem einzigen Index-Lookup, statt bei jedem
+ * Refresh mehrere {@code COUNT(*)}-Abfragen und alle Transaktionen zu laden.
+ * <p>
+ * Jede Zeile ist (subject, kind) → value. {@code subject} ist entweder {@code '#<household_id>'} (Zähler
+ * einer WG) oder ein Benutzername (case-insensitiv, global eindeutig). In einem {@link Snapshot} erscheinen
+ * die Zähler der geladenen WG unter {@link #GLOBAL}. Tabelle und Trigger legt {@link #install(Connection)} einmal
+ * je Schema-Version an. {@link #verify()} und {@link #rebuild()} prüfen die Summen gegen die Basistabellen bzw.
+ * berechnen sie neu; beides liest die Basistabellen komplett und ist als Wartungsaktion gedacht.
+ */
+public class DashboardSummaryDao {
+
+    /** Subject-Schlüssel im {@link Snapshot} für Zähler der WG, die keinem Benutzer zugeordnet sind. */
+    public static final String GLOBAL = "";
+
+    public static final String TASKS_OPEN = "tasks_open";
+    public static final String TASKS_ASSIGNED = "tasks_assigned";
+    public static final String SHOPPING_TOTAL = "shopping_total";
+    public static final String SHOPPING_FOR = "shopping_for";
+    /** Laufender Saldo: gezahlte Beträge minus eigene Anteile an Transaktionen mit Shares. */
+    public static final String BALANCE = "balance";
+    /** Summe aller Transaktionen ohne Shares (werden gleichmäßig auf alle Benutzer verteilt). */
+    public static final String UNSHARED_TOTAL = "unshared_total";
+    /** Pro Zahler: Summe seiner Transaktionen ohne Shares (Fallback, wenn keine Benutzer existieren). */
+    public static final String UNSHARED_PAID = "unshared_paid";
+    public static final String USERS_TOTAL = "users_total";
+    /** 1, wenn der Benutzer in {@code users} existiert. */
+    public static final String USER = "user";
+
+    private static final double EPS = 0.000001;
+
+    /** Version von Tabelle und Triggern; erhöhen, wenn sich die Regeln ändern. */
+    static final int SCHEMA_VERSION = 1;
+    private static final String COMPONENT = "dashboard_summary";
+
+    /** Ergebnis eines Lookups: Werte je (subject, kind), subject case-insensitiv. */
+    public static final class Snapshot {
+        private final Map<String, Double> values;
+
+        Snapshot(Map<String, Double> values) {
+            this.values = values;
+        }
+
+        public double get(String subject, String kind) {
+            if (subject == null) return 0.0;
+            return values.getOrDefault(key(subject, kind), 0.0);
+        }
+
+        public int count(String subject, String kind) {
+            return (int) Math.round(get(subject, kind));
+        }
+
+        /**
+         * Saldo eines Benutzers: positiv, wenn andere ihm Geld schulden. Transaktionen ohne Shares werden
+         * wie in der Budget-Ansicht gleichmäßig auf alle Benutzer verteilt.
+         */
+        public double balance(String username) {
+            if (username == null) return 0.0;
+            double bal = get(username, BALANCE);
+            double users = get(GLOBAL, USERS_TOTAL);
+            if (users > EPS) {
+                if (get(username, USER) > EPS) bal -= get(GLOBAL, UNSHARED_TOTAL) / users;
+            } else {
+                // ohne Benutzer trägt der Zahler seine ungeteilten Ausgaben selbst
+                bal -= get(username, UNSHARED_PAID);
+            }
+            return bal;
+        }
+    }
+
+    /** Abweichung zwischen gespeicherter Summe und den Basistabellen. */
+    public static final class Mismatch {
+        public final String subject;
+        public final String kind;
+        public final double stored;
+        public final double expected;
+
+        public Mismatch(String subject, String kind, double stored, double expected) {
+            this.subject = subject;
+            this.kind = kind;
+            this.stored = stored;
+            this.expected = expected;
+        }
+
+        @Override
+        public String toString() {
+            return "Mismatch{" + subject + "/" + kind + ": stored=" + stored + ", expected=" + expected + '}';
+        }
+    }
+
+    // Subject der WG-Zähler zur household_id-Spalte einer Zeile
+    private static String householdSubject(String row) {
+        return "'#' || " + row + ".household_id";
+    }
+
+    // Wahrheit aus den Basistabellen; dieselben Regeln wie die Trigger
+    private static final String AGGREGATE_SQL =
+            "SELECT subject, kind, TOTAL(v) AS value FROM (" +
+            " SELECT '#' || household_id AS subject, '" + TASKS_OPEN + "' AS kind, 1.0 AS v FROM cleaning_tasks WHERE completed = 0" +
+            " UNION ALL SELECT assigned_to, '" + TASKS_ASSIGNED + "', 1.0 FROM cleaning_tasks WHERE assigned_to IS NOT NULL AND assigned_to <> ''" +
+            " UNION ALL SELECT '#' || household_id, '" + SHOPPING_TOTAL + "', 1.0 FROM shopping_items" +
+            " UNION ALL SELECT purchased_for, '" + SHOPPING_FOR + "', 1.0 FROM shopping_items WHERE purchased_for IS NOT NULL AND purchased_for <> ''" +
+            " UNION ALL SELECT paid_by, '" + BALANCE + "', amount FROM budget_transactions WHERE paid_by IS NOT NULL" +
+            " UNION ALL SELECT s.username, '" + BALANCE + "', -s.share * t.amount FROM budget_shares s" +
+            "   JOIN budget_transactions t ON t.id = s.transaction_id WHERE s.username IS NOT NULL" +
+            " UNION ALL SELECT '#' || t.household_id, '" + UNSHARED_TOTAL + "', t.amount FROM budget_transactions t" +
+            "   WHERE NOT EXISTS (SELECT 1 FROM budget_shares s WHERE s.transaction_id = t.id)" +
+            " UNION ALL SELECT t.paid_by, '" + UNSHARED_PAID + "', t.amount FROM budget_transactions t" +
+            "   WHERE t.paid_by IS NOT NULL AND NOT EXISTS (SELECT 1 FROM budget_shares s WHERE s.transaction_id = t.id)" +
+            " UNION ALL SELECT '#' || household_id, '" + USERS_TOTAL + "', 1.0 FROM users" +
+            " UNION ALL SELECT username, '" + USER + "', 1.0 FROM users WHERE username IS NOT NULL" +
+            ") GROUP BY subject COLLATE NOCASE, kind";
+
+    private final long household;
+
+    /** Zähler der aktiven WG ({@link DatabaseManager#currentHousehold()} zum Zeitpunkt des Aufrufs). */
+    public DashboardSummaryDao() {
+        this(-1);
+    }
+
+    /** Zähler einer bestimmten WG. */
+    public DashboardSummaryDao(long householdId) {
+        this.household = householdId;
+    }
+
+    private long household() {
+        return household > 0 ? household : DatabaseManager.currentHousehold();
+    }
+
+    /** Stellt Tabelle und Trigger sicher, siehe {@link #install(Connection)}. */
+    public void init() throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            install(conn);
+        }
+    }
+
+    /**
+     * Legt Tabelle und Trigger in einer Transaktion an, aber nur, wenn die gespeicherte Version von
+     * {@link #SCHEMA_VERSION} abweicht oder Objekte fehlen. Dann werden auch die Summen einmal aus den
+     * Basistabellen neu berechnet, da sie unter alten Regeln bzw. ohne Trigger entstanden sein können. Läuft aus {@code DatabaseManager.ensureSchema}; bei jedem weiteren Öffnen
+     * bleibt es bei einer Abfrage auf {@code sqlite_master}.
+     */
+    public static void install(Connection conn) throws SQLException {
+        SchemaVersions.upgrade(conn, COMPONENT, SCHEMA_VERSION, DashboardSummaryDao::installed, c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS dashboard_summary (" +
+                        "subject TEXT NOT NULL COLLATE NOCASE, " +
+                        "kind TEXT NOT NULL, " +
+                        "value REAL NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (subject, kind)) WITHOUT ROWID");
+                for (String name : triggerNames()) st.execute("DROP TRIGGER IF EXISTS " + name);
+                for (String ddl : triggerDdls()) st.execute(ddl);
+            }
+            rebuildRows(c);
+        });
+    }
+
+    /** Lädt alle Zähler für die angegebenen Benutzer plus die Werte der WG mit einer Abfrage. */
+    public Snapshot load(String... subjects) throws SQLException {
+        String own = "#" + household();
+        List<String> params = new ArrayList<>();
+        params.add(own);
+        for (String s : subjects) if (s != null) params.add(s);
+        StringBuilder sql = new StringBuilder("SELECT subject, kind, value FROM dashboard_summary WHERE subject IN (?");
+        for (int i = 1; i < params.size(); i++) sql.append(", ?");
+        sql.append(')');
+
+        Map<String, Double> values = new HashMap<>();
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) ps.setString(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String subject = rs.getString("subject");
+                    values.put(key(own.equals(subject) ? GLOBAL : subject, rs.getString("kind")), rs.getDouble("value"));
+                }
+            }
+        }
+        return new Snapshot(values);
+    }
+
+    /** Vergleicht die gepflegten Summen mit den Basistabellen. Leere Liste = konsistent. */
+    public List<Mismatch> verify() throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            Map<String, Double> stored = new HashMap<>();
+            Map<String, String[]> names = new HashMap<>();
+            readInto(conn, "SELECT subject, kind, value FROM dashboard_summary", stored, names);
+            Map<String, Double> expected = new HashMap<>();
+            readInto(conn, AGGREGATE_SQL, expected, names);
+
+            List<Mismatch> result = new ArrayList<>();
+            Set<String> keys = new TreeSet<>(stored.keySet());
+            keys.addAll(expected.keySet());
+            for (String k : keys) {
+                double s = stored.getOrDefault(k, 0.0);
+                double e = expected.getOrDefault(k, 0.0);
+                if (Math.abs(s - e) > EPS) {
+                    String[] n = names.get(k);
+                    result.add(new Mismatch(n[0], n[1], s, e));
+                }
+            }
+            return result;
+        }
+    }
+
+    /** Berechnet alle Summen aus den Basistabellen neu (in einer Transaktion). */
+    public void rebuild() throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            rebuild(conn);
+        }
+    }
+
+    /** Prüft die Summen und baut sie bei Abweichungen neu auf. Liefert true, wenn neu aufgebaut wurde. */
+    public boolean ensureConsistent() throws SQLException {
+        List<Mismatch> mismatches = verify();
+        if (mismatches.isEmpty()) return false;
+        System.err.println("[DashboardSummaryDao] " + mismatches.size() + " Abweichung(en), baue Summen neu auf: " + mismatches.get(0));
+        rebuild();
+        return true;
+    }
+
+    private void rebuild(Connection conn) throws SQLException {
+        boolean oldAuto = conn.getAutoCommit();
+        try {
+            conn.setAutoCommit(false);
+            rebuildRows(conn);
+            conn.commit();
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ignore) {}
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(oldAuto); } catch (SQLException ignore) {}
+        }
+    }
+
+    private static void rebuildRows(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM dashboard_summary");
+            st.executeUpdate("INSERT INTO dashboard_summary (subject, kind, value) SELECT COALESCE(subject, ''), kind, value FROM (" + AGGREGATE_SQL + ") WHERE value <> 0");
+        }
+    }
+
+    private static void readInto(Connection conn, String sql, Map<String, Double> target, Map<String, String[]> names) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                String subject = rs.getString("subject");
+                if (subject == null) subject = GLOBAL;
+                String kind = rs.getString("kind");
+                String k = key(subject, kind);
+                target.merge(k, rs.getDouble("value"), Double::sum);
+                names.putIfAbsent(k, new String[]{subject, kind});
+            }
+        }
+    }
+
+    private static String key(String subject, String kind) {
+        return subject.toLowerCase(Locale.ROOT) + '\u0000' + kind;
+    }
+
+    // Tabelle und alle Trigger vorhanden (nicht z.B. von Hand gelöscht)
+    private static boolean installed(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM sqlite_master WHERE " +
+                "(type = 'table' AND name = 'dashboard_summary') OR (type = 'trigger' AND name LIKE 'trg\\_summary\\_%' ESCAPE '\\')");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getInt(1) == 1 + triggerNames().size();
+        }
+    }
+
+    /* ----------------- Trigger ----------------- */
+
+    // INSERT ... SELECT braucht ein WHERE, sonst ist ON CONFLICT syntaktisch mehrdeutig
+    private static String bump(String subject, String kind, String value, String from, String where) {
+        return "INSERT INTO dashboard_summary (subject, kind, value) SELECT " + subject + ", '" + kind + "', COALESCE(" + value + ", 0)" +
+                (from != null ? " FROM " + from : "") + " WHERE " + where +
+                " ON CONFLICT(subject, kind) DO UPDATE SET value = value + excluded.value;";
+    }
+
+    private static String taskEffects(String r, String sign) {
+        return bump(householdSubject(r), TASKS_OPEN, sign + "1", null, r + ".completed = 0") +
+                bump(r + ".assigned_to", TASKS_ASSIGNED, sign + "1", null, r + ".assigned_to IS NOT NULL AND " + r + ".assigned_to <> ''");
+    }
+
+    private static String shoppingEffects(String r, String sign) {
+        return bump(householdSubject(r), SHOPPING_TOTAL, sign + "1", null, "1") +
+                bump(r + ".purchased_for", SHOPPING_FOR, sign + "1", null, r + ".purchased_for IS NOT NULL AND " + r + ".purchased_for <> ''");
+    }
+
+    private static String transactionEffects(String r, String sign) {
+        String noShares = "NOT EXISTS (SELECT 1 FROM budget_shares s WHERE s.transaction_id = " + r + ".id)";
+        return bump(r + ".paid_by", BALANCE, sign + r + ".amount", null, r + ".paid_by IS NOT NULL") +
+                bump("s.username", BALANCE, sign + "(-s.share * " + r + ".amount)", "budget_shares s",
+                        "s.transaction_id = " + r + ".id AND s.username IS NOT NULL") +
+                bump(householdSubject(r), UNSHARED_TOTAL, sign + r + ".amount", null, noShares) +
+                bump(r + ".paid_by", UNSHARED_PAID, sign + r + ".amount", null, r + ".paid_by IS NOT NULL AND " + noShares);
+    }
+
+    private static String shareBalanceEffect(String r, String sign) {
+        return bump(r + ".username", BALANCE, sign + "(-" + r + ".share * t.amount)", "budget_transactions t",
+                "t.id = " + r + ".transaction_id AND " + r + ".username IS NOT NULL");
+    }
+
+    // erster Share einer Transaktion: sie ist ab jetzt nicht mehr "ungeteilt"
+    private static String firstShareEffect(String txId) {
+        String first = "t.id = " + txId + " AND (SELECT COUNT(*) FROM budget_shares s WHERE s.transaction_id = t.id) = 1";
+        return bump(householdSubject("t"), UNSHARED_TOTAL, "-t.amount", "budget_transactions t", first) +
+                bump("t.paid_by", UNSHARED_PAID, "-t.amount", "budget_transactions t", first + " AND t.paid_by IS NOT NULL");
+    }
+
+    // letzter Share entfernt: die Transaktion zählt wieder als ungeteilt
+    private static String lastShareEffect(String txId) {
+        String last = "t.id = " + txId + " AND NOT EXISTS (SELECT 1 FROM budget_shares s WHERE s.transaction_id = t.id)";
+        return bump(householdSubject("t"), UNSHARED_TOTAL, "t.amount", "budget_transactions t", last) +
+                bump("t.paid_by", UNSHARED_PAID, "t.amount", "budget_transactions t", last + " AND t.paid_by IS NOT NULL");
+    }
+
+    private static String userEffects(String r, String sign) {
+        return bump(householdSubject(r), USERS_TOTAL, sign + "1", null, "1") +
+                bump(r + ".username", USER, sign + "1", null, r + ".username IS NOT NULL");
+    }
+
+    private static List<String> triggerNames() {
+        List<String> names = new ArrayList<>();
+        for (String t : List.of("tasks", "shopping", "tx", "shares", "users")) {
+            for (String op : List.of("ins", "del", "upd")) names.add("trg_summary_" + t + "_" + op);
+        }
+        return names;
+    }
+
+    private static List<String> triggerDdls() {
+        List<String> ddls = new ArrayList<>();
+        ddls.add(trigger("tasks_ins", "AFTER INSERT ON cleaning_tasks", taskEffects("NEW", "")));
+        ddls.add(trigger("tasks_del", "AFTER DELETE ON cleaning_tasks", taskEffects("OLD", "-")));
+        ddls.add(trigger("tasks_upd", "AFTER UPDATE OF completed, assigned_to, household_id ON cleaning_tasks",
+                taskEffects("OLD", "-") + taskEffects("NEW", "")));
+
+        ddls.add(trigger("shopping_ins", "AFTER INSERT ON shopping_items", shoppingEffects("NEW", "")));
+        ddls.add(trigger("shopping_del", "AFTER DELETE ON shopping_items", shoppingEffects("OLD", "-")));
+        ddls.add(trigger("shopping_upd", "AFTER UPDATE OF purchased_for, household_id ON shopping_items",
+                shoppingEffects("OLD", "-") + shoppingEffects("NEW", "")));
+
+        ddls.add(trigger("tx_ins", "AFTER INSERT ON budget_transactions", transactionEffects("NEW", "")));
+        ddls.add(trigger("tx_del", "AFTER DELETE ON budget_transactions", transactionEffects("OLD", "-")));
+        ddls.add(trigger("tx_upd", "AFTER UPDATE OF amount, paid_by, household_id ON budget_transactions",
+                transactionEffects("OLD", "-") + transactionEffects("NEW", "")));
+
+        ddls.add(trigger("shares_ins", "AFTER INSERT ON budget_shares",
+                shareBalanceEffect("NEW", "") + firstShareEffect("NEW.transaction_id")));
+        ddls.add(trigger("shares_del", "AFTER DELETE ON budget_shares",
+                shareBalanceEffect("OLD", "-") + lastShareEffect("OLD.transaction_id")));
+        // Wechsel der Transaktion: alte ggf. wieder ungeteilt, neue ggf. erstmals geteilt
+        ddls.add(trigger("shares_upd", "AFTER UPDATE OF transaction_id, username, share ON budget_shares",
+                shareBalanceEffect("OLD", "-") + shareBalanceEffect("NEW", "") +
+                        lastShareEffect("(CASE WHEN OLD.transaction_id IS NOT NEW.transaction_id THEN OLD.transaction_id END)") +
+                        firstShareEffect("(CASE WHEN OLD.transaction_id IS NOT NEW.transaction_id THEN NEW.transaction_id END)")));
+
+        ddls.add(trigger("users_ins", "AFTER INSERT ON users", userEffects("NEW", "")));
+        ddls.add(trigger("users_del", "AFTER DELETE ON users", userEffects("OLD", "-")));
+        ddls.add(trigger("users_upd", "AFTER UPDATE OF username, household_id ON users",
+                userEffects("OLD", "-") + userEffects("NEW", "")));
+        return ddls;
+    }
+
+    private static String trigger(String name, String event, String body) {
+        return "CREATE TRIGGER trg_summary_" + name + " " + event + " FOR EACH ROW BEGIN " + body + " END";
+    }
+}
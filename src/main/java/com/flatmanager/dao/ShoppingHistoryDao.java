@@ -0,0 +1,176 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.SchemaVersions;
+import com.flatmanager.storage.Database;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pflegt die Kaufhistorie {@code shopping_history}: je Artikelname, Kategorie und Menge, wie oft und wann
+ * zuletzt der Artikel auf die Einkaufsliste kam. Ein Trigger auf {@code shopping_items} zählt jedes
+ * Hinzufügen mit, sodass die Historie das Leeren der Liste überdauert. Beim ersten Anlegen wird sie aus
+ * den aktuellen Einträgen befüllt. Jede WG hat ihre eigene Historie (Spalte {@code household_id}). Grundlage
+ * der Autovervollständigung ({@link com.flatmanager.service.ShoppingAutocomplete}).
+ */
+public class ShoppingHistoryDao {
+
+    public static final String TABLE = "shopping_history";
+
+    /** Eine Zeile der Historie. {@code category}/{@code quantity} sind leer statt null; {@code lastUsed} in Epoch-Sekunden. */
+    public static final class Row {
+        public final String name;
+        public final String category;
+        public final String quantity;
+        public final long uses;
+        public final long lastUsed;
+
+        public Row(String name, String category, String quantity, long uses, long lastUsed) {
+            this.name = name;
+            this.category = category;
+            this.quantity = quantity;
+            this.uses = uses;
+            this.lastUsed = lastUsed;
+        }
+
+        @Override
+        public String toString() {
+            return "Row{" + name + ", " + category + ", " + quantity + ", uses=" + uses + ", lastUsed=" + lastUsed + '}';
+        }
+    }
+
+    private static final String NAME = "TRIM(COALESCE(%s.item_name, %s.name))";
+    private static final String TRIGGER = "trg_shopping_history_ins";
+    /** Version von Tabelle und Trigger; erhöhen, wenn sich die Regeln ändern. */
+    static final int SCHEMA_VERSION = 1;
+    private static final String COMPONENT = TABLE;
+
+    private static final String COLUMNS = "(" +
+            "id INTEGER PRIMARY KEY, " +
+            "household_id INTEGER NOT NULL DEFAULT 1, " +
+            "name_key TEXT NOT NULL, " +
+            "category TEXT NOT NULL DEFAULT '', " +
+            "quantity TEXT NOT NULL DEFAULT '', " +
+            "name TEXT NOT NULL, " +
+            "uses INTEGER NOT NULL DEFAULT 0, " +
+            "last_used INTEGER NOT NULL, " +
+            "UNIQUE (household_id, name_key, category, quantity))";
+
+    private final long household;
+
+    /** DAO für die aktive WG ({@link DatabaseManager#currentHousehold()} zum Zeitpunkt des Aufrufs). */
+    public ShoppingHistoryDao() {
+        this(-1);
+    }
+
+    /** DAO, dessen Abfragen auf eine WG beschränkt sind. */
+    public ShoppingHistoryDao(long householdId) {
+        this.household = householdId;
+    }
+
+    private long household() {
+        return household > 0 ? household : DatabaseManager.currentHousehold();
+    }
+
+    /** Stellt Tabelle und Trigger sicher, siehe {@link #install(Connection)}. */
+    public void init() throws SQLException {
+        try (Connection conn = Database.getConnection(household())) {
+            install(conn);
+        }
+    }
+
+    /**
+     * Legt Tabelle, Index und Trigger in einer Transaktion an, sofern die gespeicherte Version von
+     * {@link #SCHEMA_VERSION} abweicht oder etwas fehlt; eine neu angelegte Historie wird aus den aktuellen
+     * Einträgen befüllt. Läuft aus {@code DatabaseManager.ensureSchema}, bevor etwas hinzugefügt werden kann.
+     */
+    public static void install(Connection conn) throws SQLException {
+        SchemaVersions.upgrade(conn, COMPONENT, SCHEMA_VERSION, ShoppingHistoryDao::installed, c -> {
+            try (Statement st = c.createStatement()) {
+                boolean existed = tableExists(c);
+                if (existed && !hasHouseholdColumn(c)) migrate(c);
+                // rowid-Tabelle (nicht WITHOUT ROWID), damit die Änderungs-Hooks Schreibzugriffe melden
+                st.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " " + COLUMNS);
+                st.execute("CREATE INDEX IF NOT EXISTS idx_shopping_history_last_used ON " + TABLE + " (household_id, last_used)");
+                st.execute("DROP TRIGGER IF EXISTS " + TRIGGER);
+                String name = NAME.replace("%s", "new");
+                st.execute("CREATE TRIGGER " + TRIGGER + " AFTER INSERT ON shopping_items WHEN " + name + " <> '' BEGIN " +
+                        "INSERT INTO " + TABLE + " (household_id, name_key, category, quantity, name, uses, last_used) VALUES (" +
+                        "COALESCE(new.household_id, 1), LOWER(" + name + "), COALESCE(new.category, ''), " +
+                        "COALESCE(CAST(new.quantity AS TEXT), ''), " + name + ", 1, CAST(strftime('%s', 'now') AS INTEGER)) " +
+                        "ON CONFLICT(household_id, name_key, category, quantity) DO UPDATE SET uses = uses + 1, name = excluded.name, " +
+                        "last_used = MAX(last_used, excluded.last_used); END");
+                if (!existed) seed(c);
+            }
+        });
+    }
+
+    /** Alle Zeilen der WG, die seit {@code lastUsedFrom} (Epoch-Sekunden, inklusive) benutzt wurden; 0 = alle. */
+    public List<Row> loadSince(long lastUsedFrom) throws SQLException {
+        List<Row> out = new ArrayList<>();
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement("SELECT name, category, quantity, uses, last_used FROM " + TABLE +
+                     " WHERE household_id = ? AND last_used >= ? ORDER BY last_used, id")) {
+            ps.setLong(1, household());
+            ps.setLong(2, lastUsedFrom);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new Row(rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getLong(5)));
+                }
+            }
+        }
+        return out;
+    }
+
+    // bestehende Einträge als je eine Verwendung übernehmen
+    private static void seed(Connection conn) throws SQLException {
+        String name = NAME.replace("%s", "s");
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO " + TABLE + " (household_id, name_key, category, quantity, name, uses, last_used) " +
+                    "SELECT s.household_id, LOWER(" + name + "), COALESCE(s.category, ''), COALESCE(CAST(s.quantity AS TEXT), ''), " +
+                    "MAX(" + name + "), COUNT(*), CAST(strftime('%s', 'now') AS INTEGER) FROM shopping_items s WHERE " + name + " <> '' " +
+                    "GROUP BY s.household_id, LOWER(" + name + "), COALESCE(s.category, ''), COALESCE(CAST(s.quantity AS TEXT), '')");
+        }
+    }
+
+    // Historie aus der Zeit vor den WGs: neu anlegen (Eindeutigkeit je WG) und komplett der Standard-WG zuordnen;
+    // läuft in der Transaktion von install
+    private static void migrate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABLE + "_new");
+            st.execute("CREATE TABLE " + TABLE + "_new " + COLUMNS);
+            st.executeUpdate("INSERT INTO " + TABLE + "_new (id, household_id, name_key, category, quantity, name, uses, last_used) " +
+                    "SELECT id, " + DatabaseManager.DEFAULT_HOUSEHOLD + ", name_key, category, quantity, name, uses, last_used FROM " + TABLE);
+            st.execute("DROP TABLE " + TABLE);
+            st.execute("ALTER TABLE " + TABLE + "_new RENAME TO " + TABLE);
+        }
+    }
+
+    private static boolean hasHouseholdColumn(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + TABLE + ")")) {
+            while (rs.next()) {
+                if ("household_id".equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+
+    // Tabelle und Trigger vorhanden (nicht z.B. von Hand gelöscht)
+    private static boolean installed(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM sqlite_master WHERE " +
+                "(type = 'table' AND name = '" + TABLE + "') OR (type = 'trigger' AND name = '" + TRIGGER + "')");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getInt(1) == 2;
+        }
+    }
+
+    private static boolean tableExists(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE type='table' AND name='" + TABLE + "'");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.flatmanager.dao;
 
+import com.flatmanager.database.DatabaseManager;
 import com.flatmanager.model.ShoppingItem;
 import com.flatmanager.storage.Database;
 import javafx.beans.property.*;
@@ -13,31 +14,52 @@ import java.util.List;
 
 public class ShoppingItemDao {
 
+    private final long household;
+
+    /** DAO für die aktive WG ({@link DatabaseManager#currentHousehold()} zum Zeitpunkt des Aufrufs). */
+    public ShoppingItemDao() {
+        this(-1);
+    }
+
+    /** DAO, dessen Abfragen und Änderungen auf eine WG beschränkt sind. */
+    public ShoppingItemDao(long householdId) {
+        this.household = householdId;
+    }
+
+    private long household() {
+        return household > 0 ? household : DatabaseManager.currentHousehold();
+    }
+
     public void init() throws SQLException {
-        Connection conn = Database.getConnection();
-        try (Statement st = conn.createStatement()) {
-            // align with main schema used by DatabaseManager / ShoppingListView
-            st.execute("CREATE TABLE IF NOT EXISTS shopping_items (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "item_name TEXT, " +
-                    "name TEXT, " +
-                    "quantity INTEGER DEFAULT 1, " +
-                    "purchased INTEGER DEFAULT 0, " +
-                    "category TEXT, " +
-                    "added_by TEXT, " +
-                    "purchased_for TEXT)");
+        try (Connection conn = Database.getConnection(household())) {
+            try (Statement st = conn.createStatement()) {
+                // align with main schema used by DatabaseManager / ShoppingListView
+                st.execute("CREATE TABLE IF NOT EXISTS shopping_items (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "item_name TEXT, " +
+                        "name TEXT, " +
+                        "quantity INTEGER DEFAULT 1, " +
+                        "purchased INTEGER DEFAULT 0, " +
+                        "category TEXT, " +
+                        "added_by TEXT, " +
+                        "purchased_for TEXT, " +
+                        "household_id INTEGER NOT NULL DEFAULT 1, " +
+                        "version INTEGER NOT NULL DEFAULT 0)");
+            }
+            // Ensure newer columns exist in case DatabaseManager created a different base schema
+            ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
+            ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
+            ensureColumnExists(conn, "shopping_items", "version", "INTEGER NOT NULL", "0");
+            ensureColumnExists(conn, "shopping_items", "household_id", "INTEGER NOT NULL", "1");
         }
-        // Ensure newer columns exist in case DatabaseManager created a different base schema
-        ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
-        ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
     }
 
     public List<ShoppingItem> listAll() throws SQLException {
         List<ShoppingItem> list = new ArrayList<>();
         // prefer the columns used by the UI: item_name, quantity, added_by, category, purchased_for, purchased
-        String sql = "SELECT id, COALESCE(item_name, name) AS item_name, quantity, added_by, category, purchased_for, COALESCE(purchased, bought, 0) AS purchased FROM shopping_items ORDER BY category, item_name";
-        Connection conn = Database.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql);
+        String sql = "SELECT id, COALESCE(item_name, name) AS item_name, quantity, added_by, category, purchased_for, COALESCE(purchased, bought, 0) AS purchased, version FROM shopping_items WHERE household_id = " + household() + " ORDER BY category, item_name";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 int id = rs.getInt("id");
@@ -54,6 +76,7 @@ public class ShoppingItemDao {
                     // Fallback: no-arg + Reflection-Setzen der Felder
                     it = createByReflection(id, itemName, quantity == null ? "1" : quantity, addedBy, category, purchasedFor, purchased);
                 }
+                it.setVersion(rs.getInt("version"));
                 list.add(it);
             }
         }
@@ -61,153 +84,177 @@ public class ShoppingItemDao {
     }
 
     public void insert(ShoppingItem item) throws SQLException {
-        Connection conn = Database.getConnection();
-        // ensure optional columns exist where possible
-        ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
-        ensureColumnExists(conn, "shopping_items", "bought", "INTEGER", "0");
-        ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
-
-        boolean hasPurchasedFor = columnExists(conn, "shopping_items", "purchased_for");
-        boolean hasPurchased = columnExists(conn, "shopping_items", "purchased");
-        boolean hasBought = columnExists(conn, "shopping_items", "bought");
-
-        StringBuilder sql = new StringBuilder("INSERT INTO shopping_items (item_name, quantity, added_by, category");
-        if (hasPurchasedFor) sql.append(", purchased_for");
-        if (hasPurchased) sql.append(", purchased");
-        if (hasBought) sql.append(", bought");
-        sql.append(") VALUES (?, ?, ?, ?");
-        if (hasPurchasedFor) sql.append(", ?");
-        if (hasPurchased) sql.append(", ?");
-        if (hasBought) sql.append(", ?");
-        sql.append(")");
-
-        try (PreparedStatement ps = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
-            int idx = 1;
-            ps.setString(idx++, item.getItemName());
-            ps.setString(idx++, item.getQuantity());
-            ps.setString(idx++, item.getAddedBy());
-            ps.setString(idx++, item.getCategory());
-            if (hasPurchasedFor) ps.setString(idx++, item.getPurchasedFor());
-            if (hasPurchased) ps.setInt(idx++, item.isPurchased() ? 1 : 0);
-            if (hasBought) ps.setInt(idx++, item.isPurchased() ? 1 : 0);
-            ps.executeUpdate();
+        try (Connection conn = Database.getConnection(household())) {
+            // ensure optional columns exist where possible
+            ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
+            ensureColumnExists(conn, "shopping_items", "bought", "INTEGER", "0");
+            ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
+
+            boolean hasPurchasedFor = columnExists(conn, "shopping_items", "purchased_for");
+            boolean hasPurchased = columnExists(conn, "shopping_items", "purchased");
+            boolean hasBought = columnExists(conn, "shopping_items", "bought");
+
+            StringBuilder sql = new StringBuilder("INSERT INTO shopping_items (household_id, item_name, quantity, added_by, category");
+            if (hasPurchasedFor) sql.append(", purchased_for");
+            if (hasPurchased) sql.append(", purchased");
+            if (hasBought) sql.append(", bought");
+            sql.append(") VALUES (?, ?, ?, ?, ?");
+            if (hasPurchasedFor) sql.append(", ?");
+            if (hasPurchased) sql.append(", ?");
+            if (hasBought) sql.append(", ?");
+            sql.append(")");
+
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                int idx = 1;
+                ps.setLong(idx++, household());
+                ps.setString(idx++, item.getItemName());
+                ps.setString(idx++, item.getQuantity());
+                ps.setString(idx++, item.getAddedBy());
+                ps.setString(idx++, item.getCategory());
+                if (hasPurchasedFor) ps.setString(idx++, item.getPurchasedFor());
+                if (hasPurchased) ps.setInt(idx++, item.isPurchased() ? 1 : 0);
+                if (hasBought) ps.setInt(idx++, item.isPurchased() ? 1 : 0);
+                ps.executeUpdate();
+                item.setVersion(0);
 
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys != null && keys.next()) {
-                    setIntPropIfExists(item, "id", keys.getInt(1));
-                    return;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys != null && keys.next()) {
+                        setIntPropIfExists(item, "id", keys.getInt(1));
+                        return;
+                    }
+                } catch (SQLFeatureNotSupportedException ignored) {
                 }
-            } catch (SQLFeatureNotSupportedException ignored) {
-            }
 
-            try (Statement st = conn.createStatement();
-                 ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
-                if (rs.next()) setIntPropIfExists(item, "id", rs.getInt(1));
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+                    if (rs.next()) setIntPropIfExists(item, "id", rs.getInt(1));
+                }
             }
         }
     }
 
     public void update(ShoppingItem item) throws SQLException {
-        Connection conn = Database.getConnection();
-        // ensure optional columns exist where possible
-        ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
-        ensureColumnExists(conn, "shopping_items", "bought", "INTEGER", "0");
-        ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
-
-        boolean hasPurchasedFor = columnExists(conn, "shopping_items", "purchased_for");
-        boolean hasPurchased = columnExists(conn, "shopping_items", "purchased");
-        boolean hasBought = columnExists(conn, "shopping_items", "bought");
-
-        int id = getIntProp(item, "id", 0);
-        if (id > 0) {
-            // Always include purchased and bought columns (we ensured they exist above)
-            StringBuilder sb = new StringBuilder("UPDATE shopping_items SET item_name = ?, quantity = ?, added_by = ?, category = ?, purchased_for = ?, purchased = ?, bought = ? WHERE id = ?");
-            try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
-                int idx = 1;
-                ps.setString(idx++, getStringProp(item, "itemName") != null ? getStringProp(item, "itemName") : getStringProp(item, "name"));
-                ps.setString(idx++, getStringProp(item, "quantity"));
-                ps.setString(idx++, getStringProp(item, "addedBy"));
-                ps.setString(idx++, getStringProp(item, "category"));
-                ps.setString(idx++, getStringProp(item, "purchasedFor"));
-                ps.setInt(idx++, getBooleanProp(item, "purchased") ? 1 : (getBooleanProp(item, "bought") ? 1 : 0));
-                ps.setInt(idx++, getBooleanProp(item, "bought") ? 1 : 0);
-                ps.setInt(idx++, id);
-                // debug print
-                try {
-                    System.err.println("[ShoppingItemDao] UPDATE SQL: " + sb.toString());
-                    System.err.println("[ShoppingItemDao] params: itemName=" + getStringProp(item, "itemName") +
-                            ", quantity=" + getStringProp(item, "quantity") +
-                            ", addedBy=" + getStringProp(item, "addedBy") +
-                            ", category=" + getStringProp(item, "category") +
-                            ", purchasedFor=" + getStringProp(item, "purchasedFor") +
-                            ", purchased=" + (getBooleanProp(item, "purchased") ? 1 : 0) +
-                            ", bought=" + (getBooleanProp(item, "bought") ? 1 : 0) +
-                            ", id=" + id);
-                } catch (Exception ignored) {}
-                ps.executeUpdate();
-                // additionally ensure the boolean flags persisted correctly (some schemas/driver combos may ignore mixed type bindings)
-                try {
-                    if (hasPurchased) {
-                        try (PreparedStatement ps2 = conn.prepareStatement("UPDATE shopping_items SET purchased = ? WHERE id = ?")) {
-                            ps2.setInt(1, getBooleanProp(item, "purchased") ? 1 : (getBooleanProp(item, "bought") ? 1 : 0));
-                            ps2.setInt(2, id);
-                            ps2.executeUpdate();
+        try (Connection conn = Database.getConnection(household())) {
+            // ensure optional columns exist where possible
+            ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
+            ensureColumnExists(conn, "shopping_items", "bought", "INTEGER", "0");
+            ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
+
+            boolean hasPurchasedFor = columnExists(conn, "shopping_items", "purchased_for");
+            boolean hasPurchased = columnExists(conn, "shopping_items", "purchased");
+            boolean hasBought = columnExists(conn, "shopping_items", "bought");
+
+            int id = getIntProp(item, "id", 0);
+            if (id > 0) {
+                // Always include purchased and bought columns (we ensured they exist above)
+                // Compare-and-Set über die Zeilenversion; unbekannte Version (-1) schreibt ohne Prüfung
+                int expectedVersion = item.getVersion();
+                StringBuilder sb = new StringBuilder("UPDATE shopping_items SET item_name = ?, quantity = ?, added_by = ?, category = ?, purchased_for = ?, purchased = ?, bought = ?, " +
+                        "version = version + 1 WHERE id = ? AND household_id = ? AND (? < 0 OR version = ?)");
+                try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+                    int idx = 1;
+                    ps.setString(idx++, getStringProp(item, "itemName") != null ? getStringProp(item, "itemName") : getStringProp(item, "name"));
+                    ps.setString(idx++, getStringProp(item, "quantity"));
+                    ps.setString(idx++, getStringProp(item, "addedBy"));
+                    ps.setString(idx++, getStringProp(item, "category"));
+                    ps.setString(idx++, getStringProp(item, "purchasedFor"));
+                    ps.setInt(idx++, getBooleanProp(item, "purchased") ? 1 : (getBooleanProp(item, "bought") ? 1 : 0));
+                    ps.setInt(idx++, getBooleanProp(item, "bought") ? 1 : 0);
+                    ps.setInt(idx++, id);
+                    ps.setLong(idx++, household());
+                    ps.setInt(idx++, expectedVersion);
+                    ps.setInt(idx++, expectedVersion);
+                    // debug print
+                    try {
+                        System.err.println("[ShoppingItemDao] UPDATE SQL: " + sb.toString());
+                        System.err.println("[ShoppingItemDao] params: itemName=" + getStringProp(item, "itemName") +
+                                ", quantity=" + getStringProp(item, "quantity") +
+                                ", addedBy=" + getStringProp(item, "addedBy") +
+                                ", category=" + getStringProp(item, "category") +
+                                ", purchasedFor=" + getStringProp(item, "purchasedFor") +
+                                ", purchased=" + (getBooleanProp(item, "purchased") ? 1 : 0) +
+                                ", bought=" + (getBooleanProp(item, "bought") ? 1 : 0) +
+                                ", id=" + id);
+                    } catch (Exception ignored) {}
+                    int updated = ps.executeUpdate();
+                    VersionConflictException.check(conn, "shopping_items", id, expectedVersion, updated);
+                    if (updated > 0 && expectedVersion >= 0) item.setVersion(expectedVersion + 1);
+                    // additionally ensure the boolean flags persisted correctly (some schemas/driver combos may ignore mixed type bindings)
+                    try {
+                        if (hasPurchased) {
+                            try (PreparedStatement ps2 = conn.prepareStatement("UPDATE shopping_items SET purchased = ? WHERE id = ? AND household_id = ?")) {
+                                ps2.setInt(1, getBooleanProp(item, "purchased") ? 1 : (getBooleanProp(item, "bought") ? 1 : 0));
+                                ps2.setInt(2, id);
+                                ps2.setLong(3, household());
+                                ps2.executeUpdate();
+                            }
                         }
+                    } catch (SQLException ignored) {
                     }
-                } catch (SQLException ignored) {
-                }
-                try {
-                    if (hasBought) {
-                        try (PreparedStatement ps3 = conn.prepareStatement("UPDATE shopping_items SET bought = ? WHERE id = ?")) {
-                            ps3.setInt(1, getBooleanProp(item, "bought") ? 1 : 0);
-                            ps3.setInt(2, id);
-                            ps3.executeUpdate();
+                    try {
+                        if (hasBought) {
+                            try (PreparedStatement ps3 = conn.prepareStatement("UPDATE shopping_items SET bought = ? WHERE id = ? AND household_id = ?")) {
+                                ps3.setInt(1, getBooleanProp(item, "bought") ? 1 : 0);
+                                ps3.setInt(2, id);
+                                ps3.setLong(3, household());
+                                ps3.executeUpdate();
+                            }
                         }
+                    } catch (SQLException ignored) {
                     }
-                } catch (SQLException ignored) {
-                }
-                try {
-                    conn.commit();
-                } catch (SQLException ignore) {}
-                // immediate verification on the same connection
-                try (PreparedStatement check = conn.prepareStatement("SELECT COALESCE(purchased, bought, 0) AS p FROM shopping_items WHERE id = ?")) {
-                    check.setInt(1, id);
-                    try (ResultSet crs = check.executeQuery()) {
-                        if (crs.next()) {
-                            int pv = crs.getInt("p");
-                            System.err.println("[ShoppingItemDao] POST-UPDATE check id=" + id + " -> p=" + pv);
-                        } else {
-                            System.err.println("[ShoppingItemDao] POST-UPDATE check id=" + id + " -> no row");
+                    try {
+                        conn.commit();
+                    } catch (SQLException ignore) {}
+                    // immediate verification on the same connection
+                    try (PreparedStatement check = conn.prepareStatement("SELECT COALESCE(purchased, bought, 0) AS p FROM shopping_items WHERE id = ?")) {
+                        check.setInt(1, id);
+                        try (ResultSet crs = check.executeQuery()) {
+                            if (crs.next()) {
+                                int pv = crs.getInt("p");
+                                System.err.println("[ShoppingItemDao] POST-UPDATE check id=" + id + " -> p=" + pv);
+                            } else {
+                                System.err.println("[ShoppingItemDao] POST-UPDATE check id=" + id + " -> no row");
+                            }
                         }
-                    }
-                } catch (SQLException ignore) {}
-             }
-         } else {
-            // fallback: update by item_name or name
-            StringBuilder sb = new StringBuilder("UPDATE shopping_items SET quantity = ?, added_by = ?, category = ?");
-            if (hasPurchasedFor) sb.append(", purchased_for = ?");
-            if (hasPurchased) sb.append(", purchased = ?");
-            if (hasBought) sb.append(", bought = ?");
-            sb.append(" WHERE COALESCE(item_name, name) = ?");
-            try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
-                int idx = 1;
-                ps.setString(idx++, getStringProp(item, "quantity"));
-                ps.setString(idx++, getStringProp(item, "addedBy"));
-                ps.setString(idx++, getStringProp(item, "category"));
-                if (hasPurchasedFor) ps.setString(idx++, getStringProp(item, "purchasedFor"));
-                if (hasPurchased) ps.setInt(idx++, getBooleanProp(item, "purchased") ? 1 : (getBooleanProp(item, "bought") ? 1 : 0));
-                if (hasBought) ps.setInt(idx++, getBooleanProp(item, "bought") ? 1 : 0);
-                ps.setString(idx++, getStringProp(item, "itemName") != null ? getStringProp(item, "itemName") : getStringProp(item, "name"));
-                ps.executeUpdate();
-                try { conn.commit(); } catch (SQLException ignore) {}
+                    } catch (SQLException ignore) {}
+                 }
+             } else {
+                // fallback: update by item_name or name
+                StringBuilder sb = new StringBuilder("UPDATE shopping_items SET quantity = ?, added_by = ?, category = ?");
+                if (hasPurchasedFor) sb.append(", purchased_for = ?");
+                if (hasPurchased) sb.append(", purchased = ?");
+                if (hasBought) sb.append(", bought = ?");
+                sb.append(" WHERE household_id = ? AND COALESCE(item_name, name) = ?");
+                try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+                    int idx = 1;
+                    ps.setString(idx++, getStringProp(item, "quantity"));
+                    ps.setString(idx++, getStringProp(item, "addedBy"));
+                    ps.setString(idx++, getStringProp(item, "category"));
+                    if (hasPurchasedFor) ps.setString(idx++, getStringProp(item, "purchasedFor"));
+                    if (hasPurchased) ps.setInt(idx++, getBooleanProp(item, "purchased") ? 1 : (getBooleanProp(item, "bought") ? 1 : 0));
+                    if (hasBought) ps.setInt(idx++, getBooleanProp(item, "bought") ? 1 : 0);
+                    ps.setLong(idx++, household());
+                    ps.setString(idx++, getStringProp(item, "itemName") != null ? getStringProp(item, "itemName") : getStringProp(item, "name"));
+                    ps.executeUpdate();
+                    try { conn.commit(); } catch (SQLException ignore) {}
+                }
             }
         }
     }
 
     public void deleteBought() throws SQLException {
-        String sql = "DELETE FROM shopping_items WHERE COALESCE(purchased, bought, 0) = 1";
-        Connection conn = Database.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        String sql = "DELETE FROM shopping_items WHERE household_id = " + household() + " AND COALESCE(purchased, bought, 0) = 1";
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.executeUpdate();
+        }
+    }
+
+    public void deleteById(int id) throws SQLException {
+        try (Connection conn = Database.getConnection(household());
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM shopping_items WHERE id = ? AND household_id = ?")) {
+            ps.setInt(1, id);
+            ps.setLong(2, household());
             ps.executeUpdate();
         }
     }
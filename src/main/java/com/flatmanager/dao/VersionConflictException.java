@@ -0,0 +1,51 @@
+package com.flatmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Optimistische Sperre verletzt: Die Zeile wurde seit dem Laden von einer anderen App-Instanz
+ * geändert oder gelöscht. Updates laufen als Compare-and-Set ({@code WHERE id = ? AND version = ?});
+ * trifft das Update keine Zeile, wird diese Exception geworfen statt die fremde Änderung zu überschreiben.
+ * Die UI lädt daraufhin neu und informiert den Benutzer.
+ */
+public class VersionConflictException extends SQLException {
+
+    private final String table;
+    private final int id;
+    private final int expectedVersion;
+    private final boolean deleted;
+
+    public VersionConflictException(String table, int id, int expectedVersion, boolean deleted) {
+        super(deleted
+                ? "Eintrag " + table + "#" + id + " wurde inzwischen gelöscht"
+                : "Eintrag " + table + "#" + id + " wurde inzwischen geändert (erwartete Version " + expectedVersion + ")");
+        this.table = table;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.deleted = deleted;
+    }
+
+    public String getTable() { return table; }
+    public int getId() { return id; }
+    public int getExpectedVersion() { return expectedVersion; }
+    public boolean isDeleted() { return deleted; }
+
+    /**
+     * Wertet ein Compare-and-Set-Update aus. Bei unbekannter Version ({@code expectedVersion < 0},
+     * Objekt nicht aus der DB geladen) wurde ohne Versionsprüfung geschrieben; dann ist nichts zu tun.
+     */
+    static void check(Connection conn, String table, int id, int expectedVersion, int updatedRows) throws SQLException {
+        if (updatedRows > 0 || expectedVersion < 0) return;
+        boolean exists;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM " + table + " WHERE id = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                exists = rs.next();
+            }
+        }
+        throw new VersionConflictException(table, id, expectedVersion, !exists);
+    }
+}
@@ -0,0 +1,581 @@
+package com.flatmanager.database;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sicherungen der Datenbank im laufenden Betrieb über die Online-Backup-API von SQLite.
+ *
+ * Eine Sicherung liest auf einer eigenen Connection (außerhalb des Pools) jeweils {@link #PAGES_PER_STEP}
+ * Seiten und pausiert dazwischen kurz. Im WAL-Modus liest sie aus einer festgehaltenen Lesetransaktion,
+ * Schreiber laufen ungehindert weiter. In den anderen Journal-Modi hält sie zwischen zwei Schritten keine
+ * Sperre; ändert jemand die Datei währenddessen, beginnt SQLite die Kopie neu, sodass immer ein konsistenter
+ * Stand entsteht. Ist die Quelle dauerhaft gesperrt, wird mit {@code VACUUM INTO} in einem Zug kopiert.
+ * Die Datei wird erst unter einem temporären Namen geschrieben, mit {@code PRAGMA quick_check} geprüft und
+ * dann umbenannt.
+ *
+ * Nach jeder Sicherung greift die {@link Retention}: die neuesten {@code keepLast} Sicherungen und die
+ * jeweils neueste der letzten {@code keepDaily} Tage bleiben, ältere werden gelöscht.
+ *
+ * {@link #restoreHousehold(Path, long)} holt den Stand einer einzelnen WG aus einer Sicherung zurück; andere WGs
+ * in derselben Datei bleiben unverändert. Das ist der Weg für die Oberfläche. {@link #restore(Path)} spielt
+ * dagegen eine ganze Datei über dieselbe API zurück, während der Pool mit
+ * {@link DatabaseManager#runQuiesced(long, DatabaseManager.QuiescedAction)} angehalten ist; in einer gemeinsamen
+ * Datei betrifft das alle WGs, daher ist es dem Betreiber vorbehalten ({@code --restore} auf der Kommandozeile).
+ * Danach werden alle Tabellen als extern geändert gemeldet, damit Views und Caches neu laden. Gepufferte
+ * Schreibzugriffe (WriteBehindBuffer) sollte der Aufrufer vorher schreiben.
+ *
+ * Liegt jede WG in einer eigenen Datei ({@link ShardRouter}), gehört zu jeder Sicherung einer WG-Datei eine
+ * Sicherung des Katalogs ({@code catalog.db}: WGs und Anmeldenamen) mit demselben Zeitstempel; der periodische
+ * Job sichert jede geänderte WG-Datei, nicht nur die der aktiven WG.
+ *
+ * Verzeichnis: System-Property {@code backup.dir}, sonst {@code backups/} neben der Datenbankdatei.
+ */
+public final class BackupService {
+
+    /** Seiten je Schritt der Backup-API (bei 4 KiB-Seiten 1 MiB). */
+    static final int PAGES_PER_STEP = 256;
+    /** Pause zwischen zwei Schritten, in der Schreiber ungehindert arbeiten. */
+    static final long STEP_PAUSE_MILLIS = 2;
+    private static final int BUSY_SLEEP_MILLIS = 100;
+    private static final int BUSY_RETRIES = 50;
+    private static final int MAX_RESTARTS = 3;
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final long QUIESCE_TIMEOUT_MILLIS = 10_000;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int STAMP_LENGTH = 19;
+    private static final String CATALOG_PREFIX = "catalog-";
+    private static final Pattern SHARD_BACKUP = Pattern.compile("wg-(\\d+)-\\d{8}-.*\\.db");
+
+    /** Aufbewahrungsregel für Sicherungen. */
+    public static final class Retention {
+        public final int keepLast;
+        public final int keepDaily;
+
+        public Retention(int keepLast, int keepDaily) {
+            if (keepLast < 1) throw new IllegalArgumentException("keepLast muss mindestens 1 sein");
+            this.keepLast = keepLast;
+            this.keepDaily = Math.max(0, keepDaily);
+        }
+
+        @Override
+        public String toString() {
+            return "Retention{keepLast=" + keepLast + ", keepDaily=" + keepDaily + "}";
+        }
+    }
+
+    public static final Retention DEFAULT_RETENTION = new Retention(5, 7);
+
+    private static final BackupService INSTANCE = new BackupService();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flatmanager-backup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private volatile Retention retention = DEFAULT_RETENTION;
+    // Stand je Datei (URL) bei ihrer letzten Sicherung, um unveränderte Dateien nicht erneut zu sichern
+    private final Map<String, Long> lastStamps = new HashMap<>();
+    private int lastSteps;
+
+    BackupService() {
+    }
+
+    public static BackupService get() {
+        return INSTANCE;
+    }
+
+    public Retention getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Retention retention) {
+        if (retention == null) throw new IllegalArgumentException("retention");
+        this.retention = retention;
+    }
+
+    /** Sicherungsverzeichnis der aktiven Datenbank. */
+    public Path backupDirectory() {
+        String configured = System.getProperty("backup.dir");
+        if (configured != null && !configured.isBlank()) return Paths.get(configured);
+        Path db = databaseFile();
+        Path parent = db != null ? db.toAbsolutePath().getParent() : null;
+        return parent != null ? parent.resolve("backups") : Paths.get("backups");
+    }
+
+    /** Startet eine Sicherung im Hintergrund-Thread. */
+    public CompletableFuture<Path> backupAsync(String label) {
+        CompletableFuture<Path> f = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                f.complete(backupNow(label));
+            } catch (Throwable t) {
+                System.err.println("[BackupService] backup failed: " + t.getMessage());
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+
+    /**
+     * Sichert nur, wenn sich die Datenbank seit der letzten Sicherung geändert hat (eigene Commits oder
+     * Änderungszeit der Datei); für den periodischen Scheduler-Job. Bei einer Datei je WG wird jede geänderte
+     * WG-Datei gesichert und der Katalog mit demselben Zeitstempel dazu.
+     * Das Ergebnis ist die (zuletzt) erstellte Sicherung einer WG bzw. {@code null}, wenn sich nichts geändert hat.
+     */
+    public CompletableFuture<Path> backupIfChangedAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return backupIfChanged();
+            } catch (SQLException | IOException e) {
+                System.err.println("[BackupService] backup failed: " + e.getMessage());
+                throw new java.util.concurrent.CompletionException(e);
+            }
+        }, executor);
+    }
+
+    synchronized Path backupIfChanged() throws SQLException, IOException {
+        if (!ShardRouter.isEnabled()) {
+            return changed(DatabaseManager.currentUrl()) ? backupNow(null) : null;
+        }
+        String stamp = LocalDateTime.now().format(STAMP);
+        Path last = null;
+        for (long household : ShardRouter.get().households()) {
+            String url = ShardRouter.shardUrl(household);
+            // gerade gelöschte WGs nicht anfassen: die Connection der Sicherung würde die Datei neu anlegen
+            if (ShardRouter.get().isDropping(household) || !Files.isRegularFile(ShardRouter.shardFile(household))) continue;
+            if (changed(url)) last = backupFile(url, stamp, null);
+        }
+        String catalog = ShardRouter.catalogUrl();
+        if (last != null || changed(catalog)) backupCatalog(stamp, null);
+        return last;
+    }
+
+    /**
+     * Erstellt sofort eine Sicherung im aufrufenden Thread; bei einer Datei je WG die der aktiven WG samt Katalog.
+     * @param label optionaler Zusatz im Dateinamen (z.B. "vor-wg-loeschen")
+     * @return Pfad der fertigen Sicherung
+     */
+    public synchronized Path backupNow(String label) throws SQLException, IOException {
+        String stamp = LocalDateTime.now().format(STAMP);
+        if (ShardRouter.isEnabled()) backupCatalog(stamp, label);
+        return backupFile(DatabaseManager.currentUrl(), stamp, label);
+    }
+
+    // Katalog der WG-Dateien; legt ihn vorher an, damit nicht eine leere Datei gesichert wird
+    private Path backupCatalog(String stamp, String label) throws SQLException, IOException {
+        ShardRouter.get().catalog().close();
+        return backupFile(ShardRouter.catalogUrl(), stamp, label);
+    }
+
+    private Path backupFile(String url, String stamp, String label) throws SQLException, IOException {
+        long changeStamp = changeStamp(url);
+        Path dir = backupDirectory();
+        Files.createDirectories(dir);
+        String prefix = filePrefix(url);
+        String name = prefix + stamp
+                + (label == null || label.isBlank() ? "" : "-" + label.replaceAll("[^A-Za-z0-9_-]", "_")) + ".db";
+        Path target = dir.resolve(name);
+        Path part = dir.resolve(name + ".part");
+        Files.deleteIfExists(part);
+
+        long start = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection(url)) {
+            boolean snapshot = holdReadSnapshot(conn);
+            org.sqlite.core.DB db = conn.unwrap(org.sqlite.SQLiteConnection.class).getDatabase();
+            StepThrottle throttle = new StepThrottle();
+            int rc = db.backup("main", part.toString(), throttle, BUSY_SLEEP_MILLIS, BUSY_RETRIES, PAGES_PER_STEP);
+            if (snapshot) conn.rollback();
+            if (rc == SQLITE_BUSY || rc == SQLITE_LOCKED) {
+                // Quelle dauerhaft gesperrt: einmal als Ganzes kopieren (wartet per busy_timeout auf Schreiber)
+                Files.deleteIfExists(part);
+                vacuumInto(conn, part);
+            } else if (rc != 0) {
+                throw new SQLException("Sicherung fehlgeschlagen (SQLite-Code " + rc + ")");
+            }
+            lastSteps = throttle.steps;
+        } catch (SQLException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        if (!quickCheck(part)) {
+            Files.deleteIfExists(part);
+            throw new SQLException("Sicherung ist beschädigt: " + part);
+        }
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+        System.err.println("[BackupService] backup " + target + " (" + Files.size(target) + " bytes, "
+                + (System.nanoTime() - start) / 1_000_000 + " ms)");
+
+        lastStamps.put(url, changeStamp);
+        applyRetention(prefix);
+        return target;
+    }
+
+    /** Anzahl der Kopierschritte der letzten Sicherung. */
+    synchronized int lastSteps() {
+        return lastSteps;
+    }
+
+    /** Vorhandene Sicherungen der aktiven Datenbank, neueste zuerst. */
+    public List<Path> listBackups() throws IOException {
+        return listBackups(filePrefix(DatabaseManager.currentUrl()));
+    }
+
+    private List<Path> listBackups(String prefix) throws IOException {
+        Path dir = backupDirectory();
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*.db")) {
+            for (Path p : files) out.add(p);
+        }
+        // Zeitstempel steht direkt hinter dem Präfix: lexikografisch = zeitlich
+        out.sort(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed());
+        return out;
+    }
+
+    /**
+     * Spielt eine ganze Sicherungsdatei zurück; in einer gemeinsamen Datei also den Stand aller WGs. Nur für den
+     * Betreiber, die Oberfläche nutzt {@link #restoreHousehold(Path, long)}. Bei einer Datei je WG wird eine
+     * WG-Sicherung wie mit {@link #restoreHousehold(Path, long)} samt Katalogzeilen zurückgespielt, eine
+     * Katalogsicherung ersetzt den Katalog. Vorher wird der aktuelle Stand selbst gesichert
+     * ("vor-wiederherstellung"), sodass auch die Wiederherstellung rückgängig gemacht werden kann.
+     */
+    public synchronized void restore(Path backup) throws SQLException, IOException {
+        checkBackup(backup);
+        String url = DatabaseManager.currentUrl();
+        if (ShardRouter.isEnabled()) {
+            Matcher m = SHARD_BACKUP.matcher(backup.getFileName().toString());
+            if (m.matches()) {
+                restoreHousehold(backup, Long.parseLong(m.group(1)));
+                return;
+            }
+            if (!backup.getFileName().toString().startsWith(CATALOG_PREFIX)) {
+                throw new IOException("Weder WG- noch Katalogsicherung: " + backup);
+            }
+            url = ShardRouter.catalogUrl();
+            backupCatalog(LocalDateTime.now().format(STAMP), "vor-wiederherstellung");
+        } else {
+            backupNow("vor-wiederherstellung");
+        }
+
+        String target = url;
+        long generation = DatabaseManager.runQuiesced(QUIESCE_TIMEOUT_MILLIS, () -> {
+            restoreFile(backup, target);
+            return DatabaseManager.getPoolGeneration();
+        });
+        System.err.println("[BackupService] restored " + backup);
+        publishRestore(generation);
+    }
+
+    /**
+     * Holt den Stand einer WG aus einer Sicherung zurück, z.B. nach versehentlichem Löschen; andere WGs bleiben
+     * unverändert. In einer gemeinsamen Datei wird die Sicherung angehängt und in einer Transaktion werden die
+     * Zeilen der WG gelöscht und aus der Sicherung kopiert ({@link DatabaseManager#copyHouseholdData}). Bei einer
+     * Datei je WG wird deren Datei zurückgespielt; WG-Zeile und Anmeldenamen kommen wieder in den Katalog.
+     * Vorher wird der aktuelle Stand gesichert ("vor-wiederherstellung").
+     * @throws SQLException wenn die Sicherung die WG nicht enthält oder ein Username inzwischen einer anderen WG gehört
+     */
+    public synchronized void restoreHousehold(Path backup, long household) throws SQLException, IOException {
+        checkBackup(backup);
+        if (ShardRouter.isEnabled()) {
+            restoreShard(backup, household);
+            return;
+        }
+        backupNow("vor-wiederherstellung");
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("ATTACH DATABASE '" + backup.toAbsolutePath().toString().replace("'", "''") + "' AS restore_src");
+            try {
+                conn.setAutoCommit(false);
+                try {
+                    DatabaseManager.deleteHouseholdData(conn, household);
+                    DatabaseManager.copyHouseholdData(conn, "restore_src", household);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } finally {
+                st.execute("DETACH DATABASE restore_src");
+            }
+        }
+        System.err.println("[BackupService] restored household " + household + " from " + backup);
+        // die Änderungen selbst melden die Commit-Hooks; Benutzerlisten zusätzlich neu laden lassen
+        DatabaseManager.fireUsersChanged();
+    }
+
+    // eine Datei je WG: WG-Datei zurückspielen, dann WG-Zeile und Anmeldenamen im Katalog eintragen
+    private void restoreShard(Path backup, long household) throws SQLException, IOException {
+        if (ShardRouter.get().isDropping(household)) throw new SQLException("WG " + household + " wird gerade gelöscht");
+        String prefix = filePrefix(ShardRouter.shardUrl(household));
+        if (!backup.getFileName().toString().startsWith(prefix)) {
+            throw new SQLException("Sicherung " + backup.getFileName() + " gehört nicht zur WG " + household);
+        }
+        List<String> usernames = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + backup.toAbsolutePath());
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT username FROM users WHERE username IS NOT NULL")) {
+            while (rs.next()) usernames.add(rs.getString(1));
+        }
+        for (String username : usernames) {
+            long owner = ShardRouter.get().lookupUser(username);
+            if (owner > 0 && owner != household) {
+                throw new SQLException("Benutzername '" + username + "' gehört inzwischen zu einer anderen WG");
+            }
+        }
+        String[] row = householdRow(backup, household);
+
+        String stamp = LocalDateTime.now().format(STAMP);
+        backupCatalog(stamp, "vor-wiederherstellung");
+        if (Files.isRegularFile(ShardRouter.shardFile(household))) {
+            backupFile(ShardRouter.shardUrl(household), stamp, "vor-wiederherstellung");
+        }
+        long generation = DatabaseManager.runQuiesced(QUIESCE_TIMEOUT_MILLIS, () -> {
+            restoreFile(backup, ShardRouter.shardUrl(household));
+            try (Connection conn = ShardRouter.get().catalog()) {
+                conn.setAutoCommit(false);
+                try {
+                    try (PreparedStatement ps = conn.prepareStatement(row == null
+                            ? "INSERT OR IGNORE INTO households (id, name) VALUES (?, 'WG')"
+                            : "INSERT OR REPLACE INTO households (id, name, created_at) VALUES (?, ?, ?)")) {
+                        ps.setLong(1, household);
+                        if (row != null) {
+                            ps.setString(2, row[0]);
+                            ps.setString(3, row[1]);
+                        }
+                        ps.executeUpdate();
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement("DELETE FROM user_directory WHERE household_id = ?")) {
+                        ps.setLong(1, household);
+                        ps.executeUpdate();
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT OR IGNORE INTO user_directory (username, household_id) VALUES (?, ?)")) {
+                        for (String username : usernames) {
+                            ps.setString(1, username.trim());
+                            ps.setLong(2, household);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            return DatabaseManager.getPoolGeneration();
+        });
+        System.err.println("[BackupService] restored household " + household + " from " + backup);
+        publishRestore(generation);
+    }
+
+    // Name und Anlagedatum der WG aus der neuesten Katalogsicherung, die nicht jünger als die WG-Sicherung ist
+    private String[] householdRow(Path backup, long household) throws SQLException, IOException {
+        String name = backup.getFileName().toString();
+        String prefix = filePrefix(ShardRouter.shardUrl(household));
+        String stamp = name.substring(prefix.length(), Math.min(name.length(), prefix.length() + STAMP_LENGTH));
+        for (Path catalog : listBackups(CATALOG_PREFIX)) {
+            String catalogName = catalog.getFileName().toString();
+            if (catalogName.length() < CATALOG_PREFIX.length() + STAMP_LENGTH) continue;
+            if (catalogName.substring(CATALOG_PREFIX.length(), CATALOG_PREFIX.length() + STAMP_LENGTH).compareTo(stamp) > 0) continue;
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + catalog.toAbsolutePath());
+                 PreparedStatement ps = conn.prepareStatement("SELECT name, created_at FROM households WHERE id = ?")) {
+                ps.setLong(1, household);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) return new String[]{rs.getString(1), rs.getString(2)};
+                }
+            } catch (SQLException e) {
+                System.err.println("[BackupService] catalog backup " + catalog + " not readable: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static void checkBackup(Path backup) throws SQLException, IOException {
+        if (!Files.isRegularFile(backup)) throw new IOException("Sicherung nicht gefunden: " + backup);
+        if (!quickCheck(backup)) throw new SQLException("Sicherung ist beschädigt: " + backup);
+    }
+
+    private static void restoreFile(Path backup, String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url)) {
+            org.sqlite.core.DB db = conn.unwrap(org.sqlite.SQLiteConnection.class).getDatabase();
+            int rc = db.restore("main", backup.toString(), null, BUSY_SLEEP_MILLIS, BUSY_RETRIES, PAGES_PER_STEP);
+            if (rc != 0) throw new SQLException("Wiederherstellung fehlgeschlagen (SQLite-Code " + rc + ")");
+        }
+    }
+
+    // alles neu laden lassen: die Hooks sehen die zurückgespielten Seiten nicht
+    private static void publishRestore(long generation) throws SQLException {
+        TableChanges.Builder all = new TableChanges.Builder();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%'")) {
+            while (rs.next()) all.addTable(rs.getString(1));
+        }
+        DatabaseManager.publishExternalChanges(all.drain(true), generation);
+        DatabaseManager.fireUsersChanged();
+    }
+
+    /** Löscht Sicherungen, die nach der {@link Retention} nicht mehr gebraucht werden. */
+    public synchronized List<Path> applyRetention() throws IOException {
+        return applyRetention(filePrefix(DatabaseManager.currentUrl()));
+    }
+
+    // Retention je Datei: jede WG-Datei und der Katalog behalten ihre eigenen neuesten Sicherungen
+    private List<Path> applyRetention(String prefix) throws IOException {
+        Retention r = retention;
+        List<Path> backups = listBackups(prefix);
+        Set<Path> keep = new HashSet<>(backups.subList(0, Math.min(r.keepLast, backups.size())));
+        Set<String> days = new HashSet<>();
+        for (Path p : backups) {
+            if (days.size() >= r.keepDaily) break;
+            String day = day(p, prefix);
+            if (day != null && days.add(day)) keep.add(p);
+        }
+        List<Path> deleted = new ArrayList<>();
+        for (Path p : backups) {
+            if (keep.contains(p)) continue;
+            try {
+                Files.deleteIfExists(p);
+                deleted.add(p);
+            } catch (IOException e) {
+                System.err.println("[BackupService] could not delete " + p + ": " + e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    // ---- Hilfsfunktionen ----
+
+    /**
+     * Läuft zwischen zwei Schritten der Backup-API; die Pause lässt Schreiber zum Zug kommen. Beginnt SQLite
+     * die Kopie wegen fremder Schreibzugriffe zu oft neu, wird ohne Pause weiterkopiert, damit die Sicherung
+     * auch unter Dauerlast fertig wird.
+     */
+    private static final class StepThrottle implements org.sqlite.core.DB.ProgressObserver {
+        private int steps;
+        private int restarts;
+        private int lastRemaining = Integer.MAX_VALUE;
+
+        @Override
+        public void progress(int remaining, int pageCount) {
+            steps++;
+            if (remaining > lastRemaining) restarts++;
+            lastRemaining = remaining;
+            if (remaining <= 0 || restarts > MAX_RESTARTS) return;
+            try {
+                Thread.sleep(STEP_PAUSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Im WAL-Modus liest die Sicherung aus einer festgehaltenen Lesetransaktion: Schreiber arbeiten ungehindert
+     * weiter und die Kopie muss nie neu beginnen. In den anderen Journal-Modi würde eine gehaltene Sperre
+     * Schreiber blockieren; dort wird schrittweise ohne Sperre kopiert.
+     */
+    private static boolean holdReadSnapshot(Connection conn) throws SQLException {
+        String mode;
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+            mode = rs.next() ? rs.getString(1) : "";
+        }
+        if (!"wal".equalsIgnoreCase(mode)) return false;
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+            rs.next();
+        }
+        return true;
+    }
+
+    private static void vacuumInto(Connection conn, Path target) throws SQLException {
+        if (!conn.getAutoCommit()) conn.setAutoCommit(true);
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = 5000");
+            st.execute("VACUUM INTO '" + target.toString().replace("'", "''") + "'");
+        }
+    }
+
+    private static boolean quickCheck(Path file) {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA quick_check")) {
+            return rs.next() && "ok".equalsIgnoreCase(rs.getString(1));
+        } catch (SQLException e) {
+            System.err.println("[BackupService] quick_check failed for " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static String filePrefix(String url) {
+        Path db = DatabaseManager.databaseFile(url);
+        String base = db != null ? db.getFileName().toString() : "flatmanager.db";
+        int dot = base.lastIndexOf('.');
+        return (dot > 0 ? base.substring(0, dot) : base) + "-";
+    }
+
+    // "yyyyMMdd" aus dem Dateinamen
+    private static String day(Path backup, String prefix) {
+        String name = backup.getFileName().toString();
+        if (!name.startsWith(prefix) || name.length() < prefix.length() + 8) return null;
+        return name.substring(prefix.length(), prefix.length() + 8);
+    }
+
+    private boolean changed(String url) {
+        Long last = lastStamps.get(url);
+        return last == null || last != changeStamp(url);
+    }
+
+    // Änderungszeit und Größe der Datei samt WAL; bei einer gemeinsamen Datei auch die eigenen Commits
+    private static long changeStamp(String url) {
+        long stamp = fileStamp(DatabaseManager.databaseFile(url));
+        return ShardRouter.isEnabled() ? stamp : stamp * 31 + DatabaseManager.ownCommitSequence();
+    }
+
+    private static long fileStamp(Path db) {
+        if (db == null) return -1;
+        long stamp = 0;
+        for (Path p : new Path[]{db, Paths.get(db + "-wal")}) {
+            try {
+                stamp = stamp * 31 + Files.getLastModifiedTime(p).toMillis();
+                stamp = stamp * 31 + Files.size(p);
+            } catch (IOException e) {
+                stamp = stamp * 31 - 1;
+            }
+        }
+        return stamp;
+    }
+
+    private static Path databaseFile() {
+        return DatabaseManager.databaseFile(DatabaseManager.currentUrl());
+    }
+}
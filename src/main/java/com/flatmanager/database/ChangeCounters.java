@@ -0,0 +1,137 @@
+package com.flatmanager.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Änderungszähler je Tabelle für den {@link ExternalChangeWatcher}. Trigger erhöhen bei jeder eingefügten,
+ * geänderten oder gelöschten Zeile den Zähler der Tabelle (Zeile mit leerem {@code writer}); das gilt für jede
+ * Connection, auch für andere App-Instanzen. Die Connections dieses Prozesses zählen zusätzlich über
+ * TEMP-Trigger in einer eigenen Zeile ({@code writer = }{@link #INSTANCE}) mit. Beide Zähler ändern sich in
+ * derselben Transaktion; die Differenz wächst also genau dann, wenn jemand anderes geschrieben hat, auch wenn
+ * dieser Prozess dieselbe Tabelle im selben Zeitraum geändert hat.
+ * <p>
+ * Die Tabelle ist {@code WITHOUT ROWID}, damit ihre Änderungen nicht selbst in den Änderungs-Hooks erscheinen.
+ */
+final class ChangeCounters {
+
+    static final String TABLE = "table_changes";
+    /** Version von Tabelle und Triggern; erhöhen, wenn sich die überwachten Tabellen ändern. */
+    static final int SCHEMA_VERSION = 1;
+    /** Kennung dieses Prozesses in {@link #TABLE}. */
+    static final String INSTANCE = UUID.randomUUID().toString();
+
+    // Tabellen, deren Änderungen Ansichten neu laden lassen; abgeleitete Tabellen (Summen, Suchindex) folgen ihnen
+    static final String[] TABLES = {
+            "households", "users", "shopping_items", "shopping_history", "budget_transactions", "budget_shares",
+            "cleaning_tasks", "cleaning_task_completions", "cleaning_task_assignments"
+    };
+
+    private static final String[][] EVENTS = {{"ins", "INSERT"}, {"upd", "UPDATE"}, {"del", "DELETE"}};
+
+    private ChangeCounters() {
+    }
+
+    /** Legt Zählertabelle und Trigger an (einmal je Schema-Version), siehe {@link SchemaVersions}. */
+    static void install(Connection conn) throws SQLException {
+        SchemaVersions.upgrade(conn, TABLE, SCHEMA_VERSION, ChangeCounters::installed, c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (tbl TEXT NOT NULL, writer TEXT NOT NULL DEFAULT '', " +
+                        "n INTEGER NOT NULL DEFAULT 0, PRIMARY KEY (tbl, writer)) WITHOUT ROWID");
+                for (String table : TABLES) {
+                    for (String[] ev : EVENTS) st.execute("DROP TRIGGER IF EXISTS " + triggerName(table, ev[0]));
+                }
+                for (String table : existingTables(c)) {
+                    st.execute("INSERT OR IGNORE INTO " + TABLE + " (tbl, writer, n) VALUES ('" + table + "', '', 0)");
+                    for (String[] ev : EVENTS) {
+                        st.execute("CREATE TRIGGER " + triggerName(table, ev[0]) + " AFTER " + ev[1] + " ON " + table +
+                                " BEGIN UPDATE " + TABLE + " SET n = n + 1 WHERE tbl = '" + table + "' AND writer = ''; END");
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Legt auf einer Connection dieses Prozesses die TEMP-Trigger für die eigenen Zähler an. Ohne installierte
+     * Zählertabelle passiert nichts, damit Schreibzugriffe nicht an einer fehlenden Tabelle scheitern.
+     */
+    static void attach(Connection conn) throws SQLException {
+        if (!tableExists(conn)) return;
+        try (Statement st = conn.createStatement()) {
+            for (String table : existingTables(conn)) {
+                for (String[] ev : EVENTS) {
+                    st.execute("CREATE TEMP TRIGGER IF NOT EXISTS own_" + triggerName(table, ev[0]) + " AFTER " + ev[1] +
+                            " ON main." + table + " BEGIN INSERT INTO " + TABLE + " (tbl, writer, n) VALUES ('" + table +
+                            "', '" + INSTANCE + "', 1) ON CONFLICT(tbl, writer) DO UPDATE SET n = n + 1; END");
+                }
+            }
+        }
+    }
+
+    /** Anzahl fremder Zeilenänderungen je Tabelle (alle minus eigene); leer, wenn es keine Zählertabelle gibt. */
+    static Map<String, Long> foreign(Connection conn) throws SQLException {
+        Map<String, Long> out = new HashMap<>();
+        if (!tableExists(conn)) return out;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT tbl, SUM(CASE WHEN writer = '' THEN n ELSE -n END) FROM " + TABLE +
+                " WHERE writer IN ('', ?) GROUP BY tbl")) {
+            ps.setString(1, INSTANCE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return out;
+    }
+
+    /** Entfernt die eigenen Zähler (beim Beenden), damit sich keine Zeilen alter Prozesse ansammeln. */
+    static void forget(Connection conn) throws SQLException {
+        if (!tableExists(conn)) return;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + TABLE + " WHERE writer = ?")) {
+            ps.setString(1, INSTANCE);
+            ps.executeUpdate();
+        }
+    }
+
+    private static String triggerName(String table, String event) {
+        return "trg_changes_" + table + "_" + event;
+    }
+
+    // überwachte Tabellen, die in dieser Datei existieren (households fehlt z.B. in WG-Dateien)
+    private static List<String> existingTables(Connection conn) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM main.sqlite_master WHERE type = 'table' AND name = ?")) {
+            for (String table : TABLES) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) out.add(table);
+                }
+            }
+        }
+        return out;
+    }
+
+    // Zählertabelle und alle Trigger für die vorhandenen Tabellen da
+    private static boolean installed(Connection conn) throws SQLException {
+        if (!tableExists(conn)) return false;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM main.sqlite_master WHERE type = 'trigger' " +
+                "AND name LIKE 'trg\\_changes\\_%' ESCAPE '\\'");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getInt(1) == EVENTS.length * existingTables(conn).size();
+        }
+    }
+
+    private static boolean tableExists(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM main.sqlite_master WHERE type = 'table' AND name = '" + TABLE + "'");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+}
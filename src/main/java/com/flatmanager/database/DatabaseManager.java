@@ -1,5 +1,11 @@
 package com.flatmanager.database;
 
+import com.flatmanager.dao.DashboardSummaryDao;
+import com.flatmanager.dao.ShoppingHistoryDao;
+import com.flatmanager.diagnostics.CommitEvent;
+import com.flatmanager.diagnostics.ConnectionAcquireEvent;
+import com.flatmanager.diagnostics.ConnectionReleaseEvent;
+
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,14 +17,46 @@ public final class DatabaseManager {
     // Einfaches Connection-Pool für Threadsicherheit und bessere Parallelität in Tests
     private static final java.util.concurrent.ConcurrentLinkedQueue<Connection> idleConnections = new java.util.concurrent.ConcurrentLinkedQueue<>();
     private static final java.util.Set<Connection> allConnections = java.util.Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<Connection, Boolean>());
-    private static final int MAX_POOL_SIZE = 16;
+    private static final int DEFAULT_POOL_SIZE = 16;
+    /** System-Property (bzw. Umgebungsvariable {@code DB_POOL_SIZE}) für die Poolgröße. */
+    public static final String POOL_SIZE_PROPERTY = "db.pool_size";
     private static volatile boolean pragmasApplied = false;
     private static volatile boolean poolClosed = false;
+    private static volatile long poolGeneration = 0;
+
+    // Listener, die nach Änderungen an der users-Tabelle benachrichtigt werden (z.B. UserDirectory-Cache)
+    private static final java.util.concurrent.CopyOnWriteArrayList<Runnable> userChangeListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+
+    // Während runQuiesced(): der Thread, der den Pool angehalten hat; alle anderen warten in getConnection()
+    private static final Object quiesceLock = new Object();
+    private static volatile Thread quiescingThread;
+    // Wartezeiten beim Ausleihen (siehe poolStats)
+    private static final java.util.concurrent.atomic.AtomicLong poolAcquired = new java.util.concurrent.atomic.AtomicLong();
+    private static final java.util.concurrent.atomic.AtomicLong poolExhausted = new java.util.concurrent.atomic.AtomicLong();
+    private static final java.util.concurrent.atomic.AtomicLong poolWaitNanos = new java.util.concurrent.atomic.AtomicLong();
+    private static final java.util.concurrent.atomic.AtomicLong poolMaxWaitNanos = new java.util.concurrent.atomic.AtomicLong();
+    // an den Thread gebundene Connection (siehe bindConnection)
+    private static final ThreadLocal<Connection> boundConnection = new ThreadLocal<>();
+    private static final ThreadLocal<Long> boundHousehold = new ThreadLocal<>();
 
     private DatabaseManager() {
     }
 
+    /**
+     * Connection aus dem Pool; {@code close()} gibt sie zurück. Liegt jede WG in einer eigenen Datei
+     * ({@link ShardRouter}), ist es eine Connection auf die Datei der aktiven WG.
+     */
     public static Connection getConnection() throws SQLException {
+        Connection bound = boundConnection(currentHousehold());
+        if (bound != null) return bound;
+        long started = System.nanoTime();
+        ConnectionAcquireEvent acquire = ConnectionAcquireEvent.start();
+        if (quiescingThread != null) awaitNotQuiesced();
+        if (ShardRouter.isEnabled()) {
+            Connection conn = ShardRouter.get().borrow(currentHousehold());
+            recordAcquire(started, false, acquire, currentHousehold());
+            return conn;
+        }
         // Wenn Pool vorher geschlossen wurde (z.B. durch Database.closeConnection()),
         // reinitialisieren wir den Pool automatisch beim nächsten Aufruf.
         if (poolClosed) {
@@ -29,13 +67,15 @@ public final class DatabaseManager {
 
         // Versuche, eine freie Connection aus dem Pool zu nehmen
         Connection phys = idleConnections.poll();
+        boolean exhausted = false;
         if (phys == null) {
             // Erzeuge neue physische Connection wenn Pool noch nicht voll
             synchronized (allConnections) {
-                if (allConnections.size() < MAX_POOL_SIZE) {
-                    phys = createPhysicalConnection();
+                if (allConnections.size() < maxPoolSize()) {
+                    phys = createPhysicalConnection(currentUrl(), null);
                     allConnections.add(phys);
                 } else {
+                    exhausted = true;
                     // Warte kurz auf eine freie Connection
                     for (int i = 0; i < 50 && phys == null; i++) {
                         phys = idleConnections.poll();
@@ -45,28 +85,133 @@ public final class DatabaseManager {
                     }
                     if (phys == null) {
                         // Fallback: erstelle doch eine Connection (falls Pool-Size Limit nicht strikt erforderlich)
-                        phys = createPhysicalConnection();
+                        phys = createPhysicalConnection(currentUrl(), null);
                         allConnections.add(phys);
                     }
                 }
             }
         }
+        recordAcquire(started, exhausted, acquire, currentHousehold());
+
+        return pooled(phys, physical -> {
+            // return to pool if not closed
+            try {
+                if (!physical.isClosed() && !poolClosed) {
+                    idleConnections.offer(physical);
+                    return;
+                }
+            } catch (SQLException ignored) {}
+            try { physical.close(); } catch (SQLException ignored) {}
+        });
+    }
+
+    /**
+     * Connection einer WG: bei einer Datei je WG ({@link ShardRouter}) die Datei dieser WG, sonst dieselbe
+     * gemeinsame Datenbank wie {@link #getConnection()}. Für DAOs, die auf eine feste WG beschränkt sind.
+     */
+    public static Connection getConnection(long householdId) throws SQLException {
+        if (!ShardRouter.isEnabled()) return getConnection();
+        Connection bound = boundConnection(householdId > 0 ? householdId : currentHousehold());
+        if (bound != null) return bound;
+        long started = System.nanoTime();
+        ConnectionAcquireEvent acquire = ConnectionAcquireEvent.start();
+        if (quiescingThread != null) awaitNotQuiesced();
+        long household = householdId > 0 ? householdId : currentHousehold();
+        Connection conn = ShardRouter.get().borrow(household);
+        recordAcquire(started, false, acquire, household);
+        return conn;
+    }
+
+    /** Größe des Connection-Pools: {@code DB_POOL_SIZE} bzw. {@value #POOL_SIZE_PROPERTY}, sonst 16. */
+    public static int maxPoolSize() {
+        String value = System.getenv().getOrDefault("DB_POOL_SIZE", System.getProperty(POOL_SIZE_PROPERTY));
+        if (value == null || value.isBlank()) return DEFAULT_POOL_SIZE;
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_POOL_SIZE;
+        }
+    }
 
-        final Connection physical = phys;
+    /** Kennzahlen zum Ausleihen von Connections seit dem letzten {@link #resetPoolStats()}. */
+    public static final class PoolStats {
+        /** Ausgeliehene Connections. */
+        public final long acquired;
+        /** Davon bei vollem Pool, d.h. mit Warten auf eine Rückgabe. */
+        public final long exhausted;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+
+        PoolStats(long acquired, long exhausted, long totalWaitNanos, long maxWaitNanos) {
+            this.acquired = acquired;
+            this.exhausted = exhausted;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
 
-        // Proxy: close() gibt Connection zurück in den Pool (sofern Pool noch offen), andere Methoden delegieren
+        public double meanWaitMillis() {
+            return acquired == 0 ? 0 : totalWaitNanos / 1e6 / acquired;
+        }
+    }
+
+    public static PoolStats poolStats() {
+        return new PoolStats(poolAcquired.get(), poolExhausted.get(), poolWaitNanos.get(), poolMaxWaitNanos.get());
+    }
+
+    public static void resetPoolStats() {
+        poolAcquired.set(0);
+        poolExhausted.set(0);
+        poolWaitNanos.set(0);
+        poolMaxWaitNanos.set(0);
+    }
+
+    // Wartezeit inkl. Anlegen einer neuen physischen Connection
+    private static void recordAcquire(long started, boolean exhausted, ConnectionAcquireEvent event, long household) {
+        ConnectionAcquireEvent.finish(event, household, exhausted);
+        long waited = System.nanoTime() - started;
+        poolAcquired.incrementAndGet();
+        if (exhausted) poolExhausted.incrementAndGet();
+        poolWaitNanos.addAndGet(waited);
+        poolMaxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    /**
+     * Bindet eine Connection an den aktuellen Thread: bis {@link #unbindConnection()} liefert
+     * {@link #getConnection()} (bei einer Datei je WG nur für diese WG) diese Connection, und {@code close()}
+     * gibt sie nicht zurück. So laufen DAO-Aufrufe in einer Transaktion, die der Aufrufer hält, z.B. im
+     * Schreib-Thread des API-Servers.
+     */
+    public static void bindConnection(Connection conn, long householdId) {
+        boundConnection.set(conn);
+        boundHousehold.set(householdId);
+    }
+
+    public static void unbindConnection() {
+        boundConnection.remove();
+        boundHousehold.remove();
+    }
+
+    private static Connection boundConnection(long householdId) {
+        Connection conn = boundConnection.get();
+        if (conn == null) return null;
+        if (ShardRouter.isEnabled() && boundHousehold.get() != householdId) return null;
+        return pooled(conn, c -> { });
+    }
+
+    // Proxy: close() übergibt die physische Connection einmalig an release (zurück in den Pool oder schließen),
+    // andere Methoden delegieren. Während einer Diagnose-Aufzeichnung werden Haltezeit und Commits gemessen;
+    // ist sie oder das Protokoll langsamer Statements an, misst der StatementTracer execute* der gelieferten
+    // Statements (ResultSets nur während der Aufzeichnung).
+    static Connection pooled(Connection physical, java.util.function.Consumer<Connection> release) {
+        java.util.concurrent.atomic.AtomicBoolean released = new java.util.concurrent.atomic.AtomicBoolean();
+        ConnectionReleaseEvent lease = ConnectionReleaseEvent.start();
+        java.util.concurrent.atomic.AtomicInteger statements = new java.util.concurrent.atomic.AtomicInteger();
         java.lang.reflect.InvocationHandler handler = (proxy, method, args) -> {
             String name = method.getName();
             if ("close".equals(name)) {
-                // return to pool if not closed
-                if (physical != null) {
-                    try {
-                        if (!physical.isClosed() && !poolClosed) {
-                            idleConnections.offer(physical);
-                            return null;
-                        }
-                    } catch (SQLException ignored) {}
-                    try { physical.close(); } catch (SQLException ignored) {}
+                if (physical != null && released.compareAndSet(false, true)) {
+                    release.accept(physical);
+                    ConnectionReleaseEvent.finish(lease, statements.get());
                 }
                 return null;
             }
@@ -74,6 +219,7 @@ public final class DatabaseManager {
             if ("isClosed".equals(name)) {
                 try { return physical.isClosed(); } catch (SQLException e) { throw new java.lang.reflect.InvocationTargetException(e); }
             }
+            if (StatementTracer.isTracing()) return traced(physical, method, args, statements);
             synchronized (physical) {
                 try { return method.invoke(physical, args); }
                 catch (java.lang.reflect.InvocationTargetException ite) { throw ite.getCause(); }
@@ -85,8 +231,50 @@ public final class DatabaseManager {
         );
     }
 
-    private static Connection createPhysicalConnection() throws SQLException {
-        String url = System.getenv().getOrDefault("DB_URL", System.getProperty("db.url", "jdbc:sqlite:flatmanager.db"));
+    private static Object traced(Connection physical, java.lang.reflect.Method method, Object[] args,
+                                 java.util.concurrent.atomic.AtomicInteger statements) throws Throwable {
+        String name = method.getName();
+        CommitEvent commit = "commit".equals(name) ? CommitEvent.start("commit()") : null;
+        Object result;
+        synchronized (physical) {
+            try { result = method.invoke(physical, args); }
+            catch (java.lang.reflect.InvocationTargetException ite) { throw ite.getCause(); }
+        }
+        CommitEvent.finish(commit);
+        if (result instanceof Statement) {
+            statements.incrementAndGet();
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            return StatementTracer.wrap(result, method.getReturnType(), sql);
+        }
+        return result;
+    }
+
+    /**
+     * JDBC-URL der aktiven Datenbank (Umgebungsvariable DB_URL, sonst System-Property db.url); bei einer
+     * Datei je WG die Datei der aktiven WG, sodass Sicherungen und Änderungserkennung ihr folgen.
+     */
+    static String currentUrl() {
+        if (ShardRouter.isEnabled()) return ShardRouter.shardUrl(currentHousehold());
+        return System.getenv().getOrDefault("DB_URL", System.getProperty("db.url", "jdbc:sqlite:flatmanager.db"));
+    }
+
+    /** Datei einer {@code jdbc:sqlite:}-URL; {@code null} für In-Memory- und {@code file:}-URLs. */
+    static java.nio.file.Path databaseFile(String url) {
+        String prefix = "jdbc:sqlite:";
+        if (url == null || !url.startsWith(prefix)) return null;
+        String path = url.substring(prefix.length());
+        int q = path.indexOf('?');
+        if (q >= 0) path = path.substring(0, q);
+        if (path.isEmpty() || path.startsWith(":memory:") || path.startsWith("file:")) return null;
+        try {
+            return java.nio.file.Paths.get(path);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // catalog: bei einer Datei je WG der Katalog, der als "catalog" angehängt wird; sonst null
+    static Connection createPhysicalConnection(String url, java.nio.file.Path catalog) throws SQLException {
 
         StackTraceElement[] st = Thread.currentThread().getStackTrace();
         System.err.println("[DatabaseManager] createConnection called -> url=" + url);
@@ -125,7 +313,22 @@ public final class DatabaseManager {
             System.err.println("[DatabaseManager] PRAGMA setup failed: " + e.getMessage());
         }
 
-        ensureSchema(conn);
+        if (catalog != null) {
+            try (Statement s = conn.createStatement()) {
+                s.execute("ATTACH DATABASE '" + catalog.toString().replace("'", "''") + "' AS catalog");
+            } catch (SQLException e) {
+                try { conn.close(); } catch (SQLException ignored) {}
+                throw e;
+            }
+        }
+
+        ensureSchema(conn, catalog != null);
+        try {
+            ChangeCounters.attach(conn);
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] change counters not attached: " + e.getMessage());
+        }
+        installChangeHooks(conn);
         // Hinweis: Default-Admin wird absichtlich nicht automatisch angelegt.
         System.err.println("[DatabaseManager] Connected -> url=" + url + " / conn=" + conn);
         return conn;
@@ -145,20 +348,99 @@ public final class DatabaseManager {
             allConnections.clear();
             idleConnections.clear();
         }
+        ShardRouter.get().closeAll();
         pragmasApplied = false;
         System.err.println("[DatabaseManager] Connection pool closed");
+        // beim nächsten Zugriff kann eine andere DB-Datei aktiv sein
+        poolGeneration++;
+    }
+
+    /** Arbeit, die bei angehaltenem Pool ausgeführt wird (siehe {@link #runQuiesced(long, QuiescedAction)}). */
+    public interface QuiescedAction<T> {
+        T run() throws SQLException, java.io.IOException;
+    }
+
+    /**
+     * Hält den Pool an und führt {@code action} aus, während niemand die Datenbank benutzt: neue
+     * {@link #getConnection()}-Aufrufe anderer Threads warten, bis alle ausgeliehenen Connections
+     * zurückgegeben sind (höchstens {@code timeoutMillis}), dann wird der Pool geschlossen. Danach öffnen
+     * die wartenden Aufrufe frische Connections in einer neuen Pool-Generation.
+     * Der aufrufende Thread darf selbst keine Connection ausgeliehen haben.
+     */
+    public static <T> T runQuiesced(long timeoutMillis, QuiescedAction<T> action) throws SQLException, java.io.IOException {
+        synchronized (quiesceLock) {
+            awaitNotQuiesced();
+            quiescingThread = Thread.currentThread();
+        }
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            int borrowed;
+            while ((borrowed = allConnections.size() - idleConnections.size() + ShardRouter.get().borrowedConnections()) > 0) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new SQLException("Datenbank ist noch in Benutzung (" + borrowed + " Connections)");
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Unterbrochen beim Anhalten des Pools");
+                }
+            }
+            closeConnection();
+            return action.run();
+        } finally {
+            synchronized (quiesceLock) {
+                quiescingThread = null;
+                quiesceLock.notifyAll();
+            }
+        }
+    }
+
+    private static void awaitNotQuiesced() throws SQLException {
+        synchronized (quiesceLock) {
+            while (quiescingThread != null && quiescingThread != Thread.currentThread()) {
+                try {
+                    quiesceLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Unterbrochen beim Warten auf die Datenbank");
+                }
+            }
+        }
+    }
+
+    /**
+     * Zähler, der bei jedem {@link #closeConnection()} erhöht wird. Caches vergleichen ihn, um nach einem
+     * Wechsel der Datenbank (z.B. neue db.url) lazy neu zu laden.
+     */
+    public static long getPoolGeneration() {
+        return poolGeneration;
+    }
+
+    // eine WG-Datei wurde gelöscht: Caches sollen wie nach einem Wechsel der Datenbank neu laden
+    static synchronized void nextPoolGeneration() {
+        poolGeneration++;
     }
 
     /* ----------------- Schema erstellen + Migration ----------------- */
-    private static void ensureSchema(Connection conn) {
+    // shard: Datei einer einzelnen WG; households liegt dann im angehängten Katalog und wird hier nicht angelegt
+    private static void ensureSchema(Connection conn, boolean shard) {
         String[] ddls = new String[]{
+                // households: eine Zeile je WG; alle Entitätstabellen tragen household_id
+                shard ? null : "CREATE TABLE IF NOT EXISTS households (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                        "name TEXT NOT NULL," +
+                        "created_at TEXT DEFAULT CURRENT_TIMESTAMP" +
+                        ")",
                 // users
                 "CREATE TABLE IF NOT EXISTS users (" +
                         "id INTEGER PRIMARY KEY AUTOINCREMENT," +
                         "username TEXT UNIQUE," +
                         "name TEXT," +
                         "password TEXT," +
-                        "is_admin INTEGER DEFAULT 0" +
+                        "is_admin INTEGER DEFAULT 0," +
+                        "household_id INTEGER NOT NULL DEFAULT 1," +
+                        "version INTEGER NOT NULL DEFAULT 0" +
                         ")",
                 // shopping_items: both column names to be tolerant gegenüber UI/legacy
                 "CREATE TABLE IF NOT EXISTS shopping_items (" +
@@ -170,7 +452,9 @@ public final class DatabaseManager {
                         "category TEXT," +
                         "list_id INTEGER," +
                         "added_by INTEGER," +    // neu: wer den Eintrag hinzugefügt hat
-                        "created_at TEXT" +
+                        "created_at TEXT," +
+                        "household_id INTEGER NOT NULL DEFAULT 1," +
+                        "version INTEGER NOT NULL DEFAULT 0" +
                         ")",
                 // budget_transactions: include paid_by and category
                 "CREATE TABLE IF NOT EXISTS budget_transactions (" +
@@ -180,12 +464,48 @@ public final class DatabaseManager {
                         "date TEXT," +
                         "user_id INTEGER," +
                         "paid_by INTEGER," +
-                        "category TEXT" +        // neu: Kategorie/Tag für Transaktion
-                        ")"
+                        "category TEXT," +       // neu: Kategorie/Tag für Transaktion
+                        "household_id INTEGER NOT NULL DEFAULT 1," +
+                        "version INTEGER NOT NULL DEFAULT 0" +
+                        ")",
+                // budget_shares: Anteile je Transaktion (vorher nur von BudgetView angelegt)
+                "CREATE TABLE IF NOT EXISTS budget_shares (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                        "transaction_id INTEGER NOT NULL," +
+                        "username TEXT NOT NULL," +
+                        "share REAL NOT NULL DEFAULT 0," +
+                        "FOREIGN KEY (transaction_id) REFERENCES budget_transactions(id) ON DELETE CASCADE" +
+                        ")",
+                // cleaning_tasks: vorher nur von CleaningTaskDao angelegt; Summary-Trigger brauchen die Tabelle
+                "CREATE TABLE IF NOT EXISTS cleaning_tasks (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                        "title TEXT NOT NULL," +
+                        "due TEXT," +
+                        "assigned_to TEXT," +
+                        "recurrence TEXT," +
+                        "urgent INTEGER DEFAULT 0," +
+                        "completed INTEGER DEFAULT 0," +
+                        "household_id INTEGER NOT NULL DEFAULT 1," +
+                        "version INTEGER NOT NULL DEFAULT 0" +
+                        ")",
+                // Termin-Erledigungen wiederkehrender Aufgaben (siehe CleaningTaskDao)
+                "CREATE TABLE IF NOT EXISTS cleaning_task_completions (" +
+                        "task_id INTEGER NOT NULL," +
+                        "occurrence TEXT NOT NULL," +
+                        "PRIMARY KEY (task_id, occurrence)" +
+                        ") WITHOUT ROWID",
+                // geplante Zuständige einzelner Termine (Rotationsplan)
+                "CREATE TABLE IF NOT EXISTS cleaning_task_assignments (" +
+                        "task_id INTEGER NOT NULL," +
+                        "occurrence TEXT NOT NULL," +
+                        "assigned_to TEXT," +
+                        "PRIMARY KEY (task_id, occurrence)" +
+                        ") WITHOUT ROWID"
         };
 
         try (Statement st = conn.createStatement()) {
             for (String ddl : ddls) {
+                if (ddl == null) continue;
                 try {
                     st.execute(ddl);
                 } catch (SQLException e) {
@@ -197,8 +517,56 @@ public final class DatabaseManager {
             ensureColumnExists(conn, "shopping_items", "item_name", "TEXT", "name");
             ensureColumnExists(conn, "shopping_items", "name", "TEXT", "item_name");
             ensureColumnExists(conn, "shopping_items", "added_by", "INTEGER", null);
+            ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", null);
             ensureColumnExists(conn, "budget_transactions", "paid_by", "INTEGER", "user_id");
             ensureColumnExists(conn, "budget_transactions", "category", "TEXT", null);
+            // Spalten der WG-Indizes unten; ältere Dateien kennen sie noch nicht
+            ensureColumnExists(conn, "shopping_items", "category", "TEXT DEFAULT 'Sonstiges'", null);
+            ensureColumnExists(conn, "budget_transactions", "date", "TEXT", null);
+            ensureColumnExists(conn, "cleaning_tasks", "due", "TEXT", null);
+            ensureColumnExists(conn, "cleaning_tasks", "assigned_to", "TEXT", null);
+            ensureColumnExists(conn, "cleaning_tasks", "recurrence", "TEXT", null);
+            ensureColumnExists(conn, "cleaning_tasks", "completed", "INTEGER DEFAULT 0", null);
+            // Zeilenversionen für Compare-and-Set-Updates (mehrere App-Instanzen auf einer DB-Datei)
+            for (String table : VERSIONED_TABLES) {
+                ensureColumnExists(conn, table, "version", "INTEGER NOT NULL DEFAULT 0", null);
+            }
+            // Mandanten: Bestandsdaten gehören zur Standard-WG
+            for (String table : VERSIONED_TABLES) {
+                ensureColumnExists(conn, table, "household_id", "INTEGER NOT NULL DEFAULT " + DEFAULT_HOUSEHOLD, null);
+            }
+            if (!shard) {
+                try {
+                    st.executeUpdate("INSERT OR IGNORE INTO households (id, name) VALUES (" + DEFAULT_HOUSEHOLD + ", 'WG')");
+                } catch (SQLException e) {
+                    System.err.println("[DatabaseManager] default household failed: " + e.getMessage());
+                }
+            }
+            ensureHouseholdIndexes(conn);
+            // Dashboard-Zähler: Trigger nur bei neuer Schema-Version neu anlegen, in einer Transaktion
+            try {
+                DashboardSummaryDao.install(conn);
+            } catch (SQLException e) {
+                System.err.println("[DatabaseManager] dashboard summary setup failed: " + e.getMessage());
+            }
+            // Kaufhistorie der Autovervollständigung; der Trigger muss vor dem ersten Hinzufügen stehen
+            try {
+                ShoppingHistoryDao.install(conn);
+            } catch (SQLException e) {
+                System.err.println("[DatabaseManager] shopping history setup failed: " + e.getMessage());
+            }
+            // Änderungszähler für den ExternalChangeWatcher (nach allen überwachten Tabellen)
+            try {
+                ChangeCounters.install(conn);
+            } catch (SQLException e) {
+                System.err.println("[DatabaseManager] change counters setup failed: " + e.getMessage());
+            }
+            // Volltextindex für die globale Suche (braucht die Spalten oben)
+            try {
+                SearchIndex.install(conn);
+            } catch (SQLException e) {
+                System.err.println("[DatabaseManager] search index setup failed: " + e.getMessage());
+            }
 
             System.err.println("[DatabaseManager] ensureSchema executed / migrations applied");
         } catch (SQLException e) {
@@ -206,6 +574,60 @@ public final class DatabaseManager {
         }
     }
 
+    // Indizes beginnen mit household_id: jede Abfrage einer WG liest nur deren Indexbereich, unabhängig
+    // davon, wie viele andere WGs in der Datei liegen. Ältere Indizes gleichen Namens ohne Haushalt werden ersetzt;
+    // Löschen und Neuanlegen laufen in einem Savepoint, sodass der alte Index bleibt, wenn der neue scheitert.
+    private static final String[][] HOUSEHOLD_INDEXES = {
+            {"idx_users_household", "users(household_id, username COLLATE NOCASE)"},
+            {"idx_shopping_items_household", "shopping_items(household_id, category, item_name)"},
+            {"idx_budget_transactions_household_date", "budget_transactions(household_id, date)"},
+            {"idx_budget_tx_category_amount", "budget_transactions(household_id, category, amount)"},
+            {"idx_budget_tx_paid_by_amount", "budget_transactions(household_id, paid_by, amount)"},
+            {"idx_budget_tx_month_amount", "budget_transactions(household_id, substr(date, 1, 7), amount)"},
+            {"idx_cleaning_tasks_due", "cleaning_tasks(household_id, due)"},
+            {"idx_cleaning_tasks_assignee_due", "cleaning_tasks(household_id, assigned_to COLLATE NOCASE, due)"},
+            // Teilindizes für CleaningTaskDao.listOccurrences: vor dem Fenster nur offene Aufgaben und Serien lesen
+            {"idx_cleaning_tasks_open_due", "cleaning_tasks(household_id, due) WHERE completed = 0"},
+            {"idx_cleaning_tasks_series_due", "cleaning_tasks(household_id, due) WHERE recurrence IS NOT NULL"},
+    };
+
+    private static void ensureHouseholdIndexes(Connection conn) {
+        for (String[] idx : HOUSEHOLD_INDEXES) {
+            try (Statement st = conn.createStatement()) {
+                String existing = null;
+                try (ResultSet rs = st.executeQuery("SELECT sql FROM sqlite_master WHERE type = 'index' AND name = '" + idx[0] + "'")) {
+                    if (rs.next()) existing = rs.getString(1);
+                }
+                st.execute("SAVEPOINT household_index");
+                try {
+                    if (existing != null && !existing.contains("household_id")) st.execute("DROP INDEX " + idx[0]);
+                    st.execute("CREATE INDEX IF NOT EXISTS " + idx[0] + " ON " + idx[1]);
+                    st.execute("RELEASE household_index");
+                } catch (SQLException e) {
+                    st.execute("ROLLBACK TO household_index");
+                    st.execute("RELEASE household_index");
+                    throw e;
+                }
+            } catch (SQLException e) {
+                System.err.println("[DatabaseManager] index " + idx[0] + " failed: " + e.getMessage());
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            // Anteile werden je Buchung gelesen und beim Löschen einer WG über die Buchungen gefunden
+            st.execute("CREATE INDEX IF NOT EXISTS idx_budget_shares_transaction ON budget_shares(transaction_id)");
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] index idx_budget_shares_transaction failed: " + e.getMessage());
+        }
+    }
+
+    // Entitätstabellen mit Zeilenversion; jedes Update erhöht sie, damit andere Instanzen Konflikte erkennen
+    private static final String[] VERSIONED_TABLES = {"users", "shopping_items", "budget_transactions", "cleaning_tasks"};
+
+    // ", version = version + 1" für UPDATEs, sofern die Tabelle (noch) eine Versionsspalte hat
+    private static String versionBump(Connection conn, String table) {
+        return hasColumn(conn, table, "version") ? ", version = version + 1" : "";
+    }
+
     private static void ensureColumnExists(Connection conn, String table, String column, String type, String copyFromColumn) {
         try {
             boolean has = hasColumn(conn, table, column);
@@ -234,7 +656,7 @@ public final class DatabaseManager {
         }
     }
 
-    private static boolean hasColumn(Connection conn, String table, String column) {
+    static boolean hasColumn(Connection conn, String table, String column) {
         try (PreparedStatement p = conn.prepareStatement("PRAGMA table_info(" + table + ")")) {
             try (ResultSet rs = p.executeQuery()) {
                 while (rs.next()) {
@@ -251,6 +673,264 @@ public final class DatabaseManager {
     /* ----------------- Kein Default Admin automatisch ----------------- */
     // Default-Admin-Erzeugung entfernt. Admins müssen explizit per RegistrationView / createHouseholdWithAdmin erstellt werden.
 
+    /* ----------------- Haushalte (WGs) ----------------- */
+
+    /** WG, zu der Bestandsdaten ohne eigene Zuordnung gehören. */
+    public static final long DEFAULT_HOUSEHOLD = 1;
+
+    private static volatile long currentHousehold = DEFAULT_HOUSEHOLD;
+
+    /**
+     * WG, auf die sich alle Lese- und Schreibzugriffe ohne expliziten Haushalt beziehen. Wird von
+     * {@link com.flatmanager.service.Session#start(String)} auf die WG des angemeldeten Benutzers gesetzt.
+     */
+    public static long currentHousehold() {
+        return currentHousehold;
+    }
+
+    /** Setzt die aktive WG; Werte {@code <= 0} stehen für {@link #DEFAULT_HOUSEHOLD}. */
+    public static void setCurrentHousehold(long householdId) {
+        currentHousehold = householdId > 0 ? householdId : DEFAULT_HOUSEHOLD;
+    }
+
+    /** WG eines Benutzers (Username case-insensitiv, global eindeutig) oder -1, wenn unbekannt. */
+    public static long householdOf(String username) {
+        if (username == null || username.isBlank()) return -1;
+        if (ShardRouter.isEnabled()) {
+            // eine Datei je WG: erst der Katalog, dann (für direkt per SQL angelegte Benutzer) alle WG-Dateien
+            try {
+                long household = ShardRouter.get().lookupUser(username.trim());
+                return household > 0 ? household : ShardRouter.get().scanForUser(username.trim());
+            } catch (SQLException | java.io.IOException e) {
+                System.err.println("[DatabaseManager] householdOf failed: " + e.getMessage());
+                return -1;
+            }
+        }
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT household_id FROM users WHERE username = ? COLLATE NOCASE")) {
+            ps.setString(1, username.trim());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] householdOf failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** Name einer WG oder {@code null}, wenn es sie nicht gibt. */
+    public static String householdName(long householdId) {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT name FROM households WHERE id = ?")) {
+            ps.setLong(1, householdId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] householdName failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Legt eine leere WG an und liefert ihre ID, -1 bei Fehlern. */
+    public static long createHousehold(String name) {
+        try (Connection conn = getConnection()) {
+            return insertHousehold(conn, name);
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] createHousehold failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static long insertHousehold(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO households (name) VALUES (?)")) {
+            ps.setString(1, householdLabel(name));
+            ps.executeUpdate();
+        }
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+            if (rs.next()) return rs.getLong(1);
+        }
+        throw new SQLException("ID der neuen WG nicht ermittelbar");
+    }
+
+    private static String householdLabel(String wgName) {
+        return wgName == null || wgName.isBlank() ? "WG" : wgName.trim();
+    }
+
+    /**
+     * Löscht alle Daten einer WG (Benutzer, Aufgaben, Einkäufe, Buchungen samt Anteilen) auf einer
+     * vorhandenen Verbindung, z.B. in einer Transaktion. Die Standard-WG bleibt als leere Zeile bestehen.
+     * @return Anzahl gelöschter Benutzer
+     */
+    public static int deleteHouseholdData(Connection conn, long householdId) throws SQLException {
+        String[] dependent = {
+                "DELETE FROM budget_shares WHERE transaction_id IN (SELECT id FROM budget_transactions WHERE household_id = ?)",
+                "DELETE FROM cleaning_task_completions WHERE task_id IN (SELECT id FROM cleaning_tasks WHERE household_id = ?)",
+                "DELETE FROM cleaning_task_assignments WHERE task_id IN (SELECT id FROM cleaning_tasks WHERE household_id = ?)",
+                "DELETE FROM cleaning_tasks WHERE household_id = ?",
+                "DELETE FROM budget_transactions WHERE household_id = ?",
+                "DELETE FROM shopping_items WHERE household_id = ?",
+        };
+        for (String sql : dependent) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, householdId);
+                ps.executeUpdate();
+            }
+        }
+        int users;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM users WHERE household_id = ?")) {
+            ps.setLong(1, householdId);
+            users = ps.executeUpdate();
+        }
+        if (householdId != DEFAULT_HOUSEHOLD) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM households WHERE id = ?")) {
+                ps.setLong(1, householdId);
+                ps.executeUpdate();
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Gegenstück zu {@link #deleteHouseholdData}: kopiert alle Zeilen einer WG aus der angehängten Datenbank
+     * {@code schema} (z.B. einer Sicherung) mit unveränderten IDs, auf einer vorhandenen Verbindung. Die WG sollte
+     * vorher leer sein. Spalten, die nur eine der beiden Seiten kennt, bleiben beim Standardwert.
+     * @return Anzahl kopierter Benutzer
+     * @throws SQLException wenn {@code schema} die WG nicht enthält oder einer ihrer Usernamen inzwischen einer
+     *                      anderen WG gehört
+     */
+    public static int copyHouseholdData(Connection conn, String schema, long householdId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM " + schema + ".households WHERE id = ?")) {
+            ps.setLong(1, householdId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("WG " + householdId + " ist in " + schema + " nicht enthalten");
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT b.username FROM " + schema + ".users b " +
+                "JOIN main.users u ON u.username = b.username COLLATE NOCASE " +
+                "WHERE b.household_id = ? AND u.household_id <> ? LIMIT 1")) {
+            ps.setLong(1, householdId);
+            ps.setLong(2, householdId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    throw new SQLException("Benutzername '" + rs.getString(1) + "' gehört inzwischen zu einer anderen WG");
+                }
+            }
+        }
+        String tasks = "(SELECT id FROM " + schema + ".cleaning_tasks WHERE household_id = ?)";
+        copyRows(conn, schema, "households", "id = ?", householdId, true);
+        int users = copyRows(conn, schema, "users", "household_id = ?", householdId, false);
+        copyRows(conn, schema, "shopping_items", "household_id = ?", householdId, false);
+        copyRows(conn, schema, "budget_transactions", "household_id = ?", householdId, false);
+        copyRows(conn, schema, "budget_shares",
+                "transaction_id IN (SELECT id FROM " + schema + ".budget_transactions WHERE household_id = ?)", householdId, false);
+        copyRows(conn, schema, "cleaning_tasks", "household_id = ?", householdId, false);
+        copyRows(conn, schema, "cleaning_task_completions", "task_id IN " + tasks, householdId, false);
+        copyRows(conn, schema, "cleaning_task_assignments", "task_id IN " + tasks, householdId, false);
+        // Kaufhistorie: der Trigger auf shopping_items hat sie beim Kopieren hochgezählt, daher ersetzen
+        if (!commonColumns(conn, schema, "shopping_history").isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM main.shopping_history WHERE household_id = ?")) {
+                ps.setLong(1, householdId);
+                ps.executeUpdate();
+            }
+            copyRows(conn, schema, "shopping_history", "household_id = ?", householdId, false);
+        }
+        return users;
+    }
+
+    // INSERT ... SELECT über die Spalten, die beide Seiten kennen; replace für Zeilen, die stehen bleiben (Standard-WG)
+    private static int copyRows(Connection conn, String schema, String table, String where, long householdId, boolean replace) throws SQLException {
+        List<String> columns = commonColumns(conn, schema, table);
+        if (columns.isEmpty()) return 0;
+        String list = "\"" + String.join("\", \"", columns) + "\"";
+        try (PreparedStatement ps = conn.prepareStatement("INSERT " + (replace ? "OR REPLACE " : "") + "INTO main." + table +
+                " (" + list + ") SELECT " + list + " FROM " + schema + "." + table + " WHERE " + where)) {
+            ps.setLong(1, householdId);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static List<String> commonColumns(Connection conn, String schema, String table) throws SQLException {
+        List<String> main = tableColumns(conn, "main", table);
+        main.retainAll(tableColumns(conn, schema, table));
+        return main;
+    }
+
+    private static List<String> tableColumns(Connection conn, String schema, String table) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA " + schema + ".table_info(" + table + ")")) {
+            while (rs.next()) out.add(rs.getString("name"));
+        }
+        return out;
+    }
+
+    /**
+     * Trägt einen Usernamen im Katalog der WG-Dateien ein ({@link ShardRouter}); gehört er dort schon einer
+     * anderen WG, schlägt der Aufruf fehl. Ohne eigene Dateien je WG sorgt {@code UNIQUE} auf
+     * {@code users.username} für die Eindeutigkeit, und der Aufruf tut nichts.
+     */
+    public static void claimUsername(Connection conn, String username, long householdId) throws SQLException {
+        if (!ShardRouter.isEnabled() || username == null || username.isBlank()) return;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT household_id FROM catalog.user_directory WHERE username = ?")) {
+            ps.setString(1, username.trim());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getLong(1) != householdId) {
+                    throw new SQLException("Benutzername '" + username + "' ist bereits in einer anderen WG vergeben");
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT OR IGNORE INTO catalog.user_directory (username, household_id) VALUES (?, ?)")) {
+            ps.setString(1, username.trim());
+            ps.setLong(2, householdId);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Gegenstück zu {@link #claimUsername}: gibt den Usernamen nach dem Löschen des Benutzers wieder frei. */
+    public static void releaseUsername(Connection conn, String username, long householdId) throws SQLException {
+        if (!ShardRouter.isEnabled() || username == null || username.isBlank()) return;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM catalog.user_directory WHERE username = ? AND household_id = ?")) {
+            ps.setString(1, username.trim());
+            ps.setLong(2, householdId);
+            ps.executeUpdate();
+        }
+    }
+
+    // WG für eine Registrierung: die des bestehenden Admins, sonst die noch adminlose Standard-WG, sonst eine neue (-> created)
+    private static long householdForRegistration(String adminUsername, String wgName, boolean[] created) throws SQLException {
+        long existing = householdOf(adminUsername);
+        if (existing > 0) return existing;
+        try (Connection conn = getConnection(DEFAULT_HOUSEHOLD);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT 1 FROM users WHERE household_id = ? AND COALESCE(is_admin, 0) = 1 LIMIT 1")) {
+            ps.setLong(1, DEFAULT_HOUSEHOLD);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return DEFAULT_HOUSEHOLD;
+            }
+            created[0] = true;
+            return insertHousehold(conn, wgName);
+        }
+    }
+
+    // verwirft eine für eine gescheiterte Registrierung angelegte WG
+    private static void discardHousehold(long householdId) {
+        try {
+            if (ShardRouter.isEnabled()) {
+                ShardRouter.get().drop(householdId);
+                return;
+            }
+            try (Connection conn = getConnection();
+                 PreparedStatement ps = conn.prepareStatement("DELETE FROM households WHERE id = ?")) {
+                ps.setLong(1, householdId);
+                ps.executeUpdate();
+            }
+        } catch (SQLException | java.io.IOException e) {
+            System.err.println("[DatabaseManager] discardHousehold failed: " + e.getMessage());
+        }
+    }
+
     /* ----------------- Household + Admin Erstellung ----------------- */
     public static final class UserData {
         private final String displayName;
@@ -287,8 +967,11 @@ public final class DatabaseManager {
     /**
      * Legt atomar einen Admin-Benutzer (is_admin=1) und optional weitere Benutzer an / aktualisiert sie.
      * Keine Erstellung eines Default-Admin mehr in der Verbindungserstellung.
+     * Gibt es den Admin schon, bleibt es bei seiner WG; sonst wird die (noch adminlose) Standard-WG
+     * übernommen oder eine neue WG angelegt. Mitglieder kommen in dieselbe WG; ein Username, der in einer
+     * anderen WG vergeben ist, lässt die ganze Registrierung scheitern.
      *
-     * @param wgName        optionaler WG-Name (derzeit nur als Info, keine eigene Tabelle)
+     * @param wgName        optionaler WG-Name (wird in {@code households} gespeichert, Standard "WG")
      * @param adminUsername Admin-Benutzername (pflicht)
      * @param adminPassword Admin-Passwort im Klartext (wird gehasht)
      * @param members       optionale weitere Mitglieder
@@ -298,7 +981,22 @@ public final class DatabaseManager {
         if (adminUsername == null || adminUsername.isBlank()) return false;
         if (adminPassword == null || adminPassword.isEmpty()) return false;
 
-        try (Connection conn = getConnection()) {
+        // die WG steht vor der Transaktion fest, damit bei einer Datei je WG die richtige Datei gesperrt wird
+        long household;
+        boolean[] created = {false};
+        try {
+            household = householdForRegistration(adminUsername, wgName, created);
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] createHouseholdWithAdmin failed: " + e.getMessage());
+            return false;
+        }
+        boolean ok = registerInHousehold(household, wgName, adminUsername, adminPassword, members);
+        if (!ok && created[0]) discardHousehold(household);
+        return ok;
+    }
+
+    private static boolean registerInHousehold(long household, String wgName, String adminUsername, String adminPassword, List<UserData> members) {
+        try (Connection conn = getConnection(household)) {
             boolean originalAutoCommit = true;
             try {
                 try {
@@ -308,27 +1006,38 @@ public final class DatabaseManager {
                 conn.setAutoCommit(false);
 
                 String hashedAdmin = hashPassword(adminPassword);
+                if (wgName != null && !wgName.isBlank()) {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE households SET name = ? WHERE id = ?")) {
+                        ps.setString(1, householdLabel(wgName));
+                        ps.setLong(2, household);
+                        ps.executeUpdate();
+                    }
+                }
                 // Prüfe ob Admin existiert
                 boolean adminExists = false;
-                try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM users WHERE username = ? COLLATE NOCASE")) {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM users WHERE username = ? COLLATE NOCASE AND household_id = ?")) {
                     ps.setString(1, adminUsername);
+                    ps.setLong(2, household);
                     try (ResultSet rs = ps.executeQuery()) {
                         if (rs.next()) adminExists = true;
                     }
                 }
 
                 if (adminExists) {
-                    try (PreparedStatement upd = conn.prepareStatement("UPDATE users SET password = ?, name = ?, is_admin = 1 WHERE username = ? COLLATE NOCASE")) {
+                    try (PreparedStatement upd = conn.prepareStatement("UPDATE users SET password = ?, name = ?, is_admin = 1" + versionBump(conn, "users") + " WHERE username = ? COLLATE NOCASE AND household_id = ?")) {
                         upd.setString(1, hashedAdmin);
                         upd.setString(2, adminUsername);
                         upd.setString(3, adminUsername);
+                        upd.setLong(4, household);
                         upd.executeUpdate();
                     }
                 } else {
-                    try (PreparedStatement ins = conn.prepareStatement("INSERT INTO users (username, password, name, is_admin) VALUES (?, ?, ?, 1)")) {
+                    claimUsername(conn, adminUsername, household);
+                    try (PreparedStatement ins = conn.prepareStatement("INSERT INTO users (username, password, name, is_admin, household_id) VALUES (?, ?, ?, 1, ?)")) {
                         ins.setString(1, adminUsername);
                         ins.setString(2, hashedAdmin);
                         ins.setString(3, adminUsername);
+                        ins.setLong(4, household);
                         ins.executeUpdate();
                     }
                 }
@@ -344,27 +1053,32 @@ public final class DatabaseManager {
                         String hashed = pass == null ? null : hashPassword(pass);
 
                         boolean exists = false;
-                        try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM users WHERE username = ? COLLATE NOCASE")) {
+                        try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM users WHERE username = ? COLLATE NOCASE AND household_id = ?")) {
                             ps.setString(1, uname);
+                            ps.setLong(2, household);
                             try (ResultSet rs = ps.executeQuery()) {
                                 if (rs.next()) exists = true;
                             }
                         }
 
                         if (exists) {
-                            try (PreparedStatement upd = conn.prepareStatement("UPDATE users SET password = ?, name = ? WHERE username = ? COLLATE NOCASE")) {
+                            try (PreparedStatement upd = conn.prepareStatement("UPDATE users SET password = ?, name = ?" + versionBump(conn, "users") + " WHERE username = ? COLLATE NOCASE AND household_id = ?")) {
                                 if (hashed == null) upd.setNull(1, Types.VARCHAR);
                                 else upd.setString(1, hashed);
                                 upd.setString(2, name);
                                 upd.setString(3, uname);
+                                upd.setLong(4, household);
                                 upd.executeUpdate();
                             }
                         } else {
-                            try (PreparedStatement ins = conn.prepareStatement("INSERT INTO users (username, password, name, is_admin) VALUES (?, ?, ?, 0)")) {
+                            // Username einer anderen WG: UNIQUE bzw. der Katalog schlägt fehl und die Registrierung wird zurückgerollt
+                            claimUsername(conn, uname, household);
+                            try (PreparedStatement ins = conn.prepareStatement("INSERT INTO users (username, password, name, is_admin, household_id) VALUES (?, ?, ?, 0, ?)")) {
                                 ins.setString(1, uname);
                                 if (hashed == null) ins.setNull(2, Types.VARCHAR);
                                 else ins.setString(2, hashed);
                                 ins.setString(3, name);
+                                ins.setLong(4, household);
                                 ins.executeUpdate();
                             }
                         }
@@ -372,6 +1086,7 @@ public final class DatabaseManager {
                 }
 
                 conn.commit();
+                fireUsersChanged();
                 return true;
             } catch (SQLException e) {
                 try {
@@ -393,19 +1108,69 @@ public final class DatabaseManager {
     }
 
     /* ----------------- Users ----------------- */
-    public static boolean createOrUpdateUser(String username, String password, String name) {
+
+    /**
+     * Prüft das Passwort eines Benutzers wie die Admin-Anmeldung im LoginScreen (SHA-256, Username
+     * case-insensitiv). Benutzer ohne gespeichertes Passwort können sich damit nicht anmelden.
+     */
+    public static boolean checkPassword(String username, String password) {
+        if (username == null || username.isBlank() || password == null) return false;
+        long household = householdOf(username);
+        if (household <= 0) return false;
+        try (Connection conn = getConnection(household);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT password FROM users WHERE username = ? COLLATE NOCASE AND household_id = ? LIMIT 1")) {
+            ps.setString(1, username.trim());
+            ps.setLong(2, household);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return false;
+                String stored = rs.getString(1);
+                return stored != null && stored.equalsIgnoreCase(hashPassword(password));
+            }
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] checkPassword failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Ob der Benutzer Admin der angegebenen WG ist. */
+    public static boolean isHouseholdAdmin(long household, String username) {
         if (username == null || username.isBlank()) return false;
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection(household);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT COALESCE(is_admin, 0) FROM users WHERE username = ? COLLATE NOCASE AND household_id = ?")) {
+            ps.setString(1, username.trim());
+            ps.setLong(2, household);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] isHouseholdAdmin failed: " + e.getMessage());
+            return false;
+        }
+    }
 
+    public static boolean createOrUpdateUser(String username, String password, String name) {
+        return createOrUpdateUser(currentHousehold(), username, password, name);
+    }
+
+    /**
+     * Legt einen Benutzer in der angegebenen WG an bzw. aktualisiert ihn dort. Beim Aktualisieren bleiben
+     * Passwort und Name unverändert, wenn {@code null} übergeben wird.
+     */
+    public static boolean createOrUpdateUser(long household, String username, String password, String name) {
+        if (username == null || username.isBlank()) return false;
+        try (Connection conn = getConnection(household)) {
             try (PreparedStatement upd = conn.prepareStatement(
-                    "UPDATE users SET password = ?, name = ? WHERE username = ? COLLATE NOCASE")) {
+                    "UPDATE users SET password = COALESCE(?, password), name = COALESCE(?, name)" + versionBump(conn, "users") + " WHERE username = ? COLLATE NOCASE AND household_id = ?")) {
                 upd.setString(1, hashPassword(password));
                 upd.setString(2, name);
                 upd.setString(3, username);
+                upd.setLong(4, household);
                 int updated = upd.executeUpdate();
                 if (updated > 0) {
                     System.err.println("[DatabaseManager] Updated user (by username): " + username);
+                    fireUsersChanged();
                     return true;
                 }
             } catch (SQLException e) {
@@ -413,12 +1178,15 @@ public final class DatabaseManager {
             }
 
             try (PreparedStatement ins = conn.prepareStatement(
-                    "INSERT INTO users (username, password, name) VALUES (?, ?, ?)")) {
+                    "INSERT INTO users (username, password, name, household_id) VALUES (?, ?, ?, ?)")) {
+                claimUsername(conn, username, household);
                 ins.setString(1, username);
                 ins.setString(2, hashPassword(password));
                 ins.setString(3, name);
+                ins.setLong(4, household);
                 ins.executeUpdate();
                 System.err.println("[DatabaseManager] Inserted user: " + username);
+                fireUsersChanged();
                 return true;
             } catch (SQLException e) {
                 System.err.println("[DatabaseManager] Insert user failed: " + e.getMessage());
@@ -442,7 +1210,8 @@ public final class DatabaseManager {
      */
     public static boolean deleteUser(String username) {
         if (username == null || username.isBlank()) return false;
-        try (Connection conn = getConnection()) {
+        // bei einer Datei je WG liegt der Benutzer in der Datei seiner WG
+        try (Connection conn = getConnection(householdOf(username))) {
             boolean originalAuto = true;
             try {
                 try { originalAuto = conn.getAutoCommit(); } catch (SQLException ignored) {}
@@ -451,11 +1220,13 @@ public final class DatabaseManager {
 
                 // Prüfe: ist der Benutzer ein Admin? Wenn ja, wie viele Admins existieren?
                 boolean isAdmin = false;
-                try (PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(is_admin,0) AS is_admin FROM users WHERE username = ? COLLATE NOCASE")) {
+                long household = DEFAULT_HOUSEHOLD;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(is_admin,0) AS is_admin, household_id FROM users WHERE username = ? COLLATE NOCASE")) {
                     ps.setString(1, username);
                     try (ResultSet rs = ps.executeQuery()) {
                         if (rs.next()) {
                             isAdmin = rs.getInt("is_admin") == 1;
+                            household = rs.getLong("household_id");
                         } else {
                             // Benutzer nicht gefunden -> nichts zu tun
                             try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
@@ -465,7 +1236,9 @@ public final class DatabaseManager {
                 }
 
                 if (isAdmin) {
-                    try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS c FROM users WHERE COALESCE(is_admin,0) = 1")) {
+                    // der letzte Admin seiner WG bleibt erhalten
+                    try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS c FROM users WHERE household_id = ? AND COALESCE(is_admin,0) = 1")) {
+                        ps.setLong(1, household);
                         try (ResultSet rs = ps.executeQuery()) {
                             if (rs.next()) {
                                 int cnt = rs.getInt("c");
@@ -495,7 +1268,7 @@ public final class DatabaseManager {
 
                 if (uid != null) {
                     // shopping_items.added_by auf NULL setzen
-                    try (PreparedStatement ps = conn.prepareStatement("UPDATE shopping_items SET added_by = NULL WHERE added_by = ?")) {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE shopping_items SET added_by = NULL" + versionBump(conn, "shopping_items") + " WHERE added_by = ?")) {
                         ps.setInt(1, uid);
                         ps.executeUpdate();
                     } catch (SQLException ignored) {
@@ -503,21 +1276,29 @@ public final class DatabaseManager {
                     }
 
                     // budget_transactions.user_id auf NULL setzen
-                    try (PreparedStatement ps = conn.prepareStatement("UPDATE budget_transactions SET user_id = NULL WHERE user_id = ?")) {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE budget_transactions SET user_id = NULL" + versionBump(conn, "budget_transactions") + " WHERE user_id = ?")) {
                         ps.setInt(1, uid);
                         ps.executeUpdate();
                     } catch (SQLException ignored) {}
 
                     // budget_transactions.paid_by auf NULL setzen
-                    try (PreparedStatement ps = conn.prepareStatement("UPDATE budget_transactions SET paid_by = NULL WHERE paid_by = ?")) {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE budget_transactions SET paid_by = NULL" + versionBump(conn, "budget_transactions") + " WHERE paid_by = ?")) {
                         ps.setInt(1, uid);
                         ps.executeUpdate();
                     } catch (SQLException ignored) {}
                 }
 
                 // cleaning_tasks.assigned_to (text) auf NULL setzen, basierend auf username
-                try (PreparedStatement ps = conn.prepareStatement("UPDATE cleaning_tasks SET assigned_to = NULL WHERE assigned_to = ? COLLATE NOCASE")) {
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE cleaning_tasks SET assigned_to = NULL" + versionBump(conn, "cleaning_tasks") + " WHERE household_id = ? AND assigned_to = ? COLLATE NOCASE")) {
+                    ps.setLong(1, household);
+                    ps.setString(2, username);
+                    ps.executeUpdate();
+                } catch (SQLException ignored) {}
+                // geplante Einzeltermine des Benutzers verwerfen (es gilt wieder die Zuweisung der Serie)
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM cleaning_task_assignments WHERE assigned_to = ? COLLATE NOCASE"
+                        + " AND task_id IN (SELECT id FROM cleaning_tasks WHERE household_id = ?)")) {
                     ps.setString(1, username);
+                    ps.setLong(2, household);
                     ps.executeUpdate();
                 } catch (SQLException ignored) {}
 
@@ -526,9 +1307,11 @@ public final class DatabaseManager {
                     ps.setString(1, username);
                     ps.executeUpdate();
                 }
+                releaseUsername(conn, username, household);
 
                 conn.commit();
                 try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
+                fireUsersChanged();
                 return true;
             } catch (SQLException e) {
                 try { conn.rollback(); } catch (SQLException ignored) {}
@@ -542,6 +1325,202 @@ public final class DatabaseManager {
         }
     }
 
+    /* ----------------- Änderungs-Hooks ----------------- */
+
+    // Listener für geänderte Zeilen; Aufruf auf dem Thread "flatmanager-db-changes"
+    private static final java.util.concurrent.CopyOnWriteArrayList<java.util.function.Consumer<TableChanges>> changeListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    // festgeschriebene, noch nicht verteilte Commits
+    private static final java.util.concurrent.ConcurrentLinkedQueue<CommittedChanges> committedChanges = new java.util.concurrent.ConcurrentLinkedQueue<>();
+    private static final java.util.concurrent.atomic.AtomicBoolean changeDispatchScheduled = new java.util.concurrent.atomic.AtomicBoolean();
+    // Commit-Zähler dieses Prozesses; der BackupService erkennt damit, ob seit der letzten Sicherung geschrieben wurde
+    private static final java.util.concurrent.atomic.AtomicLong ownCommitSequence = new java.util.concurrent.atomic.AtomicLong();
+    private static final java.util.concurrent.ExecutorService changeDispatcher = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flatmanager-db-changes");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Registriert einen Listener, der nach jedem Commit die geänderten Tabellen und rowids erhält,
+     * unabhängig davon, über welchen Code-Pfad geschrieben wurde. Der Aufruf erfolgt nicht auf dem
+     * schreibenden Thread, sondern nacheinander auf einem eigenen Hintergrund-Thread und erst, wenn der
+     * Commit abgeschlossen ist; Listener dürfen also sofort neu lesen. Stauen sich mehrere Commits,
+     * werden sie zu einer Benachrichtigung zusammengefasst.
+     *
+     * Nicht gemeldet werden (Einschränkung der SQLite-Hooks): Schema-Änderungen, Änderungen anderer
+     * Prozesse und {@code DELETE} ohne {@code WHERE} (Truncate-Optimierung). Wer eine Tabelle leert,
+     * schreibt daher {@code DELETE FROM t WHERE 1}.
+     */
+    public static void addChangeListener(java.util.function.Consumer<TableChanges> listener) {
+        if (listener != null) changeListeners.addIfAbsent(listener);
+    }
+
+    public static void removeChangeListener(java.util.function.Consumer<TableChanges> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Wartet, bis alle bis jetzt festgeschriebenen Änderungen an die Listener verteilt wurden
+     * (z.B. in Tests, die direkt danach den Cache prüfen).
+     * @return {@code false}, wenn die Wartezeit abgelaufen ist
+     */
+    public static boolean awaitChangeDelivery(long timeoutMillis) {
+        try {
+            changeDispatcher.submit(() -> { }).get(timeoutMillis, java.util.concurrent.TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (java.util.concurrent.ExecutionException | java.util.concurrent.TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ein Commit einer Connection; {@code database} dient als Sperre, um auf das Ende des Commits zu warten
+     * ({@code null} bei externen Änderungen, die bereits festgeschrieben sind).
+     */
+    private static final class CommittedChanges {
+        final Object database;
+        final long poolGeneration;
+        final TableChanges changes;
+
+        CommittedChanges(Object database, long poolGeneration, TableChanges changes) {
+            this.database = database;
+            this.poolGeneration = poolGeneration;
+            this.changes = changes;
+        }
+    }
+
+    /** Anzahl der Commits dieses Prozesses, die Zeilen geändert haben. */
+    static long ownCommitSequence() {
+        return ownCommitSequence.get();
+    }
+
+    /** Verteilt von einer anderen App-Instanz geänderte Tabellen (siehe {@link ExternalChangeWatcher}). */
+    static void publishExternalChanges(TableChanges changes, long forPoolGeneration) {
+        if (changes.isEmpty()) return;
+        publishChanges(new CommittedChanges(null, forPoolGeneration, changes));
+    }
+
+    /**
+     * Sammelt die Zeilenänderungen einer physischen Connection bis zum Commit (bzw. verwirft sie beim
+     * Rollback). Die Callbacks laufen auf dem schreibenden Thread innerhalb des nativen Aufrufs, daher
+     * wird hier nur gesammelt und nie auf die Datenbank zugegriffen.
+     */
+    private static final class ChangeRecorder implements org.sqlite.SQLiteUpdateListener, org.sqlite.SQLiteCommitListener {
+        private final Object database;
+        private final TableChanges.Builder pending = new TableChanges.Builder();
+
+        ChangeRecorder(Object database) {
+            this.database = database;
+        }
+
+        @Override
+        public synchronized void onUpdate(Type type, String schema, String table, long rowId) {
+            pending.add("main".equals(schema) || schema == null ? table : schema + "." + table, rowId);
+        }
+
+        @Override
+        public void onCommit() {
+            TableChanges changes;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                changes = pending.drain();
+            }
+            ownCommitSequence.incrementAndGet();
+            publishChanges(new CommittedChanges(database, poolGeneration, changes));
+        }
+
+        @Override
+        public synchronized void onRollback() {
+            pending.clear();
+        }
+    }
+
+    private static void installChangeHooks(Connection conn) {
+        try {
+            if (!conn.isWrapperFor(org.sqlite.SQLiteConnection.class)) return;
+            org.sqlite.SQLiteConnection sqlite = conn.unwrap(org.sqlite.SQLiteConnection.class);
+            ChangeRecorder recorder = new ChangeRecorder(sqlite.getDatabase());
+            sqlite.addUpdateListener(recorder);
+            sqlite.addCommitListener(recorder);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("[DatabaseManager] change hooks not available: " + e.getMessage());
+        }
+    }
+
+    private static void publishChanges(CommittedChanges committed) {
+        if (changeListeners.isEmpty()) return;
+        committedChanges.offer(committed);
+        if (changeDispatchScheduled.compareAndSet(false, true)) {
+            changeDispatcher.execute(DatabaseManager::dispatchChanges);
+        }
+    }
+
+    private static void dispatchChanges() {
+        TableChanges.Builder merged = new TableChanges.Builder();
+        TableChanges.Builder external = new TableChanges.Builder();
+        changeDispatchScheduled.set(false);
+        CommittedChanges next;
+        while ((next = committedChanges.poll()) != null) {
+            // Commit auf einer inzwischen geschlossenen Datenbank (z.B. nach Wechsel der db.url): nicht mehr melden
+            if (next.poolGeneration != poolGeneration) continue;
+            if (next.database == null) {
+                external.addAll(next.changes);
+                continue;
+            }
+            // Der Commit-Hook läuft, bevor SQLite den Commit abschließt. Der JDBC-Treiber hält die
+            // Sperre seines DB-Objekts während des gesamten Aufrufs; danach ist der Commit sichtbar.
+            synchronized (next.database) {
+                merged.addAll(next.changes);
+            }
+        }
+        if (poolClosed) return;
+        if (!merged.isEmpty()) deliverChanges(merged.drain());
+        if (!external.isEmpty()) deliverChanges(external.drain(true));
+    }
+
+    private static void deliverChanges(TableChanges changes) {
+        for (java.util.function.Consumer<TableChanges> l : changeListeners) {
+            try {
+                l.accept(changes);
+            } catch (RuntimeException e) {
+                System.err.println("[DatabaseManager] change listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+
+    /* ----------------- Benutzer-Änderungen ----------------- */
+
+    /**
+     * Registriert einen Listener, der nach jeder Änderung an Benutzern aufgerufen wird
+     * (Anlegen, Aktualisieren, Löschen, Haushalt-Erstellung).
+     * Der Aufruf erfolgt auf dem Thread, der die Änderung ausgeführt hat.
+     */
+    public static void addUserChangeListener(Runnable listener) {
+        if (listener != null) userChangeListeners.addIfAbsent(listener);
+    }
+
+    public static void removeUserChangeListener(Runnable listener) {
+        userChangeListeners.remove(listener);
+    }
+
+    /**
+     * Benachrichtigt alle Listener über geänderte Benutzer. Code, der die users-Tabelle direkt per SQL
+     * ändert (z.B. Admin-Dialoge), muss dies nach dem Commit selbst aufrufen.
+     */
+    public static void fireUsersChanged() {
+        for (Runnable l : userChangeListeners) {
+            try {
+                l.run();
+            } catch (Exception e) {
+                System.err.println("[DatabaseManager] user change listener failed: " + e.getMessage());
+            }
+        }
+    }
+
     /* ----------------- Benutzerliste / Suche (Auszug) ----------------- */
     // (Vorhandene Implementierungen bleiben unverändert, daher nicht erneut aufgeführt)
     public static final class UserInfo {
@@ -566,12 +1545,17 @@ public final class DatabaseManager {
         }
     }
 
+    /** Benutzer der aktiven WG ({@link #currentHousehold()}). */
     public static List<UserInfo> listUsers() {
+        return listUsers(currentHousehold());
+    }
+
+    public static List<UserInfo> listUsers(long householdId) {
         List<UserInfo> out = new ArrayList<>();
-        try (Connection conn = getConnection();
+        try (Connection conn = getConnection(householdId);
              Statement s = conn.createStatement()) {
 
-            boolean hasId = false, hasUsername = false, hasName = false, hasPassword = false, hasIsAdmin = false;
+            boolean hasId = false, hasUsername = false, hasName = false, hasPassword = false, hasIsAdmin = false, hasHousehold = false;
             try (ResultSet rs = s.executeQuery("PRAGMA table_info(users)")) {
                 while (rs.next()) {
                     String col = rs.getString("name");
@@ -580,6 +1564,7 @@ public final class DatabaseManager {
                     if ("name".equalsIgnoreCase(col)) hasName = true;
                     if ("password".equalsIgnoreCase(col)) hasPassword = true;
                     if ("is_admin".equalsIgnoreCase(col)) hasIsAdmin = true;
+                    if ("household_id".equalsIgnoreCase(col)) hasHousehold = true;
                 }
             } catch (SQLException ignored) {
             }
@@ -590,7 +1575,8 @@ public final class DatabaseManager {
             if (hasName) cols.add("name");
             if (hasPassword) cols.add("password");
             if (hasIsAdmin) cols.add("COALESCE(is_admin, 0) AS is_admin");
-            String sql = "SELECT " + (cols.isEmpty() ? "*" : String.join(", ", cols)) + " FROM users";
+            String sql = "SELECT " + (cols.isEmpty() ? "*" : String.join(", ", cols)) + " FROM users"
+                    + (hasHousehold ? " WHERE household_id = " + householdId : "");
 
             try (ResultSet rs = s.executeQuery(sql)) {
                 while (rs.next()) {
@@ -626,9 +1612,47 @@ public final class DatabaseManager {
         return out;
     }
 
+    /**
+     * Sucht Benutzer über Benutzername und Anzeigename; jedes Wort der Eingabe wird als Präfix gesucht.
+     * Nutzt den Volltextindex und fällt auf LIKE zurück, falls dieser fehlt.
+     */
     public static List<UserInfo> searchUsers(String query) {
-        // Implementation as before (omitted for brevity)
-        return new ArrayList<>();
+        List<UserInfo> out = new ArrayList<>();
+        String match = SearchIndex.matchQuery(query);
+        if (match == null) return out;
+        String fts = "SELECT u.id, u.username, u.name, u.password, COALESCE(u.is_admin, 0) AS is_admin"
+                + " FROM " + SearchIndex.TABLE + " s JOIN users u ON u.id = s.rowid / " + SearchIndex.KINDS
+                + " WHERE " + SearchIndex.TABLE + " MATCH ? AND s.rowid % " + SearchIndex.KINDS + " = " + SearchIndex.Kind.USER.ordinal()
+                + " AND u.household_id = ?"
+                + " ORDER BY " + SearchIndex.RANK + ", u.username";
+        String like = "SELECT id, username, name, password, COALESCE(is_admin, 0) AS is_admin FROM users"
+                + " WHERE household_id = ? AND (username LIKE ? OR name LIKE ?) ORDER BY username";
+        long household = currentHousehold();
+        try (Connection conn = getConnection()) {
+            PreparedStatement prepared;
+            try {
+                prepared = conn.prepareStatement(fts);
+                prepared.setString(1, SearchIndex.householdQuery(match, household));
+                prepared.setLong(2, household);
+            } catch (SQLException e) {
+                System.err.println("[DatabaseManager] searchUsers: Volltextindex nicht verfügbar, nutze LIKE: " + e.getMessage());
+                String pattern = "%" + query.trim() + "%";
+                prepared = conn.prepareStatement(like);
+                prepared.setLong(1, household);
+                prepared.setString(2, pattern);
+                prepared.setString(3, pattern);
+            }
+            try (PreparedStatement ps = prepared; ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String p = rs.getString("password");
+                    out.add(new UserInfo(rs.getInt("id"), rs.getString("username"), rs.getString("name"),
+                            rs.getInt("is_admin") == 1, p == null ? null : maskHash(p)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] searchUsers failed: " + e.getMessage());
+        }
+        return out;
     }
 
     public static void logUsers() {
@@ -715,7 +1739,7 @@ public final class DatabaseManager {
                 }
                 sb.append("quantity = ?, bought = ?, category = ?, list_id = ?, ");
                 if (hasAddedBy) sb.append("added_by = ?, ");
-                sb.append("created_at = ? WHERE id = ?");
+                sb.append("created_at = ?").append(versionBump(conn, "shopping_items")).append(" WHERE id = ? AND household_id = ?");
                 params.add(item.quantity);
                 params.add(item.bought ? 1 : 0);
                 params.add(item.category);
@@ -723,12 +1747,14 @@ public final class DatabaseManager {
                 if (hasAddedBy) params.add(null); // UI should supply actual user id if available
                 params.add(item.createdAt);
                 params.add(item.id);
+                params.add(currentHousehold());
 
                 try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
                     int idx = 1;
                     for (Object p : params) {
                         if (p == null) ps.setNull(idx++, Types.NULL);
                         else if (p instanceof Integer) ps.setInt(idx++, (Integer) p);
+                        else if (p instanceof Long) ps.setLong(idx++, (Long) p);
                         else ps.setString(idx++, p.toString());
                     }
                     int updated = ps.executeUpdate();
@@ -770,6 +1796,9 @@ public final class DatabaseManager {
                 cols.add("created_at");
                 holders.add("?");
                 params.add(item.createdAt);
+                cols.add("household_id");
+                holders.add("?");
+                params.add(currentHousehold());
 
                 String sql = "INSERT INTO shopping_items (" + String.join(", ", cols) + ") VALUES (" + String.join(", ", holders) + ")";
                 try (PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -779,6 +1808,8 @@ public final class DatabaseManager {
                             ps.setNull(idx++, Types.NULL);
                         } else if (p instanceof Integer) {
                             ps.setInt(idx++, (Integer) p);
+                        } else if (p instanceof Long) {
+                            ps.setLong(idx++, (Long) p);
                         } else {
                             ps.setString(idx++, p.toString());
                         }
@@ -809,7 +1840,7 @@ public final class DatabaseManager {
             cols.add("list_id");
             cols.add("created_at");
 
-            String sql = "SELECT " + String.join(", ", cols) + " FROM shopping_items";
+            String sql = "SELECT " + String.join(", ", cols) + " FROM shopping_items WHERE household_id = " + currentHousehold();
             try (Statement s = conn.createStatement();
                  ResultSet rs = s.executeQuery(sql)) {
                 while (rs.next()) {
@@ -839,8 +1870,9 @@ public final class DatabaseManager {
     public static boolean deleteShoppingItem(int id) {
         if (id <= 0) return false;
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("DELETE FROM shopping_items WHERE id = ?")) {
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM shopping_items WHERE id = ? AND household_id = ?")) {
             ps.setInt(1, id);
+            ps.setLong(2, currentHousehold());
             int deleted = ps.executeUpdate();
             return deleted > 0;
         } catch (SQLException e) {
@@ -884,7 +1916,8 @@ public final class DatabaseManager {
                 StringBuilder sb = new StringBuilder("UPDATE budget_transactions SET description = ?, amount = ?, date = ?, user_id = ?");
                 if (hasPaidBy) sb.append(", paid_by = ?");
                 if (hasCategory) sb.append(", category = ?");
-                sb.append(" WHERE id = ?");
+                sb.append(versionBump(conn, "budget_transactions"));
+                sb.append(" WHERE id = ? AND household_id = ?");
                 try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
                     int idx = 1;
                     ps.setString(idx++, t.description);
@@ -899,7 +1932,8 @@ public final class DatabaseManager {
                     if (hasCategory) {
                         ps.setNull(idx++, Types.NULL); // UI should supply category if available
                     }
-                    ps.setInt(idx, t.id);
+                    ps.setInt(idx++, t.id);
+                    ps.setLong(idx, currentHousehold());
                     int updated = ps.executeUpdate();
                     return updated > 0;
                 }
@@ -930,6 +1964,9 @@ public final class DatabaseManager {
                     holders.add("?");
                     params.add(null); // UI should provide category
                 }
+                cols.add("household_id");
+                holders.add("?");
+                params.add(currentHousehold());
 
                 String sql = "INSERT INTO budget_transactions (" + String.join(", ", cols) + ") VALUES (" + String.join(", ", holders) + ")";
                 try (PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -937,6 +1974,7 @@ public final class DatabaseManager {
                     for (Object p : params) {
                         if (p == null) ps.setNull(idx++, Types.INTEGER);
                         else if (p instanceof Integer) ps.setInt(idx++, (Integer) p);
+                        else if (p instanceof Long) ps.setLong(idx++, (Long) p);
                         else if (p instanceof Double) ps.setDouble(idx++, (Double) p);
                         else ps.setString(idx++, p.toString());
                     }
@@ -969,11 +2007,12 @@ public final class DatabaseManager {
             if (hasPaidBy) cols.add("paid_by");
             if (hasCategory) cols.add("category");
 
-            String sql = "SELECT " + String.join(", ", cols) + " FROM budget_transactions";
-            if (forUserId != null) sql += " WHERE user_id = ?";
+            String sql = "SELECT " + String.join(", ", cols) + " FROM budget_transactions WHERE household_id = ?";
+            if (forUserId != null) sql += " AND user_id = ?";
 
             try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                if (forUserId != null) ps.setInt(1, forUserId);
+                ps.setLong(1, currentHousehold());
+                if (forUserId != null) ps.setInt(2, forUserId);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         int id = rs.getInt("id");
@@ -1007,8 +2046,9 @@ public final class DatabaseManager {
     public static boolean deleteTransaction(int id) {
         if (id <= 0) return false;
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("DELETE FROM budget_transactions WHERE id = ?")) {
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM budget_transactions WHERE id = ? AND household_id = ?")) {
             ps.setInt(1, id);
+            ps.setLong(2, currentHousehold());
             int deleted = ps.executeUpdate();
             return deleted > 0;
         } catch (SQLException e) {
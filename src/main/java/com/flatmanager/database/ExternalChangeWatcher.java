@@ -0,0 +1,169 @@
+package com.flatmanager.database;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Erkennt Änderungen anderer App-Instanzen an derselben Datenbankdatei, die die Änderungs-Hooks der
+ * eigenen Connections nicht sehen. Wird vom Scheduler-Job "db.watch" jede Sekunde über {@link #poll()}
+ * aufgerufen und verteilt gefundene Änderungen als {@link TableChanges#isExternal() externe}
+ * {@link TableChanges} an die Listener von {@link DatabaseManager#addChangeListener(java.util.function.Consumer)}.
+ *
+ * Eine Abfrage kostet im Normalfall nur einen Blick auf Änderungszeit und Größe der Datei (und der
+ * WAL-Datei). Erst wenn sich diese ändern (spätestens alle {@link #FULL_CHECK_EVERY} Abfragen) wird
+ * {@code PRAGMA data_version} auf einer eigenen Lese-Connection abgefragt, und nur wenn sich dieser Wert
+ * ändert, werden die trigger-gepflegten {@link ChangeCounters} gelesen: eine Zeile je Tabelle, unabhängig
+ * von deren Größe. Gemeldet werden nur Tabellen, deren Zähler stärker gewachsen ist als der dieses Prozesses;
+ * eigene Änderungen haben die Hooks schon gemeldet, fremde Änderungen an derselben Tabelle gehen dabei
+ * nicht verloren.
+ */
+public final class ExternalChangeWatcher {
+
+    /** So viele Abfragen ohne geänderten Datei-Zeitstempel, bevor data_version trotzdem geprüft wird. */
+    static final int FULL_CHECK_EVERY = 10;
+
+    private static final ExternalChangeWatcher INSTANCE = new ExternalChangeWatcher();
+
+    private Connection conn;
+    private String connUrl;
+    private long connPoolGeneration = -1;
+    private Path dbFile;
+    private List<Long> fileStamp = List.of();
+    private int pollsWithoutCheck;
+    private long dataVersion;
+    private Map<String, Long> foreign = Map.of();
+
+    private long versionChecks;
+    private long scans;
+
+    ExternalChangeWatcher() {
+    }
+
+    public static ExternalChangeWatcher get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Prüft einmal auf fremde Änderungen.
+     * @return Anzahl der als extern geändert gemeldeten Tabellen
+     */
+    public synchronized int poll() {
+        try {
+            if (openIfNeeded()) return 0;
+            List<Long> stamp = fileStamp();
+            boolean stampChanged = dbFile == null || !stamp.equals(fileStamp);
+            fileStamp = stamp;
+            if (!stampChanged && ++pollsWithoutCheck < FULL_CHECK_EVERY) return 0;
+            pollsWithoutCheck = 0;
+
+            versionChecks++;
+            long version = readDataVersion();
+            if (version == dataVersion) return 0;
+            dataVersion = version;
+            return scan();
+        } catch (SQLException e) {
+            System.err.println("[ExternalChangeWatcher] poll failed: " + e.getMessage());
+            close();
+            return 0;
+        }
+    }
+
+    /** Anzahl der Abfragen von {@code PRAGMA data_version} (ohne den Start). */
+    public synchronized long versionChecks() {
+        return versionChecks;
+    }
+
+    /** Anzahl der Zählervergleiche, also erkannter Commits (eigene oder fremde). */
+    public synchronized long scans() {
+        return scans;
+    }
+
+    /** Schließt die Lese-Connection; die nächste Abfrage öffnet sie neu. */
+    public synchronized void close() {
+        if (conn != null) {
+            try { conn.close(); } catch (SQLException ignore) {}
+        }
+        conn = null;
+        connUrl = null;
+        connPoolGeneration = -1;
+    }
+
+    /** Beim Beenden: wie {@link #close()}, entfernt vorher die eigenen Zähler dieses Prozesses aus der Datei. */
+    public synchronized void shutdown() {
+        if (conn != null) {
+            try {
+                ChangeCounters.forget(conn);
+            } catch (SQLException e) {
+                System.err.println("[ExternalChangeWatcher] counters not removed: " + e.getMessage());
+            }
+        }
+        close();
+    }
+
+    // Öffnet die Lese-Connection (auch nach einem Wechsel der Datenbank) und merkt sich den Ausgangsstand;
+    // true, wenn gerade neu geöffnet wurde
+    private boolean openIfNeeded() throws SQLException {
+        String url = DatabaseManager.currentUrl();
+        long poolGen = DatabaseManager.getPoolGeneration();
+        if (conn != null && url.equals(connUrl) && poolGen == connPoolGeneration && !conn.isClosed()) return false;
+        close();
+
+        conn = DriverManager.getConnection(url);
+        connUrl = url;
+        connPoolGeneration = poolGen;
+        dbFile = DatabaseManager.databaseFile(url);
+        fileStamp = fileStamp();
+        pollsWithoutCheck = 0;
+        dataVersion = readDataVersion();
+        foreign = ChangeCounters.foreign(conn);
+        return true;
+    }
+
+    private int scan() throws SQLException {
+        scans++;
+        Map<String, Long> now = ChangeCounters.foreign(conn);
+        TableChanges.Builder changed = new TableChanges.Builder();
+        for (Map.Entry<String, Long> e : now.entrySet()) {
+            if (e.getValue() > foreign.getOrDefault(e.getKey(), 0L)) changed.addTable(e.getKey());
+        }
+        foreign = now;
+
+        TableChanges changes = changed.drain(true);
+        if (changes.isEmpty()) return 0;
+        System.err.println("[ExternalChangeWatcher] external change: " + changes);
+        DatabaseManager.publishExternalChanges(changes, connPoolGeneration);
+        return changes.tables().size();
+    }
+
+    private long readDataVersion() throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // Änderungszeit und Größe von Datenbank- und WAL-Datei; leer, wenn keine Datei bekannt ist
+    private List<Long> fileStamp() {
+        if (dbFile == null) return List.of();
+        List<Long> stamp = new ArrayList<>(4);
+        for (Path p : new Path[]{dbFile, Paths.get(dbFile + "-wal")}) {
+            try {
+                stamp.add(Files.getLastModifiedTime(p).toMillis());
+                stamp.add(Files.size(p));
+            } catch (Exception e) {
+                stamp.add(-1L);
+                stamp.add(-1L);
+            }
+        }
+        return stamp;
+    }
+}
@@ -0,0 +1,99 @@
+package com.flatmanager.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Gespeicherte Versionen abgeleiteter Schema-Teile (Trigger, Hilfstabellen) je Datenbankdatei.
+ * Komponenten legen ihre Objekte nur an, wenn die gespeicherte Version von der im Code abweicht, statt sie
+ * bei jedem Öffnen zu löschen und neu zu erzeugen; zwischen DROP und CREATE würden sonst Schreibzugriffe
+ * anderer App-Instanzen an den Triggern vorbeilaufen.
+ */
+public final class SchemaVersions {
+
+    public static final String TABLE = "schema_versions";
+
+    private SchemaVersions() {
+    }
+
+    /** Gespeicherte Version der Komponente, 0 wenn sie noch nie installiert wurde. */
+    public static int get(Connection conn, String component) throws SQLException {
+        if (!tableExists(conn)) return 0;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT version FROM " + TABLE + " WHERE component = ?")) {
+            ps.setString(1, component);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /** Merkt die installierte Version; gehört in dieselbe Transaktion wie die Installation. */
+    public static void set(Connection conn, String component, int version) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (component TEXT PRIMARY KEY, version INTEGER NOT NULL) WITHOUT ROWID");
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + TABLE + " (component, version) VALUES (?, ?) " +
+                "ON CONFLICT(component) DO UPDATE SET version = excluded.version")) {
+            ps.setString(1, component);
+            ps.setInt(2, version);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Arbeit einer Installation; läuft innerhalb von {@link #upgrade}. */
+    public interface Install {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /** Prüft, ob die Objekte einer Komponente vorhanden sind (z.B. nicht von Hand gelöscht). */
+    public interface Check {
+        boolean test(Connection conn) throws SQLException;
+    }
+
+    /** Wie {@link #upgrade(Connection, String, int, Check, Install)} ohne Prüfung der Objekte. */
+    public static boolean upgrade(Connection conn, String component, int version, Install install) throws SQLException {
+        return upgrade(conn, component, version, c -> true, install);
+    }
+
+    /**
+     * Führt {@code install} aus, wenn die gespeicherte Version nicht {@code version} ist oder {@code present}
+     * fehlende Objekte meldet, und speichert die Version danach.
+     * Alles läuft in einer {@code BEGIN IMMEDIATE}-Transaktion: eine zweite Instanz, die gleichzeitig startet,
+     * wartet auf die Schreibsperre, sieht danach die neue Version und installiert nichts mehr.
+     * Liefert true, wenn installiert wurde.
+     */
+    public static boolean upgrade(Connection conn, String component, int version, Check present, Install install) throws SQLException {
+        if (get(conn, component) == version && present.test(conn)) return false;
+        if (!conn.getAutoCommit()) {
+            // Teil einer laufenden Transaktion (z.B. Import): dort mitlaufen
+            install.run(conn);
+            set(conn, component, version);
+            return true;
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("BEGIN IMMEDIATE");
+            try {
+                boolean changed = get(conn, component) != version || !present.test(conn);
+                if (changed) {
+                    install.run(conn);
+                    set(conn, component, version);
+                }
+                st.execute("COMMIT");
+                return changed;
+            } catch (SQLException | RuntimeException e) {
+                try { st.execute("ROLLBACK"); } catch (SQLException ignored) {}
+                throw e;
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + TABLE + "'");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.flatmanager.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FTS5-Volltextindex {@code search_index} über Aufgabentitel, Einkaufsartikel, Buchungsbeschreibungen und
+ * Benutzernamen. Trigger auf den Basistabellen halten ihn bei jedem INSERT/UPDATE/DELETE aktuell; er wird
+ * von {@link DatabaseManager} beim Öffnen einer Connection angelegt und beim ersten Anlegen aus den
+ * Basistabellen gefüllt.
+ *
+ * Alle Quellen teilen sich einen Index. Die rowid kodiert Quelle und Datensatz:
+ * {@code rowid = id * KINDS + kind}, sodass Trigger Einträge über den Primärschlüssel löschen, ohne den
+ * Index zu durchsuchen. Der Tokenizer ignoriert Groß-/Kleinschreibung und Akzente ("kuche" findet "Küche").
+ *
+ * Die Spalte {@code household} trägt je Eintrag das Token {@code h<household_id>}. Abfragen verknüpfen
+ * ihre Wörter per {@link #householdQuery} mit diesem Token, FTS5 schneidet also nur die Trefferlisten
+ * einer WG; für das Ranking ({@link #RANK}) zählt die Spalte nicht.
+ */
+public final class SearchIndex {
+
+    /** Quelle eines Treffers; die Ordinalzahl ist der Code in der rowid. */
+    public enum Kind {
+        TASK("cleaning_tasks"),
+        SHOPPING("shopping_items"),
+        TRANSACTION("budget_transactions"),
+        USER("users");
+
+        public final String table;
+
+        Kind(String table) {
+            this.table = table;
+        }
+    }
+
+    public static final String TABLE = "search_index";
+    public static final int KINDS = 4;
+    /** bm25-Ausdruck für ORDER BY; die WG-Spalte hat Gewicht 0. */
+    public static final String RANK = "bm25(" + TABLE + ", 1.0, 0.0)";
+
+    // Text je Quelle, als SQL-Ausdruck über NEW/OLD bzw. die Tabellenspalten
+    private static final String[] TEXT = {
+            "%s.title",
+            "COALESCE(%s.item_name, %s.name)",
+            "%s.description",
+            "TRIM(COALESCE(%s.username, '') || ' ' || COALESCE(%s.name, ''))"
+    };
+    // Spalten, deren Änderung den Indextext ändert
+    private static final String[] COLUMNS = {"title", "item_name, name", "description", "username, name"};
+
+    private SearchIndex() {
+    }
+
+    /** rowid des Indexeintrags für einen Datensatz. */
+    public static long rowId(Kind kind, long id) {
+        return id * KINDS + kind.ordinal();
+    }
+
+    /** Quelle eines Indexeintrags. */
+    public static Kind kindOf(long rowId) {
+        return Kind.values()[(int) Math.floorMod(rowId, (long) KINDS)];
+    }
+
+    /** ID des Datensatzes in seiner Quelltabelle. */
+    public static long idOf(long rowId) {
+        return Math.floorDiv(rowId, (long) KINDS);
+    }
+
+    /**
+     * Wandelt eine Benutzereingabe in eine FTS5-Abfrage: jedes Wort wird als Präfix gesucht, alle Wörter
+     * müssen vorkommen. Sonderzeichen der FTS-Syntax werden nicht interpretiert.
+     * @return {@code null}, wenn die Eingabe kein Wort enthält
+     */
+    public static String matchQuery(String input) {
+        if (input == null) return null;
+        List<String> terms = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                terms.add("\"" + word + "\"*");
+                word.setLength(0);
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" ", terms);
+    }
+
+    /** Schränkt eine Abfrage aus {@link #matchQuery} auf die Einträge einer WG ein. */
+    public static String householdQuery(String match, long householdId) {
+        return "text : (" + match + ") AND household : \"h" + householdId + "\"";
+    }
+
+    /**
+     * Legt Index und Trigger an (idempotent); ein neu angelegter Index wird aus den Basistabellen gefüllt,
+     * ein Index aus einer Version ohne WG-Spalte neu aufgebaut.
+     */
+    static void install(Connection conn) throws SQLException {
+        inTransaction(conn, () -> {
+            boolean current = false;
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("PRAGMA table_info(" + TABLE + ")")) {
+                while (rs.next()) {
+                    if ("household".equalsIgnoreCase(rs.getString("name"))) current = true;
+                }
+            }
+            if (current) {
+                createTriggers(conn);
+            } else {
+                suspend(conn);
+                resume(conn);
+            }
+        });
+    }
+
+    /** Baut den Index komplett neu auf (z.B. nach Änderungen an den Basistabellen ohne Trigger). */
+    public static void rebuild(Connection conn) throws SQLException {
+        inTransaction(conn, () -> {
+            suspend(conn);
+            resume(conn);
+        });
+    }
+
+    /**
+     * Entfernt die Index-Trigger für Massenänderungen (z.B. Import); danach muss in derselben Transaktion
+     * {@link #resume} folgen. Einzeln nachgeführt kostet jede Zeile eine Indexänderung, der Neuaufbau am
+     * Ende nur einen Durchlauf.
+     */
+    public static void suspend(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (Kind kind : Kind.values()) {
+                for (String suffix : new String[]{"_ins", "_upd", "_del"}) {
+                    st.execute("DROP TRIGGER IF EXISTS " + triggerName(kind) + suffix);
+                }
+            }
+        }
+    }
+
+    /** Legt den Index neu an, füllt ihn aus den Basistabellen und aktiviert die Trigger wieder. */
+    public static void resume(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // Neu anlegen ist schneller als jeden Eintrag einzeln zu löschen
+            st.execute("DROP TABLE IF EXISTS " + TABLE);
+            st.execute("CREATE VIRTUAL TABLE " + TABLE + " USING fts5(text, household, "
+                    + "tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3')");
+            for (Kind kind : Kind.values()) {
+                String text = text(kind, kind.table);
+                st.executeUpdate("INSERT INTO " + TABLE + " (rowid, text, household) SELECT id * " + KINDS + " + " + kind.ordinal()
+                        + ", " + text + ", 'h' || household_id FROM " + kind.table + " WHERE " + text + " IS NOT NULL AND id IS NOT NULL");
+            }
+        }
+        createTriggers(conn);
+    }
+
+    private interface Work {
+        void run() throws SQLException;
+    }
+
+    // eigene Transaktion, oder Teil einer bereits laufenden
+    private static void inTransaction(Connection conn, Work work) throws SQLException {
+        boolean originalAuto = conn.getAutoCommit();
+        if (!originalAuto) {
+            work.run();
+            return;
+        }
+        try {
+            conn.setAutoCommit(false);
+            work.run();
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            try { conn.rollback(); } catch (SQLException ignored) {}
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+    }
+
+    private static void createTriggers(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (Kind kind : Kind.values()) {
+                for (String ddl : triggerDdls(kind)) st.execute(ddl);
+            }
+        }
+    }
+
+    private static String triggerName(Kind kind) {
+        return "trg_search_" + kind.name().toLowerCase();
+    }
+
+    private static String text(Kind kind, String alias) {
+        return TEXT[kind.ordinal()].replace("%s", alias);
+    }
+
+    private static String[] triggerDdls(Kind kind) {
+        String name = triggerName(kind);
+        String insertNew = "INSERT INTO " + TABLE + " (rowid, text, household) SELECT new.id * " + KINDS + " + " + kind.ordinal()
+                + ", " + text(kind, "new") + ", 'h' || new.household_id WHERE " + text(kind, "new") + " IS NOT NULL AND new.id IS NOT NULL;";
+        String deleteOld = "DELETE FROM " + TABLE + " WHERE rowid = old.id * " + KINDS + " + " + kind.ordinal() + ";";
+        return new String[]{
+                "CREATE TRIGGER IF NOT EXISTS " + name + "_ins AFTER INSERT ON " + kind.table
+                        + " BEGIN " + insertNew + " END",
+                "CREATE TRIGGER IF NOT EXISTS " + name + "_upd AFTER UPDATE OF id, household_id, " + COLUMNS[kind.ordinal()]
+                        + " ON " + kind.table + " BEGIN " + deleteOld + " " + insertNew + " END",
+                "CREATE TRIGGER IF NOT EXISTS " + name + "_del AFTER DELETE ON " + kind.table
+                        + " BEGIN " + deleteOld + " END"
+        };
+    }
+}
@@ -0,0 +1,448 @@
+package com.flatmanager.database;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Betriebsart "eine Datenbankdatei je WG" als Alternative zum gemeinsamen Schema: ist ein Verzeichnis
+ * konfiguriert (System-Property {@code db.shard_dir} bzw. Umgebungsvariable {@code DB_SHARD_DIR}), leitet
+ * {@link DatabaseManager#getConnection()} jede Connection an die Datei der aktiven WG ({@code wg-<id>.db}).
+ * Schreiber verschiedener WGs sperren damit nie dieselbe Datei, und eine WG zu löschen heißt, ihre Datei zu
+ * löschen ({@link #drop(long)}).
+ *
+ * WG-übergreifende Daten liegen im Katalog {@code catalog.db}: die Tabelle {@code households} und das
+ * Verzeichnis {@code user_directory} (Username -> WG) für die Anmeldung. Jede Connection einer WG hängt den
+ * Katalog als {@code catalog} an; da die WG-Dateien selbst keine Tabelle {@code households} haben, treffen
+ * unqualifizierte Zugriffe darauf den Katalog, und der bestehende SQL-Code bleibt unverändert.
+ *
+ * Jede WG hat einen eigenen kleinen Pool, der erst beim ersten Zugriff geöffnet wird. Höchstens
+ * {@code db.shard_max_open} (Standard {@link #DEFAULT_MAX_OPEN}) WGs bleiben offen; darüber hinaus werden die
+ * am längsten unbenutzten WGs ohne ausgeliehene Connection geschlossen (LRU), ebenso WGs, die länger als
+ * {@code db.shard_idle_seconds} unbenutzt sind ({@link #closeIdle()}). {@link #runMaintenance()} prüft und
+ * optimiert alle WG-Dateien, auch die gerade geschlossenen; der Scheduler-Job nutzt {@link #runMaintenanceAsync()}.
+ */
+public final class ShardRouter {
+
+    public static final String DIR_PROPERTY = "db.shard_dir";
+    public static final int DEFAULT_MAX_OPEN = 8;
+    public static final long DEFAULT_IDLE_SECONDS = 300;
+    /** Höchstens so viele freie Connections hält der Pool einer WG; weitere werden beim Zurückgeben geschlossen. */
+    static final int MAX_IDLE_PER_SHARD = 4;
+    static final String CATALOG_FILE = "catalog.db";
+    private static final Pattern SHARD_FILE = Pattern.compile("wg-(\\d+)\\.db");
+    private static final long DROP_TIMEOUT_MILLIS = 5_000;
+
+    // Pool einer WG-Datei
+    private static final class Shard {
+        final long household;
+        final String url;
+        final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+        final Set<Connection> all = ConcurrentHashMap.newKeySet();
+        final AtomicInteger borrowed = new AtomicInteger();
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile boolean closed;
+
+        Shard(long household, String url) {
+            this.household = household;
+            this.url = url;
+        }
+
+        void close() {
+            closed = true;
+            for (Connection c : all) {
+                try {
+                    c.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            all.clear();
+            idle.clear();
+        }
+    }
+
+    private static final ShardRouter INSTANCE = new ShardRouter();
+
+    // Zugriffsreihenfolge: der erste Eintrag ist der am längsten unbenutzte
+    private final LinkedHashMap<Long, Shard> open = new LinkedHashMap<>(16, 0.75f, true);
+    // WGs, die gerade gelöscht werden: borrow() lehnt sie ab, bis Datei und Katalogzeilen weg sind
+    private final Set<Long> dropping = new HashSet<>();
+    // Wartung läuft außerhalb des Scheduler-Threads, damit quick_check großer Dateien keine anderen Jobs aufhält
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flatmanager-shard-maintenance");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private Path openDir;
+    private Path catalogReady;
+
+    private ShardRouter() {
+    }
+
+    public static ShardRouter get() {
+        return INSTANCE;
+    }
+
+    /** Verzeichnis der WG-Dateien oder {@code null}, wenn alle WGs in einer gemeinsamen Datei liegen. */
+    public static Path directory() {
+        String dir = System.getenv().getOrDefault("DB_SHARD_DIR", System.getProperty(DIR_PROPERTY));
+        return dir == null || dir.isBlank() ? null : Paths.get(dir).toAbsolutePath();
+    }
+
+    public static boolean isEnabled() {
+        return directory() != null;
+    }
+
+    /** Datei einer WG im konfigurierten Verzeichnis. */
+    public static Path shardFile(long household) {
+        Path dir = directory();
+        return dir == null ? null : dir.resolve("wg-" + household + ".db");
+    }
+
+    static String shardUrl(long household) {
+        return "jdbc:sqlite:" + shardFile(household);
+    }
+
+    static String catalogUrl() {
+        return "jdbc:sqlite:" + directory().resolve(CATALOG_FILE);
+    }
+
+    /** Leiht eine Connection auf die Datei der WG aus; öffnet deren Pool bei Bedarf. */
+    Connection borrow(long household) throws SQLException {
+        Shard shard;
+        synchronized (this) {
+            ensureDirectory();
+            if (dropping.contains(household)) throw new SQLException("WG " + household + " wird gerade gelöscht");
+            shard = open.get(household);
+            if (shard == null) {
+                shard = new Shard(household, shardUrl(household));
+                open.put(household, shard);
+                evictBeyond(maxOpen(), household);
+            }
+            shard.borrowed.incrementAndGet();
+            shard.lastUsed = System.currentTimeMillis();
+        }
+        Connection phys = shard.idle.poll();
+        try {
+            if (phys == null) {
+                phys = DatabaseManager.createPhysicalConnection(shard.url, catalogPath());
+                shard.all.add(phys);
+            }
+        } catch (SQLException | RuntimeException e) {
+            shard.borrowed.decrementAndGet();
+            throw e;
+        }
+        final Shard owner = shard;
+        return DatabaseManager.pooled(phys, p -> release(owner, p));
+    }
+
+    private void release(Shard shard, Connection phys) {
+        shard.borrowed.decrementAndGet();
+        shard.lastUsed = System.currentTimeMillis();
+        try {
+            if (!shard.closed && !phys.isClosed() && shard.idle.size() < MAX_IDLE_PER_SHARD) {
+                shard.idle.offer(phys);
+                return;
+            }
+        } catch (SQLException ignored) {
+        }
+        shard.all.remove(phys);
+        try {
+            phys.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /** Anzahl der WGs mit geöffnetem Pool. */
+    public synchronized int openShards() {
+        return open.size();
+    }
+
+    /** Ausgeliehene Connections über alle WGs. */
+    synchronized int borrowedConnections() {
+        int n = 0;
+        for (Shard s : open.values()) n += s.borrowed.get();
+        return n;
+    }
+
+    /** Schließt die Pools aller WGs (z.B. bei {@link DatabaseManager#closeConnection()}). */
+    synchronized void closeAll() {
+        for (Shard s : open.values()) s.close();
+        open.clear();
+    }
+
+    /**
+     * Schließt die Pools aller WGs, die länger als {@code db.shard_idle_seconds} unbenutzt sind und keine
+     * ausgeliehene Connection haben. Für den periodischen Scheduler-Job.
+     * @return Anzahl geschlossener WGs
+     */
+    public synchronized int closeIdle() {
+        long limit = System.currentTimeMillis() - idleSeconds() * 1000;
+        int closed = 0;
+        for (Iterator<Shard> it = open.values().iterator(); it.hasNext(); ) {
+            Shard s = it.next();
+            if (s.borrowed.get() == 0 && s.lastUsed < limit) {
+                it.remove();
+                s.close();
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    // LRU: die am längsten unbenutzten WGs ohne ausgeliehene Connection schließen, bis höchstens max offen sind
+    private void evictBeyond(int max, long keep) {
+        for (Iterator<Shard> it = open.values().iterator(); it.hasNext() && open.size() > max; ) {
+            Shard s = it.next();
+            if (s.household == keep || s.borrowed.get() > 0) continue;
+            it.remove();
+            s.close();
+        }
+    }
+
+    /** WGs, für die eine Datei existiert, aufsteigend. */
+    public List<Long> households() throws IOException {
+        List<Long> out = new ArrayList<>();
+        Path dir = directory();
+        if (dir == null || !Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "wg-*.db")) {
+            for (Path p : files) {
+                Matcher m = SHARD_FILE.matcher(p.getFileName().toString());
+                if (m.matches()) out.add(Long.parseLong(m.group(1)));
+            }
+        }
+        out.sort(null);
+        return out;
+    }
+
+    /**
+     * Startet {@link #runMaintenance()} im Hintergrund-Thread; für den periodischen Scheduler-Job.
+     * Fehler werden protokolliert und über die Future gemeldet.
+     */
+    public CompletableFuture<Map<Long, String>> runMaintenanceAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return runMaintenance();
+            } catch (IOException e) {
+                System.err.println("[ShardRouter] Wartung der WG-Dateien fehlgeschlagen: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, maintenance);
+    }
+
+    /**
+     * Wartung über alle WG-Dateien: schließt zuerst unbenutzte Pools ({@link #closeIdle()}), dann je Datei
+     * {@code PRAGMA quick_check} und {@code PRAGMA optimize} auf einer eigenen Connection, die den LRU-Stand
+     * der Pools nicht berührt.
+     * @return Ergebnis je WG: "ok" oder die Meldung von quick_check bzw. der Fehler
+     */
+    public Map<Long, String> runMaintenance() throws IOException {
+        closeIdle();
+        Map<Long, String> report = new TreeMap<>();
+        for (long household : households()) {
+            if (isDropping(household)) continue;
+            String result;
+            try (Connection conn = DriverManager.getConnection(shardUrl(household));
+                 Statement st = conn.createStatement()) {
+                st.execute("PRAGMA busy_timeout = 5000");
+                try (ResultSet rs = st.executeQuery("PRAGMA quick_check")) {
+                    result = rs.next() ? rs.getString(1) : "?";
+                }
+                if ("ok".equalsIgnoreCase(result)) st.execute("PRAGMA optimize");
+            } catch (SQLException e) {
+                result = e.getMessage();
+            }
+            if (!"ok".equalsIgnoreCase(result)) {
+                System.err.println("[ShardRouter] WG " + household + ": " + result);
+            }
+            report.put(household, result);
+        }
+        return report;
+    }
+
+    /**
+     * Löscht eine WG: schließt ihren Pool (wartet kurz auf ausgeliehene Connections), löscht ihre Datei samt
+     * Journal-/WAL-Dateien und entfernt sie aus dem Katalog. Bis alles erledigt ist, gibt {@link #borrow(long)}
+     * für die WG keine Connections aus, damit weder die Datei noch die Katalogzeilen neu entstehen. Die
+     * Standard-WG bleibt im Katalog stehen und beginnt beim nächsten Zugriff mit einer leeren Datei.
+     * @return true, wenn eine Datei gelöscht wurde
+     */
+    public boolean drop(long household) throws SQLException, IOException {
+        Shard shard;
+        synchronized (this) {
+            if (!dropping.add(household)) throw new SQLException("WG " + household + " wird bereits gelöscht");
+            shard = open.remove(household);
+        }
+        try {
+            if (shard != null) {
+                shard.closed = true;
+                long deadline = System.currentTimeMillis() + DROP_TIMEOUT_MILLIS;
+                while (shard.borrowed.get() > 0) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new SQLException("WG " + household + " ist noch in Benutzung (" + shard.borrowed.get() + " Connections)");
+                    }
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Unterbrochen beim Schließen der WG " + household);
+                    }
+                }
+                shard.close();
+            }
+            Path file = shardFile(household);
+            boolean deleted = Files.deleteIfExists(file);
+            for (String suffix : new String[]{"-journal", "-wal", "-shm"}) {
+                Files.deleteIfExists(Paths.get(file + suffix));
+            }
+            try (Connection conn = catalog()) {
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM user_directory WHERE household_id = ?")) {
+                    ps.setLong(1, household);
+                    ps.executeUpdate();
+                }
+                if (household != DatabaseManager.DEFAULT_HOUSEHOLD) {
+                    try (PreparedStatement ps = conn.prepareStatement("DELETE FROM households WHERE id = ?")) {
+                        ps.setLong(1, household);
+                        ps.executeUpdate();
+                    }
+                }
+            }
+            DatabaseManager.nextPoolGeneration();
+            System.err.println("[ShardRouter] WG " + household + " gelöscht (" + file + ")");
+            return deleted;
+        } finally {
+            synchronized (this) {
+                dropping.remove(household);
+            }
+        }
+    }
+
+    /** Ob die WG gerade von {@link #drop(long)} gelöscht wird. */
+    public synchronized boolean isDropping(long household) {
+        return dropping.contains(household);
+    }
+
+    /** Eigene Connection auf den Katalog (außerhalb der Pools); der Aufrufer schließt sie. */
+    Connection catalog() throws SQLException {
+        synchronized (this) {
+            ensureDirectory();
+        }
+        Connection conn = DriverManager.getConnection(catalogUrl());
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = 5000");
+        }
+        return conn;
+    }
+
+    /** WG eines Usernamens laut Katalog; -1, wenn er dort (noch) nicht steht. */
+    long lookupUser(String username) throws SQLException {
+        try (Connection conn = catalog();
+             PreparedStatement ps = conn.prepareStatement("SELECT household_id FROM user_directory WHERE username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Sucht einen Usernamen, der nicht im Katalog steht (z.B. über direktes SQL angelegt), in allen
+     * WG-Dateien und trägt einen Fund im Katalog nach.
+     * @return WG oder -1
+     */
+    long scanForUser(String username) throws SQLException, IOException {
+        for (long household : households()) {
+            if (isDropping(household)) continue;
+            boolean found;
+            try (Connection conn = DriverManager.getConnection(shardUrl(household));
+                 PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM users WHERE username = ? COLLATE NOCASE LIMIT 1")) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    found = rs.next();
+                }
+            } catch (SQLException e) {
+                // WG-Datei ohne users-Tabelle (noch nie benutzt)
+                continue;
+            }
+            if (found) {
+                try (Connection conn = catalog();
+                     PreparedStatement ps = conn.prepareStatement(
+                             "INSERT OR IGNORE INTO user_directory (username, household_id) VALUES (?, ?)")) {
+                    ps.setString(1, username);
+                    ps.setLong(2, household);
+                    ps.executeUpdate();
+                }
+                return household;
+            }
+        }
+        return -1;
+    }
+
+    private Path catalogPath() {
+        return directory().resolve(CATALOG_FILE);
+    }
+
+    // legt Verzeichnis und Katalog an; bei einem anderen Verzeichnis (z.B. in Tests) werden offene Pools geschlossen
+    private void ensureDirectory() throws SQLException {
+        Path dir = directory();
+        if (dir == null) throw new SQLException("Kein Verzeichnis für WG-Dateien konfiguriert (" + DIR_PROPERTY + ")");
+        if (!dir.equals(openDir)) {
+            closeAll();
+            openDir = dir;
+        }
+        if (dir.equals(catalogReady) && Files.isRegularFile(dir.resolve(CATALOG_FILE))) return;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new SQLException("Verzeichnis " + dir + " kann nicht angelegt werden: " + e.getMessage(), e);
+        }
+        try (Connection conn = DriverManager.getConnection(catalogUrl());
+             Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = 5000");
+            st.execute("CREATE TABLE IF NOT EXISTS households (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "name TEXT NOT NULL," +
+                    "created_at TEXT DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE TABLE IF NOT EXISTS user_directory (" +
+                    "username TEXT PRIMARY KEY COLLATE NOCASE," +
+                    "household_id INTEGER NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_user_directory_household ON user_directory(household_id)");
+            st.executeUpdate("INSERT OR IGNORE INTO households (id, name) VALUES (" + DatabaseManager.DEFAULT_HOUSEHOLD + ", 'WG')");
+        }
+        catalogReady = dir;
+    }
+
+    private static int maxOpen() {
+        return Math.max(1, Integer.getInteger("db.shard_max_open", DEFAULT_MAX_OPEN));
+    }
+
+    private static long idleSeconds() {
+        return Math.max(0, Long.getLong("db.shard_idle_seconds", DEFAULT_IDLE_SECONDS));
+    }
+}
@@ -0,0 +1,211 @@
+package com.flatmanager.database;
+
+import com.flatmanager.diagnostics.CommitEvent;
+import com.flatmanager.diagnostics.FlightRecording;
+import com.flatmanager.diagnostics.SlowQueryLog;
+import com.flatmanager.diagnostics.StatementEvent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Misst Statements der Connections aus {@link DatabaseManager} für die Diagnose-Aufzeichnung
+ * ({@link FlightRecording}) und das Protokoll langsamer Statements ({@link SlowQueryLog}). Der Connection-Proxy
+ * ({@code DatabaseManager.pooled}) wickelt die Statements nur, solange eines von beiden eingeschaltet ist; sonst
+ * bekommt der Aufrufer das Statement des Treibers unverändert.
+ *
+ * Gemessen wird die Zeit im Treiber für {@code execute*}; bei Abfragen ist das die Zeit bis zur ersten Zeile,
+ * in der SQLite Sortierung und Tabellenscans bis zum ersten Treffer bereits erledigt. Nur während einer
+ * Diagnose-Aufzeichnung wird auch das ResultSet gewickelt und jedes {@code next()} mitgezählt (Zeit bis zum
+ * letzten Datensatz, Zeilenzahl); im Normalbetrieb kostet das Protokoll so keinen Proxy-Aufruf je Zeile.
+ */
+final class StatementTracer {
+
+    private StatementTracer() {
+    }
+
+    static boolean isTracing() {
+        return FlightRecording.isActive() || SlowQueryLog.isEnabled();
+    }
+
+    /** Wickelt ein von der Connection geliefertes Statement, wenn gemessen wird; sonst unverändert. */
+    static Object wrap(Object statement, Class<?> type, String preparedSql) {
+        if (!isTracing() || !(statement instanceof Statement) || !Statement.class.isAssignableFrom(type)) {
+            return statement;
+        }
+        List<Object> parameters = statement instanceof PreparedStatement ? new ArrayList<>() : null;
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (parameters != null) recordParameter(parameters, name, args);
+            if (!name.startsWith("execute")) return invoke(method, statement, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+            return execute((Statement) statement, method, args, sql, parameters);
+        };
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    // setString(1, "x") usw.; die Werte bleiben wie bei JDBC bis clearParameters() gebunden
+    private static void recordParameter(List<Object> parameters, String method, Object[] args) {
+        if ("clearParameters".equals(method)) {
+            parameters.clear();
+            return;
+        }
+        if (!method.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer index) || index < 1) {
+            return;
+        }
+        while (parameters.size() < index) parameters.add(null);
+        parameters.set(index - 1, "setNull".equals(method) ? null : args[1]);
+    }
+
+    private static Object execute(Statement statement, Method method, Object[] args, String sql,
+                                  List<Object> parameters) throws Throwable {
+        StatementEvent event = StatementEvent.start();
+        CommitEvent commit = isCommit(sql) ? CommitEvent.start("SQL") : null;
+        long started = System.nanoTime();
+        Object result;
+        try {
+            result = invoke(method, statement, args);
+        } catch (Throwable t) {
+            long elapsed = System.nanoTime() - started;
+            StatementEvent.finish(event, sql, -1, true);
+            if (SlowQueryLog.isSlow(elapsed)) logSlow(statement, sql, parameters, elapsed, -1, true);
+            throw t;
+        }
+        long elapsed = System.nanoTime() - started;
+        CommitEvent.finish(commit);
+        if (result instanceof ResultSet rs) {
+            // während einer Aufzeichnung läuft die Messung weiter, solange gelesen wird, und endet mit dem ResultSet
+            if (event != null) return traced(rs, statement, event, sql, parameters, elapsed);
+            if (SlowQueryLog.isSlow(elapsed)) logSlow(statement, sql, parameters, elapsed, -1, false);
+            return rs;
+        }
+        long rows = rows(statement, method.getName(), result);
+        StatementEvent.finish(event, sql, rows, false);
+        if (SlowQueryLog.isSlow(elapsed)) logSlow(statement, sql, parameters, elapsed, rows, false);
+        return result;
+    }
+
+    private static long rows(Statement statement, String method, Object result) {
+        if (result instanceof Integer n) return n;
+        if (result instanceof Long n) return n;
+        if (result instanceof int[] counts) {
+            long sum = 0;
+            for (int c : counts) sum += Math.max(c, 0);
+            return sum;
+        }
+        if (result instanceof long[] counts) {
+            long sum = 0;
+            for (long c : counts) sum += Math.max(c, 0);
+            return sum;
+        }
+        if ("execute".equals(method)) {
+            try {
+                return statement.getUpdateCount();
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static ResultSet traced(ResultSet rs, Statement statement, StatementEvent event, String sql,
+                                    List<Object> parameters, long executeNanos) {
+        long[] state = {0, executeNanos}; // gelesene Zeilen, Zeit im Treiber
+        boolean[] done = {false};
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if ("next".equals(name)) {
+                long started = System.nanoTime();
+                boolean more = (Boolean) invoke(method, rs, args);
+                state[1] += System.nanoTime() - started;
+                if (more) state[0]++;
+                else finish(statement, event, sql, parameters, state, done);
+                return more;
+            }
+            if ("close".equals(name)) finish(statement, event, sql, parameters, state, done);
+            return invoke(method, rs, args);
+        };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, handler);
+    }
+
+    private static void finish(Statement statement, StatementEvent event, String sql, List<Object> parameters,
+                               long[] state, boolean[] done) {
+        if (done[0]) return;
+        done[0] = true;
+        StatementEvent.finish(event, sql, state[0], false);
+        if (SlowQueryLog.isSlow(state[1])) logSlow(statement, sql, parameters, state[1], state[0], false);
+    }
+
+    private static void logSlow(Statement statement, String sql, List<Object> parameters, long elapsed, long rows, boolean failed) {
+        List<Object> bound = parameters == null ? null : new ArrayList<>(parameters);
+        List<String> plan;
+        try {
+            plan = explain(statement.getConnection(), sql, bound);
+        } catch (SQLException e) {
+            plan = List.of("EXPLAIN fehlgeschlagen: " + e.getMessage());
+        }
+        try {
+            SlowQueryLog.get().record(sql, bound, elapsed, rows, failed, plan);
+        } catch (RuntimeException e) {
+            System.err.println("[StatementTracer] Protokollieren fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * {@code EXPLAIN QUERY PLAN} auf der physischen Connection, mit denselben Parametern. Die Schritte sind
+     * nach Ebene eingerückt; Statements ohne Plan (DDL, PRAGMA, Transaktionssteuerung) ergeben eine leere Liste.
+     */
+    static List<String> explain(Connection conn, String sql, List<Object> parameters) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        if (conn == null || !hasPlan(sql)) return plan;
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int count = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= count; i++) {
+                ps.setObject(i, parameters != null && i <= parameters.size() ? parameters.get(i - 1) : null);
+            }
+            Map<Integer, Integer> depth = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    int level = depth.getOrDefault(rs.getInt("parent"), -1) + 1;
+                    depth.put(id, level);
+                    plan.add("  ".repeat(level) + rs.getString("detail"));
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static boolean hasPlan(String sql) {
+        if (sql == null) return false;
+        String s = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return s.startsWith("SELECT") || s.startsWith("WITH") || s.startsWith("INSERT") || s.startsWith("UPDATE")
+                || s.startsWith("DELETE") || s.startsWith("REPLACE");
+    }
+
+    private static boolean isCommit(String sql) {
+        if (sql == null) return false;
+        String s = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return s.startsWith("COMMIT") || s.startsWith("END");
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.flatmanager.database;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unveränderliche Liste der in einem Commit geänderten Zeilen, je Tabelle als Menge von rowids.
+ * Wird von den SQLite-Änderungs-Hooks der Pool-Connections erzeugt und über
+ * {@link DatabaseManager#addChangeListener(java.util.function.Consumer)} verteilt.
+ *
+ * Mehrfach geänderte Zeilen erscheinen nur einmal. Ändert ein Commit mehr als {@link #MAX_ROWS_PER_TABLE}
+ * Zeilen einer Tabelle, wird nur noch die Tabelle gemeldet ({@link #isWholeTable(String)}); Caches
+ * verwerfen dann alle Einträge dieser Tabelle. Tabellen aus angehängten Datenbanken heißen {@code "schema.tabelle"}.
+ *
+ * Änderungen einer anderen App-Instanz (erkannt vom {@link ExternalChangeWatcher}) sind als
+ * {@link #isExternal()} markiert und melden immer ganze Tabellen.
+ */
+public final class TableChanges {
+
+    /** Ab dieser Zeilenzahl je Tabelle werden keine einzelnen rowids mehr gesammelt. */
+    public static final int MAX_ROWS_PER_TABLE = 500;
+
+    static final TableChanges EMPTY = new TableChanges(Collections.emptyMap(), false);
+
+    // Tabelle -> rowids; null = ganze Tabelle
+    private final Map<String, Set<Long>> rows;
+    private final boolean external;
+
+    private TableChanges(Map<String, Set<Long>> rows, boolean external) {
+        this.rows = rows;
+        this.external = external;
+    }
+
+    /**
+     * Ob die Änderung von einem anderen Prozess stammt. Views, die ihre eigenen Änderungen bereits
+     * selbst neu laden, reagieren nur auf externe Änderungen.
+     */
+    public boolean isExternal() {
+        return external;
+    }
+
+    /** Geänderte Tabellen in der Reihenfolge der ersten Änderung. */
+    public Set<String> tables() {
+        return Collections.unmodifiableSet(rows.keySet());
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /** Ob mindestens eine der Tabellen geändert wurde (Groß-/Kleinschreibung wird ignoriert). */
+    public boolean affects(String... tables) {
+        for (String t : tables) {
+            if (key(t) != null) return true;
+        }
+        return false;
+    }
+
+    /** Ob zu viele Zeilen der Tabelle geändert wurden, um sie einzeln zu melden. */
+    public boolean isWholeTable(String table) {
+        String k = key(table);
+        return k != null && rows.get(k) == null;
+    }
+
+    /**
+     * Geänderte rowids der Tabelle (eingefügt, aktualisiert oder gelöscht). Leer, wenn die Tabelle
+     * nicht geändert wurde oder {@link #isWholeTable(String)} gilt.
+     */
+    public Set<Long> rowIds(String table) {
+        String k = key(table);
+        Set<Long> ids = k != null ? rows.get(k) : null;
+        return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+    }
+
+    /** Ob die Zeile betroffen ist; bei {@link #isWholeTable(String)} immer {@code true}. */
+    public boolean contains(String table, long rowId) {
+        String k = key(table);
+        if (k == null) return false;
+        Set<Long> ids = rows.get(k);
+        return ids == null || ids.contains(rowId);
+    }
+
+    private String key(String table) {
+        if (table == null) return null;
+        if (rows.containsKey(table)) return table;
+        for (String k : rows.keySet()) {
+            if (k.equalsIgnoreCase(table)) return k;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(external ? "TableChanges{extern, " : "TableChanges{");
+        boolean first = true;
+        for (Map.Entry<String, Set<Long>> e : rows.entrySet()) {
+            if (!first) sb.append(", ");
+            first = false;
+            sb.append(e.getKey()).append('=').append(e.getValue() == null ? "*" : e.getValue().size());
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Sammelt Änderungen; nicht threadsicher, der Aufrufer synchronisiert. */
+    static final class Builder {
+        private Map<String, Set<Long>> rows = new LinkedHashMap<>();
+
+        void add(String table, long rowId) {
+            if (!rows.containsKey(table)) {
+                rows.put(table, new LinkedHashSet<>());
+            }
+            Set<Long> ids = rows.get(table);
+            if (ids == null) return;
+            ids.add(rowId);
+            if (ids.size() > MAX_ROWS_PER_TABLE) rows.put(table, null);
+        }
+
+        /** Meldet die ganze Tabelle, ohne einzelne rowids. */
+        void addTable(String table) {
+            rows.put(table, null);
+        }
+
+        void addAll(TableChanges other) {
+            for (Map.Entry<String, Set<Long>> e : other.rows.entrySet()) {
+                if (e.getValue() == null) {
+                    rows.put(e.getKey(), null);
+                } else {
+                    for (Long id : e.getValue()) add(e.getKey(), id);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return rows.isEmpty();
+        }
+
+        void clear() {
+            rows = new LinkedHashMap<>();
+        }
+
+        /** Liefert den Stand und leert den Builder. */
+        TableChanges drain() {
+            return drain(false);
+        }
+
+        TableChanges drain(boolean external) {
+            if (rows.isEmpty()) return EMPTY;
+            TableChanges out = new TableChanges(rows, external);
+            rows = new LinkedHashMap<>();
+            return out;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.flatmanager.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Festschreiben einer Transaktion, per {@code Connection.commit()} oder SQL ({@code COMMIT}/{@code END}). */
+@Name("com.flatmanager.Commit")
+@Label("Transaction Commit")
+@Category({"Flat Manager", "Datenbank"})
+@Description("Commit einer Transaktion")
+public final class CommitEvent extends Event {
+
+    @Label("Auslöser")
+    public String source;
+
+    public static CommitEvent start(String source) {
+        if (!FlightRecording.isActive()) return null;
+        CommitEvent event = new CommitEvent();
+        event.source = source;
+        event.begin();
+        return event;
+    }
+
+    public static void finish(CommitEvent event) {
+        if (event != null) event.commit();
+    }
+}
@@ -0,0 +1,36 @@
+package com.flatmanager.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Ausleihen einer Connection; die Dauer ist die Wartezeit am Pool samt Öffnen einer neuen Connection. */
+@Name("com.flatmanager.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"Flat Manager", "Datenbank"})
+@Description("Warten auf eine Connection aus dem Pool")
+public final class ConnectionAcquireEvent extends Event {
+
+    @Label("WG")
+    public long household;
+
+    @Label("Pool voll")
+    @Description("Es war keine Connection frei, der Aufrufer musste warten")
+    public boolean exhausted;
+
+    public static ConnectionAcquireEvent start() {
+        if (!FlightRecording.isActive()) return null;
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(ConnectionAcquireEvent event, long household, boolean exhausted) {
+        if (event == null) return;
+        event.household = household;
+        event.exhausted = exhausted;
+        event.commit();
+    }
+}
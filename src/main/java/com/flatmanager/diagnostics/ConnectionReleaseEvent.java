@@ -0,0 +1,35 @@
+package com.flatmanager.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Rückgabe einer Connection; die Dauer ist die Zeit, die der Aufrufer sie gehalten hat. Der Stacktrace zeigt,
+ * wer sie zurückgibt, lange Dauern zeigen Connections, die andere Threads warten lassen.
+ */
+@Name("com.flatmanager.ConnectionRelease")
+@Label("Connection Release")
+@Category({"Flat Manager", "Datenbank"})
+@Description("Rückgabe einer Connection, Dauer = Haltezeit")
+public final class ConnectionReleaseEvent extends Event {
+
+    @Label("Statements")
+    public int statements;
+
+    /** Beginnt beim Ausleihen; ohne laufende Aufzeichnung {@code null}. */
+    public static ConnectionReleaseEvent start() {
+        if (!FlightRecording.isActive()) return null;
+        ConnectionReleaseEvent event = new ConnectionReleaseEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(ConnectionReleaseEvent event, int statements) {
+        if (event == null) return;
+        event.statements = statements;
+        event.commit();
+    }
+}
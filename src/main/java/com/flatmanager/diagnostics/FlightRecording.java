@@ -0,0 +1,147 @@
+package com.flatmanager.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Aufzeichnung mit dem JDK Flight Recorder für Fehlerberichte ("die App hängt"): JVM-Ereignisse der
+ * Standardkonfiguration (Threads, Sperren, GC) plus die eigenen Ereignisse dieses Pakets für Connections,
+ * Statements, Commits und das Laden der Ansichten.
+ *
+ * Ohne laufende Aufzeichnung kostet ein Messpunkt nur das Lesen von {@link #isActive()}; Statements werden
+ * dann nicht einmal umhüllt. Der Schalter folgt jeder laufenden Aufzeichnung, also auch einer per
+ * {@code -XX:StartFlightRecording} oder {@code jcmd JFR.start} gestarteten.
+ *
+ * Die Aufzeichnung hält höchstens {@link #MAX_AGE} bzw. {@link #MAX_SIZE_BYTES}; {@link #dump()} schreibt
+ * den aktuellen Stand als {@code .jfr}-Datei in {@link #directory()} (System-Property {@code jfr.dir},
+ * sonst {@code diagnostics/} im Arbeitsverzeichnis).
+ */
+public final class FlightRecording {
+
+    public static final Duration MAX_AGE = Duration.ofMinutes(30);
+    public static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final List<Class<? extends Event>> EVENT_TYPES = List.of(
+            ConnectionAcquireEvent.class, ConnectionReleaseEvent.class, StatementEvent.class, CommitEvent.class, ViewLoadEvent.class);
+
+    private static final FlightRecording INSTANCE = new FlightRecording();
+    private static volatile boolean active;
+
+    static {
+        // meldet Start und Ende jeder Aufzeichnung; initialisiert den Flight Recorder nicht selbst
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                updateActive();
+            }
+        });
+    }
+
+    private Recording recording;
+
+    private FlightRecording() {
+    }
+
+    public static FlightRecording get() {
+        return INSTANCE;
+    }
+
+    /** Läuft irgendeine Aufzeichnung? Billig genug für jeden Messpunkt. */
+    public static boolean isActive() {
+        return active;
+    }
+
+    private static void updateActive() {
+        boolean running = false;
+        for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (r.getState() == RecordingState.RUNNING) {
+                running = true;
+                break;
+            }
+        }
+        active = running;
+    }
+
+    /** Läuft die über diese Klasse gestartete Aufzeichnung? */
+    public synchronized boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    /** Startet die Aufzeichnung; läuft sie schon, passiert nichts. */
+    public synchronized void start() throws IOException {
+        if (isRecording()) return;
+        Configuration config;
+        try {
+            config = Configuration.getConfiguration("default");
+        } catch (ParseException e) {
+            throw new IOException("JFR-Konfiguration nicht lesbar: " + e.getMessage(), e);
+        }
+        Recording r = new Recording(config);
+        r.setName("Flat Manager");
+        r.setToDisk(true);
+        r.setMaxAge(MAX_AGE);
+        r.setMaxSize(MAX_SIZE_BYTES);
+        for (Class<? extends Event> type : EVENT_TYPES) r.enable(type);
+        r.start();
+        recording = r;
+        // der Listener meldet den Start asynchron; Messpunkte sollen sofort greifen
+        active = true;
+        System.err.println("[FlightRecording] Aufzeichnung gestartet");
+    }
+
+    /** Schreibt den bisherigen Stand in eine neue Datei; die Aufzeichnung läuft weiter. */
+    public synchronized Path dump() throws IOException {
+        if (!isRecording()) throw new IOException("Keine Aufzeichnung aktiv");
+        Path file = nextFile();
+        recording.dump(file);
+        System.err.println("[FlightRecording] Aufzeichnung gespeichert: " + file);
+        return file;
+    }
+
+    /**
+     * Beendet die Aufzeichnung und schreibt sie in eine Datei.
+     * @return die Datei oder {@code null}, wenn keine Aufzeichnung lief
+     */
+    public synchronized Path stop() throws IOException {
+        if (!isRecording()) return null;
+        Path file = nextFile();
+        try {
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            recording.close();
+            recording = null;
+            updateActive();
+        }
+        System.err.println("[FlightRecording] Aufzeichnung beendet: " + file);
+        return file;
+    }
+
+    public Path directory() {
+        String configured = System.getProperty("jfr.dir");
+        return configured != null && !configured.isBlank() ? Paths.get(configured) : Paths.get("diagnostics");
+    }
+
+    private Path nextFile() throws IOException {
+        Path dir = directory();
+        Files.createDirectories(dir);
+        String base = "flatmanager-" + LocalDateTime.now().format(STAMP);
+        Path file = dir.resolve(base + ".jfr");
+        for (int i = 2; Files.exists(file); i++) file = dir.resolve(base + "-" + i + ".jfr");
+        return file.toAbsolutePath();
+    }
+}
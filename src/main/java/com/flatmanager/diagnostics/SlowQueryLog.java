@@ -0,0 +1,366 @@
+package com.flatmanager.diagnostics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Protokoll langsamer SQL-Statements. Der Verbindungs-Layer von {@code DatabaseManager} misst jedes Statement
+ * (bei Abfragen die Zeit im Treiber bis zur ersten Zeile, während einer Diagnose-Aufzeichnung bis zum letzten
+ * Datensatz); liegt es über der Schwelle, wird es mit
+ * gebundenen Parametern (Passwort-Spalten geschwärzt), Aufrufer, Dauer und {@code EXPLAIN QUERY PLAN}
+ * aufgezeichnet.
+ *
+ * Die Einträge landen in einer rollierenden Datei ({@link #file()}, höchstens {@link #MAX_FILE_BYTES} plus
+ * {@link #KEEP_FILES} ältere) und in einem Puffer der letzten {@link #MAX_ENTRIES} für die Ansicht in der App.
+ *
+ * Schwelle in Millisekunden: Umgebungsvariable {@code DB_SLOW_QUERY_MS} bzw. {@value #THRESHOLD_PROPERTY},
+ * sonst {@value #DEFAULT_THRESHOLD_MS}; ein negativer Wert schaltet das Protokoll ab. Datei:
+ * {@value #FILE_PROPERTY}, sonst {@code diagnostics/slow-queries.log}.
+ */
+public final class SlowQueryLog {
+
+    public static final String THRESHOLD_PROPERTY = "db.slow_query_ms";
+    public static final String FILE_PROPERTY = "db.slow_query_log";
+    public static final long DEFAULT_THRESHOLD_MS = 250;
+    public static final long MAX_FILE_BYTES = 1024 * 1024;
+    public static final int KEEP_FILES = 3;
+    public static final int MAX_ENTRIES = 200;
+    private static final int MAX_VALUE_LENGTH = 200;
+    private static final String REDACTED = "***";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    // INSERT INTO t (spalten) VALUES (werte...
+    private static final Pattern INSERT = Pattern.compile(
+            "(?is)^\\s*(?:INSERT|REPLACE)(?:\\s+OR\\s+\\w+)?\\s+INTO\\s+[\\w.\"`\\[\\]]+\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\((.*)");
+    // password = '...'; Bezeichner begrenzt, damit lange Literale nicht quadratisch geprüft werden
+    private static final Pattern SECRET_LITERAL = Pattern.compile(
+            "(?i)((?<![\\w.\"])[\\w.\"]{0,64}(?:password|passwort|pwd|secret)[\\w\"]{0,64}\\s*(?:=|<>|!=)\\s*)'(?:[^']|'')*'");
+
+    private static final SlowQueryLog INSTANCE = new SlowQueryLog();
+    private static volatile long thresholdNanos = initialThreshold() * 1_000_000L;
+
+    /** Ein langsames Statement. */
+    public static final class Entry {
+        public final LocalDateTime time;
+        public final double millis;
+        public final String sql;
+        /** Gebundene Parameter in Reihenfolge, bereits formatiert bzw. geschwärzt. */
+        public final List<String> parameters;
+        /** Erster Aufrufer außerhalb des Verbindungs-Layers, z.B. {@code ShoppingListView.loadItems(ShoppingListView.java:359)}. */
+        public final String callSite;
+        /** Zeilen von {@code EXPLAIN QUERY PLAN}, eingerückt nach Ebene; leer bei Statements ohne Plan. */
+        public final List<String> plan;
+        /** Gelesene bzw. geänderte Zeilen; -1, wenn unbekannt (Abfragen außerhalb einer Diagnose-Aufzeichnung). */
+        public final long rows;
+        public final boolean failed;
+
+        Entry(LocalDateTime time, double millis, String sql, List<String> parameters, String callSite,
+              List<String> plan, long rows, boolean failed) {
+            this.time = time;
+            this.millis = millis;
+            this.sql = sql;
+            this.parameters = List.copyOf(parameters);
+            this.callSite = callSite;
+            this.plan = List.copyOf(plan);
+            this.rows = rows;
+            this.failed = failed;
+        }
+
+        /** Hinweis aus dem Plan: Tabellenscan ohne Index oder Sortierung über einen temporären B-Baum. */
+        public String hint() {
+            List<String> hints = new ArrayList<>();
+            for (String line : plan) {
+                String step = line.strip();
+                if (step.startsWith("SCAN ") && !step.contains(" USING ")) hints.add("Tabellenscan");
+                if (step.contains("TEMP B-TREE")) hints.add("Sortierung ohne Index");
+            }
+            return String.join(", ", new LinkedHashSet<>(hints));
+        }
+
+        public boolean suspicious() {
+            return !hint().isEmpty();
+        }
+
+        /** Mehrzeiliger Text für Datei und Ansicht. */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(time.format(TIME)).append("  ").append(String.format(Locale.ROOT, "%.1f ms", millis))
+                    .append("  Zeilen: ").append(rows < 0 ? "?" : String.valueOf(rows));
+            if (failed) sb.append("  FEHLGESCHLAGEN");
+            sb.append("  ").append(callSite).append('\n');
+            sb.append("SQL: ").append(sql).append('\n');
+            if (!parameters.isEmpty()) sb.append("Parameter: ").append(parameters).append('\n');
+            if (!plan.isEmpty()) {
+                sb.append("Plan:").append('\n');
+                for (String line : plan) sb.append("  ").append(line).append('\n');
+            }
+            String hint = hint();
+            if (!hint.isEmpty()) sb.append("Hinweis: ").append(hint).append('\n');
+            return sb.toString();
+        }
+    }
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+    private SlowQueryLog() {
+    }
+
+    public static SlowQueryLog get() {
+        return INSTANCE;
+    }
+
+    private static long initialThreshold() {
+        String value = System.getenv().getOrDefault("DB_SLOW_QUERY_MS", System.getProperty(THRESHOLD_PROPERTY));
+        if (value == null || value.isBlank()) return DEFAULT_THRESHOLD_MS;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_THRESHOLD_MS;
+        }
+    }
+
+    /** Wird überhaupt gemessen? Billig genug für jedes Statement. */
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /** Liegt eine Dauer über der Schwelle? */
+    public static boolean isSlow(long elapsedNanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && elapsedNanos >= threshold;
+    }
+
+    public static long thresholdMillis() {
+        long threshold = thresholdNanos;
+        return threshold < 0 ? -1 : threshold / 1_000_000L;
+    }
+
+    /** Setzt die Schwelle zur Laufzeit; 0 protokolliert jedes Statement, ein negativer Wert schaltet ab. */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = millis < 0 ? -1 : millis * 1_000_000L;
+    }
+
+    public Path file() {
+        String configured = System.getProperty(FILE_PROPERTY);
+        return configured != null && !configured.isBlank()
+                ? Paths.get(configured) : Paths.get("diagnostics", "slow-queries.log");
+    }
+
+    /**
+     * Zeichnet ein langsames Statement auf; der Aufrufer wird hier aus dem Stack bestimmt.
+     * @param parameters gebundene Werte, Parameter i an Position i-1; {@code null} für ungebundene
+     * @param plan Ausgabe von {@code EXPLAIN QUERY PLAN}
+     */
+    public Entry record(String sql, List<Object> parameters, long elapsedNanos, long rows, boolean failed, List<String> plan) {
+        Entry entry = new Entry(LocalDateTime.now(), elapsedNanos / 1e6, redactSql(sql), formatParameters(sql, parameters),
+                callSite(), plan, rows, failed);
+        synchronized (this) {
+            entries.addLast(entry);
+            while (entries.size() > MAX_ENTRIES) entries.removeFirst();
+            try {
+                append(entry.format() + '\n');
+            } catch (IOException e) {
+                System.err.println("[SlowQueryLog] Schreiben fehlgeschlagen: " + e.getMessage());
+            }
+        }
+        return entry;
+    }
+
+    /** Die letzten Einträge, älteste zuerst. */
+    public synchronized List<Entry> entries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /** Leert die Ansicht; die Datei bleibt. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // rolliert vor dem Schreiben: slow-queries.log -> .1 -> .2 ... -> .KEEP_FILES (verworfen)
+    private void append(String text) throws IOException {
+        Path file = file().toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(file) && Files.size(file) + bytes.length > MAX_FILE_BYTES) {
+            Files.deleteIfExists(rolled(file, KEEP_FILES));
+            for (int i = KEEP_FILES - 1; i >= 1; i--) {
+                Path older = rolled(file, i);
+                if (Files.exists(older)) Files.move(older, rolled(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(file, rolled(file, 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    static Path rolled(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    // erster Frame außerhalb von Messung, Proxy und JDK
+    private static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> {
+                    String c = f.getClassName();
+                    return !isClass(c, SlowQueryLog.class.getName()) && !isClass(c, "com.flatmanager.database.StatementTracer")
+                            && !c.startsWith("java.") && !c.startsWith("jdk.") && !c.startsWith("sun.")
+                            && !c.startsWith("com.sun.") && !c.contains("$Proxy");
+                })
+                .findFirst()
+                .map(f -> {
+                    String c = f.getClassName();
+                    return c.substring(c.lastIndexOf('.') + 1) + "." + f.getMethodName()
+                            + "(" + f.getFileName() + ":" + f.getLineNumber() + ")";
+                })
+                .orElse("unbekannt"));
+    }
+
+    // die Klasse selbst oder eine ihrer inneren bzw. Lambda-Klassen
+    private static boolean isClass(String className, String name) {
+        return className.equals(name) || className.startsWith(name + "$");
+    }
+
+    /** Ersetzt Literale nach Passwort-Spalten, z.B. {@code password = 'abc'}, durch {@value #REDACTED}. */
+    public static String redactSql(String sql) {
+        if (sql == null || !isSecret(sql)) return sql;
+        return SECRET_LITERAL.matcher(sql).replaceAll(m -> Matcher.quoteReplacement(m.group(1) + "'" + REDACTED + "'"));
+    }
+
+    /** Formatiert die Parameter; Werte für Passwort-Spalten werden geschwärzt. */
+    public static List<String> formatParameters(String sql, List<Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) return List.of();
+        List<String> columns = parameterColumns(sql);
+        List<String> out = new ArrayList<>(parameters.size());
+        for (int i = 0; i < parameters.size(); i++) {
+            String column = i < columns.size() ? columns.get(i) : null;
+            out.add(isSecret(column) ? REDACTED : formatValue(parameters.get(i)));
+        }
+        return out;
+    }
+
+    static boolean isSecret(String column) {
+        if (column == null) return false;
+        String c = column.toLowerCase(Locale.ROOT);
+        return c.contains("password") || c.contains("passwort") || c.contains("pwd") || c.contains("secret");
+    }
+
+    private static String formatValue(Object value) {
+        if (value == null) return "NULL";
+        if (value instanceof byte[] b) return "<" + b.length + " Bytes>";
+        if (value instanceof Number || value instanceof Boolean) return value.toString();
+        String s = value.toString();
+        if (s.length() > MAX_VALUE_LENGTH) s = s.substring(0, MAX_VALUE_LENGTH) + "…";
+        return "'" + s + "'";
+    }
+
+    /**
+     * Spalte je {@code ?}-Platzhalter, soweit erkennbar: bei {@code INSERT ... (a, b) VALUES (?, ?)} nach
+     * Position, sonst der Bezeichner vor dem Vergleich ({@code password = ?}). Unbekannt ist {@code null}.
+     */
+    static List<String> parameterColumns(String sql) {
+        List<String> columns = new ArrayList<>();
+        if (sql == null) return columns;
+        List<String> tokens = tokens(sql);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!"?".equals(tokens.get(i))) continue;
+            String column = null;
+            if (i >= 2 && isComparison(tokens.get(i - 1)) && isIdentifier(tokens.get(i - 2))) column = tokens.get(i - 2);
+            columns.add(column == null ? null : column.substring(column.lastIndexOf('.') + 1).replace("\"", ""));
+        }
+        Matcher insert = INSERT.matcher(sql);
+        if (insert.find()) {
+            String[] names = insert.group(1).split(",");
+            List<String> values = splitTopLevel(insert.group(2));
+            int placeholder = 0;
+            for (int v = 0; v < values.size() && v < names.length; v++) {
+                long inValue = tokens(values.get(v)).stream().filter("?"::equals).count();
+                for (int k = 0; k < inValue && placeholder < columns.size(); k++) {
+                    columns.set(placeholder++, names[v].strip().replace("\"", ""));
+                }
+            }
+        }
+        return columns;
+    }
+
+    // Werte der VALUES-Liste bis zur schließenden Klammer
+    private static List<String> splitTopLevel(String s) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\'') quoted = !quoted;
+            if (quoted) continue;
+            if (c == '(') depth++;
+            else if (c == ')') {
+                if (depth == 0) {
+                    parts.add(s.substring(start, i));
+                    return parts;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(s.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(s.substring(start));
+        return parts;
+    }
+
+    private static List<String> tokens(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int n = sql.length();
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+            if (c == '\'') {
+                // Stringliteral, '' ist ein maskiertes Hochkomma
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'') i++;
+                        else break;
+                    }
+                    i++;
+                }
+                tokens.add("'");
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '"' || c == '.') {
+                int start = i;
+                while (i + 1 < n && (Character.isLetterOrDigit(sql.charAt(i + 1)) || "_\".".indexOf(sql.charAt(i + 1)) >= 0)) i++;
+                tokens.add(sql.substring(start, i + 1));
+            } else if ("<>!=".indexOf(c) >= 0) {
+                int start = i;
+                while (i + 1 < n && "<>=".indexOf(sql.charAt(i + 1)) >= 0) i++;
+                tokens.add(sql.substring(start, i + 1));
+            } else {
+                tokens.add(String.valueOf(c));
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isComparison(String token) {
+        return switch (token.toUpperCase(Locale.ROOT)) {
+            case "=", "==", "<>", "!=", "<", ">", "<=", ">=", "LIKE", "GLOB", "IS" -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isIdentifier(String token) {
+        return !token.isEmpty() && (Character.isLetter(token.charAt(0)) || token.charAt(0) == '_' || token.charAt(0) == '"');
+    }
+}
@@ -0,0 +1,66 @@
+package com.flatmanager.diagnostics;
+
+/** Hilfen für SQL-Text in Diagnosedaten. */
+public final class Sql {
+
+    /** Längere Statements werden nach so vielen Zeichen abgeschnitten. */
+    public static final int MAX_LENGTH = 2000;
+
+    private Sql() {
+    }
+
+    /**
+     * Ersetzt String- und Zahlenliterale durch {@code ?} und fasst Leerraum zusammen, z.B.
+     * {@code "... WHERE household_id = 3 AND name = 'Milch'"} zu {@code "... WHERE household_id = ? AND name = ?"}.
+     * Bezeichner (auch in Anführungszeichen oder mit Ziffern wie {@code idx_1}) bleiben unverändert.
+     */
+    public static String normalize(String sql) {
+        if (sql == null) return null;
+        StringBuilder sb = new StringBuilder(Math.min(sql.length(), MAX_LENGTH));
+        int n = sql.length();
+        boolean space = false;
+        for (int i = 0; i < n && sb.length() < MAX_LENGTH; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) {
+                sb.append(' ');
+                space = false;
+            }
+            if (c == '\'') {
+                // Stringliteral, '' ist ein maskiertes Hochkomma
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'') i++;
+                        else break;
+                    }
+                    i++;
+                }
+                sb.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                char close = c == '[' ? ']' : c;
+                int end = sql.indexOf(close, i + 1);
+                if (end < 0) end = n - 1;
+                sb.append(sql, i, end + 1);
+                i = end;
+            } else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+                while (i + 1 < n && (Character.isLetterOrDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) i++;
+                sb.append('?');
+            } else if (isIdentifierPart(c)) {
+                int start = i;
+                while (i + 1 < n && isIdentifierPart(sql.charAt(i + 1))) i++;
+                sb.append(sql, start, i + 1);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,47 @@
+package com.flatmanager.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Ausführung eines SQL-Statements. Bei Abfragen reicht die Dauer bis zum letzten gelesenen Datensatz bzw.
+ * bis zum Schließen des ResultSets, denn SQLite rechnet erst beim Weiterblättern. Das SQL ist normalisiert
+ * ({@link Sql#normalize(String)}), damit gleiche Statements mit verschiedenen Werten zusammenfallen.
+ */
+@Name("com.flatmanager.Statement")
+@Label("SQL Statement")
+@Category({"Flat Manager", "Datenbank"})
+@Description("Ausführung eines SQL-Statements")
+public final class StatementEvent extends Event {
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Zeilen")
+    @Description("Gelesene bzw. geänderte Zeilen, -1 wenn unbekannt")
+    public long rows;
+
+    @Label("Fehlgeschlagen")
+    public boolean failed;
+
+    public static StatementEvent start() {
+        if (!FlightRecording.isActive()) return null;
+        StatementEvent event = new StatementEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(StatementEvent event, String sql, long rows, boolean failed) {
+        if (event == null) return;
+        event.end();
+        // Normalisieren nur, wenn das Ereignis auch geschrieben wird
+        if (!event.shouldCommit()) return;
+        event.sql = Sql.normalize(sql);
+        event.rows = rows;
+        event.failed = failed;
+        event.commit();
+    }
+}
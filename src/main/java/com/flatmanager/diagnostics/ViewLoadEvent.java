@@ -0,0 +1,37 @@
+package com.flatmanager.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Laden bzw. Aktualisieren einer Ansicht aus der Datenbank, z.B. {@code BudgetView.loadTransactions}. */
+@Name("com.flatmanager.ViewLoad")
+@Label("View Load")
+@Category({"Flat Manager", "UI"})
+@Description("Laden einer Ansicht aus der Datenbank")
+public final class ViewLoadEvent extends Event {
+
+    @Label("View")
+    public String view;
+
+    @Label("Zeilen")
+    public int rows;
+
+    /** Beginnt die Messung; ohne laufende Aufzeichnung {@code null}. */
+    public static ViewLoadEvent start(String view) {
+        if (!FlightRecording.isActive()) return null;
+        ViewLoadEvent event = new ViewLoadEvent();
+        event.view = view;
+        event.begin();
+        return event;
+    }
+
+    /** Beendet die Messung; {@code null} (keine Aufzeichnung) wird ignoriert. */
+    public static void finish(ViewLoadEvent event, int rows) {
+        if (event == null) return;
+        event.rows = rows;
+        event.commit();
+    }
+}
@@ -0,0 +1,418 @@
+package com.flatmanager.load;
+
+import com.flatmanager.dao.BudgetSummaryDao;
+import com.flatmanager.dao.BudgetTransactionDao;
+import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.dao.DashboardSummaryDao;
+import com.flatmanager.dao.ShoppingHistoryDao;
+import com.flatmanager.dao.ShoppingItemDao;
+import com.flatmanager.dao.VersionConflictException;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.BudgetTransaction;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.ShoppingItem;
+import com.flatmanager.server.SingleWriter;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lastgenerator: {@link #users(int)} virtuelle Mitbewohner arbeiten parallel mit Denkpausen eine Mischung
+ * aus Lese- und Schreibzugriffen über alle DAOs und die statische API von {@link DatabaseManager} ab,
+ * wie sie die Ansichten auslösen (Putzplan-Woche, Einkaufsliste, Haushaltsbuch, Dashboard, Benutzer).
+ *
+ * Gemessen wird je Operation die Dauer ohne Denkpause; der {@link LoadReport} enthält Durchsatz, Perzentile,
+ * SQLITE_BUSY-Fehler, Versionskonflikte und die Wartezeiten am Connection-Pool. Journal-Modus und Poolgröße
+ * kommen wie im Betrieb aus {@code db.journal_mode} und {@value DatabaseManager#POOL_SIZE_PROPERTY}; mit
+ * {@link #batchedWrites(boolean)} laufen Schreibzugriffe gebündelt über einen {@link SingleWriter}.
+ * <pre>
+ * new DataGenerator(42).households(4).generate();   // Testdaten
+ * LoadReport report = new LoadHarness("WAL").users(16).operations(500).households(result.households).run();
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private static final int KEEP_OWN = 50;
+    private static final int MAX_ERROR_SAMPLES = 10;
+
+    private final String label;
+    private int users = 8;
+    private int operations = 200;
+    private Duration duration;
+    private int minThinkMillis = 5;
+    private int maxThinkMillis = 50;
+    private double writeRatio = 0.2;
+    private boolean batchedWrites;
+    private long seed = 1;
+    private List<Long> households = List.of();
+
+    /** Eine Operation der Mischung; läuft im Kontext eines virtuellen Benutzers. */
+    @FunctionalInterface
+    private interface Action {
+        void run(VirtualUser vu) throws Exception;
+    }
+
+    private static final class Operation {
+        final String name;
+        final boolean write;
+        final int weight;
+        final Action action;
+
+        Operation(String name, boolean write, int weight, Action action) {
+            this.name = name;
+            this.write = write;
+            this.weight = weight;
+            this.action = action;
+        }
+    }
+
+    // Gewichte grob nach Häufigkeit in der Oberfläche: Listen und Dashboard oft, Auswertungen seltener
+    private static final List<Operation> READS = List.of(
+            new Operation("tasks.week", false, 6, vu -> vu.tasks.listOccurrences(vu.today, vu.today.plusDays(7))),
+            new Operation("tasks.mine", false, 3, vu -> vu.tasks.listByAssignee(vu.someUser(), vu.today, vu.today.plusDays(7))),
+            new Operation("shopping.list", false, 6, vu -> vu.shopping.listAll()),
+            new Operation("shopping.history", false, 2, vu -> vu.history.loadSince(0)),
+            new Operation("budget.list", false, 2, vu -> vu.budget.listAll()),
+            new Operation("budget.totals", false, 2, vu -> vu.totals.totalsByCategory()),
+            new Operation("dashboard.summary", false, 5, vu -> vu.summary.load(vu.someUser())),
+            new Operation("users.list", false, 2, vu -> DatabaseManager.listUsers(vu.household)),
+            new Operation("users.householdOf", false, 2, vu -> DatabaseManager.householdOf(vu.someUser()))
+    );
+
+    private static final List<Operation> WRITES = List.of(
+            new Operation("tasks.insert", true, 3, VirtualUser::insertTask),
+            new Operation("tasks.update", true, 2, vu -> {
+                CleaningTask task = vu.ownTask();
+                if (task == null) {
+                    vu.insertTask();
+                    return;
+                }
+                task.setCompleted(!task.isCompleted());
+                vu.tasks.update(task);
+            }),
+            new Operation("shopping.insert", true, 4, VirtualUser::insertItem),
+            new Operation("shopping.purchase", true, 2, vu -> {
+                ShoppingItem item = vu.ownItem();
+                if (item == null) {
+                    vu.insertItem();
+                    return;
+                }
+                item.setPurchased(!item.isPurchased());
+                vu.shopping.update(item);
+            }),
+            new Operation("budget.insert", true, 3, vu -> {
+                BudgetTransaction t = new BudgetTransaction(1 + vu.random.nextInt(8000) / 100.0, vu.today.toString());
+                t.setDescription("Last " + vu.index);
+                t.setCategory("Sonstiges");
+                vu.budget.insert(t);
+            }),
+            new Operation("users.update", true, 1, vu -> {
+                if (!DatabaseManager.createOrUpdateUser(vu.household, vu.ownUsername, "last", "Last " + vu.index)) {
+                    throw new SQLException("createOrUpdateUser fehlgeschlagen für " + vu.ownUsername);
+                }
+            })
+    );
+
+    /** Zustand eines virtuellen Benutzers; nur von seinem Thread (bzw. dem Schreib-Thread, während er wartet) benutzt. */
+    private final class VirtualUser {
+        final int index;
+        final long household;
+        final Random random;
+        final LocalDate today = LocalDate.now();
+        final List<String> usernames;
+        final String ownUsername;
+        final CleaningTaskDao tasks;
+        final ShoppingItemDao shopping;
+        final ShoppingHistoryDao history;
+        final BudgetTransactionDao budget;
+        final BudgetSummaryDao totals;
+        final DashboardSummaryDao summary;
+        final List<CleaningTask> ownTasks = new ArrayList<>();
+        final List<ShoppingItem> ownItems = new ArrayList<>();
+        final Map<String, Samples> samples = new LinkedHashMap<>();
+
+        VirtualUser(int index, long household, List<String> usernames) {
+            this.index = index;
+            this.household = household;
+            this.random = new Random(seed * 31 + index);
+            this.ownUsername = "last." + label.toLowerCase().replaceAll("[^a-z0-9]+", "-") + "." + index;
+            this.usernames = usernames.isEmpty() ? List.of(ownUsername) : usernames;
+            this.tasks = new CleaningTaskDao(household);
+            this.shopping = new ShoppingItemDao(household);
+            this.history = new ShoppingHistoryDao(household);
+            this.budget = new BudgetTransactionDao(household);
+            this.totals = new BudgetSummaryDao(household);
+            this.summary = new DashboardSummaryDao(household);
+        }
+
+        String someUser() {
+            return usernames.get(random.nextInt(usernames.size()));
+        }
+
+        CleaningTask ownTask() {
+            return ownTasks.isEmpty() ? null : ownTasks.get(random.nextInt(ownTasks.size()));
+        }
+
+        ShoppingItem ownItem() {
+            return ownItems.isEmpty() ? null : ownItems.get(random.nextInt(ownItems.size()));
+        }
+
+        void insertTask() throws SQLException {
+            CleaningTask task = new CleaningTask("Lastaufgabe " + index, today.plusDays(random.nextInt(28)), someUser(),
+                    random.nextInt(3) == 0 ? "Wöchentlich" : null, false);
+            tasks.insert(task);
+            remember(ownTasks, task);
+        }
+
+        void insertItem() throws SQLException {
+            ShoppingItem item = new ShoppingItem(0, "Artikel " + random.nextInt(200), "1", someUser(), "Sonstiges", null, false);
+            shopping.insert(item);
+            remember(ownItems, item);
+        }
+
+        private <T> void remember(List<T> own, T value) {
+            own.add(value);
+            if (own.size() > KEEP_OWN) own.remove(0);
+        }
+    }
+
+    /**
+     * @param label Name des Laufs im Bericht, z.B. die verglichene Konfiguration
+     */
+    public LoadHarness(String label) {
+        this.label = label == null || label.isBlank() ? "Lauf" : label;
+    }
+
+    /** Anzahl virtueller Benutzer, je einer ein Thread (Standard 8). */
+    public LoadHarness users(int n) {
+        if (n < 1) throw new IllegalArgumentException("users muss mindestens 1 sein: " + n);
+        users = n;
+        return this;
+    }
+
+    /** Operationen je virtuellem Benutzer (Standard 200); wird von {@link #duration(Duration)} ersetzt. */
+    public LoadHarness operations(int n) {
+        if (n < 1) throw new IllegalArgumentException("operations muss mindestens 1 sein: " + n);
+        operations = n;
+        duration = null;
+        return this;
+    }
+
+    /** Statt einer festen Zahl Operationen so lange laufen. */
+    public LoadHarness duration(Duration d) {
+        if (d == null || d.isZero() || d.isNegative()) throw new IllegalArgumentException("duration muss positiv sein: " + d);
+        duration = d;
+        return this;
+    }
+
+    /** Denkpause zwischen zwei Operationen, gleichverteilt in Millisekunden (Standard 5-50). */
+    public LoadHarness thinkTime(int minMillis, int maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) throw new IllegalArgumentException("Ungültige Denkpause: " + minMillis + "-" + maxMillis);
+        minThinkMillis = minMillis;
+        maxThinkMillis = maxMillis;
+        return this;
+    }
+
+    /** Anteil Schreibzugriffe zwischen 0 und 1 (Standard 0.2). */
+    public LoadHarness writeRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) throw new IllegalArgumentException("writeRatio muss zwischen 0 und 1 liegen: " + ratio);
+        writeRatio = ratio;
+        return this;
+    }
+
+    /** Schreibzugriffe über einen {@link SingleWriter} bündeln statt direkt ausführen. */
+    public LoadHarness batchedWrites(boolean batched) {
+        batchedWrites = batched;
+        return this;
+    }
+
+    public LoadHarness seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /** WGs, auf die die virtuellen Benutzer reihum verteilt werden (Standard: die aktive WG). */
+    public LoadHarness households(List<Long> ids) {
+        households = ids == null ? List.of() : List.copyOf(ids);
+        return this;
+    }
+
+    public LoadReport run() throws SQLException {
+        List<Long> targets = households.isEmpty() ? List.of(DatabaseManager.currentHousehold()) : households;
+        Map<Long, List<String>> usernames = new LinkedHashMap<>();
+        for (long household : targets) {
+            // Schema, Trigger und Indizes vorab; init() parallel aus vielen Threads würde selbst Last erzeugen
+            new CleaningTaskDao(household).init();
+            new ShoppingItemDao(household).init();
+            new ShoppingHistoryDao(household).init();
+            new BudgetTransactionDao(household).init();
+            new BudgetSummaryDao(household).init();
+            new DashboardSummaryDao(household).init();
+            List<String> names = new ArrayList<>();
+            for (DatabaseManager.UserInfo u : DatabaseManager.listUsers(household)) names.add(u.username);
+            usernames.put(household, names);
+        }
+
+        List<VirtualUser> vus = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            long household = targets.get(i % targets.size());
+            vus.add(new VirtualUser(i, household, usernames.get(household)));
+        }
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("virtualUsers", users);
+        if (duration != null) config.put("durationSeconds", duration.toMillis() / 1000.0);
+        else config.put("operationsPerUser", operations);
+        config.put("thinkTimeMillis", minThinkMillis + "-" + maxThinkMillis);
+        config.put("writeRatio", writeRatio);
+        config.put("batchedWrites", batchedWrites);
+        config.put("journalMode", journalMode());
+        config.put("poolSize", DatabaseManager.maxPoolSize());
+        config.put("households", targets.size());
+
+        LoadReport.Counters counters = new LoadReport.Counters();
+        SingleWriter writer = batchedWrites ? new SingleWriter() : null;
+        ExecutorService pool = Executors.newFixedThreadPool(users, r -> {
+            Thread t = new Thread(r, "flatmanager-load");
+            t.setDaemon(true);
+            return t;
+        });
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        DatabaseManager.resetPoolStats();
+        try {
+            for (VirtualUser vu : vus) futures.add(pool.submit(() -> {
+                start.await();
+                drive(vu, writer, counters);
+                return null;
+            }));
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    throw new SQLException("Virtueller Benutzer abgebrochen: " + e.getCause(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Lastlauf unterbrochen", e);
+                }
+            }
+            double seconds = (System.nanoTime() - began) / 1e9;
+            Map<String, Samples> merged = new LinkedHashMap<>();
+            for (VirtualUser vu : vus) {
+                for (Map.Entry<String, Samples> e : vu.samples.entrySet()) {
+                    merged.computeIfAbsent(e.getKey(), k -> new Samples()).addAll(e.getValue());
+                }
+            }
+            if (writer != null) {
+                config.put("writerTransactions", writer.batches());
+                config.put("writerWrites", writer.writes());
+            }
+            return new LoadReport(label, config, seconds, merged, counters, DatabaseManager.poolStats());
+        } finally {
+            pool.shutdownNow();
+            if (writer != null) writer.close();
+        }
+    }
+
+    private void drive(VirtualUser vu, SingleWriter writer, LoadReport.Counters counters) throws InterruptedException {
+        long deadline = duration == null ? Long.MAX_VALUE : System.nanoTime() + duration.toNanos();
+        for (int n = 0; duration != null || n < operations; n++) {
+            if (System.nanoTime() >= deadline) break;
+            Operation op = pick(vu.random);
+            long begin = System.nanoTime();
+            try {
+                if (op.write && writer != null) {
+                    writer.submit(vu.household, () -> {
+                        op.action.run(vu);
+                        return null;
+                    }).get();
+                } else {
+                    op.action.run(vu);
+                }
+                vu.samples.computeIfAbsent(op.name, k -> new Samples()).add(System.nanoTime() - begin);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                vu.samples.computeIfAbsent(op.name, k -> new Samples()).add(System.nanoTime() - begin);
+                counters.record(op.name, cause, isBusy(cause), cause instanceof VersionConflictException, MAX_ERROR_SAMPLES);
+            }
+            int span = maxThinkMillis - minThinkMillis;
+            long think = minThinkMillis + (span == 0 ? 0 : vu.random.nextInt(span + 1));
+            if (think > 0) Thread.sleep(think);
+        }
+    }
+
+    private Operation pick(Random random) {
+        List<Operation> ops = random.nextDouble() < writeRatio ? WRITES : READS;
+        int total = 0;
+        for (Operation op : ops) total += op.weight;
+        int r = random.nextInt(total);
+        for (Operation op : ops) {
+            r -= op.weight;
+            if (r < 0) return op;
+        }
+        return ops.get(ops.size() - 1);
+    }
+
+    /** SQLITE_BUSY (auch erweiterte Codes wie BUSY_SNAPSHOT) irgendwo in der Ursachenkette. */
+    static boolean isBusy(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause() == c ? null : c.getCause()) {
+            if (c instanceof SQLException && (((SQLException) c).getErrorCode() & 0xff) == 5) return true;
+            String message = c.getMessage();
+            if (message != null && (message.contains("SQLITE_BUSY") || message.contains("database is locked"))) return true;
+        }
+        return false;
+    }
+
+    private static String journalMode() {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+            return rs.next() ? rs.getString(1).toUpperCase() : "?";
+        } catch (SQLException e) {
+            return "?";
+        }
+    }
+
+    /** Wachsende Liste von Dauern in Nanosekunden. */
+    static final class Samples {
+        private long[] values = new long[256];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) values = java.util.Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) add(other.values[i]);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] sorted() {
+            long[] out = java.util.Arrays.copyOf(values, size);
+            java.util.Arrays.sort(out);
+            return out;
+        }
+    }
+}
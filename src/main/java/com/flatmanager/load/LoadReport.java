@@ -0,0 +1,230 @@
+package com.flatmanager.load;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.server.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ergebnis eines {@link LoadHarness}-Laufs. Latenzen in Millisekunden, Perzentile nach dem Rang-Verfahren
+ * (p95 = kleinster Wert, unter dem mindestens 95 % der Messungen liegen). Fehlgeschlagene Operationen zählen
+ * bei Latenz und Durchsatz mit; sie sind zusätzlich als BUSY, Konflikt oder sonstiger Fehler gezählt.
+ *
+ * {@link #export(Path, List)} schreibt mehrere Läufe als JSON und als HTML-Vergleichstabelle, z.B. für
+ * verschiedene Journal-Modi oder Poolgrößen.
+ */
+public final class LoadReport {
+
+    public static final String JSON_FILE = "load-report.json";
+    public static final String HTML_FILE = "load-report.html";
+
+    /** Kennzahlen einer Operation bzw. aller Operationen. */
+    public static final class Stats {
+        public final long count;
+        public final double p50;
+        public final double p95;
+        public final double p99;
+        public final double max;
+        public final double mean;
+
+        Stats(LoadHarness.Samples samples) {
+            long[] sorted = samples.sorted();
+            count = sorted.length;
+            p50 = percentile(sorted, 0.50);
+            p95 = percentile(sorted, 0.95);
+            p99 = percentile(sorted, 0.99);
+            max = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+            long sum = 0;
+            for (long v : sorted) sum += v;
+            mean = sorted.length == 0 ? 0 : sum / 1e6 / sorted.length;
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", count);
+            m.put("meanMs", round(mean));
+            m.put("p50Ms", round(p50));
+            m.put("p95Ms", round(p95));
+            m.put("p99Ms", round(p99));
+            m.put("maxMs", round(max));
+            return m;
+        }
+    }
+
+    /** Fehlerzähler, von allen virtuellen Benutzern gemeinsam benutzt. */
+    static final class Counters {
+        private long busy;
+        private long conflicts;
+        private long errors;
+        private final Map<String, Long> failuresByOperation = new LinkedHashMap<>();
+        private final List<String> samples = new ArrayList<>();
+
+        synchronized void record(String operation, Throwable cause, boolean busy, boolean conflict, int maxSamples) {
+            if (busy) this.busy++;
+            else if (conflict) conflicts++;
+            else errors++;
+            failuresByOperation.merge(operation, 1L, Long::sum);
+            String text = operation + ": " + cause;
+            if (samples.size() < maxSamples && !samples.contains(text)) samples.add(text);
+        }
+    }
+
+    public final String label;
+    public final Map<String, Object> config;
+    public final double seconds;
+    public final Stats overall;
+    public final Map<String, Stats> operations;
+    public final long busy;
+    public final long conflicts;
+    public final long errors;
+    public final Map<String, Long> failuresByOperation;
+    public final List<String> errorSamples;
+    public final DatabaseManager.PoolStats pool;
+
+    LoadReport(String label, Map<String, Object> config, double seconds, Map<String, LoadHarness.Samples> samples,
+               Counters counters, DatabaseManager.PoolStats pool) {
+        this.label = label;
+        this.config = Collections.unmodifiableMap(new LinkedHashMap<>(config));
+        this.seconds = seconds;
+        LoadHarness.Samples all = new LoadHarness.Samples();
+        Map<String, Stats> ops = new LinkedHashMap<>();
+        for (Map.Entry<String, LoadHarness.Samples> e : samples.entrySet()) {
+            ops.put(e.getKey(), new Stats(e.getValue()));
+            all.addAll(e.getValue());
+        }
+        this.overall = new Stats(all);
+        this.operations = Collections.unmodifiableMap(ops);
+        synchronized (counters) {
+            this.busy = counters.busy;
+            this.conflicts = counters.conflicts;
+            this.errors = counters.errors;
+            this.failuresByOperation = Collections.unmodifiableMap(new LinkedHashMap<>(counters.failuresByOperation));
+            this.errorSamples = List.copyOf(counters.samples);
+        }
+        this.pool = pool;
+    }
+
+    /** Operationen je Sekunde über alle virtuellen Benutzer. */
+    public double throughput() {
+        return seconds <= 0 ? 0 : overall.count / seconds;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("label", label);
+        m.put("config", config);
+        m.put("seconds", round(seconds));
+        m.put("operations", overall.count);
+        m.put("throughput", round(throughput()));
+        m.put("latency", overall.toMap());
+        m.put("busy", busy);
+        m.put("conflicts", conflicts);
+        m.put("errors", errors);
+        Map<String, Object> poolMap = new LinkedHashMap<>();
+        poolMap.put("acquired", pool.acquired);
+        poolMap.put("exhausted", pool.exhausted);
+        poolMap.put("meanWaitMs", round(pool.meanWaitMillis()));
+        poolMap.put("maxWaitMs", round(pool.maxWaitNanos / 1e6));
+        m.put("pool", poolMap);
+        Map<String, Object> ops = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> e : operations.entrySet()) {
+            Map<String, Object> op = e.getValue().toMap();
+            op.put("failures", failuresByOperation.getOrDefault(e.getKey(), 0L));
+            ops.put(e.getKey(), op);
+        }
+        m.put("perOperation", ops);
+        m.put("errorSamples", errorSamples);
+        return m;
+    }
+
+    public String toJson() {
+        return Json.write(toMap());
+    }
+
+    /** Schreibt die Läufe nach {@code dir}/{@value #JSON_FILE} (Array) und {@code dir}/{@value #HTML_FILE}. */
+    public static void export(Path dir, List<LoadReport> reports) throws IOException {
+        Files.createDirectories(dir);
+        List<Object> runs = new ArrayList<>();
+        for (LoadReport r : reports) runs.add(r.toMap());
+        Files.writeString(dir.resolve(JSON_FILE), Json.write(runs), StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve(HTML_FILE), toHtml(reports), StandardCharsets.UTF_8);
+    }
+
+    /** HTML-Seite mit einer Vergleichszeile je Lauf und den Operationen jedes Laufs. */
+    public static String toHtml(List<LoadReport> reports) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html>\n<html lang=\"de\"><head><meta charset=\"utf-8\"><title>Lasttest</title>\n")
+                .append("<style>body{font-family:sans-serif;margin:2em}table{border-collapse:collapse;margin-bottom:2em}")
+                .append("th,td{border:1px solid #ccc;padding:4px 8px;text-align:right}th:first-child,td:first-child{text-align:left}")
+                .append("th{background:#f0f0f0}.bad{color:#b00020;font-weight:bold}</style></head><body>\n")
+                .append("<h1>Lasttest</h1>\n<table><tr><th>Lauf</th><th>Journal</th><th>Pool</th><th>Benutzer</th>")
+                .append("<th>Gebündelt</th><th>Schreibanteil</th><th>Operationen</th><th>Ops/s</th><th>p50 ms</th>")
+                .append("<th>p95 ms</th><th>p99 ms</th><th>max ms</th><th>BUSY</th><th>Konflikte</th><th>Fehler</th>")
+                .append("<th>Pool Ø ms</th><th>Pool max ms</th><th>Pool voll</th></tr>\n");
+        for (LoadReport r : reports) {
+            sb.append("<tr><td>").append(escape(r.label)).append("</td>")
+                    .append(cell(r.config.get("journalMode"))).append(cell(r.config.get("poolSize")))
+                    .append(cell(r.config.get("virtualUsers"))).append(cell(Boolean.TRUE.equals(r.config.get("batchedWrites")) ? "ja" : "nein"))
+                    .append(cell(r.config.get("writeRatio"))).append(cell(r.overall.count)).append(cell(format(r.throughput())))
+                    .append(cell(format(r.overall.p50))).append(cell(format(r.overall.p95))).append(cell(format(r.overall.p99)))
+                    .append(cell(format(r.overall.max))).append(countCell(r.busy)).append(countCell(r.conflicts)).append(countCell(r.errors))
+                    .append(cell(format(r.pool.meanWaitMillis()))).append(cell(format(r.pool.maxWaitNanos / 1e6)))
+                    .append(cell(r.pool.exhausted)).append("</tr>\n");
+        }
+        sb.append("</table>\n");
+        for (LoadReport r : reports) {
+            sb.append("<h2>").append(escape(r.label)).append("</h2>\n<p>").append(escape(Json.write(r.config))).append("</p>\n")
+                    .append("<table><tr><th>Operation</th><th>Anzahl</th><th>Ø ms</th><th>p50 ms</th><th>p95 ms</th>")
+                    .append("<th>p99 ms</th><th>max ms</th><th>Fehlgeschlagen</th></tr>\n");
+            for (Map.Entry<String, Stats> e : r.operations.entrySet()) {
+                Stats s = e.getValue();
+                sb.append("<tr><td>").append(escape(e.getKey())).append("</td>").append(cell(s.count)).append(cell(format(s.mean)))
+                        .append(cell(format(s.p50))).append(cell(format(s.p95))).append(cell(format(s.p99))).append(cell(format(s.max)))
+                        .append(countCell(r.failuresByOperation.getOrDefault(e.getKey(), 0L))).append("</tr>\n");
+            }
+            sb.append("</table>\n");
+            if (!r.errorSamples.isEmpty()) {
+                sb.append("<ul>");
+                for (String e : r.errorSamples) sb.append("<li>").append(escape(e)).append("</li>");
+                sb.append("</ul>\n");
+            }
+        }
+        return sb.append("</body></html>\n").toString();
+    }
+
+    private static String cell(Object value) {
+        return "<td>" + escape(String.valueOf(value)) + "</td>";
+    }
+
+    private static String countCell(long n) {
+        return n == 0 ? "<td>0</td>" : "<td class=\"bad\">" + n + "</td>";
+    }
+
+    private static String format(double v) {
+        return String.format(Locale.ROOT, "%.2f", v);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
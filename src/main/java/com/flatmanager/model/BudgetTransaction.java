@@ -18,6 +18,7 @@ public class BudgetTransaction {
     private String description;
     private String category;
     private String meta; // optionales 6. Feld zur Kompatibilität
+    private int version = -1; // Zeilenversion für Compare-and-Set-Updates; -1 = unbekannt
 
     // Parameterloser Konstruktor (wird vom DAO benötigt)
     /**
@@ -109,6 +110,14 @@ public class BudgetTransaction {
         this.meta = meta;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
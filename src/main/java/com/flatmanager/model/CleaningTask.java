@@ -19,6 +19,8 @@ public class CleaningTask {
     private String recurrence;
     private boolean completed;
     private boolean urgent;
+    // Zeilenversion für Compare-and-Set-Updates; -1 = unbekannt (nicht aus der DB geladen)
+    private int version = -1;
 
     public CleaningTask(Integer id, String title, LocalDate due, String assignedTo, String recurrence, boolean completed, boolean urgent) {
         this.id = id;
@@ -42,6 +44,7 @@ public class CleaningTask {
     public String getRecurrence() { return recurrence; }
     public boolean isCompleted() { return completed; }
     public boolean isUrgent() { return urgent; }
+    public int getVersion() { return version; }
 
     public void setTitle(String t) { this.title = t; }
     public void setDue(LocalDate d) { this.due = d; }
@@ -49,9 +52,16 @@ public class CleaningTask {
     public void setRecurrence(String r) { this.recurrence = r; }
     public void setCompleted(boolean c) { this.completed = c; }
     public void setUrgent(boolean u) { this.urgent = u; }
+    public void setVersion(int v) { this.version = v; }
 
     public boolean hasAssignee() { return assignedTo != null && !assignedTo.trim().isEmpty(); }
 
+    /** Geparste Wiederholungsregel oder {@code null} bei einmaligen Aufgaben. */
+    public RecurrenceRule getRecurrenceRule() { return RecurrenceRule.parse(recurrence); }
+
+    /** Wiederkehrend mit Startdatum, d.h. die Termine lassen sich aus der Regel ableiten. */
+    public boolean isRecurring() { return due != null && getRecurrenceRule() != null; }
+
     /**
      * Erzeugt ein {@link CleaningTask} aus dem aktuellen ResultSet-Zeiger.
      * @param rs ResultSet mit Spalten (id, title, due, assignedTo, recurrence, completed, urgent)
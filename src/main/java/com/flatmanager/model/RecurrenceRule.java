@@ -0,0 +1,182 @@
+package com.flatmanager.model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Wiederholungsregel einer Putzplan-Aufgabe (täglich, wöchentlich, monatlich, quartalsweise, jährlich)
+ * mit Intervall, z. B. "alle 2 Wochen".
+ *
+ * Eine Regel wird zusammen mit ihrem Startdatum genau einmal gespeichert; die einzelnen Termine werden
+ * erst bei Bedarf über {@link #occurrences(LocalDate, LocalDate, LocalDate)} für ein Datumsfenster erzeugt.
+ * Termine werden immer vom Startdatum aus berechnet ({@link #occurrence(LocalDate, long)}), damit sich
+ * Monatsenden nicht aufschaukeln (31.01. → 28.02. → 31.03.).
+ *
+ * Gespeichert wird die Regel als Text: Regeln mit Intervall 1 unter ihrem bisherigen Namen
+ * ("Wöchentlich", "Monatlich", ...), alle anderen als {@code FREQ=WEEKLY;INTERVAL=2}.
+ */
+public final class RecurrenceRule {
+
+    public enum Frequency {
+        DAILY("Täglich", "Tage", ChronoUnit.DAYS, 1),
+        WEEKLY("Wöchentlich", "Wochen", ChronoUnit.WEEKS, 1),
+        MONTHLY("Monatlich", "Monate", ChronoUnit.MONTHS, 1),
+        QUARTERLY("Quartal", "Quartale", ChronoUnit.MONTHS, 3),
+        YEARLY("Jährlich", "Jahre", ChronoUnit.YEARS, 1);
+
+        /** Bisheriger Anzeigename aus der Auswahlliste, zugleich Speicherform bei Intervall 1. */
+        public final String label;
+        private final String plural;
+        private final ChronoUnit unit;
+        private final int unitsPerStep;
+
+        Frequency(String label, String plural, ChronoUnit unit, int unitsPerStep) {
+            this.label = label;
+            this.plural = plural;
+            this.unit = unit;
+            this.unitsPerStep = unitsPerStep;
+        }
+    }
+
+    /** Speicherwert für nicht wiederkehrende Aufgaben. */
+    public static final String ONCE = "Einmalig";
+
+    private final Frequency frequency;
+    private final int interval;
+
+    private RecurrenceRule(Frequency frequency, int interval) {
+        this.frequency = frequency;
+        this.interval = interval;
+    }
+
+    public static RecurrenceRule of(Frequency frequency, int interval) {
+        if (frequency == null) throw new IllegalArgumentException("frequency darf nicht null sein");
+        if (interval < 1) throw new IllegalArgumentException("interval muss >= 1 sein: " + interval);
+        return new RecurrenceRule(frequency, interval);
+    }
+
+    /**
+     * Liest eine gespeicherte Regel. Liefert {@code null} für "Einmalig", leere oder unbekannte Werte.
+     */
+    public static RecurrenceRule parse(String text) {
+        if (text == null) return null;
+        String t = text.trim();
+        if (t.isEmpty() || ONCE.equalsIgnoreCase(t)) return null;
+
+        for (Frequency f : Frequency.values()) {
+            if (f.label.equalsIgnoreCase(t)) return new RecurrenceRule(f, 1);
+        }
+
+        Frequency freq = null;
+        int interval = 1;
+        for (String part : t.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq < 0) continue;
+            String key = part.substring(0, eq).trim().toUpperCase(Locale.ROOT);
+            String value = part.substring(eq + 1).trim().toUpperCase(Locale.ROOT);
+            if ("FREQ".equals(key)) {
+                try {
+                    freq = Frequency.valueOf(value);
+                } catch (IllegalArgumentException ex) {
+                    return null;
+                }
+            } else if ("INTERVAL".equals(key)) {
+                try {
+                    interval = Integer.parseInt(value);
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+        }
+        if (freq == null || interval < 1) return null;
+        return new RecurrenceRule(freq, interval);
+    }
+
+    public Frequency getFrequency() { return frequency; }
+    public int getInterval() { return interval; }
+
+    /** Speicherform für die Spalte {@code recurrence}. */
+    public String toText() {
+        if (interval == 1) return frequency.label;
+        return "FREQ=" + frequency.name() + ";INTERVAL=" + interval;
+    }
+
+    /** Anzeigetext, z. B. "Wöchentlich" oder "Alle 2 Wochen". */
+    public String label() {
+        if (interval == 1) return frequency.label;
+        return "Alle " + interval + " " + frequency.plural;
+    }
+
+    /**
+     * Der {@code n}-te Termin (0 = Startdatum) einer Serie, die am {@code start} beginnt.
+     */
+    public LocalDate occurrence(LocalDate start, long n) {
+        long units = n * interval * frequency.unitsPerStep;
+        return start.plus(units, frequency.unit);
+    }
+
+    /** Nächster Termin nach {@code start}. */
+    public LocalDate next(LocalDate start) {
+        return occurrence(start, 1);
+    }
+
+    /**
+     * Index des ersten Termins, der nicht vor {@code from} liegt. Springt direkt an die passende Stelle,
+     * statt alle früheren Termine zu durchlaufen.
+     */
+    public long firstIndexOnOrAfter(LocalDate start, LocalDate from) {
+        if (from == null || !from.isAfter(start)) return 0;
+        long step = (long) interval * frequency.unitsPerStep;
+        long n = frequency.unit.between(start, from) / step;
+        while (occurrence(start, n).isBefore(from)) n++;
+        return n;
+    }
+
+    /**
+     * Termine der Serie im Fenster {@code [from, to]} (beide inklusive; {@code null} = offen).
+     * Die Termine werden lazy erzeugt; der Aufwand ist proportional zur Anzahl gelieferter Termine.
+     */
+    public Iterable<LocalDate> occurrences(LocalDate start, LocalDate from, LocalDate to) {
+        Objects.requireNonNull(start, "start");
+        long first = firstIndexOnOrAfter(start, from);
+        return () -> new Iterator<>() {
+            private long n = first;
+            private LocalDate next = occurrence(start, first);
+
+            @Override
+            public boolean hasNext() {
+                return to == null || !next.isAfter(to);
+            }
+
+            @Override
+            public LocalDate next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                LocalDate current = next;
+                next = occurrence(start, ++n);
+                return current;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecurrenceRule)) return false;
+        RecurrenceRule that = (RecurrenceRule) o;
+        return interval == that.interval && frequency == that.frequency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frequency, interval);
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
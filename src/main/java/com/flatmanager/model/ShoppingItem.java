@@ -19,6 +19,8 @@ public class ShoppingItem {
 
     private final BooleanProperty purchased;
     private final BooleanProperty selected;
+    // Zeilenversion für Compare-and-Set-Updates; -1 = unbekannt (nicht aus der DB geladen)
+    private int version = -1;
 
     /**
      * Vollständiger Konstruktor mit allen Feldern.
@@ -149,6 +151,14 @@ public class ShoppingItem {
         setPurchased(b);
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // Compatibility: allow DAO to set id via setId(int)
     public void setId(int newId) {
         this.id.set(newId);
@@ -0,0 +1,183 @@
+package com.flatmanager.server;
+
+import com.flatmanager.dao.CleaningTaskStore;
+import com.flatmanager.dao.VersionConflictException;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.ShoppingItem;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP-Client für den {@link ApiServer}: Anmeldung, Lesen und Anlegen von Putzaufgaben und Einkaufsartikeln
+ * (z.B. für Last- und End-to-End-Tests) sowie der vollständige Putzplan als {@link CleaningTaskStore}
+ * ({@link #cleaningTasks()}). Ist eine Server-Adresse konfiguriert ({@link #configuredBase()}), läuft die
+ * JavaFX-Oberfläche als Thin Client: die Anmeldung geht an den Server und der Putzplan über diesen Client.
+ *
+ * Fehler kommen wie bei den DAOs als {@link SQLException}, Versionskonflikte (HTTP 409) als
+ * {@link VersionConflictException}. Eingefügte Objekte erhalten wie bei den DAOs ID und Version.
+ * Thread-sicher; ein Client gehört zu einer Anmeldung und damit zu einer WG.
+ */
+public final class ApiClient {
+
+    /** Umgebungsvariable bzw. System-Property mit der Adresse des API-Servers für den Thin-Client-Betrieb. */
+    public static final String URL_ENV = "API_URL";
+    public static final String URL_PROPERTY = "api.url";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final URI base;
+    private final String token;
+    private final long household;
+
+    private ApiClient(HttpClient http, URI base, String token, long household) {
+        this.http = http;
+        this.base = base;
+        this.token = token;
+        this.household = household;
+    }
+
+    /**
+     * Meldet einen Benutzer an ({@code POST /api/login}).
+     * @param base Basisadresse, z.B. {@code http://127.0.0.1:8085}
+     * @throws SQLException bei falschem Passwort (HTTP 401) oder nicht erreichbarem Server
+     */
+    public static ApiClient login(URI base, String username, String password) throws SQLException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("username", username);
+        body.put("password", password);
+        Map<String, Object> m = object(send(http, base, null, "POST", "/api/login", body));
+        return new ApiClient(http, base, ApiServer.text(m, "token"), ((Number) m.get("household")).longValue());
+    }
+
+    /** Konfigurierte Server-Adresse ({@value #URL_ENV}, sonst {@value #URL_PROPERTY}) oder {@code null}. */
+    public static URI configuredBase() {
+        String url = System.getenv(URL_ENV);
+        if (url == null || url.isBlank()) url = System.getProperty(URL_PROPERTY);
+        return url == null || url.isBlank() ? null : URI.create(url.trim());
+    }
+
+    /** true, wenn die Oberfläche als Thin Client gegen einen API-Server laufen soll. */
+    public static boolean isConfigured() {
+        return configuredBase() != null;
+    }
+
+    /** Putzplan der WG über den Server, mit denselben Methoden wie {@link com.flatmanager.dao.CleaningTaskDao}. */
+    public CleaningTaskStore cleaningTasks() {
+        return new RemoteCleaningTasks(this);
+    }
+
+    /** WG des angemeldeten Benutzers. */
+    public long household() {
+        return household;
+    }
+
+    public List<CleaningTask> listTasks() throws SQLException {
+        List<CleaningTask> out = new ArrayList<>();
+        for (Map<String, Object> m : list("/api/tasks")) out.add(toTask(m));
+        return out;
+    }
+
+    public List<CleaningTask> listTasks(LocalDate from, LocalDate to) throws SQLException {
+        List<CleaningTask> out = new ArrayList<>();
+        for (Map<String, Object> m : list("/api/tasks?from=" + from + "&to=" + to)) out.add(toTask(m));
+        return out;
+    }
+
+    public void insertTask(CleaningTask task) throws SQLException {
+        Map<String, Object> m = object(send(http, base, token, "POST", "/api/tasks", ApiServer.taskJson(task)));
+        task.setId(((Number) m.get("id")).intValue());
+        task.setVersion(((Number) m.get("version")).intValue());
+    }
+
+    public List<ShoppingItem> listShoppingItems() throws SQLException {
+        List<ShoppingItem> out = new ArrayList<>();
+        for (Map<String, Object> m : list("/api/shopping")) {
+            ShoppingItem it = ApiServer.item(m, ((Number) m.get("id")).intValue());
+            it.setVersion(((Number) m.get("version")).intValue());
+            out.add(it);
+        }
+        return out;
+    }
+
+    public void insertShoppingItem(ShoppingItem item) throws SQLException {
+        Map<String, Object> m = object(send(http, base, token, "POST", "/api/shopping", ApiServer.itemJson(item)));
+        item.setId(((Number) m.get("id")).intValue());
+        item.setVersion(((Number) m.get("version")).intValue());
+    }
+
+    /* ----------------- HTTP ----------------- */
+
+    String call(String method, String path, Object body) throws SQLException {
+        return send(http, base, token, method, path, body);
+    }
+
+    static CleaningTask toTask(Map<String, Object> m) {
+        Object id = m.get("id");
+        CleaningTask t = ApiServer.task(m, id == null ? null : ((Number) id).intValue());
+        t.setVersion(((Number) m.get("version")).intValue());
+        return t;
+    }
+
+    List<Map<String, Object>> list(String path) throws SQLException {
+        try {
+            return Json.parseArray(send(http, base, token, "GET", path, null));
+        } catch (IOException e) {
+            throw new SQLException("Ungültige Antwort von " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    static Map<String, Object> object(String json) throws SQLException {
+        try {
+            return Json.parseObject(json);
+        } catch (IOException e) {
+            throw new SQLException("Ungültige Antwort: " + e.getMessage(), e);
+        }
+    }
+
+    private static String send(HttpClient http, URI base, String token, String method, String path, Object body) throws SQLException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(TIMEOUT)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(Json.write(body), StandardCharsets.UTF_8));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        if (body != null) request.header("Content-Type", "application/json; charset=utf-8");
+        HttpResponse<String> response;
+        try {
+            response = http.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new SQLException("API-Server nicht erreichbar (" + base + "): " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Unterbrochen: " + method + " " + path, e);
+        }
+        int status = response.statusCode();
+        if (status / 100 == 2) return response.body();
+        String message = response.body();
+        try {
+            Map<String, Object> m = Json.parseObject(message);
+            if (status == 409 && m.get("table") != null) {
+                throw new VersionConflictException(m.get("table").toString(), ((Number) m.get("id")).intValue(),
+                        ((Number) m.get("version")).intValue(), Boolean.TRUE.equals(m.get("deleted")));
+            }
+            Object error = m.get("error");
+            if (error != null) message = error.toString();
+        } catch (IOException ignored) {
+            // kein JSON: Text unverändert übernehmen
+        }
+        throw new SQLException(method + " " + path + " -> HTTP " + status + ": " + message);
+    }
+}
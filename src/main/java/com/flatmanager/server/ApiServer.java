@@ -0,0 +1,757 @@
+package com.flatmanager.server;
+
+import com.flatmanager.dao.BudgetTransactionDao;
+import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.dao.ShoppingItemDao;
+import com.flatmanager.dao.VersionConflictException;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.BudgetTransaction;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.ShoppingItem;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless-Betrieb: JSON-API über die DAOs auf Basis von {@code com.sun.net.httpserver}. Start über
+ * {@code App --server} bzw. {@link #start(String, int, int)}.
+ *
+ * Anmeldung: {@code POST /api/login} mit {@code username} und {@code password} prüft das Passwort wie die
+ * Admin-Anmeldung ({@link DatabaseManager#checkPassword}) und liefert ein Token, das alle weiteren Anfragen im
+ * Header {@code Authorization: Bearer <token>} mitschicken ({@link #TOKEN_TTL} gültig, {@code POST /api/logout}
+ * beendet es). Die WG einer Anfrage ist die des angemeldeten Benutzers; ohne gültiges Token gibt es 401.
+ * Ressourcen:
+ * <ul>
+ *   <li>{@code /api/tasks} (GET, optional {@code ?from=&to=} mit {@code &undated=false} bzw. {@code &occurrences=true}
+ *       für einzelne Termine, oder {@code ?recurring=true}; POST; DELETE {@code ?completed=true}),
+ *       {@code /api/tasks/<id>} (PUT, DELETE = ganze Serie), {@code /api/tasks/assignments?from=&to=} (PUT, Rotationsplan)</li>
+ *   <li>je Serie {@code /api/tasks/<id>/completions} (GET), {@code .../completions/<datum>} (PUT, DELETE),
+ *       {@code .../assignments/<datum>} (PUT), {@code .../assignee} (PUT mit {@code version}),
+ *       {@code .../advance} (POST mit {@code nextDue} und {@code nextAssignedTo})</li>
+ *   <li>{@code /api/shopping} (GET; POST; DELETE {@code ?bought=true}), {@code /api/shopping/<id>} (PUT, DELETE)</li>
+ *   <li>{@code /api/budget} (GET; POST), {@code /api/budget/<id>} (PUT, DELETE)</li>
+ *   <li>{@code /api/users} (GET ohne Passwort-Hash; POST legt an bzw. aktualisiert), {@code /api/users/<username>} (DELETE);
+ *       anlegen (mit Passwort) und löschen darf nur ein Admin der WG, Passwort und Name ändern nur der Benutzer selbst
+ *       oder ein Admin; fehlt {@code password} bzw. {@code name}, bleibt der gespeicherte Wert</li>
+ *   <li>{@code /api/health} (GET)</li>
+ * </ul>
+ * Updates prüfen wie die DAOs die mitgeschickte {@code version}; ein Konflikt ergibt 409 (mit {@code table},
+ * {@code id}, {@code version} und {@code deleted}), ein PUT ohne {@code version} 428. Damit kann der JavaFX-Client
+ * als Thin Client laufen ({@link ApiClient#cleaningTasks()}).
+ *
+ * Die Handler laufen auf einem begrenzten Pool ({@code threads} Threads, Warteschlange {@link #QUEUE_CAPACITY});
+ * ist sie voll, arbeitet der Annahme-Thread die Anfrage selbst ab und nimmt so lange keine neuen an.
+ * Lesen geschieht parallel über den Connection-Pool, alle Schreibzugriffe gehen gebündelt über einen
+ * {@link SingleWriter}. Der Server lauscht standardmäßig nur auf {@code 127.0.0.1}; Tokens gehen im Klartext über
+ * HTTP, für andere Rechner gehört ein TLS-Proxy davor.
+ */
+public final class ApiServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8085;
+    static final int QUEUE_CAPACITY = 256;
+    /** Gültigkeit eines Tokens ab der Anmeldung. */
+    public static final Duration TOKEN_TTL = Duration.ofHours(12);
+    /** Abstand, in dem {@link #sweepSessions()} abgelaufene Tokens entfernen sollte. */
+    public static final Duration SESSION_SWEEP_PERIOD = Duration.ofMinutes(10);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final SingleWriter writer = new SingleWriter();
+    // WGs, deren DAO-Tabellen schon angelegt sind
+    private final Set<Long> initialized = ConcurrentHashMap.newKeySet();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private ApiServer(HttpServer server, int threads) {
+        this.server = server;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+            Thread t = new Thread(r, "flatmanager-api-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+        server.createContext("/api/health", this::health);
+        server.createContext("/api/login", this::login);
+        server.createContext("/api/logout", this::logout);
+        server.createContext("/api/tasks", ex -> handle(ex, this::tasks, true));
+        server.createContext("/api/shopping", ex -> handle(ex, this::shopping, false));
+        server.createContext("/api/budget", ex -> handle(ex, this::budget, false));
+        server.createContext("/api/users", ex -> handle(ex, this::users, false));
+    }
+
+    /**
+     * Startet den Server.
+     * @param host    Adresse, z.B. {@code 127.0.0.1}
+     * @param port    Port; 0 = beliebiger freier Port (siehe {@link #port()})
+     * @param threads Anzahl Handler-Threads
+     */
+    public static ApiServer start(String host, int port, int threads) throws IOException {
+        ApiServer api = new ApiServer(HttpServer.create(new InetSocketAddress(host, port), 0), Math.max(1, threads));
+        api.server.start();
+        System.err.println("[ApiServer] Lauscht auf http://" + host + ":" + api.port() + "/api");
+        return api;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public SingleWriter writer() {
+        return writer;
+    }
+
+    /**
+     * Entfernt abgelaufene Tokens; ohne diesen Aufruf verschwinden sie erst, wenn sie noch einmal benutzt werden.
+     * Für den periodischen Scheduler-Job ({@link #SESSION_SWEEP_PERIOD}).
+     * @return Anzahl entfernter Tokens
+     */
+    public int sweepSessions() {
+        return sweepSessions(System.currentTimeMillis());
+    }
+
+    int sweepSessions(long now) {
+        int before = sessions.size();
+        sessions.values().removeIf(s -> s.expiresAt < now);
+        return before - sessions.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        writer.close();
+    }
+
+    /* ----------------- Anfragen ----------------- */
+
+    // angemeldeter Benutzer eines Tokens
+    private static final class Session {
+        final String username;
+        final long household;
+        final long expiresAt;
+
+        Session(String username, long household, long expiresAt) {
+            this.username = username;
+            this.household = household;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // eine Anfrage: Methode, Pfad unterhalb der Ressource ("" oder die ID, dahinter ggf. ein Unterpfad),
+    // Query-Parameter, Body, Benutzer und WG
+    private static final class Request {
+        final String method;
+        final String id;
+        final String sub;
+        final Map<String, String> query;
+        final Map<String, Object> body;
+        final String user;
+        final long household;
+
+        Request(String method, String id, String sub, Map<String, String> query, Map<String, Object> body, String user, long household) {
+            this.method = method;
+            this.id = id;
+            this.sub = sub;
+            this.query = query;
+            this.body = body;
+            this.user = user;
+            this.household = household;
+        }
+
+        int intId() {
+            try {
+                return Integer.parseInt(id);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültige ID: " + id);
+            }
+        }
+    }
+
+    // Ergebnis einer Anfrage: Status und JSON-Wert
+    private static final class Response {
+        final int status;
+        final Object body;
+
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Resource {
+        Response handle(Request request) throws Exception;
+    }
+
+    // nested: die Ressource kennt Unterpfade hinter der ID
+    private void handle(HttpExchange ex, Resource resource, boolean nested) throws IOException {
+        Response response;
+        try {
+            String context = ex.getHttpContext().getPath();
+            String rest = ex.getRequestURI().getPath().substring(context.length());
+            if (rest.startsWith("/")) rest = rest.substring(1);
+            Session session = session(ex);
+            if (session == null) {
+                response = error(401, "Nicht angemeldet");
+            } else if (rest.contains("/") && !nested) {
+                response = error(404, "Unbekannter Pfad: " + ex.getRequestURI().getPath());
+            } else {
+                int slash = rest.indexOf('/');
+                String id = slash < 0 ? rest : rest.substring(0, slash);
+                String sub = slash < 0 ? "" : rest.substring(slash + 1);
+                Request request = new Request(ex.getRequestMethod(), URLDecoder.decode(id, StandardCharsets.UTF_8),
+                        URLDecoder.decode(sub, StandardCharsets.UTF_8), query(ex.getRequestURI().getRawQuery()),
+                        Json.parseObject(body(ex)), session.username, session.household);
+                ensureInitialized(request.household);
+                response = resource.handle(request);
+            }
+        } catch (VersionConflictException e) {
+            response = conflict(e);
+        } catch (IllegalArgumentException | DateTimeParseException | IOException e) {
+            response = error(400, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("[ApiServer] " + ex.getRequestMethod() + " " + ex.getRequestURI() + " fehlgeschlagen: " + e);
+            response = error(500, e.getMessage());
+        }
+        send(ex, response);
+    }
+
+    private void health(HttpExchange ex) throws IOException {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("status", "ok");
+        out.put("writes", writer.writes());
+        out.put("batches", writer.batches());
+        send(ex, new Response(200, out));
+    }
+
+    private void login(HttpExchange ex) throws IOException {
+        Response response;
+        try {
+            if (!"POST".equals(ex.getRequestMethod())) {
+                response = error(405, "Methode " + ex.getRequestMethod() + " nicht erlaubt");
+            } else {
+                Map<String, Object> body = Json.parseObject(body(ex));
+                String username = text(body, "username");
+                if (username == null || !DatabaseManager.checkPassword(username, text(body, "password"))) {
+                    response = error(401, "Benutzername oder Passwort falsch");
+                } else {
+                    String name = username.trim();
+                    long household = DatabaseManager.householdOf(name);
+                    byte[] raw = new byte[32];
+                    RANDOM.nextBytes(raw);
+                    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+                    sessions.put(token, new Session(name, household, System.currentTimeMillis() + TOKEN_TTL.toMillis()));
+                    Map<String, Object> out = new LinkedHashMap<>();
+                    out.put("token", token);
+                    out.put("username", name);
+                    out.put("household", household);
+                    out.put("admin", DatabaseManager.isHouseholdAdmin(household, name));
+                    response = new Response(200, out);
+                }
+            }
+        } catch (IOException e) {
+            response = error(400, e.getMessage());
+        }
+        send(ex, response);
+    }
+
+    private void logout(HttpExchange ex) throws IOException {
+        String token = token(ex);
+        if (token != null) sessions.remove(token);
+        send(ex, new Response(204, null));
+    }
+
+    // Sitzung zum Bearer-Token; abgelaufene Tokens und Benutzer, die gelöscht wurden oder die WG gewechselt haben, zählen nicht
+    private Session session(HttpExchange ex) {
+        String token = token(ex);
+        if (token == null) return null;
+        Session s = sessions.get(token);
+        if (s == null) return null;
+        if (s.expiresAt < System.currentTimeMillis() || DatabaseManager.householdOf(s.username) != s.household) {
+            sessions.remove(token);
+            return null;
+        }
+        return s;
+    }
+
+    private static String token(HttpExchange ex) {
+        String value = ex.getRequestHeaders().getFirst("Authorization");
+        if (value == null || !value.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        String token = value.substring(7).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private Response tasks(Request r) throws Exception {
+        CleaningTaskDao dao = new CleaningTaskDao(r.household);
+        if (r.id.isEmpty()) {
+            switch (r.method) {
+                case "GET":
+                    String from = r.query.get("from"), to = r.query.get("to");
+                    List<CleaningTask> tasks;
+                    if ("true".equals(r.query.get("recurring"))) {
+                        tasks = dao.listRecurring();
+                    } else if (from == null || to == null) {
+                        tasks = dao.listAll();
+                    } else if ("true".equals(r.query.get("occurrences"))) {
+                        tasks = dao.listOccurrences(LocalDate.parse(from), LocalDate.parse(to));
+                    } else {
+                        tasks = dao.listWindow(LocalDate.parse(from), LocalDate.parse(to), !"false".equals(r.query.get("undated")));
+                    }
+                    List<Object> out = new ArrayList<>();
+                    for (CleaningTask t : tasks) out.add(taskJson(t));
+                    return new Response(200, out);
+                case "POST":
+                    CleaningTask task = task(r.body, null);
+                    write(r, () -> {
+                        dao.insert(task);
+                        return null;
+                    });
+                    return new Response(201, taskJson(task));
+                case "DELETE":
+                    if (!"true".equals(r.query.get("completed"))) throw new IllegalArgumentException("Nur ?completed=true wird unterstützt");
+                    write(r, () -> {
+                        dao.deleteCompleted();
+                        return null;
+                    });
+                    return new Response(204, null);
+                default:
+                    return notAllowed(r);
+            }
+        }
+        if ("assignments".equals(r.id) && r.sub.isEmpty()) {
+            if (!"PUT".equals(r.method)) return notAllowed(r);
+            LocalDate from = LocalDate.parse(required(r.query, "from")), to = LocalDate.parse(required(r.query, "to"));
+            List<CleaningTask> plan = new ArrayList<>();
+            Object entries = r.body.get("assignments");
+            if (!(entries instanceof List)) throw new IllegalArgumentException("assignments fehlt");
+            for (Object e : (List<?>) entries) {
+                if (!(e instanceof Map)) throw new IllegalArgumentException("Ungültiger Plan-Eintrag: " + e);
+                @SuppressWarnings("unchecked")
+                Map<String, Object> m = (Map<String, Object>) e;
+                plan.add(new CleaningTask((int) number(m, "id", -1), "", LocalDate.parse(required(m, "due")),
+                        text(m, "assignedTo"), null, false, false));
+            }
+            write(r, () -> {
+                dao.saveAssignments(from, to, plan);
+                return null;
+            });
+            return new Response(204, null);
+        }
+        int id = r.intId();
+        if (!r.sub.isEmpty()) return taskPart(r, dao, id);
+        switch (r.method) {
+            case "PUT":
+                if (!r.body.containsKey("version")) return versionRequired();
+                CleaningTask task = task(r.body, id);
+                write(r, () -> {
+                    dao.update(task);
+                    return null;
+                });
+                return new Response(200, taskJson(task));
+            case "DELETE":
+                write(r, () -> {
+                    dao.deleteSeries(id);
+                    return null;
+                });
+                return new Response(204, null);
+            default:
+                return notAllowed(r);
+        }
+    }
+
+    // Unterpfade einer Serie: Termin-Erledigungen, Termin-Zuständige, Zuständiger der Serie, Vorrücken
+    private Response taskPart(Request r, CleaningTaskDao dao, int id) throws Exception {
+        String[] parts = r.sub.split("/", 2);
+        String part = parts[0];
+        LocalDate date = parts.length > 1 ? LocalDate.parse(parts[1]) : null;
+        if ("completions".equals(part) && date == null) {
+            if (!"GET".equals(r.method)) return notAllowed(r);
+            List<String> dates = new ArrayList<>();
+            for (LocalDate d : new TreeSet<>(dao.listCompletedOccurrences(id))) dates.add(d.toString());
+            return new Response(200, Map.of("completions", dates));
+        }
+        if ("completions".equals(part)) {
+            if (!"PUT".equals(r.method) && !"DELETE".equals(r.method)) return notAllowed(r);
+            boolean completed = "PUT".equals(r.method);
+            write(r, () -> {
+                dao.setOccurrenceCompleted(id, date, completed);
+                return null;
+            });
+            return new Response(204, null);
+        }
+        if ("assignments".equals(part) && date != null) {
+            if (!"PUT".equals(r.method)) return notAllowed(r);
+            write(r, () -> {
+                dao.assignOccurrence(id, date, text(r.body, "assignedTo"));
+                return null;
+            });
+            return new Response(204, null);
+        }
+        if ("assignee".equals(part) && date == null) {
+            if (!"PUT".equals(r.method)) return notAllowed(r);
+            if (!r.body.containsKey("version")) return versionRequired();
+            CleaningTask task = new CleaningTask(id, "", null, null, null, false, false);
+            task.setVersion((int) number(r.body, "version", -1));
+            write(r, () -> {
+                dao.setAssignee(task, text(r.body, "assignedTo"));
+                return null;
+            });
+            return new Response(200, Map.of("version", task.getVersion()));
+        }
+        if ("advance".equals(part) && date == null) {
+            if (!"POST".equals(r.method)) return notAllowed(r);
+            if (!r.body.containsKey("version")) return versionRequired();
+            CleaningTask series = task(r.body, id);
+            LocalDate nextDue = LocalDate.parse(required(r.body, "nextDue"));
+            CleaningTask next = write(r, () -> dao.advance(series, nextDue, text(r.body, "nextAssignedTo")));
+            return new Response(201, taskJson(next));
+        }
+        return error(404, "Unbekannter Pfad: /api/tasks/" + r.id + "/" + r.sub);
+    }
+
+    private Response shopping(Request r) throws Exception {
+        ShoppingItemDao dao = new ShoppingItemDao(r.household);
+        if (r.id.isEmpty()) {
+            switch (r.method) {
+                case "GET":
+                    List<Object> out = new ArrayList<>();
+                    for (ShoppingItem it : dao.listAll()) out.add(itemJson(it));
+                    return new Response(200, out);
+                case "POST":
+                    ShoppingItem item = item(r.body, 0);
+                    write(r, () -> {
+                        dao.insert(item);
+                        return null;
+                    });
+                    return new Response(201, itemJson(item));
+                case "DELETE":
+                    if (!"true".equals(r.query.get("bought"))) throw new IllegalArgumentException("Nur ?bought=true wird unterstützt");
+                    write(r, () -> {
+                        dao.deleteBought();
+                        return null;
+                    });
+                    return new Response(204, null);
+                default:
+                    return notAllowed(r);
+            }
+        }
+        int id = r.intId();
+        switch (r.method) {
+            case "PUT":
+                if (!r.body.containsKey("version")) return versionRequired();
+                ShoppingItem item = item(r.body, id);
+                write(r, () -> {
+                    dao.update(item);
+                    return null;
+                });
+                return new Response(200, itemJson(item));
+            case "DELETE":
+                write(r, () -> {
+                    dao.deleteById(id);
+                    return null;
+                });
+                return new Response(204, null);
+            default:
+                return notAllowed(r);
+        }
+    }
+
+    private Response budget(Request r) throws Exception {
+        BudgetTransactionDao dao = new BudgetTransactionDao(r.household);
+        if (r.id.isEmpty()) {
+            switch (r.method) {
+                case "GET":
+                    List<Object> out = new ArrayList<>();
+                    for (BudgetTransaction t : dao.listAll()) out.add(transactionJson(t));
+                    return new Response(200, out);
+                case "POST":
+                    BudgetTransaction t = transaction(r.body, 0);
+                    write(r, () -> {
+                        dao.insert(t);
+                        return null;
+                    });
+                    return new Response(201, transactionJson(t));
+                default:
+                    return notAllowed(r);
+            }
+        }
+        int id = r.intId();
+        switch (r.method) {
+            case "PUT":
+                if (!r.body.containsKey("version")) return versionRequired();
+                BudgetTransaction t = transaction(r.body, id);
+                write(r, () -> {
+                    dao.update(t);
+                    return null;
+                });
+                return new Response(200, transactionJson(t));
+            case "DELETE":
+                write(r, () -> {
+                    dao.deleteById(id);
+                    return null;
+                });
+                return new Response(204, null);
+            default:
+                return notAllowed(r);
+        }
+    }
+
+    private Response users(Request r) throws Exception {
+        if (r.id.isEmpty()) {
+            switch (r.method) {
+                case "GET":
+                    List<Object> out = new ArrayList<>();
+                    for (DatabaseManager.UserInfo u : DatabaseManager.listUsers(r.household)) {
+                        Map<String, Object> m = new LinkedHashMap<>();
+                        m.put("id", u.id);
+                        m.put("username", u.username);
+                        m.put("name", u.name);
+                        m.put("admin", u.isAdmin);
+                        out.add(m);
+                    }
+                    return new Response(200, out);
+                case "POST":
+                    String username = text(r.body, "username");
+                    if (username == null || username.isBlank()) throw new IllegalArgumentException("username fehlt");
+                    String target = username.trim();
+                    boolean admin = DatabaseManager.isHouseholdAdmin(r.household, r.user);
+                    boolean exists = DatabaseManager.householdOf(target) == r.household;
+                    String password = text(r.body, "password");
+                    if (password != null && password.isEmpty()) throw new IllegalArgumentException("password darf nicht leer sein");
+                    if (exists) {
+                        // bestehender Benutzer: nur er selbst oder ein Admin der WG; ohne password/name bleiben sie unverändert
+                        if (!admin && !target.equalsIgnoreCase(r.user)) {
+                            return error(403, "Nur '" + target + "' selbst oder ein Admin darf diesen Benutzer ändern");
+                        }
+                    } else if (!admin) {
+                        return error(403, "Nur ein Admin darf Benutzer anlegen");
+                    } else if (password == null) {
+                        throw new IllegalArgumentException("password fehlt");
+                    }
+                    String name = text(r.body, "name");
+                    String storedName = name == null && !exists ? target : name;
+                    boolean ok = write(r, () -> DatabaseManager.createOrUpdateUser(r.household, target, password, storedName));
+                    if (ok && password != null && !target.equalsIgnoreCase(r.user)) revoke(target);
+                    return ok ? new Response(201, Map.of("username", target))
+                            : error(409, "Benutzer '" + username + "' konnte nicht gespeichert werden");
+                default:
+                    return notAllowed(r);
+            }
+        }
+        if (!"DELETE".equals(r.method)) return notAllowed(r);
+        if (DatabaseManager.householdOf(r.id) != r.household) return error(404, "Benutzer '" + r.id + "' nicht gefunden");
+        if (!DatabaseManager.isHouseholdAdmin(r.household, r.user)) return error(403, "Nur ein Admin darf Benutzer löschen");
+        boolean ok = write(r, () -> DatabaseManager.deleteUser(r.id));
+        if (ok) revoke(r.id);
+        return ok ? new Response(204, null) : error(409, "Benutzer '" + r.id + "' kann nicht gelöscht werden");
+    }
+
+    // meldet alle Sitzungen eines Benutzers ab (nach Löschen oder neuem Passwort durch einen Admin)
+    private void revoke(String username) {
+        sessions.values().removeIf(s -> s.username.equalsIgnoreCase(username));
+    }
+
+    // Schreibzugriff über den Schreib-Thread; wartet auf den Commit seines Bündels
+    private <T> T write(Request r, SingleWriter.Work<T> work) throws Exception {
+        try {
+            return writer.submit(r.household, work).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    private void ensureInitialized(long household) throws Exception {
+        if (initialized.contains(household)) return;
+        write(new Request("POST", "", "", Map.of(), Map.of(), null, household), () -> {
+            new CleaningTaskDao(household).init();
+            new ShoppingItemDao(household).init();
+            new BudgetTransactionDao(household).init();
+            return null;
+        });
+        initialized.add(household);
+    }
+
+    /* ----------------- JSON <-> Modelle ----------------- */
+
+    static Map<String, Object> taskJson(CleaningTask t) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", t.getId());
+        m.put("title", t.getTitle());
+        m.put("due", t.getDue() == null ? null : t.getDue().toString());
+        m.put("assignedTo", t.getAssignedTo());
+        m.put("recurrence", t.getRecurrence());
+        m.put("completed", t.isCompleted());
+        m.put("urgent", t.isUrgent());
+        m.put("version", t.getVersion());
+        return m;
+    }
+
+    static CleaningTask task(Map<String, Object> m, Integer id) {
+        String title = text(m, "title");
+        if (title == null || title.isBlank()) throw new IllegalArgumentException("title fehlt");
+        String due = text(m, "due");
+        CleaningTask t = new CleaningTask(id, title, due == null || due.isBlank() ? null : LocalDate.parse(due),
+                text(m, "assignedTo"), text(m, "recurrence"), bool(m, "completed"), bool(m, "urgent"));
+        t.setVersion((int) number(m, "version", -1));
+        return t;
+    }
+
+    static Map<String, Object> itemJson(ShoppingItem it) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", it.getId());
+        m.put("name", it.getItemName());
+        m.put("quantity", it.getQuantity());
+        m.put("addedBy", it.getAddedBy());
+        m.put("category", it.getCategory());
+        m.put("purchasedFor", it.getPurchasedFor());
+        m.put("purchased", it.isPurchased());
+        m.put("version", it.getVersion());
+        return m;
+    }
+
+    static ShoppingItem item(Map<String, Object> m, int id) {
+        String name = text(m, "name");
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("name fehlt");
+        String quantity = text(m, "quantity");
+        ShoppingItem it = new ShoppingItem(id, name, quantity == null ? "1" : quantity, text(m, "addedBy"),
+                text(m, "category"), text(m, "purchasedFor"), bool(m, "purchased"));
+        it.setVersion((int) number(m, "version", -1));
+        return it;
+    }
+
+    static Map<String, Object> transactionJson(BudgetTransaction t) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", t.getId());
+        m.put("amount", t.getAmount());
+        m.put("date", t.getDate());
+        m.put("description", t.getDescription());
+        m.put("category", t.getCategory());
+        m.put("version", t.getVersion());
+        return m;
+    }
+
+    static BudgetTransaction transaction(Map<String, Object> m, int id) {
+        String date = text(m, "date");
+        if (date == null || date.isBlank()) throw new IllegalArgumentException("date fehlt");
+        BudgetTransaction t = new BudgetTransaction(number(m, "amount", 0), LocalDate.parse(date).toString());
+        t.setId(id);
+        t.setDescription(text(m, "description"));
+        t.setCategory(text(m, "category"));
+        t.setVersion((int) number(m, "version", -1));
+        return t;
+    }
+
+    static String text(Map<String, Object> m, String key) {
+        Object v = m.get(key);
+        return v == null ? null : v.toString();
+    }
+
+    static boolean bool(Map<String, Object> m, String key) {
+        Object v = m.get(key);
+        return v instanceof Boolean ? (Boolean) v : v != null && Boolean.parseBoolean(v.toString());
+    }
+
+    static double number(Map<String, Object> m, String key, double fallback) {
+        Object v = m.get(key);
+        if (v == null) return fallback;
+        if (v instanceof Number) return ((Number) v).doubleValue();
+        try {
+            return Double.parseDouble(v.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " ist keine Zahl: " + v);
+        }
+    }
+
+    /* ----------------- HTTP ----------------- */
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> out = new LinkedHashMap<>();
+        if (raw == null || raw.isEmpty()) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            out.put(key, eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static String body(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // ohne version würde das DAO blind überschreiben und gleichzeitige Änderungen verlieren
+    private static Response versionRequired() {
+        return error(428, "version fehlt: Updates brauchen die gelesene Version");
+    }
+
+    private static String required(Map<String, ?> m, String key) {
+        Object v = m.get(key);
+        if (v == null || v.toString().isBlank()) throw new IllegalArgumentException(key + " fehlt");
+        return v.toString();
+    }
+
+    // 409 mit den Angaben der VersionConflictException, damit Clients sie wieder aufbauen können
+    private static Response conflict(VersionConflictException e) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("error", e.getMessage());
+        out.put("table", e.getTable());
+        out.put("id", e.getId());
+        out.put("version", e.getExpectedVersion());
+        out.put("deleted", e.isDeleted());
+        return new Response(409, out);
+    }
+
+    private static Response notAllowed(Request r) {
+        return error(405, "Methode " + r.method + " nicht erlaubt");
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, Map.of("error", message == null ? "" : message));
+    }
+
+    private static void send(HttpExchange ex, Response response) throws IOException {
+        try {
+            if (response.status == 204) {
+                ex.sendResponseHeaders(204, -1);
+                return;
+            }
+            byte[] bytes = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            ex.close();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.flatmanager.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimales JSON für die HTTP-API: schreibt {@link Map}s, {@link List}s und Skalare und liest sie wieder
+ * ein. Objekte werden zu {@link LinkedHashMap}s (Reihenfolge bleibt erhalten), ganze Zahlen zu {@link Long},
+ * andere Zahlen zu {@link Double}.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    private static void write(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                writeString(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Iterable) {
+            sb.append('[');
+            boolean first = true;
+            for (Object o : (Iterable<?>) value) {
+                if (!first) sb.append(',');
+                first = false;
+                write(sb, o);
+            }
+            sb.append(']');
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            sb.append(value);
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            sb.append(Double.isNaN(d) || Double.isInfinite(d) ? "null" : Double.toString(d));
+        } else {
+            writeString(sb, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /** Liest ein JSON-Objekt; leerer Text ergibt ein leeres Objekt. */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) throws IOException {
+        if (text == null || text.isBlank()) return new LinkedHashMap<>();
+        Object value = parse(text);
+        if (!(value instanceof Map)) throw new IOException("JSON-Objekt erwartet");
+        return (Map<String, Object>) value;
+    }
+
+    /** Liest ein JSON-Array von Objekten. */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> parseArray(String text) throws IOException {
+        Object value = parse(text);
+        if (!(value instanceof List)) throw new IOException("JSON-Array erwartet");
+        for (Object o : (List<Object>) value) {
+            if (!(o instanceof Map)) throw new IOException("JSON-Array von Objekten erwartet");
+        }
+        return (List<Map<String, Object>>) value;
+    }
+
+    public static Object parse(String text) throws IOException {
+        Parser p = new Parser(text);
+        Object value = p.value();
+        p.skipWhitespace();
+        if (p.pos < text.length()) throw p.error("Ende erwartet");
+        return value;
+    }
+
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        IOException error(String message) {
+            return new IOException("JSON an Position " + pos + ": " + message);
+        }
+
+        void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < s.length() && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) throws IOException {
+            if (!consume(c)) throw error("'" + c + "' erwartet");
+        }
+
+        Object value() throws IOException {
+            skipWhitespace();
+            if (pos >= s.length()) throw error("Wert erwartet");
+            char c = s.charAt(pos);
+            if (c == '{') {
+                pos++;
+                Map<String, Object> map = new LinkedHashMap<>();
+                if (consume('}')) return map;
+                do {
+                    skipWhitespace();
+                    String key = string();
+                    expect(':');
+                    map.put(key, value());
+                } while (consume(','));
+                expect('}');
+                return map;
+            }
+            if (c == '[') {
+                pos++;
+                List<Object> list = new ArrayList<>();
+                if (consume(']')) return list;
+                do {
+                    list.add(value());
+                } while (consume(','));
+                expect(']');
+                return list;
+            }
+            if (c == '"') return string();
+            int start = pos;
+            while (pos < s.length() && ",}] \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+            String token = s.substring(start, pos);
+            switch (token) {
+                case "null": return null;
+                case "true": return Boolean.TRUE;
+                case "false": return Boolean.FALSE;
+                default:
+            }
+            try {
+                if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) return Long.parseLong(token);
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw error("ungültiger Wert `" + token + "`");
+            }
+        }
+
+        String string() throws IOException {
+            if (pos >= s.length() || s.charAt(pos) != '"') throw error("Text erwartet");
+            pos++;
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= s.length()) throw error("Text nicht abgeschlossen");
+                char c = s.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) throw error("Text nicht abgeschlossen");
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > s.length()) throw error("ungültige \\u-Sequenz");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("ungültige \\u-Sequenz");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("ungültige Escape-Sequenz");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.flatmanager.server;
+
+import com.flatmanager.dao.CleaningTaskStore;
+import com.flatmanager.model.CleaningTask;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Putzplan über den {@link ApiServer} ({@code /api/tasks} und Unterpfade). Die WG ist die des angemeldeten
+ * Benutzers; Versionen werden wie beim DAO nach erfolgreichen Updates mitgezogen.
+ */
+final class RemoteCleaningTasks implements CleaningTaskStore {
+
+    private final ApiClient api;
+
+    RemoteCleaningTasks(ApiClient api) {
+        this.api = api;
+    }
+
+    // Tabellen legt der Server bei der ersten Anfrage der WG selbst an
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public List<CleaningTask> listWindow(LocalDate from, LocalDate to, boolean includeUndated) throws SQLException {
+        return tasks("/api/tasks?from=" + from + "&to=" + to + (includeUndated ? "" : "&undated=false"));
+    }
+
+    @Override
+    public List<CleaningTask> listOccurrences(LocalDate from, LocalDate to) throws SQLException {
+        return tasks("/api/tasks?from=" + from + "&to=" + to + "&occurrences=true");
+    }
+
+    @Override
+    public List<CleaningTask> listRecurring() throws SQLException {
+        return tasks("/api/tasks?recurring=true");
+    }
+
+    @Override
+    public Set<LocalDate> listCompletedOccurrences(int taskId) throws SQLException {
+        Map<String, Object> m = ApiClient.object(api.call("GET", "/api/tasks/" + taskId + "/completions", null));
+        Set<LocalDate> out = new HashSet<>();
+        Object dates = m.get("completions");
+        if (dates instanceof List) {
+            for (Object d : (List<?>) dates) out.add(LocalDate.parse(d.toString()));
+        }
+        return out;
+    }
+
+    @Override
+    public void insert(CleaningTask task) throws SQLException {
+        Map<String, Object> m = ApiClient.object(api.call("POST", "/api/tasks", ApiServer.taskJson(task)));
+        task.setId(((Number) m.get("id")).intValue());
+        task.setVersion(((Number) m.get("version")).intValue());
+    }
+
+    @Override
+    public void update(CleaningTask task) throws SQLException {
+        Map<String, Object> m = ApiClient.object(api.call("PUT", "/api/tasks/" + task.getId(), ApiServer.taskJson(task)));
+        task.setVersion(((Number) m.get("version")).intValue());
+    }
+
+    @Override
+    public void setOccurrenceCompleted(int taskId, LocalDate occurrence, boolean completed) throws SQLException {
+        api.call(completed ? "PUT" : "DELETE", "/api/tasks/" + taskId + "/completions/" + occurrence, null);
+    }
+
+    @Override
+    public void assignOccurrence(int taskId, LocalDate occurrence, String assignee) throws SQLException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("assignedTo", assignee);
+        api.call("PUT", "/api/tasks/" + taskId + "/assignments/" + occurrence, body);
+    }
+
+    @Override
+    public void setAssignee(CleaningTask task, String assignee) throws SQLException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("assignedTo", assignee);
+        body.put("version", task.getVersion());
+        Map<String, Object> m = ApiClient.object(api.call("PUT", "/api/tasks/" + task.getId() + "/assignee", body));
+        task.setVersion(((Number) m.get("version")).intValue());
+    }
+
+    @Override
+    public CleaningTask advance(CleaningTask series, LocalDate newStart, String assignee) throws SQLException {
+        Map<String, Object> body = ApiServer.taskJson(series);
+        body.put("nextDue", newStart.toString());
+        body.put("nextAssignedTo", assignee);
+        return ApiClient.toTask(ApiClient.object(api.call("POST", "/api/tasks/" + series.getId() + "/advance", body)));
+    }
+
+    @Override
+    public void deleteSeries(int taskId) throws SQLException {
+        api.call("DELETE", "/api/tasks/" + taskId, null);
+    }
+
+    @Override
+    public void deleteCompleted() throws SQLException {
+        api.call("DELETE", "/api/tasks?completed=true", null);
+    }
+
+    @Override
+    public void saveAssignments(LocalDate from, LocalDate to, List<CleaningTask> occurrences) throws SQLException {
+        List<Object> plan = new ArrayList<>();
+        for (CleaningTask o : occurrences) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", o.getId());
+            m.put("due", o.getDue().toString());
+            m.put("assignedTo", o.getAssignedTo());
+            plan.add(m);
+        }
+        api.call("PUT", "/api/tasks/assignments?from=" + from + "&to=" + to, Map.of("assignments", plan));
+    }
+
+    private List<CleaningTask> tasks(String path) throws SQLException {
+        List<CleaningTask> out = new ArrayList<>();
+        for (Map<String, Object> m : api.list(path)) out.add(ApiClient.toTask(m));
+        return out;
+    }
+}
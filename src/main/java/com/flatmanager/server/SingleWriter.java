@@ -0,0 +1,206 @@
+package com.flatmanager.server;
+
+import com.flatmanager.database.DatabaseManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ein einziger Schreib-Thread für den API-Server. Schreibzugriffe aller Handler landen in einer Warteschlange;
+ * der Thread nimmt jeweils alle wartenden (höchstens {@link #MAX_BATCH}) und führt aufeinanderfolgende
+ * Zugriffe derselben WG in einer Transaktion aus. SQLite sperrt beim Schreiben ohnehin die ganze Datei;
+ * statt dass viele Handler um die Sperre konkurrieren, gibt es so einen Schreiber und einen Commit je Bündel.
+ *
+ * Die DAOs merken davon nichts: ihre Connection ist während des Bündels die an den Thread gebundene
+ * Transaktion ({@link DatabaseManager#bindConnection}). Jeder Zugriff läuft in einem eigenen Savepoint;
+ * schlägt er fehl, wird nur er zurückgenommen, und nur sein Aufrufer erhält den Fehler. {@code commit()} und
+ * {@code setAutoCommit()} der DAOs sind dabei wirkungslos, {@code rollback()} nimmt den eigenen Savepoint zurück.
+ */
+public final class SingleWriter implements AutoCloseable {
+
+    public static final int MAX_BATCH = 64;
+    static final int QUEUE_CAPACITY = 1024;
+    private static final String SAVEPOINT = "api_write";
+
+    /** Ein Schreibzugriff; läuft auf dem Schreib-Thread. */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    private static final class Task<T> {
+        final long household;
+        final Work<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+        Exception error;
+
+        Task(long household, Work<T> work) {
+            this.household = household;
+            this.work = work;
+        }
+
+        void complete() {
+            if (error != null) result.completeExceptionally(error);
+            else result.complete(value);
+        }
+    }
+
+    private final BlockingQueue<Task<?>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean closed;
+
+    public SingleWriter() {
+        thread = new Thread(this::loop, "flatmanager-api-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stellt einen Schreibzugriff für die WG ein. Ist die Warteschlange voll, wartet der Aufrufer.
+     * @return Ergebnis bzw. Fehler des Zugriffs, sobald sein Bündel festgeschrieben ist
+     */
+    public <T> CompletableFuture<T> submit(long household, Work<T> work) {
+        if (closed) throw new RejectedExecutionException("Schreib-Thread ist beendet");
+        Task<T> task = new Task<>(household, work);
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Unterbrochen beim Einreihen", e);
+        }
+        return task.result;
+    }
+
+    /** Anzahl ausgeführter Schreibzugriffe. */
+    public long writes() {
+        return writes.get();
+    }
+
+    /** Anzahl Transaktionen; kleiner als {@link #writes()}, sobald Zugriffe gebündelt wurden. */
+    public long batches() {
+        return batches.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Task<?>> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (Task<?> t : rest) t.result.completeExceptionally(new RejectedExecutionException("Schreib-Thread ist beendet"));
+    }
+
+    private void loop() {
+        List<Task<?>> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                Task<?> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                if (closed) break;
+                continue;
+            }
+            // aufeinanderfolgende Zugriffe derselben WG teilen sich eine Transaktion
+            int start = 0;
+            for (int i = 1; i <= batch.size(); i++) {
+                if (i == batch.size() || batch.get(i).household != batch.get(start).household) {
+                    runBatch(batch.subList(start, i));
+                    start = i;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void runBatch(List<Task<?>> tasks) {
+        long household = tasks.get(0).household;
+        try (Connection conn = DatabaseManager.getConnection(household)) {
+            // IMMEDIATE: die Schreibsperre gleich zu Beginn holen (mit busy_timeout), statt nach ersten Lesezugriffen
+            // beim Hochstufen sofort SQLITE_BUSY zu bekommen, wenn gerade eine andere Connection schreibt
+            execute(conn, "BEGIN IMMEDIATE");
+            DatabaseManager.bindConnection(transaction(conn), household);
+            try {
+                for (Task<?> t : tasks) run(conn, t);
+                execute(conn, "COMMIT");
+            } catch (SQLException e) {
+                try {
+                    execute(conn, "ROLLBACK");
+                } catch (SQLException ignored) {
+                }
+                for (Task<?> t : tasks) if (t.error == null) t.error = e;
+            } finally {
+                DatabaseManager.unbindConnection();
+            }
+        } catch (SQLException e) {
+            for (Task<?> t : tasks) if (t.error == null) t.error = e;
+        }
+        batches.incrementAndGet();
+        writes.addAndGet(tasks.size());
+        for (Task<?> t : tasks) t.complete();
+    }
+
+    private static <T> void run(Connection conn, Task<T> task) throws SQLException {
+        execute(conn, "SAVEPOINT " + SAVEPOINT);
+        try {
+            task.value = task.work.run();
+        } catch (Exception e) {
+            task.error = e;
+            execute(conn, "ROLLBACK TO " + SAVEPOINT);
+        }
+        execute(conn, "RELEASE " + SAVEPOINT);
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    // Sicht der DAOs auf die Bündel-Transaktion: Commit und Autocommit steuert der Schreib-Thread,
+    // ein Rollback betrifft nur den laufenden Zugriff
+    private static Connection transaction(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "commit":
+                case "setAutoCommit":
+                case "close":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        execute(conn, "ROLLBACK TO " + SAVEPOINT);
+                        return null;
+                    }
+                    break;
+                default:
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
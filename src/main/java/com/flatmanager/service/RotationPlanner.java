@@ -0,0 +1,184 @@
+package com.flatmanager.service;
+
+import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.dao.CleaningTaskStore;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.RecurrenceRule;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Plant die Zuständigen für kommende Termine wiederkehrender Putzaufgaben über einen Zeitraum.
+ *
+ * Die Termine werden chronologisch verteilt; jeder Termin geht an die anwesende Person mit der bisher
+ * geringsten gewichteten Last (Priority-Queue nach Last, bei Gleichstand an die Person, die am längsten
+ * nichts bekommen hat). Bereits fest zugewiesene einmalige Aufgaben im Zeitraum zählen als Vorlast.
+ * Der fertige Plan wird in einer Transaktion gespeichert ({@link CleaningTaskDao#saveAssignments}).
+ */
+public final class RotationPlanner {
+
+    /** Standardaufwand einer Aufgabe, wenn für ihren Titel kein Gewicht hinterlegt ist. */
+    public static final double DEFAULT_EFFORT = 1.0;
+
+    /** Abwesenheit eines Benutzers (beide Grenzen inklusive). */
+    public static final class Absence {
+        public final String username;
+        public final LocalDate from;
+        public final LocalDate to;
+
+        public Absence(String username, LocalDate from, LocalDate to) {
+            if (username == null || from == null || to == null) throw new IllegalArgumentException("Abwesenheit unvollständig");
+            this.username = username;
+            this.from = from;
+            this.to = to;
+        }
+
+        public boolean covers(String user, LocalDate date) {
+            return username.equalsIgnoreCase(user) && !date.isBefore(from) && !date.isAfter(to);
+        }
+    }
+
+    /** Ergebnis einer Planung. */
+    public static final class Plan {
+        public final LocalDate from;
+        public final LocalDate to;
+        /** Geplante Termine (ID der Serie, Termindatum als due, Zuständiger oder null, wenn alle abwesend sind). */
+        public final List<CleaningTask> assignments;
+        /** Gewichtete Last je Benutzer im Zeitraum, einschließlich Vorlast. */
+        public final Map<String, Double> loadByUser;
+
+        Plan(LocalDate from, LocalDate to, List<CleaningTask> assignments, Map<String, Double> loadByUser) {
+            this.from = from;
+            this.to = to;
+            this.assignments = Collections.unmodifiableList(assignments);
+            this.loadByUser = Collections.unmodifiableMap(loadByUser);
+        }
+    }
+
+    private static final class Slot {
+        final String user;
+        final int order;
+        double load;
+        long lastTurn = -1;
+
+        Slot(String user, int order) {
+            this.user = user;
+            this.order = order;
+        }
+    }
+
+    private static final Comparator<Slot> BY_LOAD = Comparator
+            .comparingDouble((Slot s) -> s.load)
+            .thenComparingLong(s -> s.lastTurn)
+            .thenComparingInt(s -> s.order);
+
+    private final CleaningTaskStore dao;
+    private final Map<String, Double> effortByTitle = new HashMap<>();
+
+    public RotationPlanner() {
+        this(new CleaningTaskDao());
+    }
+
+    public RotationPlanner(CleaningTaskStore dao) {
+        this.dao = dao;
+    }
+
+    /** Hinterlegt den Aufwand für Aufgaben mit diesem Titel (ohne Groß-/Kleinschreibung), z.B. Bad = 2, Müll = 0.5. */
+    public RotationPlanner withEffort(String title, double effort) {
+        if (title != null && effort > 0) effortByTitle.put(normalize(title), effort);
+        return this;
+    }
+
+    public double effortOf(CleaningTask task) {
+        return effortByTitle.getOrDefault(normalize(task.getTitle()), DEFAULT_EFFORT);
+    }
+
+    /**
+     * Plant alle Termine im Zeitraum {@code [from, to]} und speichert den Plan in einer Transaktion.
+     */
+    public Plan planAndSave(LocalDate from, LocalDate to, List<String> users, List<Absence> absences) throws SQLException {
+        Plan plan = plan(dao.listWindow(from, to, false), users, from, to, absences);
+        dao.saveAssignments(from, to, plan.assignments);
+        return plan;
+    }
+
+    /**
+     * Reine Planung ohne Datenbankzugriff. Wiederkehrende Aufgaben werden im Zeitraum expandiert und verteilt,
+     * einmalige Aufgaben mit Zuständigem zählen als Vorlast.
+     */
+    public Plan plan(List<CleaningTask> tasks, List<String> users, LocalDate from, LocalDate to, List<Absence> absences) {
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        if (users != null) {
+            for (String u : users) {
+                if (u == null || u.trim().isEmpty()) continue;
+                slots.putIfAbsent(normalize(u), new Slot(u, slots.size()));
+            }
+        }
+
+        List<CleaningTask> occurrences = new ArrayList<>();
+        for (CleaningTask t : tasks) {
+            if (t.isRecurring()) {
+                RecurrenceRule rule = t.getRecurrenceRule();
+                for (LocalDate d : rule.occurrences(t.getDue(), from, to)) {
+                    occurrences.add(new CleaningTask(t.getId(), t.getTitle(), d, null, t.getRecurrence(), false, t.isUrgent()));
+                }
+            } else if (t.hasAssignee() && t.getDue() != null && !t.getDue().isBefore(from) && !t.getDue().isAfter(to)) {
+                Slot s = slots.get(normalize(t.getAssignedTo()));
+                if (s != null) s.load += effortOf(t);
+            }
+        }
+        occurrences.sort(Comparator.comparing(CleaningTask::getDue).thenComparing(CleaningTask::getId));
+
+        PriorityQueue<Slot> queue = new PriorityQueue<>(Math.max(1, slots.size()), BY_LOAD);
+        queue.addAll(slots.values());
+        List<Absence> away = absences != null ? absences : List.of();
+        List<Slot> skipped = new ArrayList<>();
+        long turn = 0;
+
+        for (CleaningTask o : occurrences) {
+            Slot chosen = null;
+            while (!queue.isEmpty()) {
+                Slot candidate = queue.poll();
+                if (isAway(away, candidate.user, o.getDue())) {
+                    skipped.add(candidate);
+                } else {
+                    chosen = candidate;
+                    break;
+                }
+            }
+            if (chosen != null) {
+                chosen.load += effortOf(o);
+                chosen.lastTurn = turn++;
+                o.setAssignedTo(chosen.user);
+                queue.add(chosen);
+            }
+            queue.addAll(skipped);
+            skipped.clear();
+        }
+
+        Map<String, Double> load = new LinkedHashMap<>();
+        for (Slot s : slots.values()) load.put(s.user, s.load);
+        return new Plan(from, to, occurrences, load);
+    }
+
+    private static boolean isAway(List<Absence> absences, String user, LocalDate date) {
+        for (Absence a : absences) {
+            if (a.covers(user, date)) return true;
+        }
+        return false;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,230 @@
+package com.flatmanager.service;
+
+import javafx.application.Platform;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Anwendungsweiter Scheduler für periodische Arbeiten (Dashboard-Refresh, täglicher Putzplan-Refresh, ...).
+ *
+ * Alle Jobs laufen über einen einzigen Daemon-Thread, der im Sekundentakt fällige Jobs startet.
+ * Jobs sind benannt: Wer einen Job mit vorhandenem Namen anmeldet, ersetzt ihn, sodass wiederholte
+ * Navigation keine zusätzlichen Threads oder Timer erzeugt. Verpasste Läufe (z.B. nach Standby oder
+ * während einer Pause) werden zu einem einzigen Lauf zusammengefasst. Ist das Fenster minimiert oder
+ * gab es länger keine Eingabe, pausieren alle Jobs.
+ *
+ * Der Lebenszyklus hängt an {@code App.start}/{@code App.stop}; ohne {@link #start()} werden Jobs nur
+ * vorgemerkt und laufen nicht (z.B. in Tests).
+ */
+public final class SchedulerService {
+
+    public static final Duration TICK = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    /** Angemeldeter Job; dient zugleich als Handle zum Abmelden. */
+    public static final class Job {
+        private final String name;
+        private final Duration period;
+        private final boolean fxThread;
+        private final Runnable task;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile Instant nextRun;
+        private volatile Instant lastRun;
+        private volatile long runs;
+        private volatile long coalesced;
+        private volatile boolean cancelled;
+
+        private Job(String name, Duration period, boolean fxThread, Runnable task, Instant firstRun) {
+            this.name = name;
+            this.period = period;
+            this.fxThread = fxThread;
+            this.task = task;
+            this.nextRun = firstRun;
+        }
+
+        public String getName() { return name; }
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    /** Momentaufnahme eines Jobs zur Beobachtung. */
+    public static final class JobInfo {
+        public final String name;
+        public final Duration period;
+        public final boolean fxThread;
+        public final Instant lastRun;
+        public final Instant nextRun;
+        public final long runs;
+        /** Anzahl verpasster Läufe, die mit einem späteren Lauf zusammengefasst wurden. */
+        public final long coalesced;
+
+        private JobInfo(Job j) {
+            this.name = j.name;
+            this.period = j.period;
+            this.fxThread = j.fxThread;
+            this.lastRun = j.lastRun;
+            this.nextRun = j.nextRun;
+            this.runs = j.runs;
+            this.coalesced = j.coalesced;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (alle " + period + ", Läufe=" + runs + ", zusammengefasst=" + coalesced + ")";
+        }
+    }
+
+    private static final SchedulerService INSTANCE = new SchedulerService(Clock.systemUTC());
+
+    private final Clock clock;
+    private final Map<String, Job> jobs = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService executor;
+    private volatile boolean minimized;
+    private volatile Instant lastActivity;
+    private volatile Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    SchedulerService(Clock clock) {
+        this.clock = clock;
+        this.lastActivity = clock.instant();
+    }
+
+    public static SchedulerService get() {
+        return INSTANCE;
+    }
+
+    /** Startet den Scheduler-Thread (idempotent). */
+    public synchronized void start() {
+        if (executor != null) return;
+        lastActivity = clock.instant();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flatmanager-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::runDueJobs, TICK.toMillis(), TICK.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Stoppt den Scheduler-Thread und verwirft alle Jobs. */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        for (Job j : jobs.values()) j.cancelled = true;
+        jobs.clear();
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /** Meldet einen Job an, der im Scheduler-Thread läuft. Ein vorhandener Job gleichen Namens wird ersetzt. */
+    public Job schedule(String name, Duration initialDelay, Duration period, Runnable task) {
+        return register(name, initialDelay, period, false, task);
+    }
+
+    /** Wie {@link #schedule}, der Job läuft aber auf dem FX-Thread (für UI-Aktualisierungen). */
+    public Job scheduleOnFx(String name, Duration initialDelay, Duration period, Runnable task) {
+        return register(name, initialDelay, period, true, task);
+    }
+
+    private Job register(String name, Duration initialDelay, Duration period, boolean fxThread, Runnable task) {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("Job braucht einen Namen");
+        if (period == null || period.isZero() || period.isNegative()) throw new IllegalArgumentException("Ungültige Periode: " + period);
+        Duration delay = initialDelay == null || initialDelay.isNegative() ? Duration.ZERO : initialDelay;
+        Job job = new Job(name, period, fxThread, task, clock.instant().plus(delay));
+        Job previous = jobs.put(name, job);
+        if (previous != null) previous.cancelled = true;
+        return job;
+    }
+
+    /** Meldet den Job ab, sofern er nicht inzwischen durch einen gleichnamigen ersetzt wurde. */
+    public boolean cancel(Job job) {
+        if (job == null) return false;
+        job.cancelled = true;
+        return jobs.remove(job.name, job);
+    }
+
+    public boolean cancel(String name) {
+        Job j = jobs.remove(name);
+        if (j != null) j.cancelled = true;
+        return j != null;
+    }
+
+    public void setMinimized(boolean minimized) {
+        this.minimized = minimized;
+        if (!minimized) markActivity();
+    }
+
+    /** Benutzeraktivität (Eingabe) melden; beendet eine Leerlauf-Pause. */
+    public void markActivity() {
+        lastActivity = clock.instant();
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        if (idleTimeout != null && !idleTimeout.isNegative()) this.idleTimeout = idleTimeout;
+    }
+
+    /** Pausiert, solange das Fenster minimiert ist oder länger als das Leerlauf-Limit keine Eingabe kam. */
+    public boolean isPaused() {
+        return minimized || Duration.between(lastActivity, clock.instant()).compareTo(idleTimeout) > 0;
+    }
+
+    /** Alle angemeldeten Jobs, nach Namen sortiert. */
+    public List<JobInfo> jobs() {
+        List<JobInfo> out = new ArrayList<>();
+        for (Job j : jobs.values()) out.add(new JobInfo(j));
+        return out;
+    }
+
+    /**
+     * Startet alle fälligen Jobs einmal; wird vom Scheduler-Thread im {@link #TICK}-Takt aufgerufen.
+     * @return Anzahl gestarteter Jobs
+     */
+    int runDueJobs() {
+        if (isPaused()) return 0;
+        Instant now = clock.instant();
+        int started = 0;
+        for (Job j : jobs.values()) {
+            if (j.cancelled || now.isBefore(j.nextRun)) continue;
+            // noch laufender FX-Job: nicht stapeln, der nächste Tick versucht es erneut
+            if (!j.running.compareAndSet(false, true)) continue;
+
+            long late = Duration.between(j.nextRun, now).toMillis() / Math.max(1, j.period.toMillis());
+            j.coalesced += late;
+            j.nextRun = now.plus(j.period);
+            j.lastRun = now;
+            j.runs++;
+            started++;
+            if (j.fxThread) {
+                try {
+                    Platform.runLater(() -> execute(j));
+                } catch (IllegalStateException toolkitNotRunning) {
+                    j.running.set(false);
+                }
+            } else {
+                execute(j);
+            }
+        }
+        return started;
+    }
+
+    private static void execute(Job j) {
+        try {
+            if (!j.cancelled) j.task.run();
+        } catch (Throwable t) {
+            System.err.println("[SchedulerService] Job '" + j.name + "' fehlgeschlagen: " + t.getMessage());
+        } finally {
+            j.running.set(false);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.SearchIndex;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Globale Suche über Putzaufgaben, Einkaufsartikel, Buchungen und Benutzer.
+ *
+ * Grundlage ist der FTS5-Index aus {@link SearchIndex}: jedes Wort der Eingabe wird als Präfix gesucht
+ * ("mil" findet "Milch"), alle Wörter müssen vorkommen. Treffer sind nach Relevanz (bm25) sortiert, bei
+ * Gleichstand die neuesten Einträge zuerst. Gesucht wird nur in der aktiven WG
+ * ({@link DatabaseManager#currentHousehold()}). Die Abfrage nutzt nur den Index und liest keine Basistabelle;
+ * gerankt werden je Quelle höchstens die {@link #CANDIDATES} neuesten Treffer, sodass auch sehr häufige Wörter
+ * in großen Tabellen im Millisekundenbereich bleiben.
+ */
+public final class SearchService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    /** Höchstens so viele der neuesten Treffer je Quelle werden nach Relevanz sortiert (begrenzt die Kosten sehr häufiger Wörter). */
+    static final int CANDIDATES = 1000;
+
+    /** Ein Suchtreffer: Quelle, ID in der Quelltabelle, indizierter Text und bm25-Wert (kleiner = besser). */
+    public static final class Hit {
+        public final SearchIndex.Kind kind;
+        public final long id;
+        public final String text;
+        public final double score;
+
+        Hit(SearchIndex.Kind kind, long id, String text, double score) {
+            this.kind = kind;
+            this.id = id;
+            this.text = text;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return "Hit{" + kind + " #" + id + ", '" + text + "', score=" + score + '}';
+        }
+    }
+
+    private static final SearchService INSTANCE = new SearchService();
+
+    // ein Hintergrund-Thread genügt: die UI wartet ohnehin nur auf die jeweils letzte Eingabe
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flatmanager-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SearchService() {
+    }
+
+    public static SearchService get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sucht in allen bzw. den angegebenen Quellen.
+     * @param limit maximale Trefferzahl
+     * @param kinds Quellen, auf die eingeschränkt wird; leer = alle
+     * @return Treffer nach Relevanz; leer, wenn die Eingabe kein Wort enthält
+     */
+    public List<Hit> search(String query, int limit, SearchIndex.Kind... kinds) throws SQLException {
+        List<Hit> out = new ArrayList<>();
+        String match = SearchIndex.matchQuery(query);
+        if (match == null || limit <= 0) return out;
+
+        // FTS5 liefert Treffer in rowid-Reihenfolge ohne Sortieraufwand; bm25 wird nur über die Kandidatenfenster
+        // sortiert. Ein Fenster je Quelle (rowid % KINDS), damit viele neue Buchungen ältere Aufgaben,
+        // Artikel und Benutzer nicht aus dem Fenster verdrängen.
+        SearchIndex.Kind[] sources = kinds.length > 0 ? kinds : SearchIndex.Kind.values();
+        StringBuilder sql = new StringBuilder("SELECT rowid, text, score FROM (");
+        for (int i = 0; i < sources.length; i++) {
+            if (i > 0) sql.append(" UNION ALL ");
+            sql.append("SELECT * FROM (SELECT rowid, text, ").append(SearchIndex.RANK).append(" AS score FROM ")
+                    .append(SearchIndex.TABLE).append(" WHERE ").append(SearchIndex.TABLE).append(" MATCH ?1 AND rowid % ")
+                    .append(SearchIndex.KINDS).append(" = ").append(sources[i].ordinal())
+                    .append(" ORDER BY rowid DESC LIMIT ").append(Math.max(limit, CANDIDATES)).append(')');
+        }
+        sql.append(") ORDER BY score, rowid DESC LIMIT ?2");
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            ps.setString(1, SearchIndex.householdQuery(match, DatabaseManager.currentHousehold()));
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long rowId = rs.getLong(1);
+                    out.add(new Hit(SearchIndex.kindOf(rowId), SearchIndex.idOf(rowId), rs.getString(2), rs.getDouble(3)));
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Wie {@link #search}, aber auf dem Such-Thread; Fehler werden protokolliert und liefern eine leere Liste. */
+    public CompletableFuture<List<Hit>> searchAsync(String query, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return search(query, limit);
+            } catch (SQLException e) {
+                System.err.println("[SearchService] Suche fehlgeschlagen: " + e.getMessage());
+                return List.<Hit>of();
+            }
+        }, worker).exceptionally(t -> {
+            System.err.println("[SearchService] Suche fehlgeschlagen: "
+                    + (t instanceof CompletionException && t.getCause() != null ? t.getCause() : t));
+            return List.of();
+        });
+    }
+}
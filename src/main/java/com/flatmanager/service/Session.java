@@ -0,0 +1,146 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.server.ApiClient;
+
+import java.util.List;
+
+/**
+ * Sitzung des angemeldeten Benutzers: Identität und Rollen werden beim Login einmal über das
+ * {@link UserDirectory} aufgelöst und von Dashboard und allen Views geteilt. Berechtigungsprüfungen
+ * beim Rendern sind damit reine Feldzugriffe. Ändern sich Benutzer oder Rollen
+ * ({@link DatabaseManager#fireUsersChanged()}), wird die aktive Sitzung neu aufgelöst.
+ *
+ * Die Sitzung legt außerdem die aktive WG fest ({@link DatabaseManager#setCurrentHousehold(long)}): alle DAOs,
+ * Caches und Views arbeiten danach nur auf den Daten der WG des angemeldeten Benutzers.
+ * Im Thin-Client-Betrieb hält sie zusätzlich den angemeldeten {@link ApiClient} ({@link #getApi()}).
+ */
+public final class Session {
+
+    private static volatile Session current;
+
+    static {
+        UserDirectory.get().addChangeListener(Session::usersChanged);
+    }
+
+    private final String loginName;
+    private final long householdId;
+    private final ApiClient api;
+    private volatile String username;
+    private volatile String displayName;
+    private volatile boolean admin;
+
+    private Session(String loginName, long householdId, ApiClient api) {
+        this.loginName = loginName;
+        this.householdId = householdId;
+        this.api = api;
+        resolve();
+    }
+
+    /**
+     * Startet eine neue Sitzung für den angemeldeten Benutzer und ersetzt eine eventuell vorhandene.
+     * Die WG des Benutzers wird zur aktiven WG; unbekannte Benutzer lassen die aktive WG unverändert.
+     */
+    public static Session start(String loginName) {
+        return start(loginName, null);
+    }
+
+    /** Wie {@link #start(String)}, mit dem beim API-Server angemeldeten Client (Thin Client) oder {@code null}. */
+    public static Session start(String loginName, ApiClient api) {
+        long household = loginName == null ? -1 : DatabaseManager.householdOf(loginName.trim());
+        if (household > 0) DatabaseManager.setCurrentHousehold(household);
+        Session s = new Session(loginName, DatabaseManager.currentHousehold(), api);
+        current = s;
+        return s;
+    }
+
+    /** Aktive Sitzung oder {@code null}, wenn niemand angemeldet ist. */
+    public static Session current() {
+        return current;
+    }
+
+    /** Beendet die aktive Sitzung (Logout) und kehrt zur Standard-WG zurück. */
+    public static void end() {
+        current = null;
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+    }
+
+    /**
+     * Liefert die aktive Sitzung, falls sie zu {@code user} gehört, sonst eine einmalig aufgelöste,
+     * nicht registrierte Sitzung (z. B. für Views, die ohne Login erzeugt werden).
+     */
+    public static Session forUser(String user) {
+        Session s = current;
+        if (s != null && s.matches(user)) return s;
+        return new Session(user, DatabaseManager.currentHousehold(), null);
+    }
+
+    public String getLoginName() {
+        return loginName;
+    }
+
+    /** WG, in der die Sitzung arbeitet. */
+    public long getHouseholdId() {
+        return householdId;
+    }
+
+    /** Gespeicherter Username; {@code null}, wenn der Benutzer nicht in der users-Tabelle steht. */
+    public String getUsername() {
+        return username;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /** Client des API-Servers, wenn die Sitzung als Thin Client läuft, sonst {@code null}. */
+    public ApiClient getApi() {
+        return api;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    private boolean matches(String user) {
+        if (user == null || loginName == null) return user == null && loginName == null;
+        return loginName.trim().equals(user.trim());
+    }
+
+    // Rollen nur bei exakt gleichem Username (wie die frühere SQL-Abfrage), damit ein ähnlicher
+    // Anzeigename keine Admin-Rechte erhält; die Identität darf dagegen unscharf aufgelöst werden
+    private void resolve() {
+        if (loginName == null || loginName.trim().isEmpty()) {
+            username = null;
+            displayName = null;
+            admin = false;
+            return;
+        }
+        String trimmed = loginName.trim();
+        UserDirectory dir = UserDirectory.get();
+        List<UserDirectory.Entry> entries = dir.snapshot();
+
+        UserDirectory.Entry exact = null;
+        for (UserDirectory.Entry e : entries) {
+            if (e.username != null && e.username.trim().equals(trimmed)) {
+                exact = e;
+                break;
+            }
+        }
+        UserDirectory.Entry entry = exact != null ? exact : dir.find(trimmed);
+
+        username = entry != null ? entry.username : null;
+        displayName = entry != null ? entry.displayName() : trimmed;
+        admin = "admin".equalsIgnoreCase(trimmed) || (exact != null && exact.admin);
+    }
+
+    private static void usersChanged() {
+        Session s = current;
+        if (s != null) s.resolve();
+    }
+
+    @Override
+    public String toString() {
+        return "Session{" + loginName + ", username=" + username + ", admin=" + admin + ", wg=" + householdId + '}';
+    }
+}
@@ -0,0 +1,367 @@
+package com.flatmanager.service;
+
+import com.flatmanager.dao.ShoppingHistoryDao;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.TableChanges;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Autovervollständigung für Einkaufsartikel aus der Kaufhistorie ({@link ShoppingHistoryDao}).
+ *
+ * Die Artikelnamen liegen normalisiert (klein, ohne Akzente) in einem Trie im Speicher. Jeder Knoten
+ * hält die {@link #MAX_SUGGESTIONS} besten Artikel seines Teilbaums, eine Vervollständigung ist also nur
+ * ein Abstieg über die Zeichen der Eingabe, unabhängig von der Zahl der Artikel.
+ *
+ * Gewichtet wird nach Häufigkeit und Aktualität: {@code uses * 2^(-alter / HALF_LIFE_DAYS)}. Da der
+ * Zerfall für alle Artikel gleich ist, genügt als Rang {@code log2(uses) + zuletzt / HALF_LIFE_DAYS}; der
+ * Rang hängt nicht von "jetzt" ab und die vorberechneten Bestenlisten veralten nicht.
+ *
+ * Neue Käufe kommen über die Änderungs-Hooks ({@link DatabaseManager#addChangeListener}) an und werden
+ * inkrementell eingearbeitet: nur die seit dem letzten Stand benutzten Historienzeilen werden gelesen.
+ * Geladen ist immer die Historie der aktiven WG; nach einem Wechsel wird im Hintergrund neu geladen.
+ *
+ * Leser und Schreiber teilen keine Sperre: {@link #complete} liest den zuletzt veröffentlichten Trie über
+ * eine volatile Referenz. Änderungen kopieren die Knoten auf den betroffenen Pfaden und veröffentlichen
+ * danach die neue Wurzel; ein veröffentlichter Knoten wird nie mehr verändert.
+ */
+public final class ShoppingAutocomplete {
+
+    public static final int MAX_SUGGESTIONS = 8;
+    public static final double HALF_LIFE_DAYS = 30;
+
+    /** Vorschlag: Artikelname in der zuletzt benutzten Schreibweise plus übliche Kategorie und Menge. */
+    public static final class Suggestion {
+        public final String name;
+        /** Häufigste Kategorie, null wenn unbekannt. */
+        public final String category;
+        /** Häufigste Menge, null wenn unbekannt. */
+        public final String quantity;
+        public final long uses;
+
+        Suggestion(String name, String category, String quantity, long uses) {
+            this.name = name;
+            this.category = category;
+            this.quantity = quantity;
+            this.uses = uses;
+        }
+
+        @Override
+        public String toString() {
+            return "Suggestion{" + name + ", " + category + ", " + quantity + ", uses=" + uses + '}';
+        }
+    }
+
+    private static final double SECONDS_PER_HALF_LIFE = HALF_LIFE_DAYS * 86_400;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    // ein Artikel (normalisierter Name) mit seinen Varianten aus Kategorie und Menge
+    private static final class Entry {
+        final String key;
+        final Map<String, long[]> variants = new HashMap<>(4); // "kategorie\0menge" -> {uses, lastUsed}
+        String name;
+        long nameUsed = Long.MIN_VALUE;
+        double rank = Double.NEGATIVE_INFINITY;
+        volatile Suggestion suggestion; // von complete() ohne Sperre gelesen
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        void recompute() {
+            long uses = 0;
+            long lastUsed = Long.MIN_VALUE;
+            String usual = null;
+            long[] best = null;
+            for (Map.Entry<String, long[]> v : variants.entrySet()) {
+                long[] u = v.getValue();
+                uses += u[0];
+                lastUsed = Math.max(lastUsed, u[1]);
+                if (best == null || u[0] > best[0] || (u[0] == best[0] && u[1] > best[1])) {
+                    best = u;
+                    usual = v.getKey();
+                }
+            }
+            rank = Math.log(Math.max(uses, 1)) / Math.log(2) + lastUsed / SECONDS_PER_HALF_LIFE;
+            int sep = usual.indexOf('\u0000');
+            String category = usual.substring(0, sep);
+            String quantity = usual.substring(sep + 1);
+            suggestion = new Suggestion(name, category.isEmpty() ? null : category, quantity.isEmpty() ? null : quantity, uses);
+        }
+
+        boolean betterThan(Entry o) {
+            return rank > o.rank || (rank == o.rank && key.compareTo(o.key) < 0);
+        }
+    }
+
+    private static final class Node {
+        char[] chars = NO_CHARS;   // sortiert, parallel zu children
+        Node[] children = NO_NODES;
+        Entry[] top = NO_ENTRIES;  // absteigend nach Rang, höchstens MAX_SUGGESTIONS
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(chars, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        // flache Kopie mit eigenen Arrays: Änderungen daran sind für Leser des alten Tries unsichtbar
+        Node copy() {
+            Node n = new Node();
+            n.chars = chars;
+            n.children = children.clone();
+            n.top = top.clone();
+            return n;
+        }
+
+        // Kind für eine Änderung: neu angelegt oder als Kopie eingehängt, sofern nicht schon in diesem Durchgang kopiert
+        Node childForUpdate(char c, Set<Node> fresh) {
+            int i = Arrays.binarySearch(chars, c);
+            if (i >= 0) {
+                Node child = children[i];
+                if (fresh.contains(child)) return child;
+                Node copy = child.copy();
+                children[i] = copy;
+                fresh.add(copy);
+                return copy;
+            }
+            Node n = childOrCreate(c);
+            fresh.add(n);
+            return n;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(chars, c);
+            if (i >= 0) return children[i];
+            int at = -i - 1;
+            char[] nc = new char[chars.length + 1];
+            Node[] nn = new Node[children.length + 1];
+            System.arraycopy(chars, 0, nc, 0, at);
+            System.arraycopy(children, 0, nn, 0, at);
+            System.arraycopy(chars, at, nc, at + 1, chars.length - at);
+            System.arraycopy(children, at, nn, at + 1, children.length - at);
+            Node n = new Node();
+            nc[at] = c;
+            nn[at] = n;
+            chars = nc;
+            children = nn;
+            return n;
+        }
+
+        // der Rang von e ist gestiegen (oder e ist neu): e in die Bestenliste einsortieren
+        void offer(Entry e) {
+            Entry[] t = top;
+            int len = t.length;
+            int old = -1;
+            for (int i = 0; i < len; i++) {
+                if (t[i] == e) {
+                    old = i;
+                    break;
+                }
+            }
+            int pos = 0;
+            while (pos < len && t[pos] != e && t[pos].betterThan(e)) pos++;
+            if (old >= 0) {
+                // nur nach vorne verschieben
+                System.arraycopy(t, pos, t, pos + 1, old - pos);
+                t[pos] = e;
+                return;
+            }
+            if (pos >= MAX_SUGGESTIONS) return;
+            Entry[] n = new Entry[Math.min(len + 1, MAX_SUGGESTIONS)];
+            System.arraycopy(t, 0, n, 0, pos);
+            n[pos] = e;
+            System.arraycopy(t, pos, n, pos + 1, n.length - pos - 1);
+            top = n;
+        }
+    }
+
+    // veröffentlichter Stand: wird nach dem Aufbau nicht mehr verändert; Änderungen erzeugen eine neue Wurzel
+    private static final class Index {
+        final Node root;
+        final int size;
+        final long poolGeneration;
+        final long household;
+
+        Index(Node root, int size, long poolGeneration, long household) {
+            this.root = root;
+            this.size = size;
+            this.poolGeneration = poolGeneration;
+            this.household = household;
+        }
+
+        boolean isCurrent() {
+            return poolGeneration == DatabaseManager.getPoolGeneration() && household == DatabaseManager.currentHousehold();
+        }
+    }
+
+    private static final ShoppingAutocomplete INSTANCE = new ShoppingAutocomplete();
+
+    // Laden läuft hier, nie auf dem FX-Thread; Änderungen kommen auf dem Thread der Änderungs-Hooks
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flatmanager-autocomplete");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean loadPending = new AtomicBoolean();
+    private volatile Index index;
+
+    // nur unter updateLock: Arbeitsstand des Schreibers
+    private final Object updateLock = new Object();
+    private ShoppingHistoryDao dao;
+    private Map<String, Entry> entries;
+    private long watermark;
+
+    private ShoppingAutocomplete() {
+        DatabaseManager.addChangeListener(this::tablesChanged);
+    }
+
+    public static ShoppingAutocomplete get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Die besten Vervollständigungen für die Eingabe (Präfix des Artikelnamens, Groß-/Kleinschreibung
+     * und Akzente egal). Blockiert nie: liest nur den zuletzt veröffentlichten Trie. Ist noch keiner für die
+     * aktive WG geladen, wird das Laden im Hintergrund angestoßen und vorerst nichts vorgeschlagen.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) return List.of();
+        Index current = index;
+        if (current == null || !current.isCurrent()) {
+            reloadAsync();
+            return List.of();
+        }
+        Node n = current.root;
+        for (int i = 0; i < key.length() && n != null; i++) n = n.child(key.charAt(i));
+        if (n == null) return List.of();
+        Entry[] t = n.top;
+        int count = Math.min(limit, t.length);
+        Suggestion[] out = new Suggestion[count];
+        for (int i = 0; i < count; i++) out[i] = t[i].suggestion;
+        return Collections.unmodifiableList(Arrays.asList(out));
+    }
+
+    /** Lädt die gesamte Historie im aufrufenden Thread neu (z.B. nach einem Wechsel der Datenbank). */
+    public void reload() {
+        synchronized (updateLock) {
+            long generation = DatabaseManager.getPoolGeneration();
+            long household = DatabaseManager.currentHousehold();
+            entries = new HashMap<>();
+            watermark = 0;
+            dao = new ShoppingHistoryDao(household);
+            Node root = new Node();
+            try {
+                dao.init(); // nur eine Abfrage, solange Tabelle und Trigger aktuell sind
+                apply(root, Collections.newSetFromMap(new IdentityHashMap<>()), dao.loadSince(0));
+            } catch (SQLException e) {
+                System.err.println("[ShoppingAutocomplete] Historie konnte nicht geladen werden: " + e.getMessage());
+            }
+            index = new Index(root, entries.size(), generation, household);
+        }
+    }
+
+    /** Stößt {@link #reload()} im Hintergrund an; mehrfache Aufrufe vor dem Start laden nur einmal. */
+    public void reloadAsync() {
+        if (!loadPending.compareAndSet(false, true)) return;
+        loader.execute(() -> {
+            loadPending.set(false);
+            Index current = index;
+            if (current == null || !current.isCurrent()) reload();
+        });
+    }
+
+    /** Anzahl bekannter Artikel (verschiedene normalisierte Namen) im aktuell veröffentlichten Stand. */
+    public int size() {
+        Index current = index;
+        return current != null ? current.size : 0;
+    }
+
+    // läuft auf dem Thread der Änderungs-Hooks: nur die seit dem letzten Stand benutzten Zeilen lesen und
+    // als neuen Trie veröffentlichen; nur die Knoten auf den Pfaden geänderter Artikel werden kopiert
+    private void tablesChanged(TableChanges changes) {
+        if (!changes.affects(ShoppingHistoryDao.TABLE)) return;
+        synchronized (updateLock) {
+            Index current = index;
+            if (current == null || !current.isCurrent()) return; // lädt beim nächsten Zugriff
+            try {
+                List<ShoppingHistoryDao.Row> rows = dao.loadSince(watermark);
+                if (rows.isEmpty()) return;
+                Set<Node> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+                Node root = current.root.copy();
+                fresh.add(root);
+                if (apply(root, fresh, rows)) {
+                    index = new Index(root, entries.size(), current.poolGeneration, current.household);
+                } else {
+                    reload();
+                }
+            } catch (SQLException e) {
+                System.err.println("[ShoppingAutocomplete] Aktualisierung fehlgeschlagen: " + e.getMessage());
+            }
+        }
+    }
+
+    // false, wenn eine Zeile weniger Verwendungen hat als bekannt (Historie ersetzt) -> komplett neu laden.
+    // Schreibt nur in Knoten aus fresh (bzw. darunter neu angelegte), nie in den veröffentlichten Trie.
+    private boolean apply(Node root, Set<Node> fresh, List<ShoppingHistoryDao.Row> rows) {
+        fresh.add(root);
+        for (ShoppingHistoryDao.Row row : rows) {
+            String key = normalize(row.name);
+            if (key.isEmpty()) continue;
+            Entry e = entries.computeIfAbsent(key, Entry::new);
+            String variant = (row.category == null ? "" : row.category) + '\u0000' + (row.quantity == null ? "" : row.quantity);
+            long[] known = e.variants.get(variant);
+            if (known != null && (row.uses < known[0] || row.lastUsed < known[1])) return false;
+            if (known != null && row.uses == known[0] && row.lastUsed == known[1]) continue;
+            e.variants.put(variant, new long[]{row.uses, row.lastUsed});
+            if (row.lastUsed >= e.nameUsed) {
+                e.name = row.name.trim();
+                e.nameUsed = row.lastUsed;
+            }
+            e.recompute();
+            watermark = Math.max(watermark, row.lastUsed);
+
+            Node n = root;
+            n.offer(e);
+            for (int i = 0; i < key.length(); i++) {
+                n = n.childForUpdate(key.charAt(i), fresh);
+                n.offer(e);
+            }
+        }
+        return true;
+    }
+
+    /** Vergleichsform eines Namens: getrimmt, klein, ohne Akzente, Leerraum zusammengefasst. */
+    static String normalize(String s) {
+        if (s == null) return "";
+        String t = s.trim();
+        if (t.isEmpty()) return "";
+        boolean plain = true;
+        for (int i = 0; i < t.length() && plain; i++) {
+            char c = t.charAt(i);
+            plain = c < 0x80 && c != ' ' && c != '\t';
+        }
+        if (!plain) {
+            t = MARKS.matcher(Normalizer.normalize(t, Normalizer.Form.NFD)).replaceAll("");
+            t = SPACES.matcher(t).replaceAll(" ");
+        }
+        return t.toLowerCase(Locale.ROOT);
+    }
+}
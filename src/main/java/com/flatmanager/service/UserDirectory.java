@@ -0,0 +1,228 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.TableChanges;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sitzungsweiter Cache der Benutzerliste (Username, Anzeigename, Admin-Flag), den alle Views teilen.
+ * Die Liste wird einmal aus der Datenbank geladen und erst nach einer Benutzer-Änderung
+ * ({@link DatabaseManager#fireUsersChanged()} oder ein von den Änderungs-Hooks gemeldeter Commit auf
+ * {@code users}) neu gelesen. Views binden sich an {@link #getEntries()}
+ * und werden bei Änderungen auf dem FX-Thread aktualisiert. Enthalten sind nur die Mitglieder der aktiven WG
+ * ({@link DatabaseManager#currentHousehold()}); nach einem Wechsel wird neu geladen.
+ */
+public final class UserDirectory {
+
+    /** Ein Benutzer aus der users-Tabelle. {@code username} und {@code name} sind ungetrimmt wie gespeichert. */
+    public static final class Entry {
+        public final String username;
+        public final String name;
+        public final boolean admin;
+
+        public Entry(String username, String name, boolean admin) {
+            this.username = username;
+            this.name = name;
+            this.admin = admin;
+        }
+
+        /** Anzeigename; fällt auf den Username zurück, wenn kein Name gesetzt ist. */
+        public String displayName() {
+            return name == null || name.trim().isEmpty() ? username : name;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" + username + ", name=" + name + ", admin=" + admin + '}';
+        }
+    }
+
+    private static final UserDirectory INSTANCE = new UserDirectory();
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile List<Entry> cache;
+    private volatile long cacheGeneration = -1;
+    private volatile long cachePoolGeneration = -1;
+    private volatile long cacheHousehold = -1;
+
+    private final ObservableList<Entry> entries = FXCollections.observableArrayList();
+    private final ObservableList<Entry> readOnlyEntries = FXCollections.unmodifiableObservableList(entries);
+
+    // Nicht-UI-Abhängige (z. B. die Sitzung), die nach einem Neuladen auf dem schreibenden Thread informiert werden
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    private UserDirectory() {
+        DatabaseManager.addUserChangeListener(this::usersChanged);
+        DatabaseManager.addChangeListener(this::tablesChanged);
+    }
+
+    public static UserDirectory get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Aktuelle Benutzer als unveränderliche Liste, bei Bedarf neu aus der Datenbank geladen.
+     * Darf von beliebigen Threads aufgerufen werden.
+     */
+    public List<Entry> snapshot() {
+        List<Entry> current = cache;
+        if (current != null && isCurrent()) return current;
+        synchronized (this) {
+            if (cache != null && isCurrent()) return cache;
+            long gen = generation.get();
+            long poolGen = DatabaseManager.getPoolGeneration();
+            long household = DatabaseManager.currentHousehold();
+            List<Entry> loaded = load(household);
+            cache = loaded;
+            cacheGeneration = gen;
+            cachePoolGeneration = poolGen;
+            cacheHousehold = household;
+            publish(loaded);
+            return loaded;
+        }
+    }
+
+    /**
+     * Beobachtbare Benutzerliste für Views. Änderungen werden nur auf dem FX-Thread veröffentlicht.
+     */
+    public ObservableList<Entry> getEntries() {
+        snapshot();
+        return readOnlyEntries;
+    }
+
+    /** Alle nicht-leeren Usernames in Datenbank-Reihenfolge. */
+    public List<String> usernames() {
+        List<String> out = new ArrayList<>();
+        for (Entry e : snapshot()) {
+            if (e.username != null && !e.username.isEmpty()) out.add(e.username);
+        }
+        return out;
+    }
+
+    /**
+     * Sucht einen Benutzer anhand Username oder Anzeigename (case-insensitiv, getrimmt).
+     * Unterstützt auch das Anzeigeformat "Name (username)".
+     */
+    public Entry find(String user) {
+        if (user == null) return null;
+        String trimmed = user.trim();
+        String inside = extractParenthesized(trimmed);
+        if (inside != null) trimmed = inside;
+        List<Entry> list = snapshot();
+        for (Entry e : list) {
+            if (e.username != null && e.username.trim().equalsIgnoreCase(trimmed)) return e;
+        }
+        for (Entry e : list) {
+            if (e.name != null && e.name.trim().equalsIgnoreCase(trimmed)) return e;
+        }
+        return null;
+    }
+
+    /**
+     * Löst einen Anzeigenamen oder Username auf den gespeicherten Username auf.
+     * Bei "Name (username)" wird der Teil in Klammern geliefert, auch ohne passenden Eintrag.
+     */
+    public String resolveUsername(String user) {
+        if (user == null) return null;
+        String inside = extractParenthesized(user.trim());
+        if (inside != null) return inside;
+        Entry e = find(user);
+        return e != null ? e.username : null;
+    }
+
+    public boolean isAdmin(String user) {
+        Entry e = find(user);
+        return e != null && e.admin;
+    }
+
+    /** Markiert den Cache als veraltet; er wird beim nächsten Zugriff neu geladen. */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /** Registriert einen Listener, der nach jedem durch eine Benutzer-Änderung ausgelösten Neuladen läuft. */
+    public void addChangeListener(Runnable listener) {
+        if (listener != null) changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Benutzer wurden geändert: sofort auf dem schreibenden Thread neu laden, damit gebundene Views
+    // auf dem FX-Thread nur noch die fertige Liste übernehmen (kein DB-Zugriff im FX-Thread)
+    private void usersChanged() {
+        invalidate();
+        snapshot();
+        for (Runnable l : changeListeners) {
+            try {
+                l.run();
+            } catch (RuntimeException e) {
+                System.err.println("[UserDirectory] Listener fehlgeschlagen: " + e.getMessage());
+            }
+        }
+    }
+
+    // erfasst auch direktes SQL auf users, das fireUsersChanged() nicht aufruft. Nur invalidieren statt
+    // sofort neu zu laden: ein Laden auf dem Hook-Thread könnte einem inzwischen folgenden Commit
+    // zuvorkommen und dem schreibenden Thread bis zur nächsten Meldung einen veralteten Stand liefern.
+    private void tablesChanged(TableChanges changes) {
+        if (!changes.affects("users")) return;
+        invalidate();
+        for (Runnable l : changeListeners) {
+            try {
+                l.run();
+            } catch (RuntimeException e) {
+                System.err.println("[UserDirectory] Listener fehlgeschlagen: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isCurrent() {
+        return cacheGeneration == generation.get() && cachePoolGeneration == DatabaseManager.getPoolGeneration()
+                && cacheHousehold == DatabaseManager.currentHousehold();
+    }
+
+    /** Erzwingt ein sofortiges Neuladen. */
+    public List<Entry> refresh() {
+        generation.incrementAndGet();
+        return snapshot();
+    }
+
+    private List<Entry> load(long household) {
+        List<Entry> out = new ArrayList<>();
+        for (DatabaseManager.UserInfo u : DatabaseManager.listUsers(household)) {
+            out.add(new Entry(u.username, u.name, u.isAdmin));
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private void publish(List<Entry> list) {
+        if (Platform.isFxApplicationThread()) {
+            entries.setAll(list);
+            return;
+        }
+        try {
+            Platform.runLater(() -> entries.setAll(list));
+        } catch (IllegalStateException notStarted) {
+            entries.setAll(list);
+        }
+    }
+
+    private static String extractParenthesized(String s) {
+        int p = s.indexOf('(');
+        if (p < 0) return null;
+        int q = s.indexOf(')', p);
+        if (q <= p) return null;
+        String inside = s.substring(p + 1, q).trim();
+        return inside.isEmpty() ? null : inside;
+    }
+}
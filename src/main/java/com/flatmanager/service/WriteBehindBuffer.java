@@ -0,0 +1,278 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-Behind-Puffer für schnelle UI-Änderungen (Einkaufslisten-Häkchen, Zuweisungen im Putzplan).
+ *
+ * Jede Änderung wird unter einem Schlüssel abgelegt, der die geschriebene Zelle bezeichnet
+ * (z.B. {@code "shopping_items.purchased#5"}). Eine neue Änderung mit gleichem Schlüssel ersetzt die
+ * noch nicht geschriebene, sodass mehrfaches Klicken im Zeitfenster nur einen Schreibzugriff ergibt.
+ * Nach Ablauf des Fensters werden alle offenen Änderungen in einer einzigen Transaktion geschrieben.
+ *
+ * Lesende Stellen der eigenen UI sehen offene Werte über {@link #pendingValue(String, Object)}
+ * (read-your-writes), auch während ein Flush läuft. Vor Aktionen, die den Datenbankstand brauchen
+ * (Löschen erledigter Einträge, Logout, Beenden), wird {@link #flush()} aufgerufen.
+ *
+ * Scheitert ein Flush (z.B. {@code SQLITE_BUSY}, während eine andere App-Instanz schreibt), kommen alle
+ * Änderungen, die nicht inzwischen durch eine neuere mit gleichem Schlüssel ersetzt wurden, zurück in den
+ * Puffer und werden mit wachsendem Abstand erneut geschrieben. Nach {@link #MAX_ATTEMPTS} Fehlschlägen in Folge
+ * werden sie verworfen und die {@link #addFailureListener Fehler-Listener} benachrichtigt; Ansichten, die
+ * optimistisch aktualisiert haben, laden dann neu und zeigen den Fehler an.
+ */
+public final class WriteBehindBuffer {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(250);
+    /** Fehlgeschlagene Flushs in Folge, nach denen die offenen Änderungen aufgegeben werden. */
+    public static final int MAX_ATTEMPTS = 5;
+
+    /** Eine gepufferte Schreiboperation; läuft innerhalb der Flush-Transaktion. */
+    @FunctionalInterface
+    public interface Write {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Entry {
+        final Object value;
+        final Write write;
+
+        Entry(Object value, Write write) {
+            this.value = value;
+            this.write = write;
+        }
+    }
+
+    private static final WriteBehindBuffer INSTANCE = new WriteBehindBuffer(DEFAULT_WINDOW);
+
+    private final Duration window;
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private final List<Runnable> flushListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<SQLException>> failureListeners = new CopyOnWriteArrayList<>();
+    // Einfügereihenfolge = Reihenfolge der letzten Änderung je Schlüssel
+    private Map<String, Entry> pending = new LinkedHashMap<>();
+    private Map<String, Entry> inFlight = Map.of();
+    private ScheduledExecutorService executor;
+    private boolean flushScheduled;
+    private long writesSubmitted;
+    private long writesFlushed;
+    private int failures;
+
+    WriteBehindBuffer(Duration window) {
+        this.window = window;
+    }
+
+    public static WriteBehindBuffer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Puffert eine Änderung. Eine noch offene Änderung mit gleichem Schlüssel wird verworfen.
+     *
+     * @param key   bezeichnet die geschriebene Zelle; Änderungen an verschiedenen Zellen sind unabhängig
+     * @param value neuer Wert für read-your-writes (darf {@code null} sein)
+     * @param write schreibt den Wert, wenn der Puffer geleert wird
+     */
+    public void submit(String key, Object value, Write write) {
+        if (key == null || write == null) throw new IllegalArgumentException("key und write dürfen nicht null sein");
+        synchronized (lock) {
+            pending.remove(key);
+            pending.put(key, new Entry(value, write));
+            writesSubmitted++;
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor().schedule(this::flushQuietly, window.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Ob für den Schlüssel noch ein nicht festgeschriebener Wert existiert. */
+    public boolean hasPending(String key) {
+        synchronized (lock) {
+            return pending.containsKey(key) || inFlight.containsKey(key);
+        }
+    }
+
+    /** Offener Wert für den Schlüssel (auch {@code null}), sonst {@code fallback}. */
+    @SuppressWarnings("unchecked")
+    public <T> T pendingValue(String key, T fallback) {
+        synchronized (lock) {
+            Entry e = pending.get(key);
+            if (e == null) e = inFlight.get(key);
+            return e != null ? (T) e.value : fallback;
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /** Anzahl angenommener Änderungen seit dem Start. */
+    public long submittedCount() {
+        synchronized (lock) {
+            return writesSubmitted;
+        }
+    }
+
+    /** Anzahl tatsächlich geschriebener Änderungen; die Differenz zu {@link #submittedCount()} wurde zusammengefasst. */
+    public long flushedCount() {
+        synchronized (lock) {
+            return writesFlushed;
+        }
+    }
+
+    public void addFlushListener(Runnable listener) {
+        if (listener != null) flushListeners.add(listener);
+    }
+
+    public void removeFlushListener(Runnable listener) {
+        flushListeners.remove(listener);
+    }
+
+    /**
+     * Listener für aufgegebene Änderungen: wird nach {@link #MAX_ATTEMPTS} fehlgeschlagenen Flushs in Folge mit
+     * dem letzten Fehler aufgerufen (nicht auf dem FX-Thread), nachdem die Änderungen verworfen wurden.
+     */
+    public void addFailureListener(Consumer<SQLException> listener) {
+        if (listener != null) failureListeners.add(listener);
+    }
+
+    public void removeFailureListener(Consumer<SQLException> listener) {
+        failureListeners.remove(listener);
+    }
+
+    /**
+     * Schreibt alle offenen Änderungen in einer Transaktion. Bei einem Fehler bleiben sie gepuffert und ein
+     * neuer Versuch wird geplant (siehe Klassenbeschreibung); der Fehler wird trotzdem weitergereicht.
+     * @return Anzahl geschriebener Änderungen
+     */
+    public int flush() throws SQLException {
+        synchronized (flushLock) {
+            Map<String, Entry> batch;
+            synchronized (lock) {
+                flushScheduled = false;
+                if (pending.isEmpty()) return 0;
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+            }
+            try (Connection conn = DatabaseManager.getConnection()) {
+                boolean originalAuto = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    for (Entry e : batch.values()) e.write.apply(conn);
+                    conn.commit();
+                } catch (SQLException ex) {
+                    try { conn.rollback(); } catch (SQLException ignore) {}
+                    throw ex;
+                } finally {
+                    try { conn.setAutoCommit(originalAuto); } catch (SQLException ignore) {}
+                }
+            } catch (SQLException ex) {
+                failed(batch, ex);
+                throw ex;
+            } finally {
+                synchronized (lock) {
+                    inFlight = Map.of();
+                }
+            }
+            synchronized (lock) {
+                writesFlushed += batch.size();
+                failures = 0;
+            }
+            for (Runnable l : new ArrayList<>(flushListeners)) {
+                try {
+                    l.run();
+                } catch (Throwable t) {
+                    System.err.println("[WriteBehindBuffer] Listener fehlgeschlagen: " + t.getMessage());
+                }
+            }
+            return batch.size();
+        }
+    }
+
+    // Änderungen des gescheiterten Flushs zurücklegen (vor den neueren, sofern nicht ersetzt) und neuen Versuch
+    // planen; nach MAX_ATTEMPTS Fehlschlägen aufgeben und die Fehler-Listener benachrichtigen
+    private void failed(Map<String, Entry> batch, SQLException ex) {
+        boolean giveUp;
+        synchronized (lock) {
+            // vor den Listenern, damit neu ladende Ansichten keine verworfenen Werte mehr sehen
+            inFlight = Map.of();
+            failures++;
+            giveUp = failures >= MAX_ATTEMPTS;
+            if (giveUp) {
+                failures = 0;
+                System.err.println("[WriteBehindBuffer] Flush " + MAX_ATTEMPTS + "x fehlgeschlagen, " + batch.size()
+                        + " Änderung(en) verworfen: " + ex.getMessage());
+            } else {
+                Map<String, Entry> merged = new LinkedHashMap<>();
+                for (Map.Entry<String, Entry> e : batch.entrySet()) {
+                    if (!pending.containsKey(e.getKey())) merged.put(e.getKey(), e.getValue());
+                }
+                merged.putAll(pending);
+                pending = merged;
+                long delay = window.toMillis() << failures;
+                System.err.println("[WriteBehindBuffer] Flush fehlgeschlagen (Versuch " + failures + "), neuer Versuch in "
+                        + delay + " ms: " + ex.getMessage());
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    executor().schedule(this::flushQuietly, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        if (!giveUp) return;
+        for (Consumer<SQLException> l : new ArrayList<>(failureListeners)) {
+            try {
+                l.accept(ex);
+            } catch (Throwable t) {
+                System.err.println("[WriteBehindBuffer] Listener fehlgeschlagen: " + t.getMessage());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            // bereits protokolliert und neu geplant bzw. aufgegeben
+        }
+    }
+
+    /** Schreibt offene Änderungen und beendet den Hintergrund-Thread (beim Beenden der App). */
+    public void close() {
+        flushQuietly();
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            flushScheduled = false;
+        }
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "flatmanager-write-behind");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,243 @@
+package com.flatmanager.storage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportiert die Haushaltsdaten als CSV (eine Datei je Tabelle) oder als ein JSON-Dokument.
+ * Die Zeilen werden direkt aus dem JDBC-Cursor in den {@link Writer} geschrieben; der Speicherbedarf
+ * hängt nicht von der Zeilenzahl ab. Alle Tabellen eines Exports werden in einer Lesetransaktion
+ * gelesen und ergeben damit einen konsistenten Stand.
+ *
+ * Formate (Gegenstück: {@link DataImporter}):
+ * <ul>
+ *   <li>CSV nach RFC 4180, UTF-8, erste Zeile mit den Spaltennamen. Ein leeres Feld ohne Anführungszeichen
+ *       steht für {@code NULL}, {@code ""} für einen leeren Text.</li>
+ *   <li>JSON: {@code {"format":"flatmanager-export","version":1,"tables":{"users":[{...}, ...], ...}}},
+ *       Zahlen bleiben Zahlen, {@code NULL} wird {@code null}.</li>
+ * </ul>
+ */
+public final class DataExporter {
+
+    /** Exportierte Tabellen in der Reihenfolge, in der sie wieder importiert werden. */
+    public static final List<String> TABLES = List.of(
+            "households", "users", "cleaning_tasks", "shopping_items", "budget_transactions", "budget_shares");
+
+    static final String FORMAT = "flatmanager-export";
+    static final int FORMAT_VERSION = 1;
+
+    private DataExporter() {
+    }
+
+    /**
+     * Schreibt alle Tabellen als {@code <tabelle>.csv} in das Verzeichnis (wird bei Bedarf angelegt).
+     * @return exportierte Zeilen je Tabelle
+     */
+    public static Map<String, Long> exportCsv(Path dir) throws SQLException, IOException {
+        Files.createDirectories(dir);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (Connection conn = Database.getConnection()) {
+            inReadTransaction(conn, () -> {
+                for (String table : TABLES) {
+                    try (Writer out = Files.newBufferedWriter(dir.resolve(table + ".csv"), StandardCharsets.UTF_8)) {
+                        counts.put(table, writeCsv(conn, table, out));
+                    }
+                }
+            });
+        }
+        return counts;
+    }
+
+    /**
+     * Schreibt alle Tabellen als ein JSON-Dokument in die Datei.
+     * @return exportierte Zeilen je Tabelle
+     */
+    public static Map<String, Long> exportJson(Path file) throws SQLException, IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (Connection conn = Database.getConnection();
+             Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            inReadTransaction(conn, () -> counts.putAll(writeJson(conn, out)));
+            return counts;
+        }
+    }
+
+    /**
+     * Schreibt eine Tabelle als CSV in den Writer (wird nicht geschlossen).
+     * @return Anzahl der Datenzeilen
+     */
+    public static long writeCsv(Connection conn, String table, Writer out) throws SQLException, IOException {
+        Writer w = buffered(out);
+        long rows = 0;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(selectAll(table))) {
+            ResultSetMetaData md = rs.getMetaData();
+            int n = md.getColumnCount();
+            for (int i = 1; i <= n; i++) {
+                if (i > 1) w.write(',');
+                writeCsvField(w, md.getColumnName(i));
+            }
+            w.write("\r\n");
+            while (rs.next()) {
+                for (int i = 1; i <= n; i++) {
+                    if (i > 1) w.write(',');
+                    Object value = rs.getObject(i);
+                    if (value != null) writeCsvField(w, scalarText(value));
+                }
+                w.write("\r\n");
+                rows++;
+            }
+        }
+        w.flush();
+        return rows;
+    }
+
+    /**
+     * Schreibt alle Tabellen als JSON-Dokument in den Writer (wird nicht geschlossen).
+     * @return exportierte Zeilen je Tabelle
+     */
+    public static Map<String, Long> writeJson(Connection conn, Writer out) throws SQLException, IOException {
+        Writer w = buffered(out);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        w.write("{\"format\":");
+        writeJsonString(w, FORMAT);
+        w.write(",\"version\":" + FORMAT_VERSION + ",\"tables\":{");
+        boolean firstTable = true;
+        for (String table : TABLES) {
+            if (!firstTable) w.write(',');
+            firstTable = false;
+            w.write('\n');
+            writeJsonString(w, table);
+            w.write(":[");
+            long rows = 0;
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(selectAll(table))) {
+                ResultSetMetaData md = rs.getMetaData();
+                int n = md.getColumnCount();
+                String[] names = new String[n];
+                for (int i = 0; i < n; i++) names[i] = md.getColumnName(i + 1);
+                while (rs.next()) {
+                    w.write(rows == 0 ? "\n{" : ",\n{");
+                    for (int i = 0; i < n; i++) {
+                        if (i > 0) w.write(',');
+                        writeJsonString(w, names[i]);
+                        w.write(':');
+                        writeJsonValue(w, rs.getObject(i + 1));
+                    }
+                    w.write('}');
+                    rows++;
+                }
+            }
+            w.write(']');
+            counts.put(table, rows);
+        }
+        w.write("\n}}\n");
+        w.flush();
+        return counts;
+    }
+
+    // ---- Hilfsfunktionen ----
+
+    private interface ReadWork {
+        void run() throws SQLException, IOException;
+    }
+
+    // Liest alle Tabellen in einer Transaktion, damit der Export einen einzigen Stand zeigt
+    private static void inReadTransaction(Connection conn, ReadWork work) throws SQLException, IOException {
+        boolean originalAuto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            work.run();
+            conn.commit();
+        } catch (SQLException | IOException | RuntimeException ex) {
+            try { conn.rollback(); } catch (SQLException ignored) {}
+            throw ex;
+        } finally {
+            try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
+        }
+    }
+
+    // rowid-Reihenfolge: Primärschlüssel-Scan ohne Sortierung
+    private static String selectAll(String table) {
+        if (!TABLES.contains(table)) throw new IllegalArgumentException("Unbekannte Tabelle: " + table);
+        return "SELECT * FROM " + table + " ORDER BY rowid";
+    }
+
+    private static Writer buffered(Writer out) {
+        return out instanceof BufferedWriter ? out : new BufferedWriter(out, 64 * 1024);
+    }
+
+    private static String scalarText(Object value) {
+        if (value instanceof byte[]) {
+            throw new IllegalStateException("BLOB-Spalten werden nicht exportiert");
+        }
+        return String.valueOf(value);
+    }
+
+    private static void writeCsvField(Writer w, String s) throws IOException {
+        boolean quote = s.isEmpty();
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            w.write(s);
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') w.write('"');
+            w.write(c);
+        }
+        w.write('"');
+    }
+
+    private static void writeJsonValue(Writer w, Object value) throws IOException {
+        if (value == null) {
+            w.write("null");
+        } else if (value instanceof Integer || value instanceof Long) {
+            w.write(value.toString());
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) w.write("null");
+            else w.write(Double.toString(d));
+        } else {
+            writeJsonString(w, scalarText(value));
+        }
+    }
+
+    private static void writeJsonString(Writer w, String s) throws IOException {
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': w.write("\\\""); break;
+                case '\\': w.write("\\\\"); break;
+                case '\n': w.write("\\n"); break;
+                case '\r': w.write("\\r"); break;
+                case '\t': w.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        w.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        w.write(c);
+                    }
+            }
+        }
+        w.write('"');
+    }
+}
@@ -0,0 +1,475 @@
+package com.flatmanager.storage;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.SearchIndex;
+import com.flatmanager.database.ShardRouter;
+import com.flatmanager.model.RecurrenceRule;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Erzeugt synthetische WGs für Benchmarks und Lasttests: Benutzer, wiederkehrende Putzaufgaben samt
+ * Erledigungen, Einkäufe mit Kategorien und Käufern sowie Buchungen mit ungleichen Anteilen.
+ *
+ * Gleicher Seed und gleiche Größen ergeben dieselben Daten (IDs ausgenommen, die hängen vom Datenbestand ab).
+ * Jede Tabelle einer WG hat einen eigenen Zufallsstrom; eine andere Anzahl Einkäufe ändert also nicht die
+ * Buchungen. Datumswerte liegen in den {@link #days(int)} Tagen vor {@link #end(LocalDate)}, nicht relativ zu heute.
+ *
+ * Geschrieben wird wie beim {@link DataImporter} über gebündelte Prepared Statements in einer Transaktion
+ * (eine je WG-Datei, wenn der {@link ShardRouter} aktiv ist); der Suchindex wird am Ende einmal neu aufgebaut.
+ * <pre>
+ * DataGenerator.Result r = new DataGenerator(42).households(10).users(5).shoppingItems(50_000).generate();
+ * </pre>
+ */
+public final class DataGenerator {
+
+    /** Zeilen je {@code executeBatch}. */
+    public static final int BATCH_SIZE = DataImporter.BATCH_SIZE;
+    /** Klartext-Passwort aller erzeugten Benutzer. */
+    public static final String PASSWORD = "passwort";
+    /** Standard-Ende des Zeitraums; fest, damit ein Seed unabhängig vom Tag dieselben Daten liefert. */
+    public static final LocalDate DEFAULT_END = LocalDate.of(2025, 6, 30);
+
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta", "Hannes", "Ida", "Jonas", "Klara", "Lukas",
+            "Mia", "Noah", "Olivia", "Paul", "Quirin", "Rosa", "Simon", "Tara", "Uwe", "Vera", "Wim", "Zoe"
+    };
+    private static final String[] TASK_TITLES = {
+            "Bad putzen", "Küche wischen", "Müll rausbringen", "Staubsaugen", "Altglas wegbringen", "Kühlschrank putzen",
+            "Flur wischen", "Fenster putzen", "Pflanzen gießen", "Treppenhaus fegen", "Backofen reinigen", "Papiermüll",
+            "Handtücher waschen", "Balkon fegen", "Spülmaschine ausräumen"
+    };
+    // Artikel mit Kategorie; vorne stehen die häufig gekauften (siehe skewed())
+    private static final String[][] ITEMS = {
+            {"Milch", "Milchprodukte"}, {"Brot", "Backwaren"}, {"Eier", "Milchprodukte"}, {"Bananen", "Obst & Gemüse"},
+            {"Klopapier", "Drogerie"}, {"Kaffee", "Getränke"}, {"Butter", "Milchprodukte"}, {"Tomaten", "Obst & Gemüse"},
+            {"Nudeln", "Vorrat"}, {"Käse", "Milchprodukte"}, {"Äpfel", "Obst & Gemüse"}, {"Spülmittel", "Haushalt"},
+            {"Joghurt", "Milchprodukte"}, {"Reis", "Vorrat"}, {"Zwiebeln", "Obst & Gemüse"}, {"Mineralwasser", "Getränke"},
+            {"Brötchen", "Backwaren"}, {"Müllbeutel", "Haushalt"}, {"Zahnpasta", "Drogerie"}, {"Olivenöl", "Vorrat"},
+            {"Paprika", "Obst & Gemüse"}, {"Hafermilch", "Getränke"}, {"Waschmittel", "Haushalt"}, {"Haferflocken", "Vorrat"},
+            {"Kartoffeln", "Obst & Gemüse"}, {"Duschgel", "Drogerie"}, {"Tee", "Getränke"}, {"Schwämme", "Haushalt"},
+            {"Mehl", "Vorrat"}, {"Salat", "Obst & Gemüse"}, {"Küchenrolle", "Haushalt"}, {"Saft", "Getränke"},
+            {"Quark", "Milchprodukte"}, {"Tomatensoße", "Vorrat"}, {"Zitronen", "Obst & Gemüse"}, {"Shampoo", "Drogerie"}
+    };
+    // Kategorien wie in der Budget-Ansicht, mit typischen Beschreibungen und Beträgen
+    private static final String[] BUDGET_CATEGORIES = {"Einkäufe", "Haushalt", "Abos", "Aktivitäten", "Sonstiges"};
+    private static final String[][] BUDGET_DESCRIPTIONS = {
+            {"Wocheneinkauf", "Getränke", "Bäcker", "Markt", "Drogerie"},
+            {"Putzmittel", "Glühbirnen", "Werkzeug", "Handtücher", "Pflanzen"},
+            {"Internet", "Streaming", "Strom", "Rundfunkbeitrag", "Zeitung"},
+            {"Pizzaabend", "Kino", "Grillen", "Spieleabend", "Ausflug"},
+            {"Porto", "Geschenk", "Schlüsseldienst", "Pfandflaschen", "Reparatur"}
+    };
+    private static final double[] BUDGET_MEDIAN = {35, 15, 30, 40, 20};
+
+    private final long seed;
+    private int households = 1;
+    private int users = 4;
+    private int tasks = 20;
+    private int shoppingItems = 200;
+    private int transactions = 300;
+    private int days = 365;
+    private LocalDate end = DEFAULT_END;
+
+    /** Ergebnis: angelegte WGs und eingefügte Zeilen je Tabelle. */
+    public static final class Result {
+        public final List<Long> households;
+        public final Map<String, Long> counts;
+        public final List<String> usernames;
+
+        Result(List<Long> households, Map<String, Long> counts, List<String> usernames) {
+            this.households = Collections.unmodifiableList(households);
+            this.counts = Collections.unmodifiableMap(counts);
+            this.usernames = Collections.unmodifiableList(usernames);
+        }
+
+        /** Summe aller eingefügten Zeilen. */
+        public long total() {
+            long sum = 0;
+            for (long c : counts.values()) sum += c;
+            return sum;
+        }
+    }
+
+    public DataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Anzahl neu anzulegender WGs (Standard 1). */
+    public DataGenerator households(int n) {
+        households = atLeast(n, 1, "households");
+        return this;
+    }
+
+    /** Benutzer je WG, der erste ist Admin (Standard 4). */
+    public DataGenerator users(int n) {
+        users = atLeast(n, 1, "users");
+        return this;
+    }
+
+    /** Putzaufgaben je WG (Standard 20). */
+    public DataGenerator tasks(int n) {
+        tasks = atLeast(n, 0, "tasks");
+        return this;
+    }
+
+    /** Einkaufseinträge je WG (Standard 200). */
+    public DataGenerator shoppingItems(int n) {
+        shoppingItems = atLeast(n, 0, "shoppingItems");
+        return this;
+    }
+
+    /** Buchungen je WG (Standard 300). */
+    public DataGenerator transactions(int n) {
+        transactions = atLeast(n, 0, "transactions");
+        return this;
+    }
+
+    /** Länge des Zeitraums in Tagen (Standard 365). */
+    public DataGenerator days(int n) {
+        days = atLeast(n, 1, "days");
+        return this;
+    }
+
+    /** Letzter Tag des Zeitraums (Standard {@link #DEFAULT_END}). */
+    public DataGenerator end(LocalDate date) {
+        if (date == null) throw new IllegalArgumentException("end darf nicht null sein");
+        end = date;
+        return this;
+    }
+
+    private static int atLeast(int n, int min, String what) {
+        if (n < min) throw new IllegalArgumentException(what + " muss mindestens " + min + " sein: " + n);
+        return n;
+    }
+
+    /**
+     * Legt die WGs an und füllt sie. Bei einem Fehler wird die laufende Transaktion zurückgerollt; bereits
+     * angelegte (leere) WGs bleiben bestehen.
+     */
+    public Result generate() throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < households; i++) {
+            // vor der Transaktion: createHousehold schreibt über eine eigene Connection
+            long id = DatabaseManager.createHousehold("Synthetische WG " + Long.toUnsignedString(seed, 36) + "-" + i);
+            if (id <= 0) throw new SQLException("WG " + i + " konnte nicht angelegt werden");
+            ids.add(id);
+        }
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("households", (long) households);
+        for (String table : new String[]{"users", "cleaning_tasks", "cleaning_task_completions",
+                "shopping_items", "budget_transactions", "budget_shares"}) {
+            counts.put(table, 0L);
+        }
+        List<String> usernames = new ArrayList<>();
+
+        if (ShardRouter.isEnabled()) {
+            // eine Datei je WG: je WG eine Transaktion auf ihrer Datei
+            for (int i = 0; i < households; i++) {
+                int index = i;
+                inTransaction(Database.getConnection(ids.get(i)), conn -> fill(conn, index, ids.get(index), counts, usernames));
+            }
+        } else {
+            inTransaction(Database.getConnection(), conn -> {
+                for (int i = 0; i < households; i++) fill(conn, i, ids.get(i), counts, usernames);
+            });
+        }
+        return new Result(ids, counts, usernames);
+    }
+
+    private interface Work {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private static void inTransaction(Connection connection, Work work) throws SQLException {
+        try (Connection conn = connection) {
+            boolean originalAuto = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                SearchIndex.suspend(conn);
+                work.run(conn);
+                SearchIndex.resume(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            } finally {
+                try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    /* ----------------- Tabellen ----------------- */
+
+    private void fill(Connection conn, int index, long household, Map<String, Long> counts, List<String> allUsernames) throws SQLException {
+        List<String> names = insertUsers(conn, index, household, counts);
+        allUsernames.addAll(names);
+        insertTasks(conn, index, household, names, counts);
+        insertShoppingItems(conn, index, household, names, counts);
+        insertTransactions(conn, index, household, names, counts);
+    }
+
+    private List<String> insertUsers(Connection conn, int index, long household, Map<String, Long> counts) throws SQLException {
+        Random random = random(index, 1);
+        List<String> names = new ArrayList<>();
+        String password = sha256(PASSWORD);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO users (username, name, password, is_admin, household_id) VALUES (?, ?, ?, ?, ?)")) {
+            for (int u = 0; u < users; u++) {
+                String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                // global eindeutig: Seed, WG-Index und Benutzer-Index im Namen
+                String username = first.toLowerCase(Locale.ROOT) + "." + Long.toUnsignedString(seed, 36) + "." + index + "." + u;
+                DatabaseManager.claimUsername(conn, username, household);
+                ps.setString(1, username);
+                ps.setString(2, first);
+                ps.setString(3, password);
+                ps.setInt(4, u == 0 ? 1 : 0);
+                ps.setLong(5, household);
+                ps.addBatch();
+                names.add(username);
+            }
+            ps.executeBatch();
+        }
+        add(counts, "users", users);
+        return names;
+    }
+
+    private void insertTasks(Connection conn, int index, long household, List<String> names, Map<String, Long> counts) throws SQLException {
+        if (tasks == 0) return;
+        Random random = random(index, 2);
+        LocalDate first = end.minusDays(days - 1L);
+        long nextId = nextId(conn, "cleaning_tasks");
+        try (Batch taskBatch = new Batch(conn, "INSERT INTO cleaning_tasks (id, title, due, assigned_to, recurrence, urgent, completed, household_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             Batch doneBatch = new Batch(conn, "INSERT INTO cleaning_task_completions (task_id, occurrence) VALUES (?, ?)", taskBatch)) {
+            for (int t = 0; t < tasks; t++) {
+                long id = nextId++;
+                LocalDate due = first.plusDays(random.nextInt(days));
+                RecurrenceRule rule = recurrence(random);
+                boolean completed = rule == null && due.isBefore(end.minusDays(14)) && random.nextDouble() < 0.85;
+                taskBatch.add(id, TASK_TITLES[random.nextInt(TASK_TITLES.length)], due.toString(), pick(random, names),
+                        rule == null ? null : rule.toText(), random.nextDouble() < 0.05 ? 1 : 0, completed ? 1 : 0, household);
+                if (rule != null) {
+                    // vergangene Termine sind meistens erledigt
+                    for (LocalDate occurrence : rule.occurrences(due, due, end)) {
+                        if (random.nextDouble() < 0.8) doneBatch.add(id, occurrence.toString());
+                    }
+                }
+            }
+            add(counts, "cleaning_tasks", taskBatch.count());
+            add(counts, "cleaning_task_completions", doneBatch.count());
+        }
+    }
+
+    // 60 % wiederkehrend, überwiegend wöchentlich
+    private static RecurrenceRule recurrence(Random random) {
+        double r = random.nextDouble();
+        if (r < 0.40) return null;
+        if (r < 0.70) return RecurrenceRule.of(RecurrenceRule.Frequency.WEEKLY, 1);
+        if (r < 0.82) return RecurrenceRule.of(RecurrenceRule.Frequency.WEEKLY, 2);
+        if (r < 0.94) return RecurrenceRule.of(RecurrenceRule.Frequency.MONTHLY, 1);
+        if (r < 0.97) return RecurrenceRule.of(RecurrenceRule.Frequency.QUARTERLY, 1);
+        return RecurrenceRule.of(RecurrenceRule.Frequency.DAILY, 1);
+    }
+
+    private void insertShoppingItems(Connection conn, int index, long household, List<String> names, Map<String, Long> counts) throws SQLException {
+        if (shoppingItems == 0) return;
+        Random random = random(index, 3);
+        LocalDate first = end.minusDays(days - 1L);
+        // "purchased" legt erst ShoppingItemDao an; ist die Spalte da, wird sie wie "bought" gesetzt
+        boolean hasPurchased = columns(conn, "shopping_items").contains("purchased");
+        String sql = "INSERT INTO shopping_items (item_name, name, quantity, bought, category, added_by, purchased_for, created_at, household_id"
+                + (hasPurchased ? ", purchased) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" : ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        try (Batch batch = new Batch(conn, sql)) {
+            for (int s = 0; s < shoppingItems; s++) {
+                String[] item = ITEMS[skewed(random, ITEMS.length)];
+                LocalDate created = first.plusDays(random.nextInt(days));
+                int bought = created.isBefore(end.minusDays(7)) && random.nextDouble() < 0.9 ? 1 : 0;
+                // 40 % für eine Person, sonst für alle
+                String purchasedFor = random.nextDouble() < 0.4 ? pick(random, names) : null;
+                String quantity = Integer.toString(1 + random.nextInt(6));
+                if (hasPurchased) {
+                    batch.add(item[0], item[0], quantity, bought, item[1], pick(random, names), purchasedFor, created.toString(), household, bought);
+                } else {
+                    batch.add(item[0], item[0], quantity, bought, item[1], pick(random, names), purchasedFor, created.toString(), household);
+                }
+            }
+            add(counts, "shopping_items", batch.count());
+        }
+    }
+
+    private void insertTransactions(Connection conn, int index, long household, List<String> names, Map<String, Long> counts) throws SQLException {
+        if (transactions == 0) return;
+        Random random = random(index, 4);
+        LocalDate first = end.minusDays(days - 1L);
+        long nextId = nextId(conn, "budget_transactions");
+        try (Batch txBatch = new Batch(conn, "INSERT INTO budget_transactions (id, description, amount, date, paid_by, category, household_id) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             Batch shareBatch = new Batch(conn, "INSERT INTO budget_shares (transaction_id, username, share) VALUES (?, ?, ?)", txBatch)) {
+            for (int t = 0; t < transactions; t++) {
+                long id = nextId++;
+                int category = random.nextInt(BUDGET_CATEGORIES.length);
+                String[] descriptions = BUDGET_DESCRIPTIONS[category];
+                // log-normal um den Median der Kategorie: viele kleine, wenige große Beträge
+                double amount = BUDGET_MEDIAN[category] * Math.exp(random.nextGaussian() * 0.7);
+                amount = Math.max(0.5, Math.round(amount * 100) / 100.0);
+                txBatch.add(id, descriptions[random.nextInt(descriptions.length)], amount,
+                        first.plusDays(random.nextInt(days)).toString(), pick(random, names), BUDGET_CATEGORIES[category], household);
+                for (Map.Entry<String, Double> share : shares(random, names).entrySet()) {
+                    shareBatch.add(id, share.getKey(), share.getValue());
+                }
+            }
+            add(counts, "budget_transactions", txBatch.count());
+            add(counts, "budget_shares", shareBatch.count());
+        }
+    }
+
+    // Anteile mit zufälligen Gewichten; meist alle Mitbewohner, sonst eine Teilmenge. Summe ist genau 1.
+    private static Map<String, Double> shares(Random random, List<String> names) {
+        List<String> participants = new ArrayList<>(names);
+        if (names.size() > 1 && random.nextDouble() >= 0.6) {
+            Collections.shuffle(participants, random);
+            participants = participants.subList(0, 1 + random.nextInt(names.size()));
+        }
+        double[] weights = new double[participants.size()];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 0.5 + random.nextDouble();
+            sum += weights[i];
+        }
+        Map<String, Double> out = new LinkedHashMap<>();
+        double assigned = 0;
+        for (int i = 0; i < weights.length - 1; i++) {
+            double share = Math.round(weights[i] / sum * 10_000) / 10_000.0;
+            out.put(participants.get(i), share);
+            assigned += share;
+        }
+        out.put(participants.get(weights.length - 1), 1.0 - assigned);
+        return out;
+    }
+
+    /* ----------------- Hilfen ----------------- */
+
+    // eigener Strom je WG und Tabelle, unabhängig von den Größen der anderen Tabellen
+    private Random random(int index, int stream) {
+        long h = seed * 0x9E3779B97F4A7C15L + index;
+        h = h * 0xBF58476D1CE4E5B9L + stream;
+        return new Random(h ^ (h >>> 31));
+    }
+
+    private static String pick(Random random, List<String> names) {
+        return names.get(random.nextInt(names.size()));
+    }
+
+    // vordere Indizes deutlich häufiger, wie beliebte Artikel auf echten Listen
+    private static int skewed(Random random, int n) {
+        double r = random.nextDouble();
+        return (int) (r * r * n);
+    }
+
+    private static void add(Map<String, Long> counts, String table, long n) {
+        counts.merge(table, n, Long::sum);
+    }
+
+    // explizite IDs, damit Abhängige (Erledigungen, Anteile) im selben Batch darauf zeigen können;
+    // über sqlite_sequence hinaus, damit AUTOINCREMENT gelöschte IDs nicht wiederverwendet
+    private static long nextId(Connection conn, String table) throws SQLException {
+        long max = 0;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            if (rs.next()) max = rs.getLong(1);
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT seq FROM sqlite_sequence WHERE name = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) max = Math.max(max, rs.getLong(1));
+            }
+        }
+        return max + 1;
+    }
+
+    private static Set<String> columns(Connection conn, String table) throws SQLException {
+        Set<String> out = new LinkedHashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) out.add(rs.getString("name").toLowerCase(Locale.ROOT));
+        }
+        return out;
+    }
+
+    private static String sha256(String plain) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(plain.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ein Prepared Statement, das alle {@link #BATCH_SIZE} Zeilen ausgeführt wird. Abhängige Zeilen
+     * (Anteile, Erledigungen) führen vorher den Batch ihrer Elternzeilen aus, damit Fremdschlüssel und
+     * Summary-Trigger die Elternzeile schon sehen.
+     */
+    private static final class Batch implements AutoCloseable {
+        private final PreparedStatement ps;
+        private final Batch parent;
+        private int pending;
+        private long count;
+
+        Batch(Connection conn, String sql) throws SQLException {
+            this(conn, sql, null);
+        }
+
+        Batch(Connection conn, String sql, Batch parent) throws SQLException {
+            this.ps = conn.prepareStatement(sql);
+            this.parent = parent;
+        }
+
+        void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) ps.setObject(i + 1, values[i]);
+            ps.addBatch();
+            count++;
+            if (++pending >= BATCH_SIZE) flush();
+        }
+
+        long count() throws SQLException {
+            flush();
+            return count;
+        }
+
+        private void flush() throws SQLException {
+            if (pending == 0) return;
+            if (parent != null) parent.flush();
+            ps.executeBatch();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                ps.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.flatmanager.storage;
+
+import com.flatmanager.database.SearchIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importiert Dateien im Format von {@link DataExporter}. Die Eingabe wird zeichenweise gelesen und
+ * Zeile für Zeile über gebündelte Prepared Statements ({@link #BATCH_SIZE} Zeilen je Batch) eingefügt;
+ * es wird nie mehr als eine Zeile im Speicher gehalten.
+ *
+ * Ein Import läuft in einer einzigen Transaktion: jede importierte Tabelle wird zuerst geleert und dann
+ * mit den Zeilen der Datei (samt ihrer IDs) gefüllt. Tabellen, die in der Eingabe fehlen, bleiben
+ * unverändert. Bei einem Fehler (auch bei fehlerhafter Eingabe) wird alles zurückgerollt.
+ * Spalten, die die Tabelle nicht kennt, werden ignoriert. Der Suchindex wird nicht zeilenweise
+ * nachgeführt, sondern am Ende der Transaktion einmal neu aufgebaut.
+ */
+public final class DataImporter {
+
+    /** Zeilen je {@code executeBatch}. */
+    public static final int BATCH_SIZE = 1000;
+
+    private DataImporter() {
+    }
+
+    /**
+     * Importiert alle {@code <tabelle>.csv} aus dem Verzeichnis, die vorhanden sind.
+     * @return importierte Zeilen je Tabelle
+     */
+    public static Map<String, Long> importCsv(Path dir) throws SQLException, IOException {
+        List<String> present = new ArrayList<>();
+        for (String table : DataExporter.TABLES) {
+            if (Files.isRegularFile(dir.resolve(table + ".csv"))) present.add(table);
+        }
+        if (present.isEmpty()) throw new IOException("Keine Exportdateien in " + dir);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        inTransaction(conn -> {
+            for (String table : present) {
+                try (Reader in = Files.newBufferedReader(dir.resolve(table + ".csv"), StandardCharsets.UTF_8)) {
+                    counts.put(table, loadCsv(conn, table, in));
+                }
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Importiert ein JSON-Dokument.
+     * @return importierte Zeilen je Tabelle
+     */
+    public static Map<String, Long> importJson(Path file) throws SQLException, IOException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        inTransaction(conn -> {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                counts.putAll(loadJson(conn, in));
+            }
+        });
+        return counts;
+    }
+
+    /** Leert die Tabelle und lädt die CSV-Zeilen; ohne eigene Transaktionssteuerung. */
+    static long loadCsv(Connection conn, String table, Reader in) throws SQLException, IOException {
+        CsvReader csv = new CsvReader(in);
+        List<String> header = csv.next();
+        if (header == null) throw new IOException(table + ".csv ist leer");
+
+        Set<String> known = columns(conn, table);
+        List<String> columns = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            if (name != null && known.contains(name.toLowerCase())) {
+                columns.add(name);
+                positions.add(i);
+            } else {
+                System.err.println("[DataImporter] " + table + ": unbekannte Spalte `" + name + "` wird ignoriert");
+            }
+        }
+        if (columns.isEmpty()) throw new IOException(table + ".csv: keine bekannte Spalte im Kopf");
+
+        clear(conn, table);
+        try (Inserter ins = new Inserter(conn, table)) {
+            Object[] values = new Object[columns.size()];
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() == 1 && record.get(0) == null && header.size() > 1) continue; // Leerzeile
+                if (record.size() != header.size()) {
+                    throw new IOException(table + ".csv Zeile " + csv.line() + ": " + record.size()
+                            + " Felder statt " + header.size());
+                }
+                for (int i = 0; i < values.length; i++) values[i] = record.get(positions.get(i));
+                ins.insert(columns, values);
+            }
+            return ins.count();
+        }
+    }
+
+    /** Lädt alle Tabellen eines JSON-Dokuments; ohne eigene Transaktionssteuerung. */
+    static Map<String, Long> loadJson(Connection conn, Reader in) throws SQLException, IOException {
+        JsonReader json = new JsonReader(in);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        json.expect('{');
+        if (!json.consume('}')) {
+            do {
+                String key = json.readString();
+                json.expect(':');
+                switch (key) {
+                    case "format":
+                        Object format = json.readScalar();
+                        if (!DataExporter.FORMAT.equals(format)) throw json.error("unbekanntes Format " + format);
+                        break;
+                    case "version":
+                        Object version = json.readScalar();
+                        if (!(version instanceof Long) || (Long) version > DataExporter.FORMAT_VERSION) {
+                            throw json.error("nicht unterstützte Version " + version);
+                        }
+                        break;
+                    case "tables":
+                        loadJsonTables(conn, json, counts);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            } while (json.consume(','));
+            json.expect('}');
+        }
+        json.expectEnd();
+        return counts;
+    }
+
+    private static void loadJsonTables(Connection conn, JsonReader json, Map<String, Long> counts)
+            throws SQLException, IOException {
+        json.expect('{');
+        if (json.consume('}')) return;
+        do {
+            String table = json.readString();
+            json.expect(':');
+            if (!DataExporter.TABLES.contains(table)) {
+                System.err.println("[DataImporter] unbekannte Tabelle `" + table + "` wird übersprungen");
+                json.skipValue();
+                continue;
+            }
+            Set<String> known = columns(conn, table);
+            clear(conn, table);
+            try (Inserter ins = new Inserter(conn, table)) {
+                List<String> columns = new ArrayList<>();
+                List<Object> values = new ArrayList<>();
+                json.expect('[');
+                if (!json.consume(']')) {
+                    do {
+                        columns.clear();
+                        values.clear();
+                        json.expect('{');
+                        if (!json.consume('}')) {
+                            do {
+                                String column = json.readString();
+                                json.expect(':');
+                                Object value = json.readScalar();
+                                if (known.contains(column.toLowerCase())) {
+                                    columns.add(column);
+                                    values.add(value);
+                                }
+                            } while (json.consume(','));
+                            json.expect('}');
+                        }
+                        if (columns.isEmpty()) throw json.error(table + ": Zeile ohne bekannte Spalte");
+                        ins.insert(columns, values.toArray());
+                    } while (json.consume(','));
+                    json.expect(']');
+                }
+                counts.put(table, ins.count());
+            }
+        } while (json.consume(','));
+        json.expect('}');
+    }
+
+    // ---- Datenbank ----
+
+    private interface Work {
+        void run(Connection conn) throws SQLException, IOException;
+    }
+
+    private static void inTransaction(Work work) throws SQLException, IOException {
+        try (Connection conn = Database.getConnection()) {
+            boolean originalAuto = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                SearchIndex.suspend(conn);
+                work.run(conn);
+                SearchIndex.resume(conn);
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            } finally {
+                try { conn.setAutoCommit(originalAuto); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    private static Set<String> columns(Connection conn, String table) throws SQLException {
+        Set<String> out = new LinkedHashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) out.add(rs.getString("name").toLowerCase());
+        }
+        if (out.isEmpty()) throw new SQLException("Tabelle " + table + " existiert nicht");
+        return out;
+    }
+
+    // WHERE 1: ohne WHERE kürzt SQLite die Tabelle, ohne die Änderungs-Hooks auszulösen
+    private static void clear(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM " + table + " WHERE 1");
+        }
+    }
+
+    /** Fügt Zeilen gebündelt ein; ein neues Statement nur, wenn sich die Spaltenliste ändert. */
+    private static final class Inserter implements AutoCloseable {
+        private final Connection conn;
+        private final String table;
+        private List<String> columns = List.of();
+        private PreparedStatement ps;
+        private int pending;
+        private long count;
+
+        Inserter(Connection conn, String table) {
+            this.conn = conn;
+            this.table = table;
+        }
+
+        void insert(List<String> cols, Object[] values) throws SQLException {
+            if (ps == null || !columns.equals(cols)) {
+                flush();
+                if (ps != null) ps.close();
+                columns = List.copyOf(cols);
+                StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) sql.append(", ");
+                    sql.append('"').append(columns.get(i).replace("\"", "\"\"")).append('"');
+                }
+                sql.append(") VALUES (").append("?, ".repeat(columns.size() - 1)).append("?)");
+                ps = conn.prepareStatement(sql.toString());
+            }
+            for (int i = 0; i < values.length; i++) {
+                Object v = values[i];
+                if (v instanceof Boolean) v = ((Boolean) v) ? 1 : 0;
+                ps.setObject(i + 1, v);
+            }
+            ps.addBatch();
+            count++;
+            if (++pending >= BATCH_SIZE) flush();
+        }
+
+        long count() throws SQLException {
+            flush();
+            return count;
+        }
+
+        private void flush() throws SQLException {
+            if (ps != null && pending > 0) ps.executeBatch();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                if (ps != null) ps.close();
+            }
+        }
+    }
+
+    // ---- Parser ----
+
+    /** Liest CSV-Datensätze nach RFC 4180; unquotierte leere Felder werden {@code null}. */
+    static final class CsvReader {
+        private final Reader in;
+        private final StringBuilder field = new StringBuilder();
+        private int pushback = -2;
+        private long line = 1;
+        private boolean started;
+
+        CsvReader(Reader in) {
+            this.in = in instanceof BufferedReader ? in : new BufferedReader(in, 64 * 1024);
+        }
+
+        long line() {
+            return line;
+        }
+
+        /** Nächster Datensatz oder {@code null} am Ende. */
+        List<String> next() throws IOException {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') c = read(); // BOM
+            }
+            if (c == -1) return null;
+            List<String> record = new ArrayList<>();
+            while (true) {
+                field.setLength(0);
+                boolean quoted = false;
+                if (c == '"') {
+                    quoted = true;
+                    long startLine = line;
+                    while (true) {
+                        c = read();
+                        if (c == -1) throw new IOException("CSV Zeile " + startLine + ": Anführungszeichen nicht geschlossen");
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') break;
+                        } else if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else {
+                    while (c != -1 && c != ',' && c != '\n' && c != '\r') {
+                        field.append((char) c);
+                        c = read();
+                    }
+                }
+                record.add(quoted || field.length() > 0 ? field.toString() : null);
+                if (c == ',') {
+                    c = read();
+                    continue;
+                }
+                if (c == '\r') {
+                    c = read();
+                    if (c != '\n') unread(c);
+                } else if (c != '\n' && c != -1) {
+                    throw new IOException("CSV Zeile " + line + ": unerwartetes Zeichen nach Anführungszeichen");
+                }
+                if (c != -1) line++;
+                return record;
+            }
+        }
+
+        private int read() throws IOException {
+            if (pushback != -2) {
+                int c = pushback;
+                pushback = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private void unread(int c) {
+            pushback = c;
+        }
+    }
+
+    /** Minimaler Pull-Parser für JSON; Werte in Zeilen sind nur Skalare. */
+    static final class JsonReader {
+        private final Reader in;
+        private final char[] buf = new char[64 * 1024];
+        private final StringBuilder sb = new StringBuilder();
+        private int pos;
+        private int len;
+        private long offset;
+
+        JsonReader(Reader in) {
+            this.in = in;
+        }
+
+        IOException error(String message) {
+            return new IOException("JSON an Position " + (offset + pos) + ": " + message);
+        }
+
+        void expect(char c) throws IOException {
+            int got = peek();
+            if (got != c) throw error("'" + c + "' erwartet, gefunden " + describe(got));
+            pos++;
+        }
+
+        /** Überspringt {@code c}, falls es als Nächstes kommt. */
+        boolean consume(char c) throws IOException {
+            if (peek() != c) return false;
+            pos++;
+            return true;
+        }
+
+        void expectEnd() throws IOException {
+            int got = peek();
+            if (got != -1) throw error("Ende erwartet, gefunden " + describe(got));
+        }
+
+        String readString() throws IOException {
+            expect('"');
+            sb.setLength(0);
+            while (true) {
+                int c = raw();
+                if (c == -1) throw error("Text nicht abgeschlossen");
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                int e = raw();
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append((char) e); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int d = Character.digit(raw(), 16);
+                            if (d < 0) throw error("ungültige \\u-Sequenz");
+                            code = code * 16 + d;
+                        }
+                        sb.append((char) code);
+                        break;
+                    default:
+                        throw error("ungültige Escape-Sequenz");
+                }
+            }
+        }
+
+        /** Text, {@link Long}, {@link Double}, {@link Boolean} oder {@code null}. */
+        Object readScalar() throws IOException {
+            int c = peek();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') throw error("Skalar erwartet");
+            sb.setLength(0);
+            while (true) {
+                c = peekRaw();
+                if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) break;
+                sb.append((char) c);
+                pos++;
+            }
+            String token = sb.toString();
+            switch (token) {
+                case "null": return null;
+                case "true": return Boolean.TRUE;
+                case "false": return Boolean.FALSE;
+                case "": throw error("Wert erwartet, gefunden " + describe(c));
+                default:
+            }
+            try {
+                if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+                    try {
+                        return Long.parseLong(token);
+                    } catch (NumberFormatException tooLarge) {
+                        // weiter als Gleitkommazahl
+                    }
+                }
+                return Double.parseDouble(token);
+            } catch (NumberFormatException ex) {
+                throw error("ungültiger Wert `" + token + "`");
+            }
+        }
+
+        void skipValue() throws IOException {
+            int c = peek();
+            if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                pos++;
+                if (consume(close)) return;
+                do {
+                    if (close == '}') {
+                        readString();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+            } else {
+                readScalar();
+            }
+        }
+
+        private static String describe(int c) {
+            return c == -1 ? "Dateiende" : "'" + (char) c + "'";
+        }
+
+        // nächstes Zeichen nach Leerraum, ohne es zu verbrauchen
+        private int peek() throws IOException {
+            while (true) {
+                int c = peekRaw();
+                if (c == -1 || !Character.isWhitespace(c)) return c;
+                pos++;
+            }
+        }
+
+        private int peekRaw() throws IOException {
+            if (pos >= len) {
+                offset += len;
+                len = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (len <= 0) {
+                    len = 0;
+                    return -1;
+                }
+            }
+            return buf[pos];
+        }
+
+        private int raw() throws IOException {
+            int c = peekRaw();
+            if (c != -1) pos++;
+            return c;
+        }
+    }
+}
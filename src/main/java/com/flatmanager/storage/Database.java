@@ -14,6 +14,11 @@ public final class Database {
         return DatabaseManager.getConnection();
     }
 
+    /** Connection auf die Daten einer WG, siehe {@link DatabaseManager#getConnection(long)}. */
+    public static Connection getConnection(long householdId) throws SQLException {
+        return DatabaseManager.getConnection(householdId);
+    }
+
     public static void closeConnection() {
         DatabaseManager.closeConnection();
     }
@@ -35,12 +35,8 @@ public class AdminCreateUserDialog {
         dialog.setTitle("Neuen Benutzer anlegen");
         // dialog style class + theme
         dialog.getDialogPane().getStyleClass().add("dialog-pane");
-        // Ensure the dialog pane uses the main stylesheet so our dark-mode rules apply
-        try {
-            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-            dialog.getDialogPane().getStylesheets().add(css);
-        } catch (Exception ignored) {}
-        if (com.flatmanager.ui.ThemeManager.isDark()) dialog.getDialogPane().getStyleClass().add("dark-mode");
+        // Ensure the dialog pane uses the main stylesheet and the current :dark state
+        com.flatmanager.ui.ThemeManager.styleDialogPane(dialog.getDialogPane());
         if (owner != null) dialog.initOwner(owner);
         dialog.initModality(Modality.APPLICATION_MODAL);
 
@@ -183,37 +179,45 @@ public class AdminCreateUserDialog {
                         passwordToStore = hashPassword(plain);
                     }
 
-                    // Baue passenden INSERT je nach vorhandenen Spalten
+                    // Baue passenden INSERT je nach vorhandenen Spalten; neue Benutzer gehören zur aktiven WG
+                    long household = DatabaseManager.currentHousehold();
+                    DatabaseManager.claimUsername(conn, inputName, household);
                     if (hasPassword && hasIsAdmin) {
-                        String insert = "INSERT INTO users (" + userCol + ", password, is_admin) VALUES (?, ?, ?)";
+                        String insert = "INSERT INTO users (" + userCol + ", password, is_admin, household_id) VALUES (?, ?, ?, ?)";
                         try (PreparedStatement ps = conn.prepareStatement(insert)) {
                             ps.setString(1, inputName);
                             ps.setString(2, passwordToStore);
                             ps.setInt(3, isAdmin ? 1 : 0);
+                            ps.setLong(4, household);
                             ps.executeUpdate();
                         }
                     } else if (hasPassword) {
-                        String insert = "INSERT INTO users (" + userCol + ", password) VALUES (?, ?)";
+                        String insert = "INSERT INTO users (" + userCol + ", password, household_id) VALUES (?, ?, ?)";
                         try (PreparedStatement ps = conn.prepareStatement(insert)) {
                             ps.setString(1, inputName);
                             ps.setString(2, passwordToStore);
+                            ps.setLong(3, household);
                             ps.executeUpdate();
                         }
                     } else if (hasIsAdmin) {
-                        String insert = "INSERT INTO users (" + userCol + ", is_admin) VALUES (?, ?)";
+                        String insert = "INSERT INTO users (" + userCol + ", is_admin, household_id) VALUES (?, ?, ?)";
                         try (PreparedStatement ps = conn.prepareStatement(insert)) {
                             ps.setString(1, inputName);
                             ps.setInt(2, isAdmin ? 1 : 0);
+                            ps.setLong(3, household);
                             ps.executeUpdate();
                         }
                     } else {
-                        String insert = "INSERT INTO users (" + userCol + ") VALUES (?)";
+                        String insert = "INSERT INTO users (" + userCol + ", household_id) VALUES (?, ?)";
                         try (PreparedStatement ps = conn.prepareStatement(insert)) {
                             ps.setString(1, inputName);
+                            ps.setLong(2, household);
                             ps.executeUpdate();
                         }
                     }
 
+                    DatabaseManager.fireUsersChanged();
+
                     Alert a = new Alert(Alert.AlertType.INFORMATION);
                     a.setHeaderText(null);
                     a.setContentText("Benutzer erfolgreich angelegt.");
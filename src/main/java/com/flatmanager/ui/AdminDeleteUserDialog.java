@@ -1,5 +1,10 @@
 package com.flatmanager.ui;
 
+import com.flatmanager.database.BackupService;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.ShardRouter;
+import com.flatmanager.service.UserDirectory;
+import com.flatmanager.service.WriteBehindBuffer;
 import com.flatmanager.storage.Database;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -18,13 +23,17 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -73,13 +82,16 @@ public class AdminDeleteUserDialog {
             confirm.initOwner(stage);
             Optional<ButtonType> choice = confirm.showAndWait();
             if (choice.isPresent() && choice.get() == ButtonType.OK) {
-                String sqlDelete = "DELETE FROM users WHERE username = ?";
+                String sqlDelete = "DELETE FROM users WHERE username = ? AND household_id = ?";
                 try (Connection conn = Database.getConnection();
                      PreparedStatement psDel = conn.prepareStatement(sqlDelete)) {
 
                     psDel.setString(1, user);
+                    psDel.setLong(2, DatabaseManager.currentHousehold());
                     int affected = psDel.executeUpdate();
                     if (affected > 0) {
+                        DatabaseManager.releaseUsername(conn, user, DatabaseManager.currentHousehold());
+                        DatabaseManager.fireUsersChanged();
                         showInfo("Benutzer '" + user + "' wurde gelöscht.", stage);
                         result.set(Boolean.TRUE);
                         stage.close();
@@ -116,10 +128,7 @@ public class AdminDeleteUserDialog {
 
         // create scene and ensure stylesheet + theme are applied so the dialog respects dark mode
         Scene scene = new Scene(root);
-        try {
-            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-            if (!scene.getStylesheets().contains(css)) scene.getStylesheets().add(css);
-        } catch (Exception ignored) {}
+        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
         com.flatmanager.ui.ThemeManager.applyToScene(scene);
         stage.setScene(scene);
         stage.showAndWait();
@@ -128,132 +137,133 @@ public class AdminDeleteUserDialog {
     }
 
     /**
-     * Extrahierte Methode: löscht alle Tabellen (WG & Einträge) nach Bestätigung.
+     * Extrahierte Methode: löscht die aktive WG (Benutzer & Einträge) nach Bestätigung.
+     * Vorher wird im Hintergrund eine Sicherung angelegt; schlägt sie fehl, wird nichts gelöscht.
      * Schließt optionales Owner-Stage und führt openLoginAction aus.
+     * @return wird auf dem JavaFX-Thread mit true abgeschlossen, wenn die WG gelöscht wurde, sonst mit false
      */
-    public static Optional<Boolean> deleteEntireWg(Window owner, Runnable openLoginAction) {
-        AtomicReference<Boolean> result = new AtomicReference<>(null);
-
+    public static CompletableFuture<Boolean> deleteEntireWg(Window owner, Runnable openLoginAction) {
         Alert confirm = new Alert(AlertType.CONFIRMATION);
         confirm.setHeaderText(null);
-        confirm.setContentText("ALLE Benutzer (inkl. Admin) und alle Einträge wirklich löschen?\nDieser Vorgang ist unwiederbringlich und startet die Registrierung neu.");
+        confirm.setContentText("ALLE Benutzer (inkl. Admin) und alle Einträge wirklich löschen?\nVorher wird eine Sicherung angelegt; danach startet die Registrierung neu.");
         com.flatmanager.ui.ThemeManager.styleDialogPane(confirm.getDialogPane());
         if (owner != null) confirm.initOwner(owner);
         Optional<ButtonType> choice = confirm.showAndWait();
-        if (choice.isPresent() && choice.get() == ButtonType.OK) {
-            String[] tables = {"cleaning_tasks", "budget_transactions", "shopping_items", "users"};
-            List<String> missing = new ArrayList<>();
-            try (Connection conn = Database.getConnection()) {
-                boolean previousAuto = conn.getAutoCommit();
-                try {
-                    conn.setAutoCommit(false);
-                    for (String tbl : tables) {
-                        if (!tableExists(conn, tbl)) {
-                            missing.add(tbl);
-                            continue;
-                        }
-                        String sql = "DELETE FROM " + tbl;
-                        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                            ps.executeUpdate();
-                        }
-                    }
-                    conn.commit();
+        if (choice.isEmpty() || choice.get() != ButtonType.OK) return CompletableFuture.completedFuture(Boolean.FALSE);
 
-                    String msg = "WG und alle Einträge wurden gelöscht.";
-                    if (!missing.isEmpty()) {
-                        msg += " Einige Tabellen fehlten und wurden übersprungen: " + String.join(", ", missing) + ".";
-                    }
-                    showInfo(msg, owner);
-                    result.set(Boolean.TRUE);
+        long household = DatabaseManager.currentHousehold();
+        try {
+            // gepufferte Häkchen/Zuweisungen gehören noch in die Sicherung
+            WriteBehindBuffer.get().flush();
+        } catch (SQLException ex) {
+            System.err.println("[AdminDeleteUserDialog] Offene Änderungen nicht geschrieben: " + ex.getMessage());
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // Sicherung nicht auf dem FX-Thread: sie dauert bei großen Datenbanken Sekunden
+        BackupService.get().backupAsync("vor-wg-loeschen").whenComplete((backup, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                showError("Sicherung vor dem Löschen fehlgeschlagen: " + cause.getMessage()
+                        + "\nDie WG wurde nicht gelöscht.", owner);
+                result.complete(Boolean.FALSE);
+                return;
+            }
+            result.complete(deleteAfterBackup(owner, household, backup, openLoginAction));
+        }));
+        return result;
+    }
 
-                    // Owner-Fenster schließen und Login öffnen auf dem JavaFX-Thread
-                    Platform.runLater(() -> {
-                        if (owner instanceof Stage) {
-                            try {
-                                ((Stage) owner).close();
-                            } catch (Exception ignored) {
-                            }
-                        }
-                        if (openLoginAction != null) {
-                            try {
-                                openLoginAction.run();
-                            } catch (Throwable t) {
-                                showInfo("Fehler beim Öffnen des Login-Screens: " + t.getMessage(), null);
-                            }
-                        } else {
-                            showInfo("LoginView/Screen konnte nicht geöffnet werden. Bitte Anwendung neu starten.", null);
-                        }
-                    });
+    // zweiter Teil von deleteEntireWg, nach erfolgreicher Sicherung auf dem JavaFX-Thread
+    private static boolean deleteAfterBackup(Window owner, long household, Path backup, Runnable openLoginAction) {
+        try {
+            deleteHousehold(household);
+            DatabaseManager.fireUsersChanged();
+        } catch (SQLException | IOException ex) {
+            showError("Fehler beim Löschen der WG-Daten: " + ex.getMessage(), owner);
+            return false;
+        }
+        // die WG hat keine Benutzer mehr, die den Wiederherstellungsdialog öffnen könnten: nur der Betreiber kann sie zurückholen
+        showInfo("WG und alle Einträge wurden gelöscht. Sicherung: " + backup.toAbsolutePath()
+                + "\nZurückholen kann sie nur der Betreiber, mit: --restore=" + backup.toAbsolutePath() + " --household=" + household, owner);
 
-                } catch (SQLException ex) {
-                    try {
-                        conn.rollback();
-                    } catch (SQLException rollbackEx) {
-                        // Ignorieren
-                    }
-                    Alert a = new Alert(AlertType.ERROR);
-                    a.setHeaderText(null);
-                    a.setContentText("Fehler beim Löschen der WG-Daten: " + ex.getMessage());
-                    com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
-                    if (owner != null) a.initOwner(owner);
-                    a.showAndWait();
-                } finally {
-                    try {
-                        conn.setAutoCommit(previousAuto);
-                    } catch (SQLException ignored) {
-                    }
+        // Owner-Fenster schließen und Login öffnen auf dem JavaFX-Thread
+        Platform.runLater(() -> {
+            if (owner instanceof Stage) {
+                try {
+                    ((Stage) owner).close();
+                } catch (Exception ignored) {
                 }
-            } catch (SQLException ex) {
-                Alert a = new Alert(AlertType.ERROR);
-                a.setHeaderText(null);
-                a.setContentText("Datenbankfehler: " + ex.getMessage());
-                com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
-                if (owner != null) a.initOwner(owner);
-                a.showAndWait();
             }
-        }
-
-        return Optional.ofNullable(result.get());
+            if (openLoginAction != null) {
+                try {
+                    openLoginAction.run();
+                } catch (Throwable t) {
+                    showInfo("Fehler beim Öffnen des Login-Screens: " + t.getMessage(), null);
+                }
+            } else {
+                showInfo("LoginView/Screen konnte nicht geöffnet werden. Bitte Anwendung neu starten.", null);
+            }
+        });
+        return true;
     }
 
-    private static boolean tableExists(Connection conn, String tableName) throws SQLException {
-        String sql = "SELECT name FROM sqlite_master WHERE type='table' AND name = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, tableName);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
+    /**
+     * Löscht alle Daten einer WG. Liegt jede WG in einer eigenen Datei ({@link ShardRouter}), wird nur diese
+     * Datei gelöscht; sonst werden die Zeilen der WG in einer Transaktion entfernt, andere WGs in derselben
+     * Datenbank bleiben erhalten.
+     */
+    static void deleteHousehold(long household) throws SQLException, IOException {
+        if (ShardRouter.isEnabled()) {
+            ShardRouter.get().drop(household);
+            return;
+        }
+        try (Connection conn = Database.getConnection()) {
+            boolean previousAuto = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                DatabaseManager.deleteHouseholdData(conn, household);
+                conn.commit();
+            } catch (SQLException ex) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    // Ignorieren
+                }
+                throw ex;
+            } finally {
+                try {
+                    conn.setAutoCommit(previousAuto);
+                } catch (SQLException ignored) {
+                }
             }
         }
     }
 
     private static List<String> loadUsernames(Window owner, String currentAdminUsername) {
+        // aus dem gemeinsamen Benutzer-Cache, sortiert wie ORDER BY username
+        List<String> raw = new ArrayList<>(UserDirectory.get().usernames());
+        Collections.sort(raw);
         List<String> list = new ArrayList<>();
-        String sql = "SELECT username FROM users ORDER BY username";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                String u = rs.getString("username");
-                if (u == null) continue;
-                String trimmed = u.trim();
-                if (currentAdminUsername != null && trimmed.equalsIgnoreCase(currentAdminUsername.trim())) {
-                    // aktuellen Admin ausschließen
-                    continue;
-                }
-                list.add(trimmed);
+        for (String u : raw) {
+            String trimmed = u.trim();
+            if (currentAdminUsername != null && trimmed.equalsIgnoreCase(currentAdminUsername.trim())) {
+                // aktuellen Admin ausschließen
+                continue;
             }
-        } catch (SQLException ex) {
-            Alert a = new Alert(AlertType.ERROR);
-            a.setHeaderText(null);
-            a.setContentText("Fehler beim Laden der Benutzer: " + ex.getMessage());
-            com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
-            if (owner != null) a.initOwner(owner);
-            a.showAndWait();
+            list.add(trimmed);
         }
         return list;
     }
 
+    private static void showError(String msg, Window owner) {
+        Alert a = new Alert(AlertType.ERROR);
+        a.setHeaderText(null);
+        a.setContentText(msg);
+        com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
+        if (owner != null) a.initOwner(owner);
+        a.showAndWait();
+    }
+
     private static void showInfo(String msg, Window owner) {
         Alert a = new Alert(Alert.AlertType.INFORMATION);
         a.setHeaderText(null);
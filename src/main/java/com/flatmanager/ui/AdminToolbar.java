@@ -1,19 +1,13 @@
 package com.flatmanager.ui;
 
-import com.flatmanager.storage.Database;
+import com.flatmanager.service.Session;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Region;
 import javafx.stage.Window;
 
-import java.io.InputStream;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
 /**
  * Kleiner Helfer, der das Admin-Icon in der Top-Bar erzeugt (falls der aktuelle Benutzer Admin ist).
@@ -28,21 +22,13 @@ public class AdminToolbar {
         if (!admin) return placeholder();
 
         Button adminBtn = new Button();
-        // Icon aus den Projekt-Ressourcen laden (/icons/Einstellungen_icon.png), bei Fehler Fallback-Text verwenden
-        final String resourcePath = "/icons/Einstellungen_icon.png";
-        try (InputStream is = AdminToolbar.class.getResourceAsStream(resourcePath)) {
-            if (is != null) {
-                Image img = new Image(is, 20, 20, true, true);
-                ImageView iv = new ImageView(img);
-                iv.setFitWidth(20);
-                iv.setFitHeight(20);
-                adminBtn.setGraphic(iv);
-                adminBtn.setText(null);
-                adminBtn.setPrefSize(30, 30);
-            } else {
-                adminBtn.setText("Admin");
-            }
-        } catch (Exception ex) {
+        // Icon aus dem gemeinsamen ImageCache (/icons/Einstellungen_icon.png), bei Fehler Fallback-Text verwenden
+        ImageView iv = ImageCache.view("Einstellungen_icon.png", 20);
+        if (iv != null) {
+            adminBtn.setGraphic(iv);
+            adminBtn.setText(null);
+            adminBtn.setPrefSize(30, 30);
+        } else {
             adminBtn.setText("Admin");
         }
 
@@ -90,24 +76,9 @@ public class AdminToolbar {
         a.showAndWait();
     }
 
+    // Rolle aus der (beim Login aufgelösten) Sitzung statt eigener Abfrage pro Aufbau der Top-Bar
     private static boolean isAdmin(String username) {
         if (username == null) return false;
-        if ("admin".equalsIgnoreCase(username.trim())) return true;
-
-        String sql = "SELECT is_admin FROM users WHERE username = ? LIMIT 1";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, username.trim());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    int val = rs.getInt("is_admin");
-                    return val == 1;
-                }
-            }
-        } catch (SQLException ex) {
-            return false;
-        }
-        return false;
+        return Session.forUser(username).isAdmin();
     }
 }
\ No newline at end of file
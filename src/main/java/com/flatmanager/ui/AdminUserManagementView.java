@@ -1,5 +1,6 @@
 package com.flatmanager.ui;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -20,14 +21,15 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Admin-Oberfläche für Verwaltungsaktionen: Benutzer anlegen, löschen oder die gesamte WG löschen.
+ * Admin-Oberfläche für Verwaltungsaktionen: Benutzer anlegen, löschen, die gesamte WG löschen oder eine
+ * Sicherung wiederherstellen.
  * Öffnet modale Dialoge und führt die gewünschten Aktionen aus.
  */
 public class AdminUserManagementView {
 
     /**
      * Öffnet ein modales Verwaltungsfenster für Admin-Aktionen und gibt die gewählte Aktion als Optional zurück
-     * ("create", "delete", "delete-wg" oder leer bei Abbruch).
+     * ("create", "delete", "delete-wg", "restore" oder leer bei Abbruch).
      * @param owner optionales Besitzer-Fenster
      * @param currentAdminUsername aktuell angemeldeter Admin-Username (wird an Delete-Dialog übergeben)
      * @return Optional mit Aktions-Schlüssel oder leer bei Abbruch
@@ -50,6 +52,7 @@ public class AdminUserManagementView {
         Button createBtn = new Button("Benutzer anlegen"); createBtn.setWrapText(true); createBtn.setMaxWidth(Double.MAX_VALUE);
         Button deleteBtn = new Button("Benutzer löschen"); deleteBtn.setWrapText(true); deleteBtn.setMaxWidth(Double.MAX_VALUE);
         Button deleteWgBtn = new Button("WG löschen"); deleteWgBtn.setWrapText(true); deleteWgBtn.setMaxWidth(Double.MAX_VALUE);
+        Button restoreBtn = new Button("Sicherung wiederherstellen"); restoreBtn.setWrapText(true); restoreBtn.setMaxWidth(Double.MAX_VALUE);
         Button cancelBtn = new Button("Abbrechen"); cancelBtn.setWrapText(true); cancelBtn.setMaxWidth(Double.MAX_VALUE);
 
         createBtn.setOnAction(e -> {
@@ -89,13 +92,30 @@ public class AdminUserManagementView {
 
         deleteWgBtn.setOnAction(e -> {
             try {
-                Optional<Boolean> res = AdminDeleteUserDialog.deleteEntireWg(stage, () -> openLoginWithReflection(owner));
+                // Sicherung läuft im Hintergrund; Fenster erst danach schließen, Aktionen solange sperren
+                createBtn.setDisable(true);
+                deleteBtn.setDisable(true);
+                deleteWgBtn.setDisable(true);
+                restoreBtn.setDisable(true);
+                AdminDeleteUserDialog.deleteEntireWg(stage, () -> openLoginWithReflection(owner))
+                        .whenComplete((res, ex) -> Platform.runLater(stage::close));
                 // Meldung "WG wurde gelöscht." entfernt, da bereits nach dem Loginscreen-Aufruf angezeigt wird
                 result.set("delete-wg");
             } catch (NoClassDefFoundError ex) {
                 showInfo("AdminDeleteUserDialog nicht vorhanden.");
+                stage.close();
             } catch (Exception ex) {
                 showInfo("Fehler beim Löschen der WG: " + ex.getMessage());
+                stage.close();
+            }
+        });
+
+        restoreBtn.setOnAction(e -> {
+            try {
+                RestoreBackupDialog.showAndWait(stage);
+                result.set("restore");
+            } catch (Exception ex) {
+                showInfo("Fehler beim Wiederherstellen: " + ex.getMessage());
             } finally {
                 stage.close();
             }
@@ -106,21 +126,19 @@ public class AdminUserManagementView {
             stage.close();
         });
 
-        HBox actions = new HBox(10, createBtn, deleteBtn, deleteWgBtn, cancelBtn);
+        HBox actions = new HBox(10, createBtn, deleteBtn, deleteWgBtn, restoreBtn, cancelBtn);
         actions.setAlignment(Pos.CENTER);
 
         VBox root = new VBox(12, header, label, actions);
         root.setPadding(new Insets(12));
         root.setAlignment(Pos.CENTER);
 
-        // Mark this root as a dialog pane so dialog CSS rules apply, and add dark-mode class when active
+        // Mark this root as a dialog pane so dialog CSS rules apply; the :dark state is set by ThemeManager below
         root.getStyleClass().add("dialog-pane");
         if (com.flatmanager.ui.ThemeManager.isDark()) {
-            if (!root.getStyleClass().contains("dark-mode")) root.getStyleClass().add("dark-mode");
             // Inline fallback style to guarantee dark background for modal content (helps on macOS where some popups can ignore stylesheet selectors)
             root.setStyle("-fx-background-color: linear-gradient(#071826, #041223); -fx-text-fill: #e6eef8;");
         } else {
-            root.getStyleClass().remove("dark-mode");
             root.setStyle("-fx-background-color: #ffffff; -fx-text-fill: #111827;");
         }
         // Create scene, attach main stylesheet and apply theme so the modal respects dark-mode
@@ -133,10 +151,7 @@ public class AdminUserManagementView {
                 scene.setFill(javafx.scene.paint.Color.web("#ffffff"));
             }
         } catch (Exception ignored) {}
-        try {
-            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-            if (!scene.getStylesheets().contains(css)) scene.getStylesheets().add(css);
-        } catch (Exception ignored) {}
+        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
         com.flatmanager.ui.ThemeManager.applyToScene(scene);
         stage.setScene(scene);
         stage.showAndWait();
@@ -1,9 +1,16 @@
 package com.flatmanager.ui;
 
+import com.flatmanager.dao.BudgetSummaryDao;
 import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.TableChanges;
+import com.flatmanager.diagnostics.ViewLoadEvent;
+import com.flatmanager.service.Session;
+import com.flatmanager.service.UserDirectory;
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
+import javafx.collections.WeakListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -17,7 +24,6 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.layout.FlowPane;
 
-import java.io.InputStream;
 import java.sql.*;
 import java.text.NumberFormat;
 import java.time.LocalDate;
@@ -30,6 +36,8 @@ import java.util.*;
 public class BudgetView {
     private VBox view;
     private String currentUser;
+    // beim Login aufgelöste Rollen; Admin-Prüfungen beim Rendern sind Feldzugriffe
+    private final Session session;
     private ObservableList<BudgetTransaction> transactions;
 
     private final List<String> categories = List.of("Einkäufe", "Haushalt", "Abos", "Aktivitäten", "Sonstiges");
@@ -50,23 +58,37 @@ public class BudgetView {
     // Schulden-Visualisierung
     private ListView<String> debtsListView;
 
+    // hält den (schwach registrierten) Listener auf den Benutzer-Cache am Leben, solange die View existiert
+    private ListChangeListener<UserDirectory.Entry> userDirectoryListener;
+
+    // Summen werden in SQLite aggregiert (GROUP BY), nicht über die Transaktionsliste
+    private final BudgetSummaryDao summaryDao = new BudgetSummaryDao();
+    // aufgeklappte Kategorie-Abschnitte; nur deren Buchungen werden geladen
+    private final Set<String> expandedCategories = new HashSet<>();
+    // Änderungen anderer App-Instanzen neu laden; eigene Änderungen lädt die View selbst
+    private final java.util.function.Consumer<TableChanges> externalChangeListener = changes -> {
+        if (changes.isExternal() && changes.affects("budget_transactions", "budget_shares")) Platform.runLater(this::loadTransactions);
+    };
+
     public BudgetView(String username) {
         this.currentUser = username;
+        this.session = Session.forUser(username);
         this.transactions = FXCollections.observableArrayList();
-        this.transactions.addListener((ListChangeListener<BudgetTransaction>) c -> updateTotal());
 
         loadDeleteIcon();
         ensureSharesTableExists();
+        try { summaryDao.init(); } catch (SQLException e) { System.err.println("[BudgetView] Summary-Indizes konnten nicht angelegt werden: " + e.getMessage()); }
         createView();
         loadTransactions();
+        view.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) DatabaseManager.addChangeListener(externalChangeListener);
+            else DatabaseManager.removeChangeListener(externalChangeListener);
+        });
     }
 
+    // geteiltes, auf 16px vorskaliertes Icon statt eines eigenen Dekodierens je BudgetView
     private void loadDeleteIcon() {
-        InputStream is = BudgetView.class.getResourceAsStream("/Löschen_icon.png");
-        if (is == null) is = BudgetView.class.getResourceAsStream("/icons/Löschen_icon.png");
-        if (is != null) {
-            try { deleteIcon = new Image(is); } catch (Exception ignored) { deleteIcon = null; }
-        } else deleteIcon = null;
+        deleteIcon = ImageCache.get("Löschen_icon.png", 16);
     }
 
     private void createView() {
@@ -197,7 +219,19 @@ public class BudgetView {
         participantsPane.setVgap(6);
         participantsPane.setPadding(new Insets(6, 0, 0, 0));
         participantsPane.setVisible(false);
-        buildParticipantButtons(loadUsernames());
+        buildParticipantButtons(usersInitial);
+
+        // an den Benutzer-Cache binden: neue/gelöschte Benutzer erscheinen ohne Neuaufbau der View
+        userDirectoryListener = c -> {
+            List<String> current = loadUsernames();
+            String selected = personBox.getValue();
+            personBox.getItems().setAll(current);
+            if (selected != null && current.contains(selected)) personBox.setValue(selected);
+            else if (current.contains(currentUser)) personBox.setValue(currentUser);
+            else if (!current.isEmpty()) personBox.setValue(current.get(0));
+            buildParticipantButtons(current);
+        };
+        UserDirectory.get().getEntries().addListener(new WeakListChangeListener<>(userDirectoryListener));
 
         splitCheck.selectedProperty().addListener((obs, oldV, newV) -> {
             participantsPane.setVisible(newV);
@@ -266,6 +300,7 @@ public class BudgetView {
 
             transactions.add(0, newT);
             rebuildCategoryTables();
+            updateTotal();
 
             beschreibungField.clear();
             betragField.clear();
@@ -335,8 +370,11 @@ public class BudgetView {
     }
 
     private void deleteAllBudget() {
-        String delShares = "DELETE FROM budget_shares";
-        String delTrans = "DELETE FROM budget_transactions";
+        // nur das Haushaltsbuch der aktiven WG; Anteile über die Buchungen der WG
+        long household = DatabaseManager.currentHousehold();
+        String delShares = "DELETE FROM budget_shares WHERE transaction_id IN "
+                + "(SELECT id FROM budget_transactions WHERE household_id = " + household + ")";
+        String delTrans = "DELETE FROM budget_transactions WHERE household_id = " + household;
         try (Connection conn = DatabaseManager.getConnection()) {
             try (PreparedStatement ps = conn.prepareStatement(delShares)) { ps.executeUpdate(); }
             try (PreparedStatement ps2 = conn.prepareStatement(delTrans)) { ps2.executeUpdate(); }
@@ -376,9 +414,9 @@ public class BudgetView {
      * Vermeidet das Öffnen einer neuen Connection während eines offenen ResultSet.
      */
     private void loadTransactions() {
-        transactions.clear();
-
-        String sql = "SELECT id, description, amount, paid_by, date, category FROM budget_transactions ORDER BY date DESC";
+        ViewLoadEvent load = ViewLoadEvent.start("BudgetView.loadTransactions");
+        String sql = "SELECT id, description, amount, paid_by, date, category FROM budget_transactions WHERE household_id = "
+                + DatabaseManager.currentHousehold() + " ORDER BY date DESC";
         List<BudgetTransaction> temp = new ArrayList<>();
 
         // Phase 1: nur Basisdaten (schließt ResultSet)
@@ -401,10 +439,12 @@ public class BudgetView {
             String details = e.getMessage();
             try { details += " (SQLState=" + e.getSQLState() + ", ErrorCode=" + e.getErrorCode() + ")"; } catch (Exception ignore) {}
             showAlert("Fehler beim Laden der Transaktionen: " + details);
+            ViewLoadEvent.finish(load, 0);
             return;
         } catch (Exception e) {
             e.printStackTrace();
             showAlert("Unbekannter Fehler beim Laden der Transaktionen: " + e.getMessage());
+            ViewLoadEvent.finish(load, 0);
             return;
         }
 
@@ -422,11 +462,13 @@ public class BudgetView {
                 }
             }
             t.setSplit(split);
-            transactions.add(t);
         }
 
+        // Summen und Salden einmal je Neuladen, nicht je Listenänderung
+        transactions.setAll(temp);
         rebuildCategoryTables();
         updateTotal();
+        ViewLoadEvent.finish(load, temp.size());
     }
 
     /**
@@ -451,25 +493,28 @@ public class BudgetView {
         return result;
     }
 
+    /**
+     * Baut die Kategorie-Abschnitte aus {@link BudgetSummaryDao#totalsByCategory()} (Summe und Anzahl per GROUP BY).
+     * Die Buchungen einer Kategorie werden erst beim Aufklappen gelesen ({@link #loadCategoryRows(String)});
+     * aufgeklappte Abschnitte bleiben über ein Neuladen hinweg offen.
+     */
     private void rebuildCategoryTables() {
         categoriesContainer.getChildren().clear();
 
-        Map<String, List<BudgetTransaction>> grouped = new LinkedHashMap<>();
-        for (String c : categories) grouped.put(c, new ArrayList<>());
-
-        for (BudgetTransaction t : transactions) {
-            String cat = t.getCategory();
-            if (cat == null) cat = "Sonstiges";
-            grouped.computeIfAbsent(cat, k -> new ArrayList<>()).add(t);
+        Map<String, BudgetSummaryDao.Total> totals = new LinkedHashMap<>();
+        try {
+            for (BudgetSummaryDao.Total t : summaryDao.totalsByCategory()) totals.put(t.key, t);
+        } catch (SQLException e) {
+            System.err.println("[BudgetView] Kategorie-Summen konnten nicht geladen werden: " + e.getMessage());
         }
 
-        boolean adminView = isAdminUser();
-
-        for (String category : grouped.keySet()) {
-            List<BudgetTransaction> list = grouped.get(category);
-            if (list.isEmpty()) {
-                Label catLabel = new Label(category);
-                catLabel.getStyleClass().add("title");
+        Set<String> sections = new LinkedHashSet<>(categories);
+        sections.addAll(totals.keySet());
+        for (String category : sections) {
+            Label catLabel = new Label(category);
+            catLabel.getStyleClass().add("title");
+            BudgetSummaryDao.Total total = totals.get(category);
+            if (total == null || total.count == 0) {
                 Label empty = new Label("Keine Einträge");
                 empty.setPadding(new Insets(4, 0, 8, 6));
                 VBox box = new VBox(6, catLabel, empty);
@@ -477,107 +522,147 @@ public class BudgetView {
                 continue;
             }
 
-            Label catLabel = new Label(category);
-            catLabel.getStyleClass().add("title");
-
-            TableView<BudgetTransaction> tv = new TableView<>();
-            tv.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-            tv.setPrefHeight(Math.min(200, 40 + list.size() * 28));
-
-            TableColumn<BudgetTransaction, String> beschrCol = new TableColumn<>("Beschreibung");
-            beschrCol.setCellValueFactory(new PropertyValueFactory<>("description"));
-            beschrCol.setPrefWidth(300);
-            // Use a wrapping label inside cells so long descriptions wrap to next line
-            beschrCol.setCellFactory(col -> new TableCell<BudgetTransaction, String>() {
-                private final Label lbl = new Label();
-                {
-                    lbl.setWrapText(true);
-                    lbl.setMaxWidth(Double.MAX_VALUE);
-                }
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty || item == null) {
-                        setGraphic(null);
-                    } else {
-                        lbl.setText(item);
-                        lbl.setPrefWidth(getTableColumn().getWidth() - 10);
-                        setGraphic(lbl);
-                    }
+            TitledPane rows = new TitledPane(total.count == 1 ? "1 Eintrag" : total.count + " Einträge", null);
+            rows.setAnimated(false);
+            rows.expandedProperty().addListener((obs, oldV, open) -> {
+                if (open) {
+                    expandedCategories.add(category);
+                    if (rows.getContent() == null) rows.setContent(categoryTable(loadCategoryRows(category)));
+                } else {
+                    expandedCategories.remove(category);
                 }
             });
+            rows.setExpanded(expandedCategories.contains(category));
 
-            TableColumn<BudgetTransaction, Double> betragCol = new TableColumn<>("Betrag");
-            betragCol.setCellValueFactory(new PropertyValueFactory<>("amount"));
-            betragCol.setPrefWidth(100);
-            betragCol.setCellFactory(col -> new TableCell<BudgetTransaction, Double>() {
-                @Override
-                protected void updateItem(Double amt, boolean empty) {
-                    super.updateItem(amt, empty);
-                    if (empty || amt == null) setText(null);
-                    else setText(currencyFormat.format(amt));
-                    setAlignment(Pos.CENTER_RIGHT);
+            Label sumLabel = new Label("Summe " + category + ": " + currencyFormat.format(total.sum));
+            sumLabel.getStyleClass().add("small-text");
+
+            VBox box = new VBox(8, catLabel, rows, sumLabel);
+            box.setPadding(new Insets(6, 0, 12, 0));
+            box.getStyleClass().add("card");
+            categoriesContainer.getChildren().add(box);
+        }
+    }
+
+    // Buchungen einer Kategorie, neueste zuerst; Schlüssel wie bei totalsByCategory (leer = Standardkategorie)
+    private List<BudgetTransaction> loadCategoryRows(String category) {
+        List<BudgetTransaction> rows = new ArrayList<>();
+        String sql = "SELECT id, description, amount, paid_by, date, category FROM budget_transactions WHERE household_id = ? "
+                + "AND COALESCE(NULLIF(TRIM(category), ''), '" + BudgetSummaryDao.DEFAULT_CATEGORY + "') = ? ORDER BY date DESC";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, DatabaseManager.currentHousehold());
+            ps.setString(2, category);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BudgetTransaction t = new BudgetTransaction();
+                    t.setId(rs.getInt("id"));
+                    t.setAmount(rs.getDouble("amount"));
+                    t.setDescription(rs.getString("description"));
+                    t.setPaidBy(rs.getString("paid_by"));
+                    t.setDate(rs.getString("date"));
+                    t.setCategory(rs.getString("category"));
+                    rows.add(t);
                 }
-            });
+            }
+        } catch (SQLException e) {
+            System.err.println("[BudgetView] Buchungen der Kategorie " + category + " konnten nicht geladen werden: " + e.getMessage());
+        }
+        return rows;
+    }
 
-            TableColumn<BudgetTransaction, String> dateCol = new TableColumn<>("Datum");
-            dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
-            dateCol.setPrefWidth(120);
+    private TableView<BudgetTransaction> categoryTable(List<BudgetTransaction> rows) {
+        boolean adminView = isAdminUser();
 
-            TableColumn<BudgetTransaction, String> personCol = new TableColumn<>("Person");
-            personCol.setPrefWidth(120);
-            personCol.setCellValueFactory(cellData -> {
-                BudgetTransaction t = cellData.getValue();
-                String pb = t.getPaidBy();
-                return new ReadOnlyStringWrapper(pb != null ? pb : "");
-            });
+        TableView<BudgetTransaction> tv = new TableView<>();
+        tv.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        tv.setPrefHeight(Math.min(200, 40 + rows.size() * 28));
+
+        TableColumn<BudgetTransaction, String> beschrCol = new TableColumn<>("Beschreibung");
+        beschrCol.setCellValueFactory(new PropertyValueFactory<>("description"));
+        beschrCol.setPrefWidth(300);
+        // Use a wrapping label inside cells so long descriptions wrap to next line
+        beschrCol.setCellFactory(col -> new TableCell<BudgetTransaction, String>() {
+            private final Label lbl = new Label();
+            {
+                lbl.setWrapText(true);
+                lbl.setMaxWidth(Double.MAX_VALUE);
+            }
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setGraphic(null);
+                } else {
+                    lbl.setText(item);
+                    lbl.setPrefWidth(getTableColumn().getWidth() - 10);
+                    setGraphic(lbl);
+                }
+            }
+        });
 
-            if (adminView) {
-                TableColumn<BudgetTransaction, Void> deleteCol = new TableColumn<>("Löschen");
-                deleteCol.setPrefWidth(90);
-                deleteCol.setCellFactory(param -> new TableCell<>() {
-                    private final Button btn = new Button();
-                    {
-                        if (deleteIcon != null) {
-                            ImageView iv = new ImageView(deleteIcon);
-                            iv.setFitWidth(16); iv.setFitHeight(16); btn.setGraphic(iv);
-                        } else btn.setText("X");
-                        btn.setOnAction(e -> {
-                            BudgetTransaction t = getTableView().getItems().get(getIndex());
-                            if (t != null) {
-                                deleteTransaction(t.getId());
-                                transactions.remove(t);
-                                rebuildCategoryTables();
-                            }
-                        });
-                    }
-                    @Override
-                    protected void updateItem(Void item, boolean empty) {
-                        super.updateItem(item, empty);
-                        setGraphic(empty ? null : btn);
-                    }
-                });
-                tv.getColumns().addAll(beschrCol, betragCol, dateCol, personCol, deleteCol);
-            } else {
-                tv.getColumns().addAll(beschrCol, betragCol, dateCol, personCol);
+        TableColumn<BudgetTransaction, Double> betragCol = new TableColumn<>("Betrag");
+        betragCol.setCellValueFactory(new PropertyValueFactory<>("amount"));
+        betragCol.setPrefWidth(100);
+        betragCol.setCellFactory(col -> new TableCell<BudgetTransaction, Double>() {
+            @Override
+            protected void updateItem(Double amt, boolean empty) {
+                super.updateItem(amt, empty);
+                if (empty || amt == null) setText(null);
+                else setText(currencyFormat.format(amt));
+                setAlignment(Pos.CENTER_RIGHT);
             }
+        });
 
-            tv.getItems().addAll(list);
+        TableColumn<BudgetTransaction, String> dateCol = new TableColumn<>("Datum");
+        dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+        dateCol.setPrefWidth(120);
 
-            double sum = 0.0;
-            for (BudgetTransaction t : list) sum += t.getAmount();
-            Label sumLabel = new Label("Summe " + category + ": " + currencyFormat.format(sum));
-            sumLabel.getStyleClass().add("small-text");
+        TableColumn<BudgetTransaction, String> personCol = new TableColumn<>("Person");
+        personCol.setPrefWidth(120);
+        personCol.setCellValueFactory(cellData -> {
+            BudgetTransaction t = cellData.getValue();
+            String pb = t.getPaidBy();
+            return new ReadOnlyStringWrapper(pb != null ? pb : "");
+        });
 
-            VBox box = new VBox(8, catLabel, tv, sumLabel);
-            box.setPadding(new Insets(6, 0, 12, 0));
-            box.getStyleClass().add("card");
-            categoriesContainer.getChildren().add(box);
+        if (adminView) {
+            TableColumn<BudgetTransaction, Void> deleteCol = new TableColumn<>("Löschen");
+            deleteCol.setPrefWidth(90);
+            deleteCol.setCellFactory(param -> new TableCell<>() {
+                private final Button btn = new Button();
+                {
+                    if (deleteIcon != null) {
+                        ImageView iv = new ImageView(deleteIcon);
+                        iv.setFitWidth(16); iv.setFitHeight(16); btn.setGraphic(iv);
+                    } else btn.setText("X");
+                    btn.setOnAction(e -> {
+                        BudgetTransaction t = getTableView().getItems().get(getIndex());
+                        if (t != null) {
+                            deleteTransaction(t.getId());
+                            transactions.removeIf(x -> x.getId() == t.getId());
+                            rebuildCategoryTables();
+                            updateTotal();
+                        }
+                    });
+                }
+                @Override
+                protected void updateItem(Void item, boolean empty) {
+                    super.updateItem(item, empty);
+                    setGraphic(empty ? null : btn);
+                }
+            });
+            tv.getColumns().addAll(beschrCol, betragCol, dateCol, personCol, deleteCol);
+        } else {
+            tv.getColumns().addAll(beschrCol, betragCol, dateCol, personCol);
         }
+
+        tv.getItems().addAll(rows);
+        return tv;
     }
 
     private int addTransaction(String description, double amount, String paidBy, String date, String category, List<String> participants) {
-        final String sql = "INSERT INTO budget_transactions (description, amount, paid_by, date, category) VALUES (?, ?, ?, ?, ?)";
+        final String sql = "INSERT INTO budget_transactions (description, amount, paid_by, date, category, household_id) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
@@ -586,6 +671,7 @@ public class BudgetView {
             pstmt.setString(3, paidBy);
             pstmt.setString(4, date);
             pstmt.setString(5, category);
+            pstmt.setLong(6, DatabaseManager.currentHousehold());
 
             int affected = pstmt.executeUpdate();
             if (affected == 0) { showAlert("Fehler beim Hinzufügen der Transaktion."); return -1; }
@@ -659,44 +745,27 @@ public class BudgetView {
     }
 
     private List<String> loadUsernames() {
-        List<String> result = new ArrayList<>();
-        String sql = "SELECT username FROM users ORDER BY username";
-        try (Connection conn = DatabaseManager.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                String u = rs.getString("username");
-                if (u != null && !u.isEmpty()) result.add(u);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            if (currentUser != null && !currentUser.isEmpty()) result.add(currentUser);
-        }
+        // aus dem gemeinsamen Benutzer-Cache statt einer Abfrage pro Aufruf (ORDER BY username)
+        List<String> result = new ArrayList<>(UserDirectory.get().usernames());
+        Collections.sort(result);
         return result;
     }
 
     private boolean isAdminUser() {
-        if (currentUser == null) return false;
-        if ("admin".equalsIgnoreCase(currentUser.trim())) return true;
-        String sql = "SELECT is_admin FROM users WHERE username = ? LIMIT 1";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, currentUser.trim());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getInt("is_admin") == 1;
-            }
-        } catch (SQLException ignored) {}
-        return false;
+        return session != null && session.isAdmin();
     }
 
     public VBox getView() { return view; }
 
     private void updateTotal() {
-        // Global total: sum of all transaction amounts
-        double globalSum = 0.0;
-        for (BudgetTransaction t : transactions) {
-            if (t == null) continue;
-            globalSum += t.getAmount();
+        // Global total: SUM(amount) direkt in SQLite
+        double globalSum;
+        try {
+            globalSum = summaryDao.grandTotal();
+        } catch (SQLException e) {
+            System.err.println("[BudgetView] Gesamtsumme konnte nicht geladen werden: " + e.getMessage());
+            globalSum = 0.0;
+            for (BudgetTransaction t : transactions) if (t != null) globalSum += t.getAmount();
         }
         totalLabel.setText("TOTAL: " + currencyFormat.format(globalSum));
 
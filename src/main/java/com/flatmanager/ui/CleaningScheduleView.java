@@ -1,43 +1,75 @@
 package com.flatmanager.ui;
 
 import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.dao.CleaningTaskStore;
+import com.flatmanager.dao.VersionConflictException;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.TableChanges;
+import com.flatmanager.diagnostics.ViewLoadEvent;
 import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.RecurrenceRule;
+import com.flatmanager.service.RotationPlanner;
+import com.flatmanager.service.SchedulerService;
+import com.flatmanager.service.Session;
+import com.flatmanager.service.UserDirectory;
+import com.flatmanager.service.WriteBehindBuffer;
 import com.flatmanager.storage.Database;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class CleaningScheduleView {
 
     private BorderPane view;
     private String currentUser;
 
-    // Scheduler to refresh the lists daily so tasks that enter the 30-day window become visible
-    private ScheduledExecutorService scheduler;
+    // Scheduler job to refresh the lists daily so tasks that enter the 30-day window become visible
+    private static final String REFRESH_JOB = "cleaning.refresh";
+    private SchedulerService.Job refreshJob;
+    // Änderungen anderer App-Instanzen neu laden; eigene Änderungen lädt die View selbst
+    private final Consumer<TableChanges> externalChangeListener = changes -> {
+        if (changes.isExternal() && changes.affects("cleaning_tasks", "cleaning_task_assignments", "cleaning_task_completions")) {
+            Platform.runLater(() -> {
+                loadDataFromDb();
+                refreshLists();
+            });
+        }
+    };
+    // Zuweisungen, die der Puffer nach mehreren Versuchen aufgegeben hat: Datenbankstand zeigen und Fehler melden
+    private final Consumer<SQLException> writeFailureListener = ex -> Platform.runLater(() -> {
+        loadDataFromDb();
+        refreshLists();
+        showError("Zuweisungen konnten nicht gespeichert werden: " + ex.getMessage());
+    });
 
-    private final CleaningTaskDao dao = new CleaningTaskDao();
+    private final CleaningTaskStore dao = taskStore();
 
     private ObservableList<CleaningTask> assignedTasks = FXCollections.observableArrayList();
     private ObservableList<CleaningTask> openTasks = FXCollections.observableArrayList();
 
-    // Benutzerliste jetzt dynamisch aus der Datenbank geladen
+    // Benutzerliste aus dem gemeinsamen UserDirectory-Cache
     private ObservableList<String> users = FXCollections.observableArrayList();
+    private ListChangeListener<UserDirectory.Entry> userDirectoryListener;
+    // Planungszeitraum für "Rotation planen"
+    private static final int PLAN_HORIZON_WEEKS = 12;
     private ObservableList<String> recurrenceOptions = FXCollections.observableArrayList(
             "Einmalig", "Täglich", "Wöchentlich", "Monatlich", "Quartal", "Jährlich"
     );
@@ -71,6 +103,9 @@ public class CleaningScheduleView {
         } catch (Exception ex) {
             showError("Fehler beim Laden der Benutzer: " + ex.getMessage());
         }
+        // Benutzerliste folgt dem gemeinsamen Cache (z.B. nach Anlegen/Löschen durch den Admin)
+        userDirectoryListener = c -> loadUsersFromDb();
+        UserDirectory.get().getEntries().addListener(new WeakListChangeListener<>(userDirectoryListener));
 
         try {
             loadDataFromDb();
@@ -82,29 +117,24 @@ public class CleaningScheduleView {
 
         // schedule a daily refresh so tasks that are >30 days away will appear automatically
         // once they enter the 30-day window. Run first check after 1 minute to cover near-term tests.
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "CleaningScheduleView-refresh");
-            t.setDaemon(true);
-            return t;
-        });
-        scheduler.scheduleAtFixedRate(() -> {
+        refreshJob = SchedulerService.get().scheduleOnFx(REFRESH_JOB, Duration.ofMinutes(1), Duration.ofDays(1), () -> {
             try {
-                // UI update must run on FX thread
-                javafx.application.Platform.runLater(() -> {
-                    try {
-                        loadDataFromDb();
-                        refreshLists();
-                    } catch (Exception ex) {
-                        // ignore; showError already used inside
-                    }
-                });
-            } catch (Throwable ignore) {}
-        }, 1, 24 * 60, TimeUnit.MINUTES);
+                loadDataFromDb();
+                refreshLists();
+            } catch (Exception ex) {
+                // ignore; showError already used inside
+            }
+        });
 
-        // shut down scheduler when view removed from scene to avoid leaks
+        // cancel the job when view removed from scene to avoid leaks
         view.sceneProperty().addListener((obs, oldScene, newScene) -> {
-            if (newScene == null && scheduler != null && !scheduler.isShutdown()) {
-                scheduler.shutdownNow();
+            if (newScene == null) {
+                SchedulerService.get().cancel(refreshJob);
+                DatabaseManager.removeChangeListener(externalChangeListener);
+                WriteBehindBuffer.get().removeFailureListener(writeFailureListener);
+            } else {
+                DatabaseManager.addChangeListener(externalChangeListener);
+                WriteBehindBuffer.get().addFailureListener(writeFailureListener);
             }
         });
     }
@@ -184,7 +214,12 @@ public class CleaningScheduleView {
         deleteCompletedBtn.setStyle("-fx-background-color: #f0625e; -fx-text-fill: white;");
         deleteCompletedBtn.setOnAction(e -> deleteCompletedTasks());
 
-        VBox rightControls = new VBox(8, newTaskBtn, deleteCompletedBtn);
+        Button planBtn = new Button("Rotation planen");
+        planBtn.setWrapText(true);
+        planBtn.setMaxWidth(Double.MAX_VALUE);
+        planBtn.setOnAction(e -> planRotation());
+
+        VBox rightControls = new VBox(8, newTaskBtn, planBtn, deleteCompletedBtn);
         rightControls.setPadding(new Insets(8));
         rightControls.setAlignment(Pos.CENTER);
         rightControls.setFillWidth(true);
@@ -203,6 +238,7 @@ public class CleaningScheduleView {
     }
 
     private void loadDataFromDb() {
+        ViewLoadEvent load = ViewLoadEvent.start("CleaningScheduleView.loadDataFromDb");
         assignedTasks.clear();
         openTasks.clear();
         try {
@@ -210,49 +246,10 @@ public class CleaningScheduleView {
             // Zeige nur Aufgaben, die innerhalb des kommenden Monats fällig sind (Monatslänge 28-31 Tage)
             LocalDate limit = today.plusMonths(1);
 
-            java.util.Map<String, CleaningTask> recurringMap = new java.util.HashMap<>();
-            java.util.List<CleaningTask> singles = new java.util.ArrayList<>();
-
-            for (CleaningTask t : dao.listAll()) {
-                // Tasks without a due date are always visible
-                boolean withinWindow = false;
-                if (t.getDue() == null) withinWindow = true;
-                else {
-                    // show only when due is within next calendar month (inclusive)
-                    if (!t.getDue().isAfter(limit)) withinWindow = true;
-                }
-                if (!withinWindow) continue;
-
-                // If task is recurring, group by title+recurrence and keep only the nearest due date
-                if (t.getRecurrence() != null && !t.getRecurrence().trim().isEmpty()) {
-                    String key = (t.getTitle() == null ? "" : t.getTitle().trim().toLowerCase()) + "|" + t.getRecurrence().trim().toLowerCase();
-                    CleaningTask existing = recurringMap.get(key);
-                    if (existing == null) {
-                        recurringMap.put(key, t);
-                    } else {
-                        // prefer the task with the earlier due date (or the one with a non-null due)
-                        LocalDate ed = existing.getDue();
-                        LocalDate td = t.getDue();
-                        if (ed == null && td != null) {
-                            // prefer the one with a due date
-                            recurringMap.put(key, t);
-                        } else if (ed != null && td != null && td.isBefore(ed)) {
-                            recurringMap.put(key, t);
-                        } else if (ed == null && td == null) {
-                            // keep existing (both null)
-                        }
-                    }
-                } else {
-                    singles.add(t);
-                }
-            }
-
-            // combine singles + deduplicated recurring
-            java.util.List<CleaningTask> toShow = new java.util.ArrayList<>();
-            toShow.addAll(singles);
-            toShow.addAll(recurringMap.values());
-
-            for (CleaningTask t : toShow) {
+            // Fenster und Serien-Deduplizierung laufen in SQL; wiederkehrende Aufgaben kommen als Termine zurück
+            for (CleaningTask t : dao.listOccurrences(today, limit)) {
+                // noch nicht geschriebene Zuweisungen aus dem Write-Behind-Puffer haben Vorrang
+                t.setAssignedTo(WriteBehindBuffer.get().pendingValue(assigneeKey(t), t.getAssignedTo()));
                 if (t.hasAssignee()) assignedTasks.add(t);
                 else openTasks.add(t);
             }
@@ -261,6 +258,7 @@ public class CleaningScheduleView {
             // Fehler protokollieren, UI leer lassen, Fehler anzeigen
             showError("Kann Aufgaben nicht laden: " + ex.getMessage());
         }
+        ViewLoadEvent.finish(load, assignedTasks.size() + openTasks.size());
     }
 
     private void refreshLists() {
@@ -289,7 +287,9 @@ public class CleaningScheduleView {
         cb.setOnAction(e -> {
             task.setCompleted(cb.isSelected());
             try {
-                dao.update(task);
+                // bei Serien nur diesen Termin abhaken, nicht die ganze Regel
+                if (task.isRecurring()) dao.setOccurrenceCompleted(task.getId(), task.getDue(), cb.isSelected());
+                else dao.update(task);
                 try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
 
                 // Hinweis: Die nächste wiederkehrende Aufgabe wird jetzt nur noch beim Löschen
@@ -297,6 +297,8 @@ public class CleaningScheduleView {
                 // Vorher war hier eine sofortige Erzeugung beim Abhaken implementiert —
                 // diese Logik wurde entfernt, damit die neue Aufgabe erst nach Löschung erscheint.
 
+            } catch (VersionConflictException ex) {
+                showConflict(ex);
             } catch (Exception ex) {
                 showError("Fehler beim Aktualisieren: " + ex.getMessage());
             }
@@ -311,7 +313,8 @@ public class CleaningScheduleView {
         meta.getStyleClass().add("due-text"); // Farbe über CSS, damit Dark-Mode Override möglich
         meta.setWrapText(true);
 
-        String recText = task.getRecurrence() == null ? "Einmalig" : task.getRecurrence();
+        RecurrenceRule rule = task.getRecurrenceRule();
+        String recText = rule != null ? rule.label() : (task.getRecurrence() == null ? "Einmalig" : task.getRecurrence());
         Label recurring = new Label(recText);
         recurring.getStyleClass().add("small-text");
 
@@ -347,13 +350,38 @@ public class CleaningScheduleView {
             else equal = old.equals(newAssignee);
             if (equal) return; // keine Änderung
             task.setAssignedTo(newAssignee);
-            try {
-                dao.update(task);
-                clearError();
-                try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
-            } catch (Exception ex) {
-                showError("Fehler beim Aktualisieren der Zuweisung: " + ex.getMessage());
+            // gepuffert schreiben: mehrfaches Umstellen ergibt einen Schreibzugriff
+            // bei Serien gilt die Zuweisung nur für diesen Termin (überschreibt ggf. den Rotationsplan)
+            int id = task.getId();
+            LocalDate occurrence = task.getDue();
+            boolean series = task.isRecurring();
+            if (dao instanceof CleaningTaskDao local) {
+                WriteBehindBuffer.get().submit(assigneeKey(task), newAssignee, conn -> {
+                    if (series) {
+                        local.assignOccurrence(conn, id, occurrence, newAssignee);
+                        return;
+                    }
+                    try {
+                        local.setAssignee(conn, task, newAssignee);
+                    } catch (VersionConflictException ex) {
+                        // nur diese Änderung verwerfen, der Rest des Flushs wird geschrieben
+                        Platform.runLater(() -> showConflict(ex));
+                    }
+                });
+            } else {
+                // Thin Client: der Server bündelt die Schreibzugriffe selbst
+                try {
+                    if (series) dao.assignOccurrence(id, occurrence, newAssignee);
+                    else dao.setAssignee(task, newAssignee);
+                } catch (VersionConflictException ex) {
+                    showConflict(ex);
+                    return;
+                } catch (SQLException ex) {
+                    showError("Zuweisung konnte nicht gespeichert werden: " + ex.getMessage());
+                    return;
+                }
             }
+            clearError();
             // Listen aktualisieren: verschiebe zwischen assigned/open
             if (task.hasAssignee()) {
                 if (!assignedTasks.contains(task)) assignedTasks.add(task);
@@ -407,10 +435,6 @@ public class CleaningScheduleView {
 
         // Apply styles and theme to the dialog pane so it follows dark-mode
         dialog.getDialogPane().getStyleClass().add("dialog-pane");
-        try {
-            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-            if (!dialog.getDialogPane().getStylesheets().contains(css)) dialog.getDialogPane().getStylesheets().add(css);
-        } catch (Exception ignored) {}
         com.flatmanager.ui.ThemeManager.styleDialogPane(dialog.getDialogPane());
 
         ButtonType createType = new ButtonType("Erstellen", ButtonBar.ButtonData.OK_DONE);
@@ -441,6 +465,11 @@ public class CleaningScheduleView {
         ComboBox<String> recurrenceCombo = new ComboBox<>(recurrenceOptions);
         recurrenceCombo.setEditable(false);
         recurrenceCombo.setValue("Einmalig");
+        // Intervall der Wiederholung, z.B. "alle 2 Wochen"
+        Spinner<Integer> intervalSpinner = new Spinner<>(1, 12, 1);
+        intervalSpinner.setEditable(false);
+        intervalSpinner.setPrefWidth(70);
+        intervalSpinner.disableProperty().bind(recurrenceCombo.valueProperty().isEqualTo("Einmalig"));
 
         CheckBox urgentCheck = new CheckBox("Dringend");
 
@@ -451,7 +480,7 @@ public class CleaningScheduleView {
         grid.add(new Label("Zugewiesen an:"), 0, 2);
         grid.add(assigneeCombo, 1, 2);
         grid.add(new Label("Regelmäßig:"), 0, 3);
-        grid.add(recurrenceCombo, 1, 3);
+        grid.add(new HBox(8, recurrenceCombo, new Label("alle"), intervalSpinner), 1, 3);
         grid.add(new Label("Wichtig:"), 0, 4);
         grid.add(urgentCheck, 1, 4);
 
@@ -467,7 +496,7 @@ public class CleaningScheduleView {
                 dialog.setResult(new CleaningTask(titleField.getText().trim(),
                         duePicker.getValue(),
                         ("Nicht zugewiesen".equals(assigneeCombo.getValue()) ? null : assigneeCombo.getValue()),
-                        recurrenceCombo.getValue(),
+                        recurrenceText(recurrenceCombo.getValue(), intervalSpinner.getValue()),
                         urgentCheck.isSelected()));
                 dialog.close();
             }
@@ -479,7 +508,7 @@ public class CleaningScheduleView {
                 if (assigneeVal == null || assigneeVal.trim().isEmpty() || "Nicht zugewiesen".equals(assigneeVal))
                     assigneeVal = null;
                 return new CleaningTask(titleField.getText().trim(), duePicker.getValue(),
-                        assigneeVal, recurrenceCombo.getValue(), urgentCheck.isSelected());
+                        assigneeVal, recurrenceText(recurrenceCombo.getValue(), intervalSpinner.getValue()), urgentCheck.isSelected());
             }
             return null;
         });
@@ -489,8 +518,8 @@ public class CleaningScheduleView {
             // nur hier persistieren und UI aktualisieren
             try {
                 dao.insert(task); // setzt task.id
-                if (task.hasAssignee()) assignedTasks.add(task);
-                else openTasks.add(task);
+                // neu laden, damit bei Serien alle Termine im Fenster erscheinen
+                loadDataFromDb();
                 refreshLists();
                 clearError();
                 // notify dashboard immediately
@@ -501,84 +530,125 @@ public class CleaningScheduleView {
         });
     }
 
+    // im Thin-Client-Betrieb über den API-Server der Sitzung, sonst direkt auf der Datenbank
+    private static CleaningTaskStore taskStore() {
+        Session session = Session.current();
+        if (session != null && session.getApi() != null) return session.getApi().cleaningTasks();
+        return new CleaningTaskDao();
+    }
+
+    // Änderung an einer Zeile, die eine andere App-Instanz inzwischen geändert hat: nichts überschreiben,
+    // sondern neu laden und Bescheid geben
+    private void showConflict(VersionConflictException ex) {
+        loadDataFromDb();
+        refreshLists();
+        showError(ex.isDeleted()
+                ? "Die Aufgabe wurde inzwischen von jemand anderem gelöscht."
+                : "Die Aufgabe wurde inzwischen von jemand anderem geändert. Die Ansicht wurde neu geladen.");
+    }
+
+    // Schlüssel im Write-Behind-Puffer: je Serientermin bzw. je einmaliger Aufgabe
+    private static String assigneeKey(CleaningTask task) {
+        if (task.isRecurring()) return "cleaning_task_assignments#" + task.getId() + "@" + task.getDue();
+        return "cleaning_tasks.assigned_to#" + task.getId();
+    }
+
     private void deleteCompletedTasks() {
         try {
-            // Zuerst erledigte Aufgaben lesen, um vor dem Löschen ggf. wiederkehrende Aufgaben neu anzulegen
-            java.util.List<CleaningTask> completed = dao.listCompleted();
-            for (CleaningTask t : completed) {
-                // Unterstützte Wiederholungen: Wöchentlich (Period.ofDays(7)) und Monatlich (Period.ofMonths(1))
-                if (t.getRecurrence() != null) {
-                    String rec = t.getRecurrence();
-                    java.time.Period addPeriod = null;
-                    if (rec.equalsIgnoreCase("Wöchentlich")) addPeriod = java.time.Period.ofDays(7);
-                    else if (rec.equalsIgnoreCase("Monatlich")) addPeriod = java.time.Period.ofMonths(1);
-
-                    if (addPeriod != null) {
-                        // Nur rotieren, wenn die Aufgabe einen zugewiesenen Benutzer hat
-                        String currentAssignee = t.getAssignedTo();
-                        if (currentAssignee != null && !currentAssignee.trim().isEmpty() && users != null && !users.isEmpty()) {
-                            // finde index des aktuellen Benutzers in users; fallback falls nicht gefunden
-                            int idx = -1;
-                            for (int i = 0; i < users.size(); i++) {
-                                String u = users.get(i);
-                                if (u != null && u.equals(currentAssignee)) { idx = i; break; }
-                            }
-                            int nextIdx = 0;
-                            if (idx >= 0) nextIdx = (idx + 1) % users.size();
-                            String nextUser = users.get(nextIdx);
-
-                            // neues Fälligkeitsdatum: +addPeriod (wenn due == null, setze heute +addPeriod)
-                            java.time.LocalDate newDue = (t.getDue() != null) ? t.getDue().plus(addPeriod) : java.time.LocalDate.now().plus(addPeriod);
-
-                            CleaningTask newTask = new CleaningTask(t.getTitle(), newDue, nextUser, t.getRecurrence(), t.isUrgent());
-                            try {
-                                dao.insert(newTask);
-                                // füge zur UI-Liste hinzu
-                                if (newTask.hasAssignee()) assignedTasks.add(newTask); else openTasks.add(newTask);
-                            } catch (Exception ex) {
-                                showError("Fehler beim Anlegen wiederkehrender Aufgabe: " + ex.getMessage());
-                            }
-                        }
+            WriteBehindBuffer.get().flush();
+            int conflicts = 0;
+            // Serien: über alle erledigten Termine ab dem Start hinweg vorrücken und je Termin weiterrotieren
+            for (CleaningTask series : dao.listRecurring()) {
+                RecurrenceRule rule = series.getRecurrenceRule();
+                java.util.Set<LocalDate> done = dao.listCompletedOccurrences(series.getId());
+                LocalDate start = series.getDue();
+                int steps = 0;
+                while ((steps == 0 && series.isCompleted()) || done.contains(rule.occurrence(start, steps))) steps++;
+                if (steps == 0) continue;
+
+                String assignee = series.getAssignedTo();
+                if (series.hasAssignee()) {
+                    // ohne Benutzer kann nicht rotiert werden: die Serie endet wie bisher
+                    if (users == null || users.isEmpty()) {
+                        dao.deleteSeries(series.getId());
+                        continue;
                     }
+                    for (int i = 0; i < steps; i++) assignee = nextAssignee(assignee);
+                }
+                try {
+                    dao.advance(series, rule.occurrence(start, steps), assignee);
+                } catch (VersionConflictException ex) {
+                    // eine andere Instanz hat die Serie bereits vorgerückt
+                    conflicts++;
+                } catch (Exception ex) {
+                    showError("Fehler beim Anlegen wiederkehrender Aufgabe: " + ex.getMessage());
                 }
             }
 
-            // Nun tatsächlich löschen
+            // Nun die erledigten einmaligen Aufgaben tatsächlich löschen
             dao.deleteCompleted();
-            clearError();
+            if (conflicts > 0) showError(conflicts + " Serie(n) wurden inzwischen anderswo geändert und übersprungen.");
+            else clearError();
         } catch (Exception ex) {
             showError("Fehler beim Löschen erledigter Aufgaben: " + ex.getMessage());
         }
-        assignedTasks.removeIf(CleaningTask::isCompleted);
-        openTasks.removeIf(CleaningTask::isCompleted);
+        loadDataFromDb();
         refreshLists();
         // notify dashboard immediately
         try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
     }
 
+    // Verteilt die Termine der kommenden Wochen nach Aufwand auf alle Benutzer und speichert den Plan
+    private void planRotation() {
+        if (users == null || users.isEmpty()) {
+            showError("Keine Benutzer für die Rotation vorhanden.");
+            return;
+        }
+        try {
+            WriteBehindBuffer.get().flush();
+            LocalDate today = LocalDate.now();
+            new RotationPlanner(dao).planAndSave(today, today.plusWeeks(PLAN_HORIZON_WEEKS), new ArrayList<>(users), List.of());
+            clearError();
+        } catch (Exception ex) {
+            showError("Fehler beim Planen der Rotation: " + ex.getMessage());
+        }
+        loadDataFromDb();
+        refreshLists();
+        try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
+    }
+
+    // Speicherform der Wiederholung aus Auswahl und Intervall ("Wöchentlich" bzw. "FREQ=WEEKLY;INTERVAL=2")
+    private static String recurrenceText(String choice, Integer interval) {
+        RecurrenceRule base = RecurrenceRule.parse(choice);
+        if (base == null) return choice;
+        int n = interval == null ? 1 : interval;
+        return RecurrenceRule.of(base.getFrequency(), n).toText();
+    }
+
+    // Nächster Benutzer in der Rotation; unbekannte Zuständige beginnen beim ersten Benutzer
+    private String nextAssignee(String current) {
+        int idx = -1;
+        for (int i = 0; i < users.size(); i++) {
+            String u = users.get(i);
+            if (u != null && u.equals(current)) { idx = i; break; }
+        }
+        return users.get(idx >= 0 ? (idx + 1) % users.size() : 0);
+    }
+
     public Node getView() {
         return view;
     }
 
     // Lädt Benutzernamen aus der DB und füllt die ObservableList users
     private void loadUsersFromDb() {
-        users.clear();
-        String sql = "SELECT username FROM users ORDER BY LOWER(username)";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                String u = rs.getString("username");
-                if (u != null && !u.trim().isEmpty()) {
-                    // admin wird ebenfalls in die Auswahl aufgenommen
-                    users.add(u.trim());
-                }
-            }
-            clearError();
-        } catch (SQLException ex) {
-            // falls DB nicht erreichbar ist, bleibt users leer; Fehler kurz melden
-            showError("Fehler beim Laden der Benutzer: " + ex.getMessage());
+        // aus dem gemeinsamen Benutzer-Cache (ORDER BY LOWER(username)); admin wird ebenfalls aufgenommen
+        List<String> loaded = new ArrayList<>();
+        for (String u : UserDirectory.get().usernames()) {
+            if (!u.trim().isEmpty()) loaded.add(u.trim());
         }
+        loaded.sort(Comparator.comparing(u -> u.toLowerCase(Locale.ROOT)));
+        users.setAll(loaded);
+        clearError();
     }
 
     // UI-Hilfsmethoden für Fehleranzeige
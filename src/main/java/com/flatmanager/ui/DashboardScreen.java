@@ -1,48 +1,70 @@
 package com.flatmanager.ui;
 
+import com.flatmanager.dao.DashboardSummaryDao;
 import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.SearchIndex;
+import com.flatmanager.diagnostics.ViewLoadEvent;
+import com.flatmanager.service.SchedulerService;
+import com.flatmanager.service.SearchService;
+import com.flatmanager.service.Session;
+import com.flatmanager.service.UserDirectory;
+import com.flatmanager.service.WriteBehindBuffer;
 import com.flatmanager.storage.Database;
+import javafx.animation.PauseTransition;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.ContentDisplay;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import javafx.util.Duration;
 
-import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.application.Platform;
-import javafx.util.Duration;
 import javafx.scene.Scene;
 
 /**
  * Haupt-Dashboard der Anwendung. Zeigt Zusammenfassungen für Aufgaben, Einkaufsliste und Finanzen
- * sowie die linke Navigation und Top-Bar. Enthält einen internen Refresh-Timer und einen
- * statischen Benachrichtigungs-Helfer {@link #notifyRefreshNow()} zum Triggern eines sofortigen Refreshes
- * von anderen Komponenten.
+ * sowie die linke Navigation und Top-Bar. Aktualisiert sich periodisch über den {@link SchedulerService}
+ * (Job "dashboard.refresh") und bietet einen statischen Benachrichtigungs-Helfer {@link #notifyRefreshNow()}
+ * zum Triggern eines sofortigen Refreshes von anderen Komponenten.
  */
 public class DashboardScreen {
     private BorderPane view;
     private String currentUser;
     private VBox contentArea;
-    // timeline for automatic refresh
-    private Timeline refreshTimeline;
+    // periodischer Refresh über den anwendungsweiten Scheduler
+    private static final String REFRESH_JOB = "dashboard.refresh";
+    public static final double ICON_SIZE = 18;
+    // Datenänderungen melden die Änderungs-Hooks bzw. der ExternalChangeWatcher; der Job aktualisiert
+    // nur noch datumsabhängige Texte (z.B. "heute fällig")
+    private static final java.time.Duration REFRESH_PERIOD = java.time.Duration.ofMinutes(1);
+    private SchedulerService.Job refreshJob;
     // active instance for cross-component notify
     private static DashboardScreen activeInstance = null;
 
+    // jeder Commit auf den angezeigten Tabellen (auch gepufferte Häkchen/Zuweisungen und andere Views)
+    // löst einen Refresh aus; die Änderungs-Hooks melden erst nach Abschluss des Commits
+    static {
+        DatabaseManager.addChangeListener(changes -> {
+            if (changes.affects("cleaning_tasks", "cleaning_task_assignments", "cleaning_task_completions",
+                    "shopping_items", "budget_transactions", "budget_shares", "users")) {
+                try { Platform.runLater(DashboardScreen::notifyRefreshNow); } catch (Throwable ignore) {}
+            }
+        });
+    }
+    // trigger-gepflegte Zähler statt COUNT(*) und Voll-Laden bei jedem Refresh; Tabelle und Trigger legt ensureSchema an
+    private final DashboardSummaryDao summaryDao = new DashboardSummaryDao();
+    private String resolvedUser;
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private long searchTicket;
+
     /**
      * Erzeugt ein neues Dashboard für den gegebenen Benutzer.
      * @param username Anzeige-Name oder Username des aktuell eingeloggten Nutzers
@@ -98,8 +120,11 @@ public class DashboardScreen {
         logoutButton.setOnAction(e -> logout());
 
         Node adminNode = AdminToolbar.settingsNode(currentUser);
+        Node diagnosticsNode = DiagnosticsMenu.settingsNode();
+
+        TextField searchField = createSearchField();
 
-        topBar.getChildren().addAll(titleLabel, spacer, adminNode, themeToggle, logoutButton);
+        topBar.getChildren().addAll(titleLabel, spacer, searchField, adminNode, diagnosticsNode, themeToggle, logoutButton);
 
         // Content area: stack of cards (default center)
         contentArea = new VBox(18);
@@ -125,38 +150,23 @@ public class DashboardScreen {
         // refresh values when shown / could add listeners to stage size if needed
         refreshAll();
 
-        // create a periodic refresh timeline (every 5 seconds)
-        if (refreshTimeline == null) {
-            refreshTimeline = new Timeline(new KeyFrame(Duration.seconds(5), ev -> {
-                // only refresh when dashboard content is currently visible in center
-                Platform.runLater(() -> {
-                    if (view.getCenter() == contentArea) refreshAll();
-                });
-            }));
-            refreshTimeline.setCycleCount(Timeline.INDEFINITE);
-        }
-
-        // start/stop timeline based on scene visibility
+        // start/stop the scheduler job based on scene visibility
         view.sceneProperty().addListener((obs, oldScene, newScene) -> {
             if (newScene != null) {
-                // scene set, start timeline
-                if (refreshTimeline != null) refreshTimeline.play();
+                // only refresh when dashboard content is currently visible in center
+                refreshJob = SchedulerService.get().scheduleOnFx(REFRESH_JOB, REFRESH_PERIOD, REFRESH_PERIOD, () -> {
+                    if (view.getScene() != null && view.getCenter() == contentArea) refreshAll();
+                });
                 // register as active instance
                 DashboardScreen.registerActive(DashboardScreen.this);
             } else {
-                // removed from scene, stop timeline to avoid leaks
-                if (refreshTimeline != null) refreshTimeline.stop();
+                // removed from scene, cancel job to avoid leaks
+                SchedulerService.get().cancel(refreshJob);
+                refreshJob = null;
                 // unregister
                 DashboardScreen.unregisterActive(DashboardScreen.this);
             }
         });
-
-        // Also pause if center is changed away from dashboard, resume when returned
-        view.centerProperty().addListener((obs, oldC, newC) -> {
-            if (refreshTimeline == null) return;
-            if (newC == contentArea) refreshTimeline.play();
-            else refreshTimeline.pause();
-        });
     }
 
     // Static helpers so other views can trigger an immediate dashboard refresh
@@ -327,259 +337,99 @@ public class DashboardScreen {
     }
 
     private void refreshAll() {
-        refreshTasks();
-        refreshShopping();
-        refreshFinance();
+        ViewLoadEvent load = ViewLoadEvent.start("DashboardScreen.refreshAll");
+        // ein Lookup für alle drei Karten
+        DashboardSummaryDao.Snapshot snap = loadSummary();
+        if (snap == null) {
+            ViewLoadEvent.finish(load, 0);
+            return;
+        }
+        renderTasks(snap);
+        renderShopping(snap);
+        renderFinance(snap);
+        ViewLoadEvent.finish(load, 3);
     }
 
     private void refreshTasks() {
-        try (Connection conn = DatabaseManager.getConnection()) {
-            // count tasks assigned to currentUser
-            int myCount = 0;
-            int openCount = 0;
-
-            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS c FROM cleaning_tasks WHERE assigned_to = ?")) {
-                ps.setString(1, currentUser);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) myCount = rs.getInt("c");
-                }
-            } catch (Exception ignored) {
-            }
-
-            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS c FROM cleaning_tasks WHERE completed = 0")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) openCount = rs.getInt("c");
-                }
-            } catch (Exception ignored) {
-            }
-
-            // update UI: find the titled pane by its header label text safely
-            for (Node n : contentArea.getChildren()) {
-                if (n instanceof TitledPane) {
-                    TitledPane tp = (TitledPane) n;
-                    String header = getCardHeaderText(tp);
-                    if ("Aufgaben".equals(header)) {
-                        VBox[] boxes = (VBox[]) tp.getUserData();
-                        Node v0 = boxes[0].lookup("#stat-value");
-                        Node v1 = boxes[1].lookup("#stat-value");
-                        if (v0 instanceof Label) ((Label) v0).setText(String.valueOf(myCount));
-                        if (v1 instanceof Label) ((Label) v1).setText(String.valueOf(openCount));
-                        break;
-                    }
-                }
-            }
-
-        } catch (Exception e) {
-            System.out.println("Fehler beim Laden der Aufgaben-Daten: " + e.getMessage());
-        }
+        DashboardSummaryDao.Snapshot snap = loadSummary();
+        if (snap != null) renderTasks(snap);
     }
 
     private void refreshShopping() {
-        try (Connection conn = DatabaseManager.getConnection()) {
-            int total = 0;
-            int mine = 0;
-
-            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS c FROM shopping_items")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) total = rs.getInt("c");
-                }
-            } catch (Exception ignored) {
-            }
-
-            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS c FROM shopping_items WHERE purchased_for = ?")) {
-                ps.setString(1, currentUser);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) mine = rs.getInt("c");
-                }
-            } catch (Exception ignored) {
-            }
+        DashboardSummaryDao.Snapshot snap = loadSummary();
+        if (snap != null) renderShopping(snap);
+    }
 
-            for (Node n : contentArea.getChildren()) {
-                if (n instanceof TitledPane) {
-                    TitledPane tp = (TitledPane) n;
-                    String header = getCardHeaderText(tp);
-                    if ("Einkaufsliste".equals(header)) {
-                        VBox[] boxes = (VBox[]) tp.getUserData();
-                        Node v0 = boxes[0].lookup("#stat-value");
-                        Node v1 = boxes[1].lookup("#stat-value");
-                        if (v0 instanceof Label) ((Label) v0).setText(String.valueOf(total));
-                        if (v1 instanceof Label) ((Label) v1).setText(String.valueOf(mine));
-                        break;
-                    }
-                }
-            }
+    private void refreshFinance() {
+        DashboardSummaryDao.Snapshot snap = loadSummary();
+        if (snap != null) renderFinance(snap);
+    }
 
+    /**
+     * Liest die trigger-gepflegten Zähler für den aktuellen Benutzer (roh und aufgelöst) in einer Abfrage.
+     */
+    private DashboardSummaryDao.Snapshot loadSummary() {
+        try {
+            String resolved = UserDirectory.get().resolveUsername(currentUser);
+            resolvedUser = resolved;
+            return summaryDao.load(currentUser, resolved);
         } catch (Exception e) {
-            System.out.println("Fehler beim Laden der Einkaufs-Daten: " + e.getMessage());
+            System.out.println("Fehler beim Laden der Dashboard-Daten: " + e.getMessage());
+            return null;
         }
     }
 
-    private void refreshFinance() {
-        // We'll compute per-user balances from transactions and shares similarly to BudgetView
-        try (Connection conn = DatabaseManager.getConnection()) {
-            // resolve currentUser to actual username stored in users table (handles display names)
-            String resolvedUser = resolveUsername(conn, currentUser);
-            // Load all transactions
-            String txSql = "SELECT id, amount, paid_by FROM budget_transactions";
-            List<TransactionRow> txs = new ArrayList<>();
-            try (PreparedStatement ps = conn.prepareStatement(txSql);
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int id = rs.getInt("id");
-                    double amount = rs.getDouble("amount");
-                    String paidBy = rs.getString("paid_by");
-                    txs.add(new TransactionRow(id, amount, paidBy));
-                }
-            }
-
-            // Load shares for transactions
-            Map<Integer, Map<String, Double>> sharesMap = new HashMap<>();
-            String shareSql = "SELECT transaction_id, username, share FROM budget_shares";
-            try (PreparedStatement ps = conn.prepareStatement(shareSql);
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int tid = rs.getInt("transaction_id");
-                    String user = rs.getString("username");
-                    double share = rs.getDouble("share");
-                    sharesMap.computeIfAbsent(tid, k -> new HashMap<>()).put(user, share);
-                }
-            }
-
-            // Load all users for equal-split fallback
-            List<String> users = new ArrayList<>();
-            try (PreparedStatement ps = conn.prepareStatement("SELECT username FROM users");
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) users.add(rs.getString("username"));
-            }
-
-            // compute balances map
-            Map<String, Double> balances = new HashMap<>();
-            for (TransactionRow tr : txs) {
-                if (tr.paidBy != null) balances.put(tr.paidBy, balances.getOrDefault(tr.paidBy, 0.0) + tr.amount);
-                Map<String, Double> shares = sharesMap.get(tr.id);
-                if (shares != null && !shares.isEmpty()) {
-                    for (Map.Entry<String, Double> e : shares.entrySet()) {
-                        String u = e.getKey();
-                        double debt = e.getValue() * tr.amount;
-                        balances.put(u, balances.getOrDefault(u, 0.0) - debt);
-                    }
-                } else {
-                    List<String> participants = users.isEmpty() ? (tr.paidBy != null ? List.of(tr.paidBy) : List.of()) : users;
-                    if (!participants.isEmpty()) {
-                        double share = 1.0 / participants.size();
-                        for (String u : participants) {
-                            double debt = share * tr.amount;
-                            balances.put(u, balances.getOrDefault(u, 0.0) - debt);
-                        }
-                    }
-                }
-            }
-
-            double owedToMe = 0.0;
-            double oweOthers = 0.0;
-            if (resolvedUser != null) {
-                double bal = balances.getOrDefault(resolvedUser, 0.0);
-                // as fallback, try case-insensitive match if exact key not found
-                if (Math.abs(bal) < 0.000001) {
-                    for (Map.Entry<String, Double> e : balances.entrySet()) {
-                        if (e.getKey() != null && resolvedUser.equalsIgnoreCase(e.getKey())) {
-                            bal = e.getValue();
-                            break;
-                        }
-                    }
-                }
-                if (bal > 0) owedToMe = bal;
-                else oweOthers = -bal;
-            } else if (currentUser != null) {
-                // last attempt: use raw currentUser as key (case-insensitive lookup)
-                double bal = balances.getOrDefault(currentUser, 0.0);
-                if (Math.abs(bal) < 0.000001) {
-                    for (Map.Entry<String, Double> e : balances.entrySet()) {
-                        if (e.getKey() != null && currentUser.equalsIgnoreCase(e.getKey())) {
-                            bal = e.getValue();
-                            break;
-                        }
-                    }
-                }
-                if (bal > 0) owedToMe = bal;
-                else oweOthers = -bal;
-            }
+    private void renderTasks(DashboardSummaryDao.Snapshot snap) {
+        int myCount = snap.count(currentUser, DashboardSummaryDao.TASKS_ASSIGNED);
+        int openCount = snap.count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN);
+        setStatValues("Aufgaben", String.valueOf(myCount), String.valueOf(openCount));
+    }
 
-            for (Node n : contentArea.getChildren()) {
-                if (n instanceof TitledPane) {
-                    TitledPane tp = (TitledPane) n;
-                    String header = getCardHeaderText(tp);
-                    if ("Finanzen".equals(header)) {
-                        VBox[] boxes = (VBox[]) tp.getUserData();
-                        Node v0 = boxes[0].lookup("#stat-value");
-                        Node v1 = boxes[1].lookup("#stat-value");
-                        if (v0 instanceof Label) ((Label) v0).setText(String.format("%.2f €", owedToMe));
-                        if (v1 instanceof Label) ((Label) v1).setText(String.format("%.2f €", oweOthers));
-                        break;
-                    }
-                }
-            }
+    private void renderShopping(DashboardSummaryDao.Snapshot snap) {
+        int total = snap.count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.SHOPPING_TOTAL);
+        int mine = snap.count(currentUser, DashboardSummaryDao.SHOPPING_FOR);
+        setStatValues("Einkaufsliste", String.valueOf(total), String.valueOf(mine));
+    }
 
-        } catch (Exception e) {
-            System.out.println("Fehler beim Laden der Finanz-Daten: " + e.getMessage());
-        }
+    private void renderFinance(DashboardSummaryDao.Snapshot snap) {
+        // Saldo aus den laufenden Summen; resolvedUser behandelt Anzeigenamen
+        String user = resolvedUser != null ? resolvedUser : currentUser;
+        double bal = snap.balance(user);
+        double owedToMe = bal > 0 ? bal : 0.0;
+        double oweOthers = bal < 0 ? -bal : 0.0;
+        setStatValues("Finanzen", String.format("%.2f €", owedToMe), String.format("%.2f €", oweOthers));
     }
 
-    // try to resolve display username to actual username from users table
-    private String resolveUsername(Connection conn, String user) {
-        if (conn == null || user == null) return null;
-        String trimmed = user.trim();
-        // if format like "Name (username)" extract inside parentheses
-        int p = trimmed.indexOf('(');
-        if (p >= 0) {
-            int q = trimmed.indexOf(')', p);
-            if (q > p) {
-                String inside = trimmed.substring(p + 1, q).trim();
-                if (!inside.isEmpty()) return inside;
-            }
-        }
-        // try exact match on username or name (case-insensitive)
-        try (PreparedStatement ps = conn.prepareStatement("SELECT username FROM users WHERE username = ? OR name = ? COLLATE NOCASE LIMIT 1")) {
-            ps.setString(1, trimmed);
-            ps.setString(2, trimmed);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getString("username");
+    private void setStatValues(String cardHeader, String first, String second) {
+        // update UI: find the titled pane by its header label text safely
+        for (Node n : contentArea.getChildren()) {
+            if (n instanceof TitledPane) {
+                TitledPane tp = (TitledPane) n;
+                String header = getCardHeaderText(tp);
+                if (cardHeader.equals(header)) {
+                    VBox[] boxes = (VBox[]) tp.getUserData();
+                    Node v0 = boxes[0].lookup("#stat-value");
+                    Node v1 = boxes[1].lookup("#stat-value");
+                    if (v0 instanceof Label) ((Label) v0).setText(first);
+                    if (v1 instanceof Label) ((Label) v1).setText(second);
+                    break;
+                }
             }
-        } catch (Exception ignored) {
         }
-        return null;
     }
 
+    // geteiltes, auf 18px vorskaliertes Icon aus dem ImageCache; null, wenn es fehlt
     private ImageView loadIconView(String fileName) {
-        final String[] candidates = {"/icons/" + fileName, "icons/" + fileName, "/" + fileName, fileName};
-        URL url = null;
-        for (String p : candidates) {
-            url = DashboardScreen.class.getResource(p);
-            if (url != null) break;
-            String lookup = p.startsWith("/") ? p.substring(1) : p;
-            url = DashboardScreen.class.getClassLoader().getResource(lookup);
-            if (url != null) break;
-        }
-
-        if (url != null) {
-            try {
-                Image img = new Image(url.toExternalForm(), 18, 18, true, true, true);
-                if (!img.isError()) {
-                    ImageView iv = new ImageView(img);
-                    iv.setFitWidth(18);
-                    iv.setFitHeight(18);
-                    return iv;
-                }
-            } catch (Exception ex) {
-                System.err.println("Fehler beim Laden des Icons `" + fileName + "`: " + ex);
-            }
-        } else {
-            System.err.println("Icon nicht gefunden im Klassenpfad: versuchte Pfade für `" + fileName + "`");
-        }
-        return null;
+        return ImageCache.view(fileName, ICON_SIZE);
     }
 
     private void logout() {
+        try {
+            WriteBehindBuffer.get().flush();
+        } catch (Exception e) {
+            System.err.println("[DashboardScreen] Offene Änderungen konnten nicht geschrieben werden: " + e.getMessage());
+        }
+        Session.end();
         com.flatmanager.App.showLoginScreen();
     }
 
@@ -679,6 +529,82 @@ public class DashboardScreen {
         return sb;
     }
 
+    // Globale Suche: erst nach einer kurzen Tipppause suchen, im Hintergrund, nur die letzte Antwort zählt
+    private TextField createSearchField() {
+        TextField field = new TextField();
+        field.setPromptText("Suchen …");
+        field.setPrefColumnCount(16);
+        field.getStyleClass().add("global-search");
+        ContextMenu results = new ContextMenu();
+
+        PauseTransition debounce = new PauseTransition(SEARCH_DEBOUNCE);
+        debounce.setOnFinished(e -> runSearch(field, results));
+        field.textProperty().addListener((obs, oldV, newV) -> debounce.playFromStart());
+        field.setOnAction(e -> {
+            debounce.stop();
+            runSearch(field, results);
+        });
+        return field;
+    }
+
+    private void runSearch(TextField field, ContextMenu results) {
+        String query = field.getText();
+        long ticket = ++searchTicket;
+        if (SearchIndex.matchQuery(query) == null) {
+            results.hide();
+            return;
+        }
+        SearchService.get().searchAsync(query, SearchService.DEFAULT_LIMIT).thenAccept(hits -> Platform.runLater(() -> {
+            if (ticket != searchTicket) return; // inzwischen weitergetippt
+            List<MenuItem> items = new ArrayList<>();
+            for (SearchService.Hit hit : hits) {
+                MenuItem item = new MenuItem(searchKindLabel(hit.kind) + ": " + hit.text);
+                item.setMnemonicParsing(false);
+                item.setOnAction(e -> openSearchHit(hit));
+                items.add(item);
+            }
+            if (items.isEmpty()) {
+                MenuItem none = new MenuItem("Keine Treffer");
+                none.setDisable(true);
+                items.add(none);
+            }
+            results.getItems().setAll(items);
+            if (!results.isShowing() && field.getScene() != null) results.show(field, Side.BOTTOM, 0, 0);
+        }));
+    }
+
+    private static String searchKindLabel(SearchIndex.Kind kind) {
+        switch (kind) {
+            case TASK: return "Putzplan";
+            case SHOPPING: return "Einkauf";
+            case TRANSACTION: return "Haushaltsbuch";
+            default: return "Mitbewohner";
+        }
+    }
+
+    private void openSearchHit(SearchService.Hit hit) {
+        try {
+            switch (hit.kind) {
+                case TASK:
+                    view.setCenter(new CleaningScheduleView(currentUser).getView());
+                    break;
+                case SHOPPING:
+                    view.setCenter(new ShoppingListView(currentUser).getView());
+                    break;
+                case TRANSACTION:
+                    view.setCenter(new BudgetView(currentUser).getView());
+                    break;
+                default:
+                    // Benutzerverwaltung nur für Admins; sonst genügt der Treffer in der Liste
+                    if (Session.forUser(currentUser).isAdmin()) {
+                        AdminUserManagementView.showAndWait(com.flatmanager.App.getPrimaryStage(), currentUser);
+                    }
+            }
+        } catch (Exception ex) {
+            showError("Fehler beim Öffnen des Suchtreffers: " + ex.getMessage());
+        }
+    }
+
     private void showError(String message) {
         Alert a = new Alert(Alert.AlertType.ERROR);
         a.setHeaderText(null);
@@ -712,17 +638,4 @@ public class DashboardScreen {
         }
         return null;
     }
-
-    private static class TransactionRow {
-        final int id;
-        final double amount;
-        final String paidBy;
-
-        TransactionRow(int id, double amount, String paidBy) {
-            this.id = id;
-            this.amount = amount;
-            this.paidBy = paidBy;
-        }
-    }
 }
-
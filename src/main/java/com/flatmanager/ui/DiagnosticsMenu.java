@@ -0,0 +1,100 @@
+package com.flatmanager.ui;
+
+import com.flatmanager.dao.DashboardSummaryDao;
+import com.flatmanager.diagnostics.FlightRecording;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
+import javafx.stage.Window;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Einstellungsmenü der Top-Bar (für alle Benutzer): Diagnose-Aufzeichnung mit dem JDK Flight Recorder
+ * ein- und ausschalten und den aktuellen Stand als {@code .jfr}-Datei speichern, z.B. für einen Fehlerbericht,
+ * sowie die zuletzt protokollierten langsamen Abfragen ansehen und die Dashboard-Zähler gegen die Basistabellen prüfen.
+ */
+public class DiagnosticsMenu {
+
+    public static Node settingsNode() {
+        MenuButton menu = new MenuButton("⚙");
+        menu.getStyleClass().addAll("icon-button", "settings-menu");
+
+        CheckMenuItem recordItem = new CheckMenuItem("Diagnose-Aufzeichnung (JFR)");
+        MenuItem dumpItem = new MenuItem("Aufzeichnung speichern");
+        MenuItem slowQueriesItem = new MenuItem("Langsame Abfragen…");
+        MenuItem verifySummaryItem = new MenuItem("Dashboard-Zähler prüfen");
+
+        recordItem.setSelected(FlightRecording.get().isRecording());
+        dumpItem.setDisable(!recordItem.isSelected());
+
+        recordItem.setOnAction(e -> {
+            try {
+                if (recordItem.isSelected()) {
+                    FlightRecording.get().start();
+                } else {
+                    Path file = FlightRecording.get().stop();
+                    if (file != null) show(menu, Alert.AlertType.INFORMATION, "Aufzeichnung gespeichert unter:\n" + file);
+                }
+            } catch (Exception ex) {
+                show(menu, Alert.AlertType.ERROR, "Diagnose-Aufzeichnung fehlgeschlagen: " + ex.getMessage());
+            }
+            recordItem.setSelected(FlightRecording.get().isRecording());
+            dumpItem.setDisable(!recordItem.isSelected());
+        });
+
+        dumpItem.setOnAction(e -> {
+            try {
+                Path file = FlightRecording.get().dump();
+                show(menu, Alert.AlertType.INFORMATION, "Aufzeichnung gespeichert unter:\n" + file);
+            } catch (Exception ex) {
+                show(menu, Alert.AlertType.ERROR, "Speichern fehlgeschlagen: " + ex.getMessage());
+            }
+        });
+
+        slowQueriesItem.setOnAction(e -> SlowQueryView.show(menu.getScene() != null ? menu.getScene().getWindow() : null));
+
+        // liest alle Basistabellen: nur auf Anforderung und im Hintergrund, nicht bei jedem Dashboard-Aufbau
+        verifySummaryItem.setOnAction(e -> {
+            verifySummaryItem.setDisable(true);
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new DashboardSummaryDao().ensureConsistent()
+                            ? "Die Dashboard-Zähler wichen ab und wurden neu berechnet."
+                            : "Die Dashboard-Zähler sind konsistent.";
+                } catch (SQLException ex) {
+                    throw new CompletionException(ex);
+                }
+            }).whenComplete((msg, ex) -> Platform.runLater(() -> {
+                verifySummaryItem.setDisable(false);
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    show(menu, Alert.AlertType.ERROR, "Prüfung fehlgeschlagen: " + cause.getMessage());
+                } else {
+                    DashboardScreen.notifyRefreshNow();
+                    show(menu, Alert.AlertType.INFORMATION, msg);
+                }
+            }));
+        });
+
+        menu.getItems().addAll(recordItem, dumpItem, new SeparatorMenuItem(), slowQueriesItem, verifySummaryItem);
+        return menu;
+    }
+
+    private static void show(Node anchor, Alert.AlertType type, String msg) {
+        Alert a = new Alert(type);
+        a.setHeaderText(null);
+        a.setContentText(msg);
+        com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
+        Window owner = anchor.getScene() != null ? anchor.getScene().getWindow() : null;
+        if (owner != null) a.initOwner(owner);
+        a.showAndWait();
+    }
+}
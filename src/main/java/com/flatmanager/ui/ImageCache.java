@@ -0,0 +1,118 @@
+package com.flatmanager.ui;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Anwendungsweiter Cache für Icons und Bilder aus den Ressourcen. Jede Kombination aus Datei und
+ * Zielgröße wird genau einmal (bereits auf die Zielgröße skaliert) dekodiert; alle Views teilen sich
+ * dieselbe {@link Image}-Instanz und erzeugen nur noch eigene {@link ImageView}s.
+ *
+ * Dateinamen werden wie bisher unter {@code /icons/} und im Wurzelverzeichnis des Klassenpfads gesucht;
+ * der gefundene Ort (oder das Fehlen) wird ebenfalls gemerkt. Mit {@link #preload(double, String...)}
+ * können häufig benutzte Icons beim Start im Hintergrund dekodiert werden.
+ */
+public final class ImageCache {
+
+    // Dateiname -> aufgelöster Ort; leer = nicht gefunden
+    private static final ConcurrentHashMap<String, Optional<URL>> locations = new ConcurrentHashMap<>();
+    // "Dateiname@Größe" -> dekodiertes Bild
+    private static final ConcurrentHashMap<String, Image> images = new ConcurrentHashMap<>();
+    private static final AtomicLong decodes = new AtomicLong();
+
+    private ImageCache() {}
+
+    /**
+     * Geteiltes Bild in der Zielgröße (Seitenverhältnis bleibt erhalten; {@code size <= 0} = Originalgröße).
+     * @return {@code null}, wenn die Datei fehlt oder nicht dekodiert werden kann
+     */
+    public static Image get(String fileName, double size) {
+        return load(fileName, size, false);
+    }
+
+    /** Neue {@link ImageView} auf dem geteilten Bild mit gesetzter Anzeigegröße, oder {@code null}. */
+    public static ImageView view(String fileName, double size) {
+        Image img = get(fileName, size);
+        if (img == null) return null;
+        ImageView iv = new ImageView(img);
+        if (size > 0) {
+            iv.setFitWidth(size);
+            iv.setFitHeight(size);
+            iv.setPreserveRatio(true);
+        }
+        return iv;
+    }
+
+    /**
+     * Startet das Dekodieren der Icons im Hintergrund (JavaFX-Hintergrundladen); spätere Aufrufe von
+     * {@link #get(String, double)} liefern dieselbe Instanz, die sich füllt, sobald sie fertig ist.
+     */
+    public static void preload(double size, String... fileNames) {
+        for (String name : fileNames) load(name, size, true);
+    }
+
+    /** Anzahl tatsächlich dekodierter Bilder seit dem Start. */
+    public static long decodeCount() {
+        return decodes.get();
+    }
+
+    /** Anzahl gehaltener Bilder. */
+    public static int size() {
+        return images.size();
+    }
+
+    /** Verwirft alle Bilder (z.B. in Tests). */
+    public static void clear() {
+        images.clear();
+        locations.clear();
+    }
+
+    private static Image load(String fileName, double size, boolean background) {
+        if (fileName == null) return null;
+        URL url = locate(fileName);
+        if (url == null) return null;
+        double target = Math.max(0, size);
+        String key = fileName + "@" + target;
+        Image cached = images.get(key);
+        if (cached != null) return cached;
+        Image img;
+        try {
+            img = images.computeIfAbsent(key, k -> {
+                decodes.incrementAndGet();
+                return new Image(url.toExternalForm(), target, target, true, true, background);
+            });
+        } catch (RuntimeException ex) {
+            System.err.println("[ImageCache] Fehler beim Laden des Icons `" + fileName + "`: " + ex);
+            return null;
+        }
+        if (img.isError()) {
+            // fehlerhafte Bilder nicht behalten, damit ein späterer Versuch neu lädt
+            images.remove(key, img);
+            System.err.println("[ImageCache] Icon `" + fileName + "` konnte nicht dekodiert werden: " + img.getException());
+            return null;
+        }
+        return img;
+    }
+
+    private static URL locate(String fileName) {
+        return locations.computeIfAbsent(fileName, name -> {
+            String[] candidates = {"/icons/" + name, "/" + name};
+            for (String p : candidates) {
+                try {
+                    URL url = ImageCache.class.getResource(p);
+                    if (url == null) url = ImageCache.class.getClassLoader().getResource(p.substring(1));
+                    if (url != null) return Optional.of(url);
+                } catch (RuntimeException ex) {
+                    // z.B. Umlaute im Dateinamen bei nicht-UTF-8-Dateisystemkodierung
+                }
+            }
+            System.err.println("[ImageCache] Icon nicht gefunden im Klassenpfad: `" + name + "`");
+            return Optional.empty();
+        }).orElse(null);
+    }
+}
@@ -1,5 +1,9 @@
 package com.flatmanager.ui;
 
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.server.ApiClient;
+import com.flatmanager.service.Session;
+import com.flatmanager.service.UserDirectory;
 import com.flatmanager.storage.Database;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -25,6 +29,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +41,8 @@ import java.util.logging.Logger;
  *
  * Stellt eine Auswahl an Benutzern (aus der DB) dar und erlaubt den schnellen Login durch
  * Klicken auf ein Nutzer-Kachel. Unterstützt Admin-Login über Passwort-Dialog.
+ * Im Thin-Client-Betrieb ({@link ApiClient#isConfigured()}) fragt jede Kachel nach dem Passwort und meldet
+ * beim API-Server an; die Sitzung arbeitet dann über dessen Client.
  */
 public class LoginScreen {
     private static final Logger LOG = Logger.getLogger(LoginScreen.class.getName());
@@ -97,42 +106,17 @@ public class LoginScreen {
         usersPane.getChildren().clear();
         int loaded = 0;
 
-        try (Connection conn = Database.getConnection()) {
-
-            boolean hasIsAdmin = hasColumn(conn, "is_admin");
-            String nameCol = resolveNameColumn(conn);
-
-            LOG.info("Loading users - nameCol=" + nameCol + ", hasIsAdmin=" + hasIsAdmin);
-
-            String sql;
-            if (hasIsAdmin) {
-                sql = "SELECT " + nameCol + " AS display, COALESCE(is_admin, 0) AS is_admin FROM users ORDER BY " + nameCol;
-            } else {
-                sql = "SELECT " + nameCol + " AS display FROM users ORDER BY " + nameCol;
-            }
-
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql)) {
-
-                while (rs.next()) {
-                    String display = rs.getString("display");
-                    boolean isAdmin = false;
-                    if (hasIsAdmin) {
-                        try {
-                            isAdmin = rs.getInt("is_admin") == 1;
-                        } catch (SQLException ignored) {
-                        }
-                    }
-                    Node tile = createUserTile(display, isAdmin);
-                    usersPane.getChildren().add(tile);
-                    loaded++;
-                }
+        try {
+            // Kacheln aus dem gemeinsamen Benutzer-Cache (Username, sonst Name; sortiert wie ORDER BY)
+            List<UserDirectory.Entry> entries = new ArrayList<>(UserDirectory.get().snapshot());
+            entries.sort(Comparator.comparing(LoginScreen::tileName, Comparator.nullsFirst(Comparator.naturalOrder())));
+            LOG.info("Loading users - count=" + entries.size());
+
+            for (UserDirectory.Entry e : entries) {
+                Node tile = createUserTile(tileName(e), e.admin);
+                usersPane.getChildren().add(tile);
+                loaded++;
             }
-
-        } catch (SQLException e) {
-            LOG.log(Level.WARNING, "Fehler beim Laden der Benutzer: {0}", e.getMessage());
-            showAlert("Fehler beim Laden der Benutzer: " + e.getMessage());
-            return;
         } catch (Exception e) {
             LOG.log(Level.SEVERE, "Unerwarteter Fehler beim Laden der Benutzer", e);
             showAlert("Unerwarteter Fehler: " + e.getMessage());
@@ -159,6 +143,10 @@ public class LoginScreen {
         }
     }
 
+    private static String tileName(UserDirectory.Entry e) {
+        return e.username != null ? e.username : e.name;
+    }
+
     private boolean hasColumn(Connection conn, String columnName) {
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("PRAGMA table_info(users)")) {
@@ -209,7 +197,10 @@ public class LoginScreen {
 
         wrapper.setOnMouseClicked(e -> {
             LOG.fine("Clicked user: " + username + ", isAdmin=" + isAdmin);
-            if (isAdmin) {
+            if (ApiClient.isConfigured()) {
+                ApiClient api = loginAtServer(username);
+                if (api != null) loginAndShowDashboard(username, api);
+            } else if (isAdmin) {
                 LOG.info("Attempting admin login for: " + username);
                 boolean ok = showAdminPasswordDialog(username);
                 if (ok) loginAndShowDashboard(username);
@@ -230,8 +221,36 @@ public class LoginScreen {
 
     private boolean showAdminPasswordDialog(String username) {
         LOG.info("Showing admin password dialog for: " + username);
+        Optional<String> res = promptPassword("Admin Anmeldung");
+
+        if (res.isPresent()) {
+            String entered = res.get();
+            if (authenticateAdmin(username, entered)) {
+                return true;
+            } else {
+                showAlert("Falsches Passwort für Admin.");
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Thin Client: Passwort abfragen und beim API-Server anmelden; null bei Abbruch oder Fehler
+    private ApiClient loginAtServer(String username) {
+        Optional<String> res = promptPassword("Anmeldung");
+        if (res.isEmpty()) return null;
+        try {
+            return ApiClient.login(ApiClient.configuredBase(), username, res.get());
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Anmeldung am API-Server fehlgeschlagen", e);
+            showAlert("Anmeldung fehlgeschlagen: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Optional<String> promptPassword(String title) {
         Dialog<String> dialog = new Dialog<>();
-        dialog.setTitle("Admin Anmeldung");
+        dialog.setTitle(title);
         if (com.flatmanager.App.getPrimaryStage() != null) {
             dialog.initOwner(com.flatmanager.App.getPrimaryStage());
         } else {
@@ -239,10 +258,6 @@ public class LoginScreen {
         }
         // Ensure dialog pane uses styling and follows current theme
         dialog.getDialogPane().getStyleClass().add("dialog-pane");
-        try {
-            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-            if (!dialog.getDialogPane().getStylesheets().contains(css)) dialog.getDialogPane().getStylesheets().add(css);
-        } catch (Exception ignored) {}
         com.flatmanager.ui.ThemeManager.styleDialogPane(dialog.getDialogPane());
         dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
 
@@ -256,27 +271,12 @@ public class LoginScreen {
         pwField.textProperty().addListener((obs, oldV, newV) -> okButton.setDisable(newV == null || newV.trim().isEmpty()));
 
         dialog.setResultConverter(btn -> btn == ButtonType.OK ? pwField.getText() : null);
-        Optional<String> res = dialog.showAndWait();
-
-        if (res.isPresent()) {
-            String entered = res.get();
-            if (authenticateAdmin(username, entered)) {
-                return true;
-            } else {
-                Alert a = new Alert(Alert.AlertType.INFORMATION);
-                a.setHeaderText(null);
-                a.setContentText("Falsches Passwort für Admin.");
-                com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
-                if (com.flatmanager.App.getPrimaryStage() != null) a.initOwner(com.flatmanager.App.getPrimaryStage());
-                a.showAndWait();
-                return false;
-            }
-        }
-        return false;
+        return dialog.showAndWait();
     }
 
     private boolean authenticateAdmin(String username, String password) {
-        try (Connection conn = Database.getConnection();
+        // bei einer Datei je WG liegt der Benutzer in der Datei seiner WG
+        try (Connection conn = Database.getConnection(DatabaseManager.householdOf(username));
              PreparedStatement ps = conn.prepareStatement("SELECT password FROM users WHERE " + resolveNameColumn(conn) + " = ? COLLATE NOCASE LIMIT 1")) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
@@ -296,7 +296,13 @@ public class LoginScreen {
     }
 
     private void loginAndShowDashboard(String username) {
+        loginAndShowDashboard(username, null);
+    }
+
+    private void loginAndShowDashboard(String username, ApiClient api) {
         try {
+            // Identität und Rollen einmal auflösen; Dashboard und Views teilen diese Sitzung
+            Session.start(username, api);
             DashboardScreen dashboard = new DashboardScreen(username);
             com.flatmanager.App.getPrimaryStage().getScene().setRoot(dashboard.getView());
             // Re-apply theme so the new root receives the dark-mode class when active
@@ -353,10 +359,7 @@ public class LoginScreen {
                 } else {
                     Stage s = new Stage();
                     Scene scene = new Scene(ls.getView());
-                    try {
-                        String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-                        if (!scene.getStylesheets().contains(css)) scene.getStylesheets().add(css);
-                    } catch (Exception ignored) {}
+                    com.flatmanager.ui.ThemeManager.addStylesheet(scene);
                     com.flatmanager.ui.ThemeManager.applyToScene(scene);
                     s.setScene(scene);
                     s.show();
@@ -386,10 +389,7 @@ public class LoginScreen {
                         ownerStage.getScene().setRoot(ls.getView());
                     } else {
                         Scene scene = new Scene(ls.getView());
-                        try {
-                            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-                            if (!scene.getStylesheets().contains(css)) scene.getStylesheets().add(css);
-                        } catch (Exception ignored) {}
+                        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
                         com.flatmanager.ui.ThemeManager.applyToScene(scene);
                         ownerStage.setScene(scene);
                         ownerStage.show();
@@ -398,10 +398,7 @@ public class LoginScreen {
                     Stage s = new Stage();
                     if (owner != null) s.initOwner(owner);
                     Scene scene = new Scene(ls.getView());
-                    try {
-                        String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-                        if (!scene.getStylesheets().contains(css)) scene.getStylesheets().add(css);
-                    } catch (Exception ignored) {}
+                    com.flatmanager.ui.ThemeManager.addStylesheet(scene);
                     com.flatmanager.ui.ThemeManager.applyToScene(scene);
                     s.setScene(scene);
                     s.show();
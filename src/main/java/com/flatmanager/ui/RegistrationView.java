@@ -135,10 +135,7 @@ public class RegistrationView {
         Scene scene = new Scene(root);
 
         // Stylesheet sicherstellen (prüfe, ob App das global setzt; ansonsten hier hinzufügen)
-        String css = RegistrationView.class.getResource("/styles.css").toExternalForm();
-        if (!scene.getStylesheets().contains(css)) {
-            scene.getStylesheets().add(css);
-        }
+        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
 
         stage.setScene(scene);
         stage.showAndWait();
@@ -0,0 +1,157 @@
+package com.flatmanager.ui;
+
+import com.flatmanager.database.BackupService;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.service.WriteBehindBuffer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admin-Dialog zum Zurückspielen einer Sicherung ({@link BackupService#listBackups()}, neueste zuerst),
+ * z.B. nach versehentlich gelöschten Einträgen. Zurückgespielt wird nur der Stand der eigenen WG
+ * ({@link BackupService#restoreHousehold(Path, long)}); andere WGs in derselben Datenbank bleiben unverändert.
+ * Die Wiederherstellung läuft im Hintergrund; der aktuelle Stand wird dabei selbst gesichert und kann so
+ * ebenfalls zurückgeholt werden.
+ */
+public class RestoreBackupDialog {
+
+    /**
+     * Öffnet den Dialog modal.
+     * @return Optional mit true, wenn eine Sicherung zurückgespielt wurde; leer bei Abbruch
+     */
+    public static Optional<Boolean> showAndWait(Window owner) {
+        AtomicReference<Boolean> result = new AtomicReference<>(null);
+
+        Stage stage = new Stage();
+        stage.initModality(Modality.APPLICATION_MODAL);
+        if (owner != null) stage.initOwner(owner);
+        stage.setTitle("Sicherung wiederherstellen");
+
+        Label label = new Label("Sicherung auswählen (neueste zuerst):");
+        label.setWrapText(true);
+        label.setMaxWidth(Double.MAX_VALUE);
+
+        ListView<Path> list = new ListView<>(FXCollections.observableArrayList(loadBackups(owner)));
+        list.setPrefHeight(220);
+        list.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(Path item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item.getFileName().toString());
+            }
+        });
+        list.setPlaceholder(new Label("Keine Sicherungen vorhanden."));
+
+        Button restoreBtn = new Button("Wiederherstellen");
+        Button cancelBtn = new Button("Abbrechen");
+        restoreBtn.setDisable(true);
+        list.getSelectionModel().selectedItemProperty().addListener((obs, oldV, newV) -> restoreBtn.setDisable(newV == null));
+
+        restoreBtn.setOnAction(e -> {
+            Path backup = list.getSelectionModel().getSelectedItem();
+            if (backup == null) return;
+
+            Alert confirm = new Alert(AlertType.CONFIRMATION);
+            confirm.setHeaderText(null);
+            confirm.setContentText("Stand dieser WG durch die Sicherung '" + backup.getFileName() + "' ersetzen?\n"
+                    + "Andere WGs bleiben unverändert. Der aktuelle Stand wird vorher ebenfalls gesichert.");
+            com.flatmanager.ui.ThemeManager.styleDialogPane(confirm.getDialogPane());
+            confirm.initOwner(stage);
+            Optional<ButtonType> choice = confirm.showAndWait();
+            if (choice.isEmpty() || choice.get() != ButtonType.OK) return;
+
+            try {
+                // gepufferte Änderungen gehören in die Sicherung des aktuellen Stands
+                WriteBehindBuffer.get().flush();
+            } catch (SQLException ex) {
+                System.err.println("[RestoreBackupDialog] Offene Änderungen nicht geschrieben: " + ex.getMessage());
+            }
+            restoreBtn.setDisable(true);
+            cancelBtn.setDisable(true);
+            list.setDisable(true);
+            long household = DatabaseManager.currentHousehold();
+            CompletableFuture.runAsync(() -> {
+                try {
+                    BackupService.get().restoreHousehold(backup, household);
+                } catch (SQLException | IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }).whenComplete((v, ex) -> Platform.runLater(() -> {
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    show(AlertType.ERROR, "Wiederherstellung fehlgeschlagen: " + cause.getMessage(), stage);
+                    restoreBtn.setDisable(false);
+                    cancelBtn.setDisable(false);
+                    list.setDisable(false);
+                    return;
+                }
+                show(AlertType.INFORMATION, "Sicherung '" + backup.getFileName() + "' wurde wiederhergestellt.", stage);
+                result.set(Boolean.TRUE);
+                stage.close();
+            }));
+        });
+
+        cancelBtn.setOnAction(e -> {
+            result.set(null);
+            stage.close();
+        });
+
+        HBox actions = new HBox(10, restoreBtn, cancelBtn);
+        actions.setAlignment(Pos.CENTER);
+
+        VBox root = new VBox(12, label, list, actions);
+        root.setPadding(new Insets(12));
+        root.setAlignment(Pos.CENTER_LEFT);
+
+        Scene scene = new Scene(root);
+        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
+        com.flatmanager.ui.ThemeManager.applyToScene(scene);
+        stage.setScene(scene);
+        stage.showAndWait();
+
+        return Optional.ofNullable(result.get());
+    }
+
+    private static List<Path> loadBackups(Window owner) {
+        try {
+            return BackupService.get().listBackups();
+        } catch (IOException ex) {
+            show(AlertType.ERROR, "Sicherungen konnten nicht gelesen werden: " + ex.getMessage(), owner);
+            return new ArrayList<>();
+        }
+    }
+
+    private static void show(AlertType type, String msg, Window owner) {
+        Alert a = new Alert(type);
+        a.setHeaderText(null);
+        a.setContentText(msg);
+        com.flatmanager.ui.ThemeManager.styleDialogPane(a.getDialogPane());
+        if (owner != null) a.initOwner(owner);
+        a.showAndWait();
+    }
+}
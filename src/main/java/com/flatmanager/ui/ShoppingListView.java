@@ -1,21 +1,29 @@
 package com.flatmanager.ui;
 
 import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.TableChanges;
+import com.flatmanager.diagnostics.ViewLoadEvent;
 import com.flatmanager.model.ShoppingItem;
+import com.flatmanager.service.ShoppingAutocomplete;
+import com.flatmanager.service.UserDirectory;
+import com.flatmanager.service.WriteBehindBuffer;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
-import java.io.InputStream;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * UI für die Einkaufsliste. Zeigt bestehende Artikel, erlaubt Hinzufügen und Markieren als gekauft
@@ -35,12 +43,33 @@ public class ShoppingListView {
     // Benutzer-Display -> username (zum Mapping)
     private final Map<String, String> userDisplayToUsername = new LinkedHashMap<>();
     private final List<String> userDisplayList = new ArrayList<>();
+    private ListChangeListener<UserDirectory.Entry> userDirectoryListener;
+    // Änderungen anderer App-Instanzen neu laden; eigene Änderungen lädt die View selbst
+    private final Consumer<TableChanges> externalChangeListener = changes -> {
+        if (changes.isExternal() && changes.affects("shopping_items")) Platform.runLater(this::loadItems);
+    };
+    // Häkchen, die der Puffer nach mehreren Versuchen aufgegeben hat: Datenbankstand zeigen und Fehler melden
+    private final Consumer<SQLException> writeFailureListener = ex -> Platform.runLater(() -> {
+        loadItems();
+        showAlert("Änderungen an der Einkaufsliste konnten nicht gespeichert werden: " + ex.getMessage());
+    });
 
     public ShoppingListView(String username) {
         this.currentUser = username;
         this.items = FXCollections.observableArrayList();
+        // Vorschläge schon im Hintergrund laden, bevor der erste Buchstabe getippt wird
+        ShoppingAutocomplete.get().reloadAsync();
         createView();
         loadItems();
+        root.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                DatabaseManager.addChangeListener(externalChangeListener);
+                WriteBehindBuffer.get().addFailureListener(writeFailureListener);
+            } else {
+                DatabaseManager.removeChangeListener(externalChangeListener);
+                WriteBehindBuffer.get().removeFailureListener(writeFailureListener);
+            }
+        });
     }
 
     private void createView() {
@@ -123,11 +152,9 @@ public class ShoppingListView {
         assignBuyerBtn.setMaxWidth(Double.MAX_VALUE);
         HBox.setHgrow(assignBuyerBtn, Priority.ALWAYS);
         assignBuyerBtn.getStyleClass().add("icon-button");
-        InputStream is = getClass().getResourceAsStream("/icons/Mitbewohner_icon.png");
-        if (is != null) {
-            Image img = new Image(is, 20, 20, true, true);
-            ImageView iv = new ImageView(img);
-            assignBuyerBtn.setGraphic(iv);
+        ImageView buyerIcon = ImageCache.view("Mitbewohner_icon.png", 20);
+        if (buyerIcon != null) {
+            assignBuyerBtn.setGraphic(buyerIcon);
         } else {
             assignBuyerBtn.setText("Mitbewohner");
         }
@@ -139,6 +166,8 @@ public class ShoppingListView {
             assignOnAddCombo.getItems().setAll(userDisplayList);
         });
 
+        installAutocomplete(itemField, quantityField, categoryCombo);
+
         HBox categoryRow = new HBox(8, categoryCombo, assignBuyerBtn);
         categoryRow.setAlignment(Pos.CENTER_LEFT);
         HBox.setHgrow(categoryRow, Priority.ALWAYS);
@@ -234,40 +263,84 @@ public class ShoppingListView {
         form.getChildren().add(saveBtn);
         form.getChildren().addAll(clearCompletedBtn, clearBtn);
 
-        // lade Benutzerliste initial (nachdem assignOnAddCombo existiert)
+        // lade Benutzerliste initial (nachdem assignOnAddCombo existiert) und folge danach dem Benutzer-Cache
         loadUsers();
+        userDirectoryListener = c -> {
+            loadUsers();
+            rebuildCategoryLayout();
+        };
+        UserDirectory.get().getEntries().addListener(new WeakListChangeListener<>(userDirectoryListener));
+    }
+
+    // Vorschläge beim Tippen aus der Kaufhistorie; Auswahl übernimmt Name, übliche Kategorie und Menge
+    private void installAutocomplete(TextField itemField, TextField quantityField, ComboBox<String> categoryCombo) {
+        ContextMenu suggestions = new ContextMenu();
+        boolean[] applying = {false};
+        itemField.textProperty().addListener((obs, oldV, newV) -> {
+            if (applying[0] || !itemField.isFocused()) return;
+            List<ShoppingAutocomplete.Suggestion> found = ShoppingAutocomplete.get().complete(newV, ShoppingAutocomplete.MAX_SUGGESTIONS);
+            if (found.isEmpty() || (found.size() == 1 && found.get(0).name.equalsIgnoreCase(newV.trim()))) {
+                suggestions.hide();
+                return;
+            }
+            List<MenuItem> menuItems = new ArrayList<>();
+            for (ShoppingAutocomplete.Suggestion s : found) {
+                StringBuilder text = new StringBuilder(s.name);
+                if (s.category != null) text.append("  ·  ").append(s.category);
+                if (s.quantity != null) text.append("  ·  ").append(s.quantity);
+                MenuItem mi = new MenuItem(text.toString());
+                mi.setMnemonicParsing(false);
+                mi.setOnAction(e -> {
+                    applying[0] = true;
+                    try {
+                        itemField.setText(s.name);
+                        itemField.positionCaret(s.name.length());
+                        if (s.quantity != null && quantityField.getText().trim().isEmpty()) quantityField.setText(s.quantity);
+                        if (s.category != null) {
+                            if (!categoryCombo.getItems().contains(s.category)) categoryCombo.getItems().add(s.category);
+                            categoryCombo.setValue(s.category);
+                        }
+                    } finally {
+                        applying[0] = false;
+                    }
+                });
+                menuItems.add(mi);
+            }
+            suggestions.getItems().setAll(menuItems);
+            if (!suggestions.isShowing() && itemField.getScene() != null) suggestions.show(itemField, Side.BOTTOM, 0, 0);
+        });
+        itemField.focusedProperty().addListener((obs, was, focused) -> {
+            if (!focused) suggestions.hide();
+        });
     }
 
     private void loadUsers() {
         userDisplayToUsername.clear();
         userDisplayList.clear();
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT username, name FROM users ORDER BY name COLLATE NOCASE");
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                String username = rs.getString("username");
-                String name = rs.getString("name");
-                String display;
-
-                // Fallback: wenn kein Anzeige-Name gesetzt ist, nutze username
-                if (name == null || name.trim().isEmpty()) {
-                    display = username;
-                } else if ("admin".equalsIgnoreCase(username)) {
-                    // Für den Admin nur den festgelegten Namen anzeigen (ohne "(admin)")
-                    display = name;
-                } else {
-                    // Für alle anderen: "Name (username)"
-                    display = name + " (" + username + ")";
-                }
-
-                userDisplayToUsername.put(display, username);
-                userDisplayList.add(display);
+        // aus dem gemeinsamen Benutzer-Cache statt einer Abfrage bei jedem loadItems (ORDER BY name COLLATE NOCASE)
+        List<UserDirectory.Entry> entries = new ArrayList<>(UserDirectory.get().snapshot());
+        entries.sort(Comparator.comparing((UserDirectory.Entry e) -> e.name,
+                Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+
+        for (UserDirectory.Entry e : entries) {
+            String username = e.username;
+            String name = e.name;
+            String display;
+
+            // Fallback: wenn kein Anzeige-Name gesetzt ist, nutze username
+            if (name == null || name.trim().isEmpty()) {
+                display = username;
+            } else if ("admin".equalsIgnoreCase(username)) {
+                // Für den Admin nur den festgelegten Namen anzeigen (ohne "(admin)")
+                display = name;
+            } else {
+                // Für alle anderen: "Name (username)"
+                display = name + " (" + username + ")";
             }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+            userDisplayToUsername.put(display, username);
+            userDisplayList.add(display);
         }
 
         // Aktualisiere das Combo (falls bereits initialisiert)
@@ -277,15 +350,18 @@ public class ShoppingListView {
     }
 
     private void loadItems() {
+        ViewLoadEvent load = ViewLoadEvent.start("ShoppingListView.loadItems");
         items.clear();
 
         try (Connection conn = DatabaseManager.getConnection()) {
             ensureColumnExists(conn, "shopping_items", "category", "TEXT", "'Sonstiges'");
             ensureColumnExists(conn, "shopping_items", "purchased_for", "TEXT", "NULL");
             ensureColumnExists(conn, "shopping_items", "purchased", "INTEGER", "0");
+            ensureColumnExists(conn, "shopping_items", "version", "INTEGER NOT NULL", "0");
 
             try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT * FROM shopping_items ORDER BY category, item_name")) {
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM shopping_items WHERE household_id = "
+                         + DatabaseManager.currentHousehold() + " ORDER BY category, item_name")) {
 
                 while (rs.next()) {
                     int id = rs.getInt("id");
@@ -295,8 +371,11 @@ public class ShoppingListView {
                     String category = rs.getString("category");
                     String purchasedFor = rs.getString("purchased_for");
                     boolean purchased = rs.getInt("purchased") == 1;
+                    // noch nicht geschriebene Häkchen aus dem Write-Behind-Puffer haben Vorrang
+                    purchased = WriteBehindBuffer.get().pendingValue(purchasedKey(id), purchased);
 
                     ShoppingItem it = new ShoppingItem(id, itemName, quantity, addedBy, category, purchasedFor, purchased);
+                    it.setVersion(rs.getInt("version"));
                     items.add(it);
                 }
             }
@@ -306,8 +385,8 @@ public class ShoppingListView {
             showAlert("Fehler beim Laden der Artikel: " + e.getMessage());
         }
 
-        loadUsers();
         rebuildCategoryLayout();
+        ViewLoadEvent.finish(load, items.size());
     }
 
     private void ensureColumnExists(Connection conn, String tableName, String columnName, String columnType, String defaultValueSql) {
@@ -408,16 +487,8 @@ public class ShoppingListView {
 
                 check.selectedProperty().addListener((obs, oldVal, newVal) -> {
                     item.setPurchased(newVal);
-                    if (newVal) {
-                        if (item.getPurchasedFor() != null && !item.getPurchasedFor().isEmpty()) {
-                            updatePurchased(item.getId(), true, item.getPurchasedFor());
-                        } else {
-                            updatePurchased(item.getId(), true);
-                        }
-                    } else {
-                        updatePurchased(item.getId(), false);
-                    }
-                    loadItems();
+                    updatePurchased(item);
+                    // kein loadItems(): das Modell ist bereits aktuell, geschrieben wird gepuffert
                 });
 
                 VBox contentBox = new VBox(0, topLine, purchaserLabel);
@@ -436,7 +507,7 @@ public class ShoppingListView {
     }
 
     private void addItem(String itemName, String quantity, String category, String purchasedFor) {
-        String sql = "INSERT INTO shopping_items (item_name, quantity, added_by, category, purchased_for, purchased) VALUES (?, ?, ?, ?, ?, 0)";
+        String sql = "INSERT INTO shopping_items (item_name, quantity, added_by, category, purchased_for, purchased, household_id) VALUES (?, ?, ?, ?, ?, 0, ?)";
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -447,6 +518,7 @@ public class ShoppingListView {
             pstmt.setString(4, category);
             if (purchasedFor != null) pstmt.setString(5, purchasedFor);
             else pstmt.setNull(5, Types.VARCHAR);
+            pstmt.setLong(6, DatabaseManager.currentHousehold());
             pstmt.executeUpdate();
 
             // notify dashboard for immediate refresh
@@ -458,43 +530,50 @@ public class ShoppingListView {
         }
     }
 
-    private void updatePurchased(int id, boolean purchased) {
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement("UPDATE shopping_items SET purchased = ? WHERE id = ?")) {
-
-            pstmt.setInt(1, purchased ? 1 : 0);
-            pstmt.setInt(2, id);
-            pstmt.executeUpdate();
-
-            try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    // Häkchen werden über den Write-Behind-Puffer geschrieben: schnelles Hin- und Herklicken
+    // ergibt je Artikel einen Schreibzugriff, alle Artikel zusammen eine Transaktion
+    private static String purchasedKey(int id) {
+        return "shopping_items.purchased#" + id;
     }
 
-    private void updatePurchased(int id, boolean purchased, String purchasedFor) {
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                     "UPDATE shopping_items SET purchased = ?, purchased_for = ? WHERE id = ?"
-             )) {
-
-            pstmt.setInt(1, purchased ? 1 : 0);
-            if (purchasedFor != null) pstmt.setString(2, purchasedFor);
-            else pstmt.setNull(2, Types.VARCHAR);
-            pstmt.setInt(3, id);
-            pstmt.executeUpdate();
-
-            try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
+    // Compare-and-Set über die Zeilenversion: hat eine andere App-Instanz den Artikel inzwischen
+    // geändert oder gelöscht, wird nichts überschrieben, sondern neu geladen
+    private void updatePurchased(ShoppingItem item) {
+        int id = item.getId();
+        boolean purchased = item.isPurchased();
+        WriteBehindBuffer.get().submit(purchasedKey(id), purchased, conn -> {
+            int expected = item.getVersion();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE shopping_items SET purchased = ?, version = version + 1 WHERE id = ? AND (? < 0 OR version = ?)")) {
+                pstmt.setInt(1, purchased ? 1 : 0);
+                pstmt.setInt(2, id);
+                pstmt.setInt(3, expected);
+                pstmt.setInt(4, expected);
+                if (pstmt.executeUpdate() > 0) {
+                    if (expected >= 0) item.setVersion(expected + 1);
+                    return;
+                }
+            }
+            Platform.runLater(() -> {
+                loadItems();
+                showAlert("\"" + item.getItemName() + "\" wurde inzwischen von jemand anderem geändert. Die Liste wurde neu geladen.");
+            });
+        });
+    }
 
+    private void flushPendingWrites() {
+        try {
+            WriteBehindBuffer.get().flush();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     private void clearCompleted() {
+        flushPendingWrites();
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement("DELETE FROM shopping_items WHERE purchased = 1")) {
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM shopping_items WHERE household_id = ? AND purchased = 1")) {
+            ps.setLong(1, DatabaseManager.currentHousehold());
             int deleted = ps.executeUpdate();
             System.out.println("[DB] Gelöschte erledigte Einträge: " + deleted);
             try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
@@ -505,10 +584,12 @@ public class ShoppingListView {
     }
 
     private void clearList() {
+        flushPendingWrites();
         try (Connection conn = DatabaseManager.getConnection();
              Statement stmt = conn.createStatement()) {
 
-            stmt.executeUpdate("DELETE FROM shopping_items");
+            // nur die Liste der aktiven WG; ein DELETE ohne WHERE würde zudem die Änderungs-Hooks umgehen
+            stmt.executeUpdate("DELETE FROM shopping_items WHERE household_id = " + DatabaseManager.currentHousehold());
             try { com.flatmanager.ui.DashboardScreen.notifyRefreshNow(); } catch (Throwable ignore) {}
 
         } catch (SQLException e) {
@@ -0,0 +1,121 @@
+package com.flatmanager.ui;
+
+import com.flatmanager.diagnostics.SlowQueryLog;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SplitPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fenster mit den zuletzt protokollierten langsamen Statements ({@link SlowQueryLog}), neueste zuerst.
+ * Auswahl einer Zeile zeigt Parameter und Abfrageplan; die Schwelle lässt sich zur Laufzeit ändern.
+ */
+public class SlowQueryView {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    public static void show(Window owner) {
+        Stage stage = new Stage();
+        if (owner != null) stage.initOwner(owner);
+        stage.setTitle("Langsame Abfragen");
+
+        Label header = new Label("Langsame Abfragen");
+        header.getStyleClass().add("title");
+
+        TableView<SlowQueryLog.Entry> table = new TableView<>();
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.getColumns().add(column("Zeit", 70, e -> e.time.format(TIME)));
+        table.getColumns().add(column("ms", 70, e -> String.format(Locale.ROOT, "%.1f", e.millis)));
+        table.getColumns().add(column("Zeilen", 60, e -> e.rows < 0 ? "?" : String.valueOf(e.rows)));
+        table.getColumns().add(column("Hinweis", 150, SlowQueryLog.Entry::hint));
+        table.getColumns().add(column("Aufrufer", 220, e -> e.callSite));
+        table.getColumns().add(column("SQL", 400, e -> e.sql));
+
+        TextArea details = new TextArea();
+        details.setEditable(false);
+        details.setWrapText(true);
+        details.setStyle("-fx-font-family: monospace;");
+        table.getSelectionModel().selectedItemProperty().addListener((obs, old, entry) ->
+                details.setText(entry == null ? "" : entry.format()));
+
+        SplitPane split = new SplitPane(table, details);
+        split.setOrientation(Orientation.VERTICAL);
+        split.setDividerPositions(0.6);
+        VBox.setVgrow(split, Priority.ALWAYS);
+
+        Label thresholdLabel = new Label("Schwelle (ms, -1 = aus):");
+        Spinner<Integer> threshold = new Spinner<>(-1, 60_000, (int) SlowQueryLog.thresholdMillis(), 50);
+        threshold.setEditable(true);
+        threshold.setPrefWidth(100);
+        threshold.valueProperty().addListener((obs, old, value) -> {
+            if (value != null) SlowQueryLog.setThresholdMillis(value);
+        });
+
+        Label fileLabel = new Label("Datei: " + SlowQueryLog.get().file().toAbsolutePath());
+        fileLabel.getStyleClass().add("small-text");
+        fileLabel.setWrapText(true);
+
+        Button refreshBtn = new Button("Aktualisieren");
+        Button clearBtn = new Button("Leeren");
+        Button closeBtn = new Button("Schließen");
+        refreshBtn.setOnAction(e -> fill(table));
+        clearBtn.setOnAction(e -> {
+            SlowQueryLog.get().clear();
+            fill(table);
+            details.clear();
+        });
+        closeBtn.setOnAction(e -> stage.close());
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox actions = new HBox(8, thresholdLabel, threshold, spacer, refreshBtn, clearBtn, closeBtn);
+        actions.setAlignment(Pos.CENTER_LEFT);
+
+        VBox root = new VBox(10, header, split, fileLabel, actions);
+        root.setPadding(new Insets(12));
+        root.getStyleClass().add("dialog-pane");
+
+        fill(table);
+
+        Scene scene = new Scene(root, 1000, 600);
+        com.flatmanager.ui.ThemeManager.addStylesheet(scene);
+        com.flatmanager.ui.ThemeManager.applyToScene(scene);
+        stage.setScene(scene);
+        stage.show();
+    }
+
+    private static void fill(TableView<SlowQueryLog.Entry> table) {
+        List<SlowQueryLog.Entry> entries = new ArrayList<>(SlowQueryLog.get().entries());
+        Collections.reverse(entries);
+        table.setItems(FXCollections.observableArrayList(entries));
+    }
+
+    private static TableColumn<SlowQueryLog.Entry, String> column(String title, double width,
+                                                                  java.util.function.Function<SlowQueryLog.Entry, String> value) {
+        TableColumn<SlowQueryLog.Entry, String> col = new TableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setCellValueFactory(cd -> new ReadOnlyStringWrapper(value.apply(cd.getValue())));
+        return col;
+    }
+}
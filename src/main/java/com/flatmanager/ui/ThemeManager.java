@@ -2,15 +2,29 @@ package com.flatmanager.ui;
 
 import com.flatmanager.App;
 import javafx.application.Platform;
+import javafx.css.PseudoClass;
 import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.stage.Window;
+
+import java.net.URL;
 
 /**
  * Helferklasse für das globale Theme (Light / Dark). Verwaltet einen globalen Schalter
- * und wendet die Klasse `dark-mode` sowie Stylesheets auf Szenen und Dialog-Panes an.
+ * und setzt die Pseudo-Klasse {@code :dark} auf die Wurzel von Szenen und Dialog-Panes.
+ *
+ * Die Regeln in {@code styles.css} hängen alle an {@code :dark} der Wurzel (z.B. {@code .root:dark .label}).
+ * Ein Umschalten ändert damit nur den Pseudo-Klassen-Zustand eines einzigen Knotens pro Fenster; es
+ * gibt keine Suche im Szenengraphen und keine Änderung der Style-Klassen, die JavaFX zum vollständigen
+ * Neuaufbau der Styles des Teilbaums zwingen würde. Die URL des Stylesheets wird einmal aufgelöst.
  */
 public final class ThemeManager {
+    /** Pseudo-Klasse für den dunklen Modus, in CSS als {@code :dark}. */
+    public static final PseudoClass DARK = PseudoClass.getPseudoClass("dark");
+
     private static boolean dark = false;
+    private static volatile String stylesheet;
 
     private ThemeManager() {}
 
@@ -18,54 +32,75 @@ public final class ThemeManager {
         return dark;
     }
 
+    /** Externe Form der URL von {@code /styles.css}, einmalig aufgelöst; {@code null}, wenn nicht vorhanden. */
+    public static String stylesheetUrl() {
+        String css = stylesheet;
+        if (css == null) {
+            URL url = App.class.getResource("/styles.css");
+            if (url == null) return null;
+            css = url.toExternalForm();
+            stylesheet = css;
+        }
+        return css;
+    }
+
+    /**
+     * Setzt den aktuellen Zustand auf die Wurzel der Szene. Beim ersten Aufruf wird zusätzlich ein Listener
+     * auf die Wurzel registriert, damit auch per {@code setRoot} eingesetzte Views den Zustand erhalten.
+     */
     public static void applyToScene(Scene scene) {
         if (scene == null) return;
-        Node root = scene.getRoot();
-        if (root == null) return;
-        if (dark) {
-            if (!root.getStyleClass().contains("dark-mode")) root.getStyleClass().add("dark-mode");
-            // also add dark-mode to known view containers to increase selector specificity
-            try {
-                for (Node n : root.lookupAll(".login-container")) n.getStyleClass().add("dark-mode");
-                for (Node n : root.lookupAll(".dashboard")) n.getStyleClass().add("dark-mode");
-                for (Node n : root.lookupAll(".budget-view")) n.getStyleClass().add("dark-mode");
-                for (Node n : root.lookupAll(".shopping-view")) n.getStyleClass().add("dark-mode");
-                for (Node n : root.lookupAll(".cleaning-view")) n.getStyleClass().add("dark-mode");
-            } catch (Exception ignored) {}
-        } else {
-            root.getStyleClass().remove("dark-mode");
-            try {
-                for (Node n : root.lookupAll(".login-container")) n.getStyleClass().remove("dark-mode");
-                for (Node n : root.lookupAll(".dashboard")) n.getStyleClass().remove("dark-mode");
-                for (Node n : root.lookupAll(".budget-view")) n.getStyleClass().remove("dark-mode");
-                for (Node n : root.lookupAll(".shopping-view")) n.getStyleClass().remove("dark-mode");
-                for (Node n : root.lookupAll(".cleaning-view")) n.getStyleClass().remove("dark-mode");
-            } catch (Exception ignored) {}
+        if (scene.getProperties().putIfAbsent(ThemeManager.class, Boolean.TRUE) == null) {
+            scene.rootProperty().addListener((obs, oldRoot, newRoot) -> {
+                if (oldRoot != null) oldRoot.pseudoClassStateChanged(DARK, false);
+                applyTo(newRoot);
+            });
         }
+        applyTo(scene.getRoot());
+    }
+
+    /** Setzt den aktuellen Zustand auf einen einzelnen (Wurzel-)Knoten. */
+    public static void applyTo(Node root) {
+        if (root == null) return;
+        root.pseudoClassStateChanged(DARK, dark);
     }
 
-    // Apply stylesheets and dark-mode class to a DialogPane (used by Alerts/Dialogs)
+    // Apply stylesheet and theme state to a DialogPane (used by Alerts/Dialogs)
     public static void styleDialogPane(javafx.scene.control.DialogPane pane) {
         if (pane == null) return;
-        try {
-            String css = com.flatmanager.App.class.getResource("/styles.css").toExternalForm();
-            if (!pane.getStylesheets().contains(css)) pane.getStylesheets().add(css);
-        } catch (Exception ignored) {}
-        if (dark) {
-            if (!pane.getStyleClass().contains("dark-mode")) pane.getStyleClass().add("dark-mode");
-        } else {
-            pane.getStyleClass().remove("dark-mode");
-        }
+        addStylesheet(pane);
+        applyTo(pane);
+    }
+
+    /** Hängt das Haupt-Stylesheet an, falls noch nicht vorhanden. */
+    public static void addStylesheet(Parent parent) {
+        String css = stylesheetUrl();
+        if (parent == null || css == null) return;
+        if (!parent.getStylesheets().contains(css)) parent.getStylesheets().add(css);
+    }
+
+    /** Hängt das Haupt-Stylesheet an die Szene an, falls noch nicht vorhanden. */
+    public static void addStylesheet(Scene scene) {
+        String css = stylesheetUrl();
+        if (scene == null || css == null) return;
+        if (!scene.getStylesheets().contains(css)) scene.getStylesheets().add(css);
     }
 
     public static void toggle() {
-        dark = !dark;
-        // apply to current scene on FX thread
-        Platform.runLater(() -> {
-            if (App.getPrimaryStage() != null && App.getPrimaryStage().getScene() != null) {
-                applyToScene(App.getPrimaryStage().getScene());
-            }
-        });
+        setDark(!dark);
+    }
+
+    /**
+     * Setzt den Modus und wendet ihn auf alle offenen Fenster an (auf dem FX-Thread). Geändert wird je Fenster
+     * nur die Wurzel; der folgende CSS-Durchlauf übernimmt die geänderten Werte ohne Neuaufbau der Styles.
+     */
+    public static void setDark(boolean value) {
+        dark = value;
+        if (Platform.isFxApplicationThread()) {
+            applyToOpenWindows();
+        } else {
+            Platform.runLater(ThemeManager::applyToOpenWindows);
+        }
     }
 
     public static void ensureCurrentScene() {
@@ -73,4 +108,11 @@ public final class ThemeManager {
             applyToScene(App.getPrimaryStage().getScene());
         }
     }
+
+    private static void applyToOpenWindows() {
+        for (Window w : Window.getWindows()) {
+            applyToScene(w.getScene());
+        }
+        ensureCurrentScene();
+    }
 }
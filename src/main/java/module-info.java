@@ -2,11 +2,19 @@ module com.flatmanager {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires org.xerial.sqlitejdbc;
     requires javafx.graphics;
+    requires jdk.httpserver;
+    requires java.net.http;
+    requires jdk.jfr;
 
     exports com.flatmanager;
     exports com.flatmanager.ui;
     exports com.flatmanager.model;
     exports com.flatmanager.database;
     exports com.flatmanager.storage;
+    exports com.flatmanager.service;
+    exports com.flatmanager.server;
+    exports com.flatmanager.load;
+    exports com.flatmanager.diagnostics;
 }
@@ -0,0 +1,100 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BudgetSummaryDaoTest {
+
+    private final BudgetSummaryDao dao = new BudgetSummaryDao();
+
+    @BeforeEach
+    void before() throws Exception {
+        File db = new File("target/budget_summary_test.db");
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        dao.init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/budget_summary_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void insert(String desc, double amount, String paidBy, String date, String category) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO budget_transactions (description, amount, paid_by, date, category) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setString(1, desc);
+            ps.setDouble(2, amount);
+            ps.setString(3, paidBy);
+            ps.setString(4, date);
+            ps.setString(5, category);
+            ps.executeUpdate();
+        }
+    }
+
+    private BudgetSummaryDao.Total find(List<BudgetSummaryDao.Total> list, String key) {
+        return list.stream().filter(t -> key.equals(t.key)).findFirst().orElse(null);
+    }
+
+    @Test
+    void testEmptyTableGivesZeroTotals() throws Exception {
+        assertEquals(0.0, dao.grandTotal(), 1e-9);
+        assertTrue(dao.totalsByCategory().isEmpty());
+        assertTrue(dao.totalsByPayer().isEmpty());
+        assertTrue(dao.totalsByMonth().isEmpty());
+    }
+
+    @Test
+    void testTotalsByCategoryPayerAndMonth() throws Exception {
+        insert("Milch", 2.5, "alice", "2024-01-10", "Einkäufe");
+        insert("Brot", 3.0, "bob", "2024-01-20", "Einkäufe");
+        insert("Netflix", 12.0, "alice", "2024-02-01", "Abos");
+        insert("Ohne Kategorie", 1.0, "bob", "2024-02-03", null);
+
+        assertEquals(18.5, dao.grandTotal(), 1e-9);
+
+        List<BudgetSummaryDao.Total> byCat = dao.totalsByCategory();
+        assertEquals(5.5, find(byCat, "Einkäufe").sum, 1e-9);
+        assertEquals(2, find(byCat, "Einkäufe").count);
+        assertEquals(12.0, find(byCat, "Abos").sum, 1e-9);
+        assertNotNull(find(byCat, BudgetSummaryDao.DEFAULT_CATEGORY), "Transaktion ohne Kategorie sollte unter 'Sonstiges' zählen");
+
+        List<BudgetSummaryDao.Total> byPayer = dao.totalsByPayer();
+        assertEquals("alice", byPayer.get(0).key, "Größter Zahler zuerst");
+        assertEquals(14.5, find(byPayer, "alice").sum, 1e-9);
+        assertEquals(4.0, find(byPayer, "bob").sum, 1e-9);
+
+        List<BudgetSummaryDao.Total> byMonth = dao.totalsByMonth();
+        assertEquals("2024-02", byMonth.get(0).key, "Neuester Monat zuerst");
+        assertEquals(13.0, find(byMonth, "2024-02").sum, 1e-9);
+        assertEquals(5.5, find(byMonth, "2024-01").sum, 1e-9);
+    }
+
+    @Test
+    void testInitIsIdempotentAndCreatesIndexes() throws Exception {
+        dao.init();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE type='index' AND name LIKE 'idx_budget_tx_%'")) {
+            assertTrue(rs.next());
+            assertEquals(3, rs.getInt(1), "Alle drei Aggregations-Indizes sollten existieren");
+        }
+    }
+}
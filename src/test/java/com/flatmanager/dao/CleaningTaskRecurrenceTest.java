@@ -0,0 +1,104 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.CleaningTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CleaningTaskRecurrenceTest {
+
+    private final CleaningTaskDao dao = new CleaningTaskDao();
+
+    @BeforeEach
+    void before() throws Exception {
+        File dbFile = new File("target/cleaning_recurrence_test.db");
+        if (dbFile.exists()) dbFile.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        dao.init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/cleaning_recurrence_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private int rowCount() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM cleaning_tasks")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void testSeriesIsExpandedOnlyInsideWindow() throws Exception {
+        CleaningTask weekly = new CleaningTask("Bad", LocalDate.of(2024, 1, 1), "alice", "Wöchentlich", false);
+        dao.insert(weekly);
+        CleaningTask once = new CleaningTask("Keller", LocalDate.of(2024, 3, 5), null, "Einmalig", false);
+        dao.insert(once);
+
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        List<CleaningTask> occ = dao.listOccurrences(from, from.plusDays(14));
+        List<LocalDate> bad = occ.stream().filter(t -> "Bad".equals(t.getTitle())).map(CleaningTask::getDue).collect(Collectors.toList());
+        // überfälliger Start + Montage im Fenster
+        assertEquals(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 11)), bad);
+        assertTrue(occ.stream().allMatch(t -> !"Bad".equals(t.getTitle()) || t.getId().equals(weekly.getId())), "Termine tragen die ID der Serie");
+        assertEquals(1, occ.stream().filter(t -> "Keller".equals(t.getTitle())).count());
+        assertEquals(2, rowCount(), "Termine werden nicht als Zeilen gespeichert");
+    }
+
+    @Test
+    void testCompletionIsTrackedPerOccurrence() throws Exception {
+        LocalDate start = LocalDate.of(2024, 3, 4);
+        CleaningTask weekly = new CleaningTask("Flur", start, null, "Wöchentlich", false);
+        dao.insert(weekly);
+
+        dao.setOccurrenceCompleted(weekly.getId(), start.plusWeeks(1), true);
+        List<CleaningTask> occ = dao.listOccurrences(start, start.plusWeeks(2));
+        assertEquals(3, occ.size());
+        assertFalse(occ.get(0).isCompleted());
+        assertTrue(occ.get(1).isCompleted());
+        assertFalse(occ.get(2).isCompleted());
+
+        dao.setOccurrenceCompleted(weekly.getId(), start.plusWeeks(1), false);
+        assertTrue(dao.listCompletedOccurrences(weekly.getId()).isEmpty());
+    }
+
+    @Test
+    void testAdvanceReplacesSeriesAndKeepsLaterCompletions() throws Exception {
+        LocalDate start = LocalDate.of(2024, 1, 31);
+        CleaningTask monthly = new CleaningTask("Fenster", start, "alice", "Monatlich", true);
+        dao.insert(monthly);
+        dao.setOccurrenceCompleted(monthly.getId(), start, true);
+        dao.setOccurrenceCompleted(monthly.getId(), LocalDate.of(2024, 3, 31), true);
+
+        CleaningTask next = dao.advance(monthly, LocalDate.of(2024, 2, 29), "bob");
+        assertNotEquals(monthly.getId(), next.getId());
+        assertEquals(1, rowCount(), "Serie bleibt eine Zeile");
+        assertEquals(java.util.Set.of(LocalDate.of(2024, 3, 31)), dao.listCompletedOccurrences(next.getId()));
+        assertTrue(dao.listCompletedOccurrences(monthly.getId()).isEmpty());
+
+        List<CleaningTask> series = dao.listRecurring();
+        assertEquals(1, series.size());
+        assertEquals("bob", series.get(0).getAssignedTo());
+        assertEquals(LocalDate.of(2024, 2, 29), series.get(0).getDue());
+        assertTrue(series.get(0).isUrgent());
+    }
+}
@@ -0,0 +1,134 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.CleaningTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CleaningTaskWindowTest {
+
+    private final CleaningTaskDao dao = new CleaningTaskDao();
+    private final LocalDate from = LocalDate.of(2024, 6, 1);
+    private final LocalDate to = LocalDate.of(2024, 6, 30);
+
+    @BeforeEach
+    void before() throws Exception {
+        File dbFile = new File("target/cleaning_window_test.db");
+        if (dbFile.exists()) dbFile.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        dao.init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/cleaning_window_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private CleaningTask insert(String title, LocalDate due, String assignee, String recurrence) throws Exception {
+        CleaningTask t = new CleaningTask(title, due, assignee, recurrence, false);
+        dao.insert(t);
+        return t;
+    }
+
+    private static List<String> titles(List<CleaningTask> list) {
+        return list.stream().map(CleaningTask::getTitle).collect(Collectors.toList());
+    }
+
+    @Test
+    void testWindowFiltersOneOffsAndUndatedInSql() throws Exception {
+        insert("Alt", LocalDate.of(2024, 5, 1), null, "Einmalig");
+        insert("Drin", LocalDate.of(2024, 6, 15), null, null);
+        insert("Zukunft", LocalDate.of(2024, 7, 1), null, "Einmalig");
+        insert("Ohne Datum", null, null, null);
+
+        assertEquals(List.of("Drin"), titles(dao.listWindow(from, to, false)));
+        assertEquals(List.of("Drin", "Ohne Datum"), titles(dao.listWindow(from, to, true)));
+        assertEquals(List.of("Alt", "Drin", "Ohne Datum"), titles(dao.listWindow(null, to, true)), "Ohne from auch Überfälliges");
+    }
+
+    @Test
+    void testDuplicateSeriesCollapseToNearestDue() throws Exception {
+        insert("Bad", LocalDate.of(2024, 5, 20), "alice", "Wöchentlich");
+        CleaningTask nearest = insert("bad ", LocalDate.of(2024, 5, 13), "bob", "wöchentlich");
+        insert("Bad", LocalDate.of(2024, 5, 20), "alice", "Monatlich");
+        insert("Bad", LocalDate.of(2024, 8, 1), "alice", "Wöchentlich");
+
+        List<CleaningTask> window = dao.listWindow(from, to, false);
+        assertEquals(2, window.size(), "Eine Zeile je Serie (Titel + Regel), Start vor dem Fenster zählt mit");
+        assertEquals(nearest.getId(), window.get(0).getId());
+        assertEquals("Monatlich", window.get(1).getRecurrence());
+
+        List<LocalDate> weekly = dao.listOccurrences(from, to).stream()
+                .filter(t -> "bob".equals(t.getAssignedTo()) && !t.getDue().isBefore(from))
+                .map(CleaningTask::getDue).collect(Collectors.toList());
+        assertEquals(List.of(LocalDate.of(2024, 6, 3), LocalDate.of(2024, 6, 10), LocalDate.of(2024, 6, 17), LocalDate.of(2024, 6, 24)), weekly);
+    }
+
+    @Test
+    void testListByAssigneeIsCaseInsensitive() throws Exception {
+        insert("Küche", LocalDate.of(2024, 6, 2), "Alice", null);
+        insert("Flur", null, "alice", null);
+        insert("Bad", LocalDate.of(2024, 6, 3), "bob", null);
+
+        assertEquals(List.of("Küche", "Flur"), titles(dao.listByAssignee(" ALICE ", from, to)));
+        assertTrue(dao.listByAssignee(null, from, to).isEmpty());
+    }
+
+    @Test
+    void testDueIndexesExist() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE type='index' AND name LIKE 'idx_cleaning_tasks_%'")) {
+            assertTrue(rs.next());
+            assertEquals(4, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testOccurrencesSkipCompletedPastOneOffsButKeepOpenOverdue() throws Exception {
+        CleaningTask doneLongAgo = insert("Erledigt", LocalDate.of(2023, 1, 5), null, null);
+        doneLongAgo.setCompleted(true);
+        dao.update(doneLongAgo);
+        insert("Offen", LocalDate.of(2024, 5, 1), null, null);
+        CleaningTask oldRound = insert("Bad", LocalDate.of(2024, 5, 6), null, "Wöchentlich");
+        oldRound.setCompleted(true);
+        dao.update(oldRound);
+        CleaningTask openRound = insert("Bad", LocalDate.of(2024, 5, 13), null, "Wöchentlich");
+
+        List<CleaningTask> occ = dao.listOccurrences(from, to);
+        assertFalse(titles(occ).contains("Erledigt"), "Erledigte einmalige Aufgaben vor dem Fenster werden nicht gelesen");
+        assertTrue(titles(occ).contains("Offen"), "Offene überfällige Aufgaben bleiben sichtbar");
+        List<CleaningTask> bad = occ.stream().filter(t -> "Bad".equals(t.getTitle())).collect(Collectors.toList());
+        assertTrue(bad.stream().allMatch(t -> t.getId() == openRound.getId()), "Serie startet mit der frühesten offenen Zeile");
+        assertEquals(LocalDate.of(2024, 5, 13), bad.get(0).getDue());
+        assertFalse(bad.get(0).isCompleted());
+        assertEquals(5, bad.size(), "Überfälliger Start plus vier Termine im Juni");
+    }
+
+    @Test
+    void testOccurrenceQueryUsesPartialIndexesBeforeWindow() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN SELECT id FROM cleaning_tasks WHERE household_id = 1 AND completed = 0 AND due < '2024-06-01'")) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) plan.append(rs.getString("detail")).append('\n');
+            assertTrue(plan.toString().contains("idx_cleaning_tasks_open_due"), "Offene Aufgaben über den Teilindex: " + plan);
+        }
+    }
+}
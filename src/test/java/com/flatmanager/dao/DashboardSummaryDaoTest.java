@@ -0,0 +1,159 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DashboardSummaryDaoTest {
+
+    private final DashboardSummaryDao dao = new DashboardSummaryDao();
+
+    @BeforeEach
+    void before() throws Exception {
+        File db = new File("target/dashboard_summary_test.db");
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        dao.init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/dashboard_summary_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void exec(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    private int insertTransaction(double amount, String paidBy) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO budget_transactions (description, amount, paid_by) VALUES ('t', ?, ?)")) {
+            ps.setDouble(1, amount);
+            ps.setString(2, paidBy);
+            ps.executeUpdate();
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    @Test
+    void testTaskAndShoppingCountersFollowTriggers() throws Exception {
+        exec("INSERT INTO cleaning_tasks (title, assigned_to, completed) VALUES ('Bad', 'john', 0)");
+        exec("INSERT INTO cleaning_tasks (title, assigned_to, completed) VALUES ('Küche', NULL, 0)");
+        exec("INSERT INTO cleaning_tasks (title, assigned_to, completed) VALUES ('Flur', 'John', 1)");
+        exec("INSERT INTO shopping_items (item_name, purchased_for) VALUES ('Milch', 'john')");
+        exec("INSERT INTO shopping_items (item_name, purchased_for) VALUES ('Brot', NULL)");
+
+        DashboardSummaryDao.Snapshot snap = dao.load("john");
+        assertEquals(2, snap.count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN));
+        assertEquals(2, snap.count("john", DashboardSummaryDao.TASKS_ASSIGNED), "Zuordnung ist case-insensitiv");
+        assertEquals(2, snap.count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.SHOPPING_TOTAL));
+        assertEquals(1, snap.count("john", DashboardSummaryDao.SHOPPING_FOR));
+
+        exec("UPDATE cleaning_tasks SET completed = 1 WHERE title = 'Bad'");
+        exec("UPDATE cleaning_tasks SET assigned_to = 'anna' WHERE title = 'Küche'");
+        exec("DELETE FROM shopping_items WHERE item_name = 'Milch'");
+
+        snap = dao.load("john", "anna");
+        assertEquals(1, snap.count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN));
+        assertEquals(1, snap.count("anna", DashboardSummaryDao.TASKS_ASSIGNED));
+        assertEquals(0, snap.count("john", DashboardSummaryDao.SHOPPING_FOR));
+        assertTrue(dao.verify().isEmpty(), "Trigger sollten konsistent mit den Basistabellen sein");
+    }
+
+    @Test
+    void testBalancesWithSharesAndEqualSplit() throws Exception {
+        exec("INSERT INTO users (username) VALUES ('Alice')");
+        exec("INSERT INTO users (username) VALUES ('Bob')");
+
+        int shared = insertTransaction(100.0, "Alice");
+        exec("INSERT INTO budget_shares (transaction_id, username, share) VALUES (" + shared + ", 'Alice', 0.5)");
+        exec("INSERT INTO budget_shares (transaction_id, username, share) VALUES (" + shared + ", 'Bob', 0.5)");
+        // ohne Shares: gleichmäßig auf alle Benutzer verteilt
+        insertTransaction(40.0, "Bob");
+
+        DashboardSummaryDao.Snapshot snap = dao.load("Alice", "Bob");
+        assertEquals(30.0, snap.balance("Alice"), 1e-6);
+        assertEquals(-30.0, snap.balance("Bob"), 1e-6);
+
+        exec("UPDATE budget_transactions SET amount = 200.0 WHERE id = " + shared);
+        exec("DELETE FROM budget_shares WHERE username = 'Bob'");
+        snap = dao.load("Alice", "Bob");
+        assertEquals(80.0, snap.balance("Alice"), 1e-6);
+        assertEquals(20.0, snap.balance("Bob"), 1e-6);
+
+        exec("DELETE FROM budget_shares");
+        exec("DELETE FROM budget_transactions WHERE id = " + shared);
+        snap = dao.load("Alice", "Bob");
+        assertEquals(-20.0, snap.balance("Alice"), 1e-6);
+        assertEquals(20.0, snap.balance("Bob"), 1e-6);
+        assertTrue(dao.verify().isEmpty());
+    }
+
+    @Test
+    void testVerifyDetectsDriftAndRebuildRepairs() throws Exception {
+        exec("INSERT INTO cleaning_tasks (title, completed) VALUES ('Bad', 0)");
+        exec("UPDATE dashboard_summary SET value = 42 WHERE kind = 'tasks_open'");
+
+        assertFalse(dao.verify().isEmpty(), "Manipulierte Summe sollte erkannt werden");
+        assertTrue(dao.ensureConsistent());
+        assertTrue(dao.verify().isEmpty());
+        assertEquals(1, dao.load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN));
+        assertFalse(dao.ensureConsistent(), "Konsistente Summen sollten nicht neu aufgebaut werden");
+    }
+
+    @Test
+    void testInitRebuildsFromExistingData() throws Exception {
+        exec("DROP TABLE dashboard_summary");
+        for (String t : new String[]{"tasks", "shopping", "tx", "shares", "users"}) {
+            for (String op : new String[]{"ins", "del", "upd"}) exec("DROP TRIGGER IF EXISTS trg_summary_" + t + "_" + op);
+        }
+        exec("INSERT INTO shopping_items (item_name) VALUES ('Milch')");
+
+        dao.init();
+        assertEquals(1, dao.load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.SHOPPING_TOTAL));
+        dao.init();
+        assertTrue(dao.verify().isEmpty(), "init sollte idempotent sein");
+    }
+
+    @Test
+    void testSchemaSetupInstallsTriggersOncePerVersion() throws Exception {
+        exec("INSERT INTO cleaning_tasks (title, completed) VALUES ('Bad', 0)");
+        exec("UPDATE dashboard_summary SET value = 42 WHERE kind = 'tasks_open'");
+
+        // neue Verbindung -> ensureSchema; bei aktueller Version kein Neuaufbau
+        DatabaseManager.closeConnection();
+        assertEquals(42, dao.load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN),
+                "Aktuelle Trigger sollten beim Öffnen nicht neu angelegt werden");
+
+        exec("UPDATE schema_versions SET version = 0 WHERE component = 'dashboard_summary'");
+        DatabaseManager.closeConnection();
+        assertEquals(1, dao.load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN),
+                "Neue Schema-Version sollte Trigger und Summen neu aufbauen");
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version FROM schema_versions WHERE component = 'dashboard_summary'")) {
+            assertTrue(rs.next());
+            assertEquals(DashboardSummaryDao.SCHEMA_VERSION, rs.getInt(1));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.BudgetTransaction;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.ShoppingItem;
+import com.flatmanager.service.SearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HouseholdPartitionTest {
+
+    private static final String DB_FILE = "target/household_partition_test.db";
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @BeforeEach
+    void before() throws Exception {
+        DatabaseManager.closeConnection();
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        new CleaningTaskDao().init();
+        new ShoppingItemDao().init();
+        new BudgetTransactionDao().init();
+        new BudgetSummaryDao().init();
+        new DashboardSummaryDao().init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of(DB_FILE));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static ShoppingItem item(String name) {
+        return new ShoppingItem(0, name, "1", "anna", "Sonstiges", null, false);
+    }
+
+    private static BudgetTransaction tx(double amount, String description) {
+        BudgetTransaction t = new BudgetTransaction(amount, START.toString());
+        t.setDescription(description);
+        t.setCategory("Einkäufe");
+        return t;
+    }
+
+    @Test
+    void testDaosOnlySeeTheirHousehold() throws Exception {
+        long other = DatabaseManager.createHousehold("Zweite WG");
+        assertTrue(other > DatabaseManager.DEFAULT_HOUSEHOLD);
+        assertEquals("Zweite WG", DatabaseManager.householdName(other));
+
+        new CleaningTaskDao().insert(new CleaningTask("Bad putzen", START, "anna", null, false));
+        new CleaningTaskDao(other).insert(new CleaningTask("Küche wischen", START, "bernd", null, false));
+        new CleaningTaskDao(other).insert(new CleaningTask("Müll rausbringen", START.plusDays(2), "bernd", null, false));
+        new ShoppingItemDao().insert(item("Milch"));
+        new ShoppingItemDao(other).insert(item("Milchreis"));
+        new BudgetTransactionDao().insert(tx(10, "Milch"));
+        new BudgetTransactionDao(other).insert(tx(25, "Milchreis"));
+        assertTrue(DatabaseManager.awaitChangeDelivery(5000));
+
+        assertEquals(List.of("Bad putzen"), new CleaningTaskDao().listAll().stream().map(CleaningTask::getTitle).toList());
+        assertEquals(2, new CleaningTaskDao(other).listWindow(START, START.plusDays(7), false).size());
+        assertEquals(List.of("Milchreis"), new ShoppingItemDao(other).listAll().stream().map(ShoppingItem::getItemName).toList());
+        assertEquals(10.0, new BudgetSummaryDao().grandTotal(), 1e-9);
+        assertEquals(25.0, new BudgetSummaryDao(other).grandTotal(), 1e-9);
+        assertEquals(1, new DashboardSummaryDao().load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.SHOPPING_TOTAL));
+        assertEquals(2, new DashboardSummaryDao(other).load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.TASKS_OPEN));
+        assertTrue(new DashboardSummaryDao().verify().isEmpty());
+        assertTrue(new DashboardSummaryDao(other).verify().isEmpty());
+
+        // DAOs ohne feste WG und die Suche folgen der aktiven WG
+        assertEquals(List.of("Milch"), SearchService.get().search("milch", 10).stream().map(h -> h.text).distinct().toList());
+        DatabaseManager.setCurrentHousehold(other);
+        assertEquals(2, new CleaningTaskDao().listAll().size());
+        assertEquals(List.of("Milchreis"), SearchService.get().search("milch", 10).stream().map(h -> h.text).distinct().toList());
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            DatabaseManager.deleteHouseholdData(conn, other);
+        }
+        assertTrue(new CleaningTaskDao(other).listAll().isEmpty());
+        assertNull(DatabaseManager.householdName(other), "Gelöschte WG verschwindet");
+        assertEquals(1, new CleaningTaskDao(DatabaseManager.DEFAULT_HOUSEHOLD).listAll().size(), "Andere WG bleibt unberührt");
+        assertEquals(1, new ShoppingItemDao(DatabaseManager.DEFAULT_HOUSEHOLD).listAll().size());
+    }
+
+    @Test
+    void testOccurrencesOfOtherHouseholdsAreNotReachable() throws Exception {
+        long other = DatabaseManager.createHousehold("Zweite WG");
+        CleaningTaskDao mine = new CleaningTaskDao();
+        CleaningTaskDao theirs = new CleaningTaskDao(other);
+        CleaningTask series = new CleaningTask("Bad putzen", START, "bernd", "Wöchentlich", false);
+        theirs.insert(series);
+        theirs.setOccurrenceCompleted(series.getId(), START.plusWeeks(1), true);
+
+        assertTrue(mine.listCompletedOccurrences(series.getId()).isEmpty(), "Erledigungen fremder Serien sind unsichtbar");
+        mine.setOccurrenceCompleted(series.getId(), START.plusWeeks(2), true);
+        mine.setOccurrenceCompleted(series.getId(), START.plusWeeks(1), false);
+        assertEquals(java.util.Set.of(START.plusWeeks(1)), theirs.listCompletedOccurrences(series.getId()),
+                "Fremde WG kann Termine weder abhaken noch zurücksetzen");
+
+        mine.assignOccurrence(series.getId(), START.plusWeeks(3), "anna");
+        mine.assignOccurrence(series.getId(), START, "anna");
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM cleaning_task_assignments")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1), "Keine Plan-Einträge für fremde Serien");
+        }
+        assertEquals("bernd", theirs.listAll().get(0).getAssignedTo());
+    }
+
+    @Test
+    void testRegistrationCreatesOneHouseholdPerAdmin() throws Exception {
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("WG Nord", "anna", "pw",
+                List.of(new DatabaseManager.UserData("Bernd", "bernd", "pw"))));
+        assertEquals(DatabaseManager.DEFAULT_HOUSEHOLD, DatabaseManager.householdOf("anna"), "Erste WG übernimmt die Standard-WG");
+        assertEquals("WG Nord", DatabaseManager.householdName(DatabaseManager.DEFAULT_HOUSEHOLD));
+
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("WG Süd", "clara", "pw",
+                List.of(new DatabaseManager.UserData("Dana", "dana", "pw"))));
+        long sued = DatabaseManager.householdOf("clara");
+        assertNotEquals(DatabaseManager.DEFAULT_HOUSEHOLD, sued, "Zweiter Admin bekommt eine eigene WG");
+        assertEquals(sued, DatabaseManager.householdOf("dana"));
+        assertEquals("WG Süd", DatabaseManager.householdName(sued));
+
+        assertEquals(List.of("anna", "bernd"), DatabaseManager.listUsers(DatabaseManager.DEFAULT_HOUSEHOLD).stream()
+                .map(u -> u.username).sorted().toList());
+        assertEquals(List.of("clara", "dana"), DatabaseManager.listUsers(sued).stream().map(u -> u.username).sorted().toList());
+
+        // Username einer anderen WG: Registrierung scheitert komplett
+        assertFalse(DatabaseManager.createHouseholdWithAdmin("WG West", "emil", "pw",
+                List.of(new DatabaseManager.UserData("Anna", "anna", "pw"))));
+        assertEquals(-1, DatabaseManager.householdOf("emil"));
+        assertEquals(DatabaseManager.DEFAULT_HOUSEHOLD, DatabaseManager.householdOf("anna"));
+    }
+
+    @Test
+    void testQueriesUseHouseholdIndexes() throws Exception {
+        String[][] cases = {
+                {"SELECT id FROM cleaning_tasks WHERE household_id = 2 AND due <= '2024-03-31'", "idx_cleaning_tasks_due"},
+                {"SELECT id FROM cleaning_tasks WHERE household_id = 2 AND assigned_to = 'anna' COLLATE NOCASE AND due <= '2024-03-31'",
+                        "idx_cleaning_tasks_assignee_due"},
+                {"SELECT id FROM shopping_items WHERE household_id = 2 ORDER BY category, item_name", "idx_shopping_items_household"},
+                {"SELECT category, SUM(amount) FROM budget_transactions WHERE household_id = 2 GROUP BY category", "idx_budget_tx_category_amount"},
+                {"SELECT username FROM users WHERE household_id = 2", "idx_users_household"},
+        };
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            for (String[] c : cases) {
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN " + c[0])) {
+                    while (rs.next()) plan.append(rs.getString("detail")).append('\n');
+                }
+                assertTrue(plan.toString().contains(c[1]), c[0] + " sollte " + c[1] + " nutzen:\n" + plan);
+            }
+        }
+    }
+
+    @Test
+    void testQueryTimeIndependentOfOtherHouseholds() throws Exception {
+        int perHousehold = 20;
+        fill(DatabaseManager.DEFAULT_HOUSEHOLD, perHousehold);
+        double alone = timeQueries(DatabaseManager.DEFAULT_HOUSEHOLD);
+
+        int households = 1000;
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            for (int h = 2; h <= households; h++) {
+                st.executeUpdate("INSERT INTO households (id, name) VALUES (" + h + ", 'WG " + h + "')");
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        for (int h = 2; h <= households; h++) fill(h, perHousehold);
+        assertTrue(DatabaseManager.awaitChangeDelivery(10_000));
+
+        double shared = timeQueries(DatabaseManager.DEFAULT_HOUSEHOLD);
+        double other = timeQueries(households / 2);
+
+        assertEquals(perHousehold, new CleaningTaskDao(households / 2).listAll().size());
+        assertEquals(perHousehold, new ShoppingItemDao(households / 2).listAll().size());
+        assertTrue(shared < alone * 4 + 0.5 && other < alone * 4 + 0.5,
+                "Abfragen sollten nur die eigene WG lesen: allein " + alone + " ms, mit " + households + " WGs "
+                        + shared + " ms bzw. " + other + " ms");
+    }
+
+    // je WG: Aufgaben, Einkaufsartikel und Buchungen
+    private static void fill(long household, int rows) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement task = conn.prepareStatement(
+                     "INSERT INTO cleaning_tasks (title, due, assigned_to, household_id) VALUES (?, ?, ?, ?)");
+             PreparedStatement shop = conn.prepareStatement(
+                     "INSERT INTO shopping_items (item_name, quantity, category, household_id) VALUES (?, '1', ?, ?)");
+             PreparedStatement budget = conn.prepareStatement(
+                     "INSERT INTO budget_transactions (description, amount, paid_by, date, category, household_id) VALUES (?, ?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                task.setString(1, "Aufgabe " + i);
+                task.setString(2, START.plusDays(i).toString());
+                task.setString(3, "user" + household + "_" + (i % 3));
+                task.setLong(4, household);
+                task.addBatch();
+                shop.setString(1, "Artikel " + i);
+                shop.setString(2, "Kategorie " + (i % 4));
+                shop.setLong(3, household);
+                shop.addBatch();
+                budget.setString(1, "Buchung " + i);
+                budget.setDouble(2, i);
+                budget.setString(3, "user" + household + "_" + (i % 3));
+                budget.setString(4, START.plusDays(i).toString());
+                budget.setString(5, "Kategorie " + (i % 4));
+                budget.setLong(6, household);
+                budget.addBatch();
+            }
+            task.executeBatch();
+            shop.executeBatch();
+            budget.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // mittlere Dauer (ms) der typischen Abfragen einer WG: Putzplan-Fenster, Budgetsummen, Dashboard-Zähler
+    private static double timeQueries(long household) throws Exception {
+        CleaningTaskDao tasks = new CleaningTaskDao(household);
+        BudgetSummaryDao budget = new BudgetSummaryDao(household);
+        DashboardSummaryDao dashboard = new DashboardSummaryDao(household);
+        int runs = 200;
+        for (int i = 0; i < runs; i++) runQueries(tasks, budget, dashboard); // Aufwärmen
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) runQueries(tasks, budget, dashboard);
+        return (System.nanoTime() - start) / 1e6 / runs;
+    }
+
+    private static void runQueries(CleaningTaskDao tasks, BudgetSummaryDao budget, DashboardSummaryDao dashboard) throws Exception {
+        assertFalse(tasks.listWindow(START, START.plusDays(7), false).isEmpty());
+        assertFalse(budget.totalsByCategory().isEmpty());
+        assertEquals(20, dashboard.load().count(DashboardSummaryDao.GLOBAL, DashboardSummaryDao.SHOPPING_TOTAL));
+    }
+}
@@ -0,0 +1,128 @@
+package com.flatmanager.dao;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.ShoppingItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisticVersionTest {
+
+    private final CleaningTaskDao dao = new CleaningTaskDao();
+
+    @BeforeEach
+    void before() throws Exception {
+        File dbFile = new File("target/optimistic_version_test.db");
+        if (dbFile.exists()) dbFile.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        dao.init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/optimistic_version_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private CleaningTask load(int id) throws Exception {
+        return dao.listAll().stream().filter(t -> t.getId() == id).findFirst().orElseThrow();
+    }
+
+    @Test
+    void testSecondWriterGetsConflictInsteadOfOverwriting() throws Exception {
+        CleaningTask t = new CleaningTask("Bad", LocalDate.of(2024, 6, 1), null, null, false);
+        dao.insert(t);
+        assertEquals(0, t.getVersion());
+
+        // zwei App-Instanzen laden dieselbe Zeile
+        CleaningTask mine = load(t.getId());
+        CleaningTask theirs = load(t.getId());
+
+        theirs.setAssignedTo("bob");
+        dao.update(theirs);
+        assertEquals(1, theirs.getVersion());
+
+        mine.setTitle("Bad gründlich");
+        VersionConflictException ex = assertThrows(VersionConflictException.class, () -> dao.update(mine));
+        assertFalse(ex.isDeleted());
+        assertEquals(0, ex.getExpectedVersion());
+
+        CleaningTask stored = load(t.getId());
+        assertEquals("Bad", stored.getTitle(), "Veraltete Änderung darf nicht geschrieben werden");
+        assertEquals("bob", stored.getAssignedTo(), "Fremde Änderung bleibt erhalten");
+        assertEquals(1, stored.getVersion());
+
+        // nach dem Neuladen klappt die eigene Änderung
+        stored.setTitle("Bad gründlich");
+        dao.update(stored);
+        assertEquals("Bad gründlich", load(t.getId()).getTitle());
+        assertEquals(2, load(t.getId()).getVersion());
+    }
+
+    @Test
+    void testDeletedRowAndUnversionedObjects() throws Exception {
+        CleaningTask t = new CleaningTask("Küche", null, null, null, false);
+        dao.insert(t);
+        CleaningTask loaded = load(t.getId());
+        dao.deleteSeries(t.getId());
+
+        VersionConflictException ex = assertThrows(VersionConflictException.class, () -> dao.update(loaded));
+        assertTrue(ex.isDeleted());
+
+        // Objekte ohne bekannte Version (nicht geladen) schreiben wie bisher ohne Prüfung
+        CleaningTask other = new CleaningTask("Flur", null, null, null, false);
+        dao.insert(other);
+        CleaningTask blind = new CleaningTask(other.getId(), "Flur neu", null, null, null, false, false);
+        assertEquals(-1, blind.getVersion());
+        dao.update(blind);
+        assertEquals("Flur neu", load(other.getId()).getTitle());
+        assertEquals(1, load(other.getId()).getVersion(), "Auch ungeprüfte Updates erhöhen die Version");
+    }
+
+    @Test
+    void testConcurrentAdvanceCreatesOnlyOneSeries() throws Exception {
+        CleaningTask s = new CleaningTask("Müll", LocalDate.of(2024, 6, 3), "alice", "Wöchentlich", false);
+        dao.insert(s);
+        CleaningTask mine = dao.listRecurring().get(0);
+        CleaningTask theirs = dao.listRecurring().get(0);
+
+        dao.advance(theirs, LocalDate.of(2024, 6, 10), "bob");
+        assertThrows(VersionConflictException.class, () -> dao.advance(mine, LocalDate.of(2024, 6, 10), "carol"));
+
+        List<CleaningTask> series = dao.listRecurring();
+        assertEquals(1, series.size(), "Gleichzeitiges Vorrücken darf keine doppelte Serie erzeugen");
+        assertEquals("bob", series.get(0).getAssignedTo());
+    }
+
+    @Test
+    void testShoppingItemCompareAndSet() throws Exception {
+        ShoppingItemDao shopping = new ShoppingItemDao();
+        shopping.init();
+        shopping.insert(new ShoppingItem(0, "Milch", "1", "alice", "Kühlung", null, false));
+
+        ShoppingItem mine = shopping.listAll().get(0);
+        ShoppingItem theirs = shopping.listAll().get(0);
+        assertEquals(0, mine.getVersion());
+
+        theirs.setPurchased(true);
+        shopping.update(theirs);
+        mine.setQuantity("3");
+        assertThrows(VersionConflictException.class, () -> shopping.update(mine));
+
+        ShoppingItem stored = shopping.listAll().get(0);
+        assertTrue(stored.isPurchased());
+        assertEquals("1", stored.getQuantity());
+        assertEquals(1, stored.getVersion());
+    }
+}
@@ -0,0 +1,292 @@
+package com.flatmanager.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackupServiceTest {
+    private static final String DB_FILE = "target/backup_service_test.db";
+    private static final Path BACKUP_DIR = Path.of("target/backup_service_test_backups");
+    private static final Path SHARD_DIR = Path.of("target/backup_service_test_shards");
+
+    private final LinkedBlockingQueue<TableChanges> received = new LinkedBlockingQueue<>();
+    private final Consumer<TableChanges> listener = received::add;
+    private BackupService service;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        DatabaseManager.closeConnection();
+        File db = new File(DB_FILE);
+        if (db.exists()) Files.delete(db.toPath());
+        Files.deleteIfExists(Path.of(DB_FILE + "-wal"));
+        Files.deleteIfExists(Path.of(DB_FILE + "-shm"));
+        deleteBackups();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        System.setProperty("backup.dir", BACKUP_DIR.toString());
+        DatabaseManager.getConnection().close();
+        service = new BackupService();
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        DatabaseManager.removeChangeListener(listener);
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        DatabaseManager.closeConnection();
+        System.clearProperty("backup.dir");
+        System.clearProperty("db.journal_mode");
+        System.clearProperty(ShardRouter.DIR_PROPERTY);
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            try { Files.deleteIfExists(Path.of(DB_FILE + suffix)); } catch (Exception ignored) {}
+        }
+        deleteBackups();
+        deleteDir(SHARD_DIR);
+    }
+
+    private static void deleteBackups() throws Exception {
+        deleteDir(BACKUP_DIR);
+    }
+
+    private static void deleteDir(Path dir) throws Exception {
+        if (!Files.exists(dir)) return;
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    private static List<Path> backupsOf(String prefix) throws Exception {
+        try (var files = Files.list(BACKUP_DIR)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    // eine Datei je WG mit zwei WGs: anna (Standard-WG) und bernd; liefert die zweite WG
+    private static long shardedHouseholds() throws Exception {
+        DatabaseManager.closeConnection();
+        deleteDir(SHARD_DIR);
+        System.setProperty(ShardRouter.DIR_PROPERTY, SHARD_DIR.toAbsolutePath().toString());
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Erste WG", "anna", "pw", List.of()));
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Zweite WG", "bernd", "pw", List.of()));
+        long second = DatabaseManager.householdOf("bernd");
+        assertNotEquals(DatabaseManager.DEFAULT_HOUSEHOLD, second);
+        return second;
+    }
+
+    private static void exec(String sql) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    private static int countIn(Path file, String table) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath())) {
+            return count(conn, table);
+        }
+    }
+
+    @Test
+    public void testBackupIsSteppedAndDoesNotBlockWriters() throws Exception {
+        // WAL wie im Mehrbenutzerbetrieb: die Sicherung liest einen festen Stand, Schreiber laufen weiter
+        DatabaseManager.closeConnection();
+        System.setProperty("db.journal_mode", "WAL");
+        DatabaseManager.getConnection().close();
+        // einige MiB, damit die Kopie mehrere Schritte braucht
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO shopping_items (item_name, category) VALUES (?, ?)")) {
+            conn.setAutoCommit(false);
+            String filler = "x".repeat(1000);
+            for (int i = 0; i < 5000; i++) {
+                ps.setString(1, "Artikel " + i);
+                ps.setString(2, filler);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger written = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                try {
+                    exec("INSERT INTO budget_transactions (description, amount) VALUES ('Laufend', 1)");
+                    written.incrementAndGet();
+                } catch (SQLException e) {
+                    fail("Schreiber wurde blockiert: " + e.getMessage());
+                }
+            }
+        });
+        writer.start();
+        Path backup;
+        try {
+            backup = service.backupNow(null);
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+
+        assertTrue(service.lastSteps() > 1, "Sicherung sollte in mehreren Schritten kopieren");
+        assertTrue(written.get() > 0, "Schreiber sollte während der Sicherung weiterarbeiten");
+        assertEquals(5000, countIn(backup, "shopping_items"));
+        assertFalse(Files.exists(Path.of(backup + ".part")));
+        assertEquals(List.of(backup), service.listBackups());
+    }
+
+    @Test
+    public void testRetentionKeepsNewestAndOnePerDay() throws Exception {
+        Files.createDirectories(BACKUP_DIR);
+        for (String day : new String[]{"20240101", "20240102", "20240103", "20240104"}) {
+            Files.writeString(BACKUP_DIR.resolve("backup_service_test-" + day + "-080000-000.db"), "");
+            Files.writeString(BACKUP_DIR.resolve("backup_service_test-" + day + "-200000-000.db"), "");
+        }
+        service.setRetention(new BackupService.Retention(1, 3));
+        Path newest = service.backupNow(null);
+
+        List<Path> left = service.listBackups();
+        assertEquals(List.of(newest,
+                BACKUP_DIR.resolve("backup_service_test-20240104-200000-000.db"),
+                BACKUP_DIR.resolve("backup_service_test-20240103-200000-000.db")), left,
+                "Neueste Sicherung plus die jeweils letzte der drei jüngsten Tage");
+    }
+
+    @Test
+    public void testRestoreBringsBackDataAndNotifiesListeners() throws Exception {
+        exec("INSERT INTO users (username, name, password) VALUES ('alice', 'Alice', 'pw')");
+        Path backup = service.backupNow("test");
+        exec("DELETE FROM users WHERE 1");
+        exec("INSERT INTO shopping_items (item_name) VALUES ('Nach der Sicherung')");
+        DatabaseManager.awaitChangeDelivery(5000);
+
+        long generation = DatabaseManager.getPoolGeneration();
+        DatabaseManager.addChangeListener(listener);
+        service.restore(backup);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertEquals(1, count(conn, "users"), "Benutzer sollte wiederhergestellt sein");
+            assertEquals(0, count(conn, "shopping_items"));
+        }
+        assertTrue(DatabaseManager.getPoolGeneration() > generation, "Pool wurde neu aufgebaut");
+        TableChanges c = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(c);
+        assertTrue(c.isExternal() && c.affects("users", "shopping_items"));
+
+        List<Path> backups = service.listBackups();
+        assertTrue(backups.stream().anyMatch(p -> p.getFileName().toString().endsWith("-vor-wiederherstellung.db")),
+                "Vor der Wiederherstellung wird der aktuelle Stand gesichert");
+    }
+
+    @Test
+    public void testShardedBackupCoversCatalogAndEveryHousehold() throws Exception {
+        long second = shardedHouseholds();
+
+        // der periodische Job sichert alle WG-Dateien, nicht nur die der aktiven WG, und den Katalog dazu
+        assertNotNull(service.backupIfChangedAsync().get(30, TimeUnit.SECONDS));
+        assertEquals(1, backupsOf("wg-" + DatabaseManager.DEFAULT_HOUSEHOLD + "-").size());
+        assertEquals(1, backupsOf("wg-" + second + "-").size());
+        List<Path> catalogs = backupsOf("catalog-");
+        assertEquals(1, catalogs.size());
+        assertEquals(2, countIn(catalogs.get(0), "user_directory"), "Anmeldenamen beider WGs sind gesichert");
+        assertEquals(catalogs.get(0).getFileName().toString().substring("catalog-".length()),
+                backupsOf("wg-" + second + "-").get(0).getFileName().toString().substring(("wg-" + second + "-").length()),
+                "Katalog und WG-Datei tragen denselben Zeitstempel");
+
+        assertNull(service.backupIfChangedAsync().get(30, TimeUnit.SECONDS), "Unveränderte Dateien werden nicht erneut gesichert");
+
+        // Sicherung vor dem Löschen einer WG: deren Datei samt Katalog
+        DatabaseManager.setCurrentHousehold(second);
+        Path backup = service.backupNow("vor-wg-loeschen");
+        assertTrue(backup.getFileName().toString().startsWith("wg-" + second + "-"));
+        assertEquals(1, countIn(backup, "users"));
+        assertEquals(2, backupsOf("catalog-").size());
+        assertEquals(List.of(backup), service.listBackups().subList(0, 1));
+    }
+
+    @Test
+    public void testRestoreOfOneHouseholdLeavesOthersAlone() throws Exception {
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Erste WG", "anna", "pw", List.of()));
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Zweite WG", "bernd", "pw", List.of()));
+        long first = DatabaseManager.householdOf("anna");
+        long second = DatabaseManager.householdOf("bernd");
+        exec("INSERT INTO shopping_items (item_name, household_id) VALUES ('Milch', " + second + ")");
+        Path backup = service.backupNow("test");
+
+        exec("INSERT INTO shopping_items (item_name, household_id) VALUES ('Brot', " + first + ")");
+        try (Connection conn = DatabaseManager.getConnection()) {
+            DatabaseManager.deleteHouseholdData(conn, second);
+        }
+        assertEquals(-1, DatabaseManager.householdOf("bernd"));
+
+        service.restoreHousehold(backup, second);
+
+        assertEquals(second, DatabaseManager.householdOf("bernd"), "Benutzer der WG sind zurück");
+        assertTrue(DatabaseManager.checkPassword("bernd", "pw"));
+        assertEquals("Zweite WG", DatabaseManager.householdName(second));
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT household_id, item_name FROM shopping_items ORDER BY id")) {
+            assertTrue(rs.next());
+            assertEquals(second, rs.getLong(1));
+            assertEquals("Milch", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals(first, rs.getLong(1));
+            assertEquals("Brot", rs.getString(2), "Die andere WG behält ihren neueren Stand");
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testShardedRestoreBringsBackADroppedHousehold() throws Exception {
+        long second = shardedHouseholds();
+        DatabaseManager.setCurrentHousehold(second);
+        Path backup = service.backupNow("vor-wg-loeschen");
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        assertTrue(ShardRouter.get().drop(second));
+        assertEquals(-1, DatabaseManager.householdOf("bernd"));
+
+        // Betreiberpfad (--restore): WG-Datei samt WG-Zeile und Anmeldenamen im Katalog
+        service.restore(backup);
+
+        assertEquals(second, DatabaseManager.householdOf("bernd"));
+        assertTrue(DatabaseManager.checkPassword("bernd", "pw"));
+        assertEquals("Zweite WG", DatabaseManager.householdName(second));
+        assertEquals(DatabaseManager.DEFAULT_HOUSEHOLD, DatabaseManager.householdOf("anna"), "Andere WGs bleiben unberührt");
+    }
+
+    @Test
+    public void testQuiesceWaitsForBorrowedConnections() throws Exception {
+        try (Connection held = DatabaseManager.getConnection()) {
+            assertNotNull(held);
+            SQLException ex = assertThrows(SQLException.class,
+                    () -> DatabaseManager.runQuiesced(100, () -> fail("darf nicht laufen, solange eine Connection ausgeliehen ist")));
+            assertTrue(ex.getMessage().contains("in Benutzung"));
+        }
+        assertEquals("ok", DatabaseManager.runQuiesced(1000, () -> "ok"));
+        // danach ist der Pool wieder normal nutzbar
+        exec("INSERT INTO shopping_items (item_name) VALUES ('Nach Pause')");
+    }
+}
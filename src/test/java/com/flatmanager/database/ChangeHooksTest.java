@@ -0,0 +1,138 @@
+package com.flatmanager.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeHooksTest {
+    private static final String DB_FILE = "target/change_hooks_test.db";
+
+    private final LinkedBlockingQueue<TableChanges> received = new LinkedBlockingQueue<>();
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+    private final Consumer<TableChanges> listener = c -> {
+        threads.add(Thread.currentThread().getName());
+        received.add(c);
+    };
+
+    @BeforeEach
+    public void setup() throws Exception {
+        File db = new File(DB_FILE);
+        if (db.exists()) Files.delete(db.toPath());
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        DatabaseManager.getConnection().close();
+        DatabaseManager.addChangeListener(listener);
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        DatabaseManager.removeChangeListener(listener);
+        DatabaseManager.closeConnection();
+        try { Files.deleteIfExists(new File(DB_FILE).toPath()); } catch (Exception ignored) {}
+    }
+
+    private TableChanges next() throws InterruptedException {
+        TableChanges c = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(c, "Änderung sollte gemeldet werden");
+        return c;
+    }
+
+    private long insertItem(Connection conn, String name) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO shopping_items (item_name) VALUES (?)")) {
+            ps.setString(1, name);
+            ps.executeUpdate();
+        }
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    public void testTransactionIsReportedOnceWithAllRowsOffTheWriterThread() throws Exception {
+        long milk;
+        long bread;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            milk = insertItem(conn, "Milch");
+            bread = insertItem(conn, "Brot");
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("UPDATE shopping_items SET quantity = '2' WHERE id = " + milk);
+            }
+            assertNull(received.poll(200, TimeUnit.MILLISECONDS), "Vor dem Commit darf nichts gemeldet werden");
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        TableChanges c = next();
+        assertTrue(c.affects("shopping_items"));
+        assertTrue(c.affects("SHOPPING_ITEMS"), "Tabellennamen ohne Beachtung der Groß-/Kleinschreibung");
+        assertFalse(c.affects("users"));
+        assertEquals(2, c.rowIds("shopping_items").size(), "Mehrfach geänderte Zeile nur einmal");
+        assertTrue(c.contains("shopping_items", milk));
+        assertTrue(c.contains("shopping_items", bread));
+        assertFalse(c.isWholeTable("shopping_items"));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS), "Ein Commit ergibt eine Benachrichtigung");
+        assertEquals(List.of("flatmanager-db-changes"), threads);
+    }
+
+    @Test
+    public void testRollbackIsNotReportedAndListenerSeesCommittedData() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            insertItem(conn, "Verworfen");
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+
+        // Listener liest sofort neu: der Commit muss dann bereits sichtbar sein
+        LinkedBlockingQueue<Integer> counts = new LinkedBlockingQueue<>();
+        Consumer<TableChanges> reader = c -> {
+            try (Connection conn = DatabaseManager.getConnection();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM shopping_items")) {
+                rs.next();
+                counts.add(rs.getInt(1));
+            } catch (Exception e) {
+                counts.add(-1);
+            }
+        };
+        DatabaseManager.addChangeListener(reader);
+        try {
+            assertTrue(DatabaseManager.addOrUpdateShoppingItem(new DatabaseManager.ShoppingItem(0, "Eier", 6, false, null, null, null)));
+            TableChanges c = next();
+            assertEquals(1, c.rowIds("shopping_items").size(), "Zurückgerollte Zeile darf nicht gemeldet werden");
+            assertEquals(1, counts.poll(5, TimeUnit.SECONDS));
+        } finally {
+            DatabaseManager.removeChangeListener(reader);
+        }
+    }
+
+    @Test
+    public void testLargeCommitIsReportedAsWholeTable() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i <= TableChanges.MAX_ROWS_PER_TABLE; i++) insertItem(conn, "Artikel " + i);
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        TableChanges c = next();
+        assertTrue(c.isWholeTable("shopping_items"));
+        assertTrue(c.rowIds("shopping_items").isEmpty());
+        assertTrue(c.contains("shopping_items", 424242L), "Ganze Tabelle schließt jede Zeile ein");
+    }
+}
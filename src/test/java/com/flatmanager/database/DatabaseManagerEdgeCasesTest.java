@@ -69,6 +69,39 @@ public class DatabaseManagerEdgeCasesTest {
                 assertEquals("legacy-item", item);
             }
         }
+        assertTrue(indexDefinition("idx_shopping_items_household").contains("category"),
+                "Fehlende Spalte category wird vor dem WG-Index ergänzt");
+    }
+
+    private static String indexDefinition(String name) throws Exception {
+        try (Connection c = DriverManager.getConnection(System.getProperty("db.url"));
+             PreparedStatement ps = c.prepareStatement("SELECT sql FROM sqlite_master WHERE type = 'index' AND name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "";
+            }
+        }
+    }
+
+    @Test
+    public void testOldIndexIsKeptWhenReplacementFails() throws Exception {
+        Database.closeConnection();
+        try (Connection c = DriverManager.getConnection(System.getProperty("db.url"))) {
+            try (Statement s = c.createStatement()) {
+                s.execute("DROP TABLE IF EXISTS budget_transactions");
+                // keine Spalte amount: der WG-Index auf amount lässt sich nicht bauen
+                s.execute("CREATE TABLE budget_transactions (id INTEGER PRIMARY KEY AUTOINCREMENT, description TEXT, category TEXT, user_id INTEGER)");
+                s.execute("CREATE INDEX idx_budget_tx_category_amount ON budget_transactions(category)");
+            }
+        }
+
+        Database.init();
+
+        String definition = indexDefinition("idx_budget_tx_category_amount");
+        assertFalse(definition.isEmpty(), "Alter Index bleibt erhalten, wenn der neue scheitert");
+        assertFalse(definition.contains("household_id"));
+        assertTrue(indexDefinition("idx_budget_transactions_household_date").contains("household_id"),
+                "Fehlende Spalte date wird vor dem WG-Index ergänzt");
     }
 
     @Test
@@ -196,6 +229,7 @@ public class DatabaseManagerEdgeCasesTest {
                 assertEquals(42, paid);
             }
         }
+        assertTrue(indexDefinition("idx_budget_tx_month_amount").contains("household_id"));
     }
 
     @Test
@@ -0,0 +1,150 @@
+package com.flatmanager.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalChangeWatcherTest {
+    private static final String DB_FILE = "target/external_change_watcher_test.db";
+
+    private final LinkedBlockingQueue<TableChanges> received = new LinkedBlockingQueue<>();
+    private final Consumer<TableChanges> listener = received::add;
+    private ExternalChangeWatcher watcher;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        File db = new File(DB_FILE);
+        if (db.exists()) Files.delete(db.toPath());
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        DatabaseManager.getConnection().close();
+        DatabaseManager.addChangeListener(listener);
+        watcher = new ExternalChangeWatcher();
+        assertEquals(0, watcher.poll(), "Erste Abfrage merkt sich nur den Ausgangsstand");
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        watcher.close();
+        DatabaseManager.removeChangeListener(listener);
+        DatabaseManager.closeConnection();
+        try { Files.deleteIfExists(new File(DB_FILE).toPath()); } catch (Exception ignored) {}
+    }
+
+    /** Schreibt wie eine zweite App-Instanz: eigene Connection ohne Pool und ohne Hooks. */
+    private void externalWrite(String sql) throws Exception {
+        try (Connection other = DriverManager.getConnection(System.getProperty("db.url"));
+             Statement st = other.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    // spätestens nach FULL_CHECK_EVERY Abfragen wird data_version geprüft, auch ohne neuen Zeitstempel
+    private int pollUntilChecked() {
+        int reported = 0;
+        for (int i = 0; i < ExternalChangeWatcher.FULL_CHECK_EVERY && reported == 0; i++) reported = watcher.poll();
+        return reported;
+    }
+
+    @Test
+    public void testExternalCommitIsReportedAsWholeTable() throws Exception {
+        externalWrite("INSERT INTO shopping_items (item_name) VALUES ('Milch')");
+
+        // die Kaufhistorie ändert sich per Trigger mit
+        assertEquals(2, pollUntilChecked());
+        TableChanges c = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(c, "Externe Änderung sollte gemeldet werden");
+        assertTrue(c.isExternal());
+        assertEquals(java.util.Set.of("shopping_items", "shopping_history"), c.tables());
+        assertTrue(c.isWholeTable("shopping_items"));
+
+        externalWrite("UPDATE shopping_items SET version = version + 1, quantity = '2' WHERE item_name = 'Milch'");
+        assertEquals(1, pollUntilChecked(), "Updates erhöhen den Zähler der Tabelle");
+        assertTrue(received.poll(5, TimeUnit.SECONDS).isExternal());
+    }
+
+    @Test
+    public void testOwnCommitsAreLeftToTheHooks() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO shopping_items (item_name) VALUES ('Brot')");
+        }
+        TableChanges own = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(own);
+        assertFalse(own.isExternal());
+
+        long scans = watcher.scans();
+        assertEquals(0, pollUntilChecked(), "Eigene Änderungen sind schon gemeldet");
+        assertEquals(scans + 1, watcher.scans(), "data_version hat den Commit trotzdem erkannt");
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testIdlePollsOnlyCheckTheFileStamp() {
+        long checks = watcher.versionChecks();
+        for (int i = 0; i < ExternalChangeWatcher.FULL_CHECK_EVERY - 1; i++) assertEquals(0, watcher.poll());
+        assertEquals(checks, watcher.versionChecks(), "Ohne Dateiänderung keine Datenbankabfrage");
+        watcher.poll();
+        assertEquals(checks + 1, watcher.versionChecks(), "Regelmäßige Prüfung als Rückfallebene");
+        assertEquals(0, watcher.scans(), "Ohne Commit kein Vergleich der Tabellen");
+    }
+
+    @Test
+    public void testInPlaceUpdateOfUnversionedTableIsReported() throws Exception {
+        externalWrite("INSERT INTO cleaning_task_assignments (task_id, occurrence, assigned_to) VALUES (1, '2024-06-03', 'alice')");
+        assertTrue(pollUntilChecked() > 0);
+        received.poll(5, TimeUnit.SECONDS);
+
+        externalWrite("UPDATE cleaning_task_assignments SET assigned_to = 'bob'");
+        assertTrue(pollUntilChecked() > 0);
+        TableChanges c = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(c);
+        assertTrue(c.affects("cleaning_task_assignments"), "Auch Updates ohne version-Spalte zählen");
+        assertFalse(c.affects("shopping_items"));
+    }
+
+    @Test
+    public void testExternalWriteIsNotHiddenByOwnWriteToTheSameTable() throws Exception {
+        externalWrite("INSERT INTO shopping_items (item_name) VALUES ('Milch')");
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO shopping_items (item_name) VALUES ('Brot')");
+        }
+        assertFalse(received.poll(5, TimeUnit.SECONDS).isExternal());
+
+        assertTrue(pollUntilChecked() > 0, "Fremde Zeile wird trotz eigener Änderung an derselben Tabelle gemeldet");
+        TableChanges c = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(c);
+        assertTrue(c.isExternal());
+        assertTrue(c.affects("shopping_items"));
+    }
+
+    @Test
+    public void testCountersAreMaintainedByTriggers() throws Exception {
+        externalWrite("INSERT INTO cleaning_tasks (title) VALUES ('Bad')");
+        externalWrite("UPDATE cleaning_tasks SET title = 'Küche'");
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM cleaning_tasks");
+            try (java.sql.ResultSet rs = st.executeQuery("SELECT writer, n FROM " + ChangeCounters.TABLE + " WHERE tbl = 'cleaning_tasks' ORDER BY writer")) {
+                assertTrue(rs.next());
+                assertEquals("", rs.getString(1));
+                assertEquals(3, rs.getLong(2), "Alle Zeilenänderungen zählen");
+                assertTrue(rs.next());
+                assertEquals(ChangeCounters.INSTANCE, rs.getString(1));
+                assertEquals(1, rs.getLong(2), "Eigene Änderungen zählen zusätzlich");
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.flatmanager.database;
+
+import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.model.CleaningTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRouterTest {
+
+    private static final Path DIR = Path.of("target/shard_router_test");
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @BeforeEach
+    void before() throws IOException {
+        DatabaseManager.closeConnection();
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        deleteDir();
+        System.setProperty(ShardRouter.DIR_PROPERTY, DIR.toAbsolutePath().toString());
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        DatabaseManager.closeConnection();
+        System.clearProperty(ShardRouter.DIR_PROPERTY);
+        System.clearProperty("db.shard_max_open");
+        deleteDir();
+    }
+
+    private static void deleteDir() throws IOException {
+        if (!Files.exists(DIR)) return;
+        try (Stream<Path> files = Files.walk(DIR)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    // zwei WGs: anna (Standard-WG) und bernd (neue WG)
+    private static long twoHouseholds() {
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Erste WG", "anna", "pw", List.of()));
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Zweite WG", "bernd", "pw",
+                List.of(new DatabaseManager.UserData("Carla", "carla", null))));
+        long second = DatabaseManager.householdOf("bernd");
+        assertNotEquals(DatabaseManager.DEFAULT_HOUSEHOLD, second);
+        return second;
+    }
+
+    @Test
+    void testEachHouseholdHasItsOwnFile() throws Exception {
+        long second = twoHouseholds();
+
+        assertTrue(Files.isRegularFile(ShardRouter.shardFile(DatabaseManager.DEFAULT_HOUSEHOLD)));
+        assertTrue(Files.isRegularFile(ShardRouter.shardFile(second)), "Neue WG bekommt eine eigene Datei");
+        assertEquals(List.of(DatabaseManager.DEFAULT_HOUSEHOLD, second), ShardRouter.get().households());
+        assertEquals("Zweite WG", DatabaseManager.householdName(second));
+        assertEquals(second, DatabaseManager.householdOf("CARLA"));
+
+        assertEquals(List.of("anna"), DatabaseManager.listUsers(DatabaseManager.DEFAULT_HOUSEHOLD).stream().map(u -> u.username).toList());
+        assertEquals(List.of("bernd", "carla"), DatabaseManager.listUsers(second).stream().map(u -> u.username).sorted().toList());
+
+        // Usernamen bleiben WG-übergreifend eindeutig, obwohl die Dateien getrennt sind
+        assertFalse(DatabaseManager.createHouseholdWithAdmin("Dritte WG", "dora", "pw",
+                List.of(new DatabaseManager.UserData("Anna", "anna", null))));
+        assertEquals(-1, DatabaseManager.householdOf("dora"));
+        assertEquals(2, ShardRouter.get().households().size(), "Gescheiterte Registrierung hinterlässt keine Datei");
+    }
+
+    @Test
+    void testDaosReadOnlyTheirHouseholdFile() throws Exception {
+        long second = twoHouseholds();
+        new CleaningTaskDao(DatabaseManager.DEFAULT_HOUSEHOLD).init();
+        new CleaningTaskDao(second).init();
+        new CleaningTaskDao(DatabaseManager.DEFAULT_HOUSEHOLD).insert(new CleaningTask("Bad putzen", START, "anna", null, false));
+        new CleaningTaskDao(second).insert(new CleaningTask("Küche wischen", START, "bernd", null, false));
+
+        assertEquals(List.of("Bad putzen"), new CleaningTaskDao().listAll().stream().map(CleaningTask::getTitle).toList());
+        DatabaseManager.setCurrentHousehold(second);
+        assertEquals(List.of("Küche wischen"), new CleaningTaskDao().listAll().stream().map(CleaningTask::getTitle).toList());
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM cleaning_tasks")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1), "Die Datei der WG enthält nur ihre eigenen Zeilen");
+        }
+    }
+
+    @Test
+    void testWritersOfDifferentHouseholdsDoNotContend() throws Exception {
+        long second = twoHouseholds();
+        try (Connection writer = DatabaseManager.getConnection(DatabaseManager.DEFAULT_HOUSEHOLD)) {
+            writer.setAutoCommit(false);
+            try (Statement st = writer.createStatement()) {
+                st.executeUpdate("UPDATE users SET name = 'Anna' WHERE username = 'anna'");
+            }
+            // die erste WG ist gesperrt, die zweite schreibt trotzdem sofort
+            long elapsed = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try (Connection conn = DatabaseManager.getConnection(second);
+                     PreparedStatement ps = conn.prepareStatement("UPDATE users SET name = ? WHERE username = 'bernd'")) {
+                    ps.setString(1, "Bernd");
+                    ps.executeUpdate();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return (System.nanoTime() - start) / 1_000_000;
+            }).get(10, TimeUnit.SECONDS);
+            writer.rollback();
+            writer.setAutoCommit(true);
+            assertTrue(elapsed < 1000, "Schreiben in die zweite WG sollte nicht auf die Sperre der ersten warten, dauerte " + elapsed + " ms");
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedShardsAreClosed() throws Exception {
+        System.setProperty("db.shard_max_open", "2");
+        for (long household = 1; household <= 5; household++) {
+            try (Connection conn = DatabaseManager.getConnection(household);
+                 Statement st = conn.createStatement()) {
+                st.execute("SELECT 1");
+            }
+            assertTrue(ShardRouter.get().openShards() <= 2, "Höchstens zwei WGs bleiben offen");
+        }
+        assertEquals(5, ShardRouter.get().households().size());
+        assertEquals(0, ShardRouter.get().borrowedConnections());
+
+        // eine ausgeliehene Connection wird nicht geschlossen, auch wenn ihre WG am längsten unbenutzt ist
+        try (Connection held = DatabaseManager.getConnection(1)) {
+            DatabaseManager.getConnection(2).close();
+            DatabaseManager.getConnection(3).close();
+            try (Statement st = held.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM users")) {
+                assertTrue(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void testDropDeletesTheHouseholdFile() throws Exception {
+        long second = twoHouseholds();
+        Path file = ShardRouter.shardFile(second);
+        assertTrue(Files.exists(file));
+
+        DatabaseManager.setCurrentHousehold(second);
+        assertTrue(ShardRouter.get().drop(second));
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+
+        assertFalse(Files.exists(file), "WG löschen heißt ihre Datei löschen");
+        assertEquals(-1, DatabaseManager.householdOf("bernd"));
+        assertNull(DatabaseManager.householdName(second));
+        assertEquals(DatabaseManager.DEFAULT_HOUSEHOLD, DatabaseManager.householdOf("anna"), "Andere WGs bleiben unberührt");
+
+        // der Username ist wieder frei
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Neue WG", "bernd", "pw", List.of()));
+    }
+
+    @Test
+    void testHouseholdCannotBeBorrowedWhileItIsDropped() throws Exception {
+        long second = twoHouseholds();
+        CompletableFuture<Boolean> drop;
+        try (Connection held = DatabaseManager.getConnection(second)) {
+            // drop wartet auf die ausgeliehene Connection; solange gibt es keine neue
+            drop = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ShardRouter.get().drop(second);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!ShardRouter.get().isDropping(second) && System.currentTimeMillis() < deadline) Thread.sleep(5);
+            assertTrue(ShardRouter.get().isDropping(second));
+            assertThrows(java.sql.SQLException.class, () -> DatabaseManager.getConnection(second),
+                    "Während des Löschens entsteht kein neuer Pool für die WG");
+            assertTrue(ShardRouter.get().households().contains(second));
+        }
+        assertTrue(drop.get(10, TimeUnit.SECONDS));
+        assertFalse(ShardRouter.get().isDropping(second));
+        assertFalse(Files.exists(ShardRouter.shardFile(second)), "Die Datei wurde nicht wieder angelegt");
+        assertEquals(-1, DatabaseManager.householdOf("bernd"));
+        assertEquals(-1, DatabaseManager.householdOf("carla"), "Katalogzeilen wurden nicht neu angelegt");
+    }
+
+    @Test
+    void testMaintenanceChecksEveryFile() throws Exception {
+        long second = twoHouseholds();
+        Map<Long, String> report = ShardRouter.get().runMaintenance();
+        assertEquals(Map.of(DatabaseManager.DEFAULT_HOUSEHOLD, "ok", second, "ok"), report);
+        // der Scheduler-Job übergibt die Wartung an einen eigenen Thread
+        assertEquals(report, ShardRouter.get().runMaintenanceAsync().get(30, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,133 @@
+package com.flatmanager.diagnostics;
+
+import com.flatmanager.database.DatabaseManager;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecordingTest {
+
+    private static final String DB_FILE = "target/flight_recording_test.db";
+    private static final Path OUT = Path.of("target/flight_recording_test_out");
+
+    @BeforeEach
+    void before() throws Exception {
+        DatabaseManager.closeConnection();
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        System.setProperty("jfr.dir", OUT.toString());
+        DatabaseManager.createOrUpdateUser("anna", "pw", "Anna");
+    }
+
+    @AfterEach
+    void after() throws Exception {
+        FlightRecording.get().stop();
+        System.clearProperty("jfr.dir");
+        DatabaseManager.closeConnection();
+        Files.deleteIfExists(Path.of(DB_FILE));
+        if (Files.exists(OUT)) {
+            try (var files = Files.list(OUT)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+            }
+            Files.delete(OUT);
+        }
+    }
+
+    @Test
+    void testDisabledRecordingLeavesStatementsUnwrapped() throws Exception {
+        assertFalse(FlightRecording.isActive());
+        long threshold = SlowQueryLog.thresholdMillis();
+        SlowQueryLog.setThresholdMillis(-1);
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            assertFalse(Proxy.isProxyClass(st.getClass()), "Ohne Aufzeichnung und Protokoll das Statement des Treibers");
+        } finally {
+            SlowQueryLog.setThresholdMillis(threshold);
+        }
+        assertNull(ViewLoadEvent.start("Test"));
+        ViewLoadEvent.finish(null, 0);
+        assertNull(FlightRecording.get().stop(), "Ohne Aufzeichnung keine Datei");
+    }
+
+    @Test
+    void testEventsAreRecordedAndDumped() throws Exception {
+        FlightRecording.get().start();
+        assertTrue(FlightRecording.isActive());
+        assertTrue(FlightRecording.get().isRecording());
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS jfr_probe (id INTEGER PRIMARY KEY, name TEXT)");
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO jfr_probe (name) VALUES (?)")) {
+                for (int i = 0; i < 3; i++) {
+                    ps.setString(1, "Name " + i);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT * FROM jfr_probe WHERE name <> 'Geheim' AND id > 0")) {
+                while (rs.next()) { }
+            }
+        }
+        assertFalse(DatabaseManager.listUsers(DatabaseManager.DEFAULT_HOUSEHOLD).isEmpty());
+        ViewLoadEvent load = ViewLoadEvent.start("Testansicht");
+        assertNotNull(load);
+        ViewLoadEvent.finish(load, 7);
+
+        Path dump = FlightRecording.get().dump();
+        assertTrue(FlightRecording.get().isRecording(), "Speichern beendet die Aufzeichnung nicht");
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(e -> e.getEventType().getName().startsWith("com.flatmanager."))
+                .collect(Collectors.toList());
+        List<String> types = events.stream().map(e -> e.getEventType().getName()).distinct().collect(Collectors.toList());
+        for (String type : List.of("com.flatmanager.ConnectionAcquire", "com.flatmanager.ConnectionRelease",
+                "com.flatmanager.Statement", "com.flatmanager.Commit", "com.flatmanager.ViewLoad")) {
+            assertTrue(types.contains(type), "Ereignis " + type + " fehlt: " + types);
+        }
+
+        RecordedEvent select = events.stream().filter(e -> e.getEventType().getName().equals("com.flatmanager.Statement")
+                && e.getString("sql").startsWith("SELECT * FROM jfr_probe")).findFirst().orElseThrow();
+        assertEquals("SELECT * FROM jfr_probe WHERE name <> ? AND id > ?", select.getString("sql"), "Literale sind normalisiert");
+        assertEquals(3, select.getLong("rows"), "Gelesene Zeilen");
+        RecordedEvent batch = events.stream().filter(e -> e.getEventType().getName().equals("com.flatmanager.Statement")
+                && e.getString("sql").startsWith("INSERT INTO jfr_probe")).findFirst().orElseThrow();
+        assertEquals(3, batch.getLong("rows"), "Geänderte Zeilen des Batches");
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.flatmanager.Commit")
+                && "commit()".equals(e.getString("source"))));
+        RecordedEvent view = events.stream().filter(e -> e.getEventType().getName().equals("com.flatmanager.ViewLoad"))
+                .findFirst().orElseThrow();
+        assertEquals("Testansicht", view.getString("view"));
+        assertEquals(7, view.getInt("rows"));
+
+        Path stopped = FlightRecording.get().stop();
+        assertTrue(Files.size(stopped) > 0);
+        assertFalse(FlightRecording.isActive(), "Nach dem Beenden keine Messpunkte mehr");
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("SELECT * FROM t WHERE a = ? AND b IN (?, ?)", Sql.normalize("SELECT *\n  FROM t WHERE a = 'x''y' AND b IN (1, 2.5)"));
+        assertEquals("UPDATE idx_1 SET \"col 2\" = ? WHERE id = ?", Sql.normalize("UPDATE idx_1 SET \"col 2\" = ? WHERE id = 42"));
+        assertNull(Sql.normalize(null));
+    }
+}
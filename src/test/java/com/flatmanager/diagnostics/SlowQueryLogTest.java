@@ -0,0 +1,161 @@
+package com.flatmanager.diagnostics;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlowQueryLogTest {
+
+    private static final String DB_FILE = "target/slow_query_log_test.db";
+    private static final Path LOG = Path.of("target/slow_query_log_test/slow-queries.log");
+
+    private String previousFile;
+    private long previousThreshold;
+
+    @BeforeEach
+    void before() throws Exception {
+        DatabaseManager.closeConnection();
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        previousFile = System.getProperty(SlowQueryLog.FILE_PROPERTY);
+        previousThreshold = SlowQueryLog.thresholdMillis();
+        System.setProperty(SlowQueryLog.FILE_PROPERTY, LOG.toString());
+        deleteLogs();
+        DatabaseManager.createOrUpdateUser("anna", "pw", "Anna");
+        SlowQueryLog.get().clear();
+    }
+
+    @AfterEach
+    void after() throws Exception {
+        SlowQueryLog.setThresholdMillis(previousThreshold);
+        if (previousFile != null) System.setProperty(SlowQueryLog.FILE_PROPERTY, previousFile);
+        else System.clearProperty(SlowQueryLog.FILE_PROPERTY);
+        SlowQueryLog.get().clear();
+        DatabaseManager.closeConnection();
+        Files.deleteIfExists(Path.of(DB_FILE));
+        deleteLogs();
+    }
+
+    private static void deleteLogs() throws Exception {
+        Files.deleteIfExists(LOG);
+        for (int i = 1; i <= SlowQueryLog.KEEP_FILES + 1; i++) Files.deleteIfExists(SlowQueryLog.rolled(LOG, i));
+    }
+
+    private static SlowQueryLog.Entry last(String sqlPrefix) {
+        List<SlowQueryLog.Entry> entries = SlowQueryLog.get().entries();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).sql.startsWith(sqlPrefix)) return entries.get(i);
+        }
+        fail("Kein Eintrag für " + sqlPrefix + ": " + entries.size() + " Einträge");
+        return null;
+    }
+
+    private static void readAll(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) { }
+        }
+    }
+
+    @Test
+    void testFastStatementsAreNotLogged() throws Exception {
+        SlowQueryLog.setThresholdMillis(60_000);
+        readAll("SELECT * FROM users");
+        assertTrue(SlowQueryLog.get().entries().isEmpty());
+        assertFalse(Files.exists(LOG), "Ohne langsame Statements keine Datei");
+    }
+
+    @Test
+    void testSlowQueryIsLoggedWithPlanCallSiteAndRedactedParameters() throws Exception {
+        SlowQueryLog.setThresholdMillis(0);
+
+        // dieselbe Abfrage wie ShoppingListView.loadItems: mit Index ohne Sortierschritt
+        String loadItems = "SELECT * FROM shopping_items WHERE household_id = 1 ORDER BY category, item_name";
+        readAll(loadItems);
+        SlowQueryLog.Entry indexed = last(loadItems);
+        assertTrue(indexed.plan.stream().anyMatch(l -> l.contains("idx_shopping_items_household")), "Plan: " + indexed.plan);
+        assertFalse(indexed.suspicious(), "Mit Index kein Hinweis: " + indexed.plan);
+        assertTrue(indexed.callSite.startsWith("SlowQueryLogTest.readAll("), "Aufrufer: " + indexed.callSite);
+
+        // ohne den Index fällt dieselbe Abfrage auf
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("DROP INDEX idx_shopping_items_household");
+        }
+        readAll(loadItems);
+        SlowQueryLog.Entry unindexed = last(loadItems);
+        assertTrue(unindexed.hint().contains("Sortierung ohne Index"), "Plan: " + unindexed.plan);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement("UPDATE users SET password = ?, name = ? WHERE username = ?")) {
+            ps.setString(1, "geheim");
+            ps.setString(2, "Anna B.");
+            ps.setString(3, "anna");
+            assertEquals(1, ps.executeUpdate());
+        }
+        SlowQueryLog.Entry update = last("UPDATE users SET password");
+        assertEquals(List.of("***", "'Anna B.'", "'anna'"), update.parameters, "Passwort geschwärzt");
+        assertEquals(1, update.rows);
+        assertFalse(update.plan.isEmpty(), "Auch Änderungen bekommen einen Plan");
+
+        String log = Files.readString(LOG, StandardCharsets.UTF_8);
+        assertTrue(log.contains(loadItems) && log.contains("Sortierung ohne Index"));
+        assertFalse(log.contains("geheim"), "Passwörter landen nicht in der Datei");
+    }
+
+    @Test
+    void testQueriesAreTimedWithoutWrappingTheResultSet() throws Exception {
+        SlowQueryLog.setThresholdMillis(0);
+        assertFalse(FlightRecording.isActive());
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM users")) {
+            assertFalse(java.lang.reflect.Proxy.isProxyClass(rs.getClass()),
+                    "Ohne Diagnose-Aufzeichnung kein Proxy je Zeile");
+            while (rs.next()) { }
+        }
+        SlowQueryLog.Entry entry = last("SELECT * FROM users");
+        assertEquals(-1, entry.rows, "Zeilenzahl nur während einer Aufzeichnung bekannt");
+        assertTrue(entry.format().contains("Zeilen: ?"));
+    }
+
+    @Test
+    void testRedactionOfInsertsAndLiterals() {
+        assertEquals(List.of("username", "password", "name"),
+                SlowQueryLog.parameterColumns("INSERT INTO users (username, password, name) VALUES (?, ?, ?)"));
+        assertEquals(List.of("'anna'", "***", "NULL"),
+                SlowQueryLog.formatParameters("INSERT INTO users (username, password, name) VALUES (?, lower(?), ?)",
+                        Arrays.asList("anna", "x", null)));
+        assertEquals(List.of("***", "3"),
+                SlowQueryLog.formatParameters("SELECT 1 FROM users u WHERE u.password = ? AND id > ?", List.of("x", 3)));
+        assertEquals("SELECT * FROM users WHERE password = '***' AND name = 'Anna'",
+                SlowQueryLog.redactSql("SELECT * FROM users WHERE password = 'it''s' AND name = 'Anna'"));
+    }
+
+    @Test
+    void testLogFileRolls() throws Exception {
+        SlowQueryLog.setThresholdMillis(0);
+        String padding = "x".repeat(10_000);
+        for (int i = 0; i * 10_000 < SlowQueryLog.MAX_FILE_BYTES * 2; i++) {
+            SlowQueryLog.get().record("SELECT '" + padding + "'", null, 1_000_000, 1, false, List.of());
+        }
+        assertTrue(Files.size(LOG) <= SlowQueryLog.MAX_FILE_BYTES);
+        assertTrue(Files.exists(SlowQueryLog.rolled(LOG, 1)));
+        assertTrue(Files.exists(SlowQueryLog.rolled(LOG, 2)));
+        assertEquals(SlowQueryLog.MAX_ENTRIES, SlowQueryLog.get().entries().size(), "Die Ansicht hält nur die letzten Einträge");
+    }
+}
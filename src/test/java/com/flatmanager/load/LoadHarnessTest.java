@@ -0,0 +1,101 @@
+package com.flatmanager.load;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.server.Json;
+import com.flatmanager.storage.DataGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadHarnessTest {
+
+    private static final String DB_FILE = "target/load_harness_test.db";
+    private static final Path OUT = Path.of("target/load_harness_test_out");
+
+    @BeforeEach
+    void before() throws Exception {
+        DatabaseManager.closeConnection();
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        deleteOut();
+    }
+
+    @AfterEach
+    void after() throws Exception {
+        System.clearProperty(DatabaseManager.POOL_SIZE_PROPERTY);
+        DatabaseManager.closeConnection();
+        Files.deleteIfExists(Path.of(DB_FILE));
+        deleteOut();
+    }
+
+    private static void deleteOut() throws Exception {
+        if (!Files.exists(OUT)) return;
+        try (var files = Files.list(OUT)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(OUT);
+    }
+
+    @Test
+    void testMixedLoadIsMeasuredAndExported() throws Exception {
+        DataGenerator.Result data = new DataGenerator(3).households(2).users(4).shoppingItems(500).transactions(300).generate();
+
+        LoadReport direct = new LoadHarness("direkt").users(6).operations(60).thinkTime(0, 2).writeRatio(0.3)
+                .households(data.households).run();
+        LoadReport batched = new LoadHarness("gebündelt").users(6).operations(60).thinkTime(0, 2).writeRatio(0.3)
+                .batchedWrites(true).households(data.households).run();
+
+        for (LoadReport r : List.of(direct, batched)) {
+            assertEquals(360, r.overall.count, "Jede Operation wird gemessen");
+            assertEquals(0, r.errors, "Keine Fehler: " + r.errorSamples);
+            assertTrue(r.operations.keySet().stream().anyMatch(n -> n.startsWith("tasks.")));
+            assertTrue(r.operations.keySet().stream().anyMatch(n -> n.startsWith("budget.")));
+            assertTrue(r.operations.keySet().stream().anyMatch(n -> n.startsWith("users.")), "Auch die statische API wird benutzt");
+            assertTrue(r.overall.p50 <= r.overall.p95 && r.overall.p95 <= r.overall.p99 && r.overall.p99 <= r.overall.max);
+            assertTrue(r.throughput() > 0);
+            assertTrue(r.pool.acquired >= r.overall.count, "Jede Operation leiht mindestens eine Connection");
+        }
+        assertEquals(Boolean.TRUE, batched.config.get("batchedWrites"));
+        assertTrue(((Number) batched.config.get("writerTransactions")).longValue() > 0);
+
+        LoadReport.export(OUT, List.of(direct, batched));
+        Object json = Json.parse(Files.readString(OUT.resolve(LoadReport.JSON_FILE), StandardCharsets.UTF_8));
+        assertTrue(json instanceof List);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> first = ((List<Map<String, Object>>) json).get(0);
+        assertEquals("direkt", first.get("label"));
+        assertTrue(((Map<?, ?>) first.get("latency")).containsKey("p99Ms"));
+        assertTrue(((Map<?, ?>) first.get("pool")).containsKey("meanWaitMs"));
+        String html = Files.readString(OUT.resolve(LoadReport.HTML_FILE), StandardCharsets.UTF_8);
+        assertTrue(html.contains("gebündelt") && html.contains("tasks.week"), "HTML vergleicht beide Läufe");
+    }
+
+    @Test
+    void testSmallPoolShowsWaitsAndBusyIsRecognized() throws Exception {
+        System.setProperty(DatabaseManager.POOL_SIZE_PROPERTY, "1");
+        DatabaseManager.closeConnection();
+        assertEquals(1, DatabaseManager.maxPoolSize());
+
+        LoadReport r = new LoadHarness("Pool 1").users(8).operations(25).thinkTime(0, 0).writeRatio(0.5).run();
+        assertEquals(1, r.config.get("poolSize"));
+        assertEquals(200, r.overall.count);
+        assertTrue(r.pool.exhausted > 0, "Bei einer Connection für acht Benutzer wird gewartet");
+        assertTrue(r.pool.maxWaitNanos > 0);
+
+        assertTrue(LoadHarness.isBusy(new SQLException("[SQLITE_BUSY] The database file is locked (database is locked)")));
+        assertTrue(LoadHarness.isBusy(new RuntimeException(new SQLException("x", null, 517))), "Erweiterter Code BUSY_SNAPSHOT");
+        assertFalse(LoadHarness.isBusy(new SQLException("[SQLITE_CONSTRAINT] UNIQUE constraint failed")));
+    }
+}
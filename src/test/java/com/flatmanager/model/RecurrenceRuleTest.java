@@ -0,0 +1,69 @@
+package com.flatmanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurrenceRuleTest {
+
+    private static List<LocalDate> collect(Iterable<LocalDate> it) {
+        List<LocalDate> out = new ArrayList<>();
+        for (LocalDate d : it) out.add(d);
+        return out;
+    }
+
+    @Test
+    void testParseLegacyLabelsAndRuleText() {
+        assertNull(RecurrenceRule.parse(null));
+        assertNull(RecurrenceRule.parse("Einmalig"));
+        assertNull(RecurrenceRule.parse("  "));
+        assertNull(RecurrenceRule.parse("irgendwas"));
+        assertNull(RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=0"));
+
+        assertEquals(RecurrenceRule.of(RecurrenceRule.Frequency.WEEKLY, 1), RecurrenceRule.parse("wöchentlich"));
+        assertEquals(RecurrenceRule.of(RecurrenceRule.Frequency.QUARTERLY, 1), RecurrenceRule.parse("Quartal"));
+        RecurrenceRule twoWeeks = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2");
+        assertEquals(2, twoWeeks.getInterval());
+        assertEquals("Alle 2 Wochen", twoWeeks.label());
+
+        // Intervall 1 bleibt beim bisherigen Speicherwert
+        assertEquals("Monatlich", RecurrenceRule.of(RecurrenceRule.Frequency.MONTHLY, 1).toText());
+        assertEquals(twoWeeks, RecurrenceRule.parse(twoWeeks.toText()));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.of(RecurrenceRule.Frequency.DAILY, 0));
+    }
+
+    @Test
+    void testOccurrencesAreComputedFromStartWithoutMonthEndDrift() {
+        RecurrenceRule monthly = RecurrenceRule.parse("Monatlich");
+        LocalDate start = LocalDate.of(2021, 1, 31);
+        assertEquals(LocalDate.of(2021, 2, 28), monthly.occurrence(start, 1));
+        assertEquals(LocalDate.of(2021, 3, 31), monthly.occurrence(start, 2), "Monatsende darf nicht auf den 28. abrutschen");
+
+        RecurrenceRule quarterly = RecurrenceRule.parse("Quartal");
+        assertEquals(LocalDate.of(2021, 4, 30), quarterly.next(start));
+        RecurrenceRule yearly = RecurrenceRule.parse("Jährlich");
+        assertEquals(LocalDate.of(2025, 2, 28), yearly.next(LocalDate.of(2024, 2, 29)));
+    }
+
+    @Test
+    void testWindowSkipsDirectlyToRequestedRange() {
+        RecurrenceRule daily = RecurrenceRule.parse("FREQ=DAILY;INTERVAL=3");
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        LocalDate from = LocalDate.of(2024, 5, 1);
+        List<LocalDate> window = collect(daily.occurrences(start, from, from.plusDays(8)));
+        assertEquals(3, window.size());
+        assertFalse(window.get(0).isBefore(from));
+        assertTrue(window.get(0).isBefore(from.plusDays(3)));
+        for (int i = 1; i < window.size(); i++) assertEquals(window.get(i - 1).plusDays(3), window.get(i));
+
+        RecurrenceRule monthly = RecurrenceRule.parse("Monatlich");
+        assertEquals(List.of(LocalDate.of(2021, 3, 31), LocalDate.of(2021, 4, 30)),
+                collect(monthly.occurrences(LocalDate.of(2021, 1, 31), LocalDate.of(2021, 3, 1), LocalDate.of(2021, 5, 15))));
+
+        assertTrue(collect(monthly.occurrences(from, from.minusDays(10), from.minusDays(1))).isEmpty(), "Fenster vor dem Start ist leer");
+    }
+}
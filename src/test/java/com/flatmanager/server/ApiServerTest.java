@@ -0,0 +1,329 @@
+package com.flatmanager.server;
+
+import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.dao.CleaningTaskStore;
+import com.flatmanager.dao.VersionConflictException;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.BudgetTransaction;
+import com.flatmanager.model.CleaningTask;
+import com.flatmanager.model.ShoppingItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApiServerTest {
+
+    private static final String DB_FILE = "target/api_server_test.db";
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private ApiServer server;
+    private URI base;
+    private long household;
+
+    @BeforeEach
+    void before() throws Exception {
+        DatabaseManager.closeConnection();
+        DatabaseManager.setCurrentHousehold(DatabaseManager.DEFAULT_HOUSEHOLD);
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        server = ApiServer.start("127.0.0.1", 0, 8);
+        base = URI.create("http://127.0.0.1:" + server.port());
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Erste WG", "anna", "pw-anna",
+                List.of(new DatabaseManager.UserData("Bernd", "bernd", "pw-bernd"))));
+        household = DatabaseManager.householdOf("anna");
+    }
+
+    @AfterEach
+    void after() {
+        if (server != null) server.close();
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of(DB_FILE));
+        } catch (Exception ignore) {
+        }
+    }
+
+    // Anfrage ohne ApiClient, um Statuscodes zu prüfen
+    private HttpResponse<String> call(String method, String path, String token, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(Json.write(body)));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String login(String username, String password) throws Exception {
+        HttpResponse<String> r = call("POST", "/api/login", null, Map.of("username", username, "password", password));
+        assertEquals(200, r.statusCode(), r.body());
+        return (String) Json.parseObject(r.body()).get("token");
+    }
+
+    private static Map<String, Object> user(String username, String password) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("username", username);
+        m.put("password", password);
+        return m;
+    }
+
+    @Test
+    void testCrudRoundTripThroughTheApi() throws Exception {
+        ApiClient client = ApiClient.login(base, "anna", "pw-anna");
+        assertEquals(household, client.household());
+        String token = login("anna", "pw-anna");
+
+        CleaningTask task = new CleaningTask("Bad putzen", START, "anna", null, false);
+        client.insertTask(task);
+        assertNotNull(task.getId());
+        assertEquals(0, task.getVersion());
+        assertEquals(List.of("Bad putzen"), new CleaningTaskDao(household).listAll().stream().map(CleaningTask::getTitle).toList(),
+                "Über die API geschrieben, direkt in der Datenbank sichtbar");
+
+        task.setAssignedTo("bernd");
+        HttpResponse<String> updated = call("PUT", "/api/tasks/" + task.getId(), token, ApiServer.taskJson(task));
+        assertEquals(200, updated.statusCode(), updated.body());
+        assertEquals(1, ((Number) Json.parseObject(updated.body()).get("version")).intValue());
+        task.setTitle("Bad gründlich putzen");
+        assertEquals(409, call("PUT", "/api/tasks/" + task.getId(), token, ApiServer.taskJson(task)).statusCode(),
+                "Veraltete Version ergibt einen Konflikt");
+        Map<String, Object> blind = new LinkedHashMap<>(ApiServer.taskJson(task));
+        blind.remove("version");
+        assertEquals(428, call("PUT", "/api/tasks/" + task.getId(), token, blind).statusCode(),
+                "Update ohne Version überschreibt nicht blind");
+        assertEquals("bernd", client.listTasks(START, START.plusDays(7)).get(0).getAssignedTo());
+        assertEquals(204, call("DELETE", "/api/tasks/" + task.getId(), token, null).statusCode());
+        assertTrue(client.listTasks().isEmpty());
+
+        ShoppingItem milk = new ShoppingItem(0, "Milch", "2", "anna", "Milchprodukte", null, false);
+        client.insertShoppingItem(milk);
+        assertTrue(milk.getId() > 0);
+        milk.setPurchased(true);
+        assertEquals(200, call("PUT", "/api/shopping/" + milk.getId(), token, ApiServer.itemJson(milk)).statusCode());
+        assertTrue(client.listShoppingItems().get(0).isPurchased());
+        assertEquals(204, call("DELETE", "/api/shopping?bought=true", token, null).statusCode());
+        assertTrue(client.listShoppingItems().isEmpty());
+
+        BudgetTransaction tx = new BudgetTransaction(12.5, START.toString());
+        tx.setDescription("Putzmittel");
+        HttpResponse<String> created = call("POST", "/api/budget", token, ApiServer.transactionJson(tx));
+        assertEquals(201, created.statusCode(), created.body());
+        int txId = ((Number) Json.parseObject(created.body()).get("id")).intValue();
+        List<Map<String, Object>> txs = Json.parseArray(call("GET", "/api/budget", token, null).body());
+        assertEquals(12.5, ((Number) txs.get(0).get("amount")).doubleValue(), 1e-9);
+        assertEquals(204, call("DELETE", "/api/budget/" + txId, token, null).statusCode());
+
+        List<Map<String, Object>> users = Json.parseArray(call("GET", "/api/users", token, null).body());
+        assertEquals(2, users.size());
+        assertFalse(users.get(0).containsKey("password"), "Der Passwort-Hash verlässt den Server nicht");
+
+        HttpResponse<String> bad = call("POST", "/api/tasks", token, Map.of("title", ""));
+        assertEquals(400, bad.statusCode(), bad.body());
+    }
+
+    @Test
+    void testCleaningScheduleRunsAsThinClient() throws Exception {
+        CleaningTaskStore remote = ApiClient.login(base, "anna", "pw-anna").cleaningTasks();
+        CleaningTaskDao local = new CleaningTaskDao(household);
+
+        CleaningTask weekly = new CleaningTask("Bad putzen", START, "anna", "Wöchentlich", false);
+        remote.insert(weekly);
+        CleaningTask once = new CleaningTask("Fenster", null, null, null, false);
+        remote.insert(once);
+        assertEquals(2, local.listAll().size(), "Über den Thin Client angelegt, direkt in der Datenbank sichtbar");
+
+        List<CleaningTask> occurrences = remote.listOccurrences(START, START.plusDays(14));
+        assertEquals(4, occurrences.size(), "Drei Termine der Serie und die Aufgabe ohne Datum");
+        assertEquals(1, remote.listRecurring().size());
+        assertEquals(1, remote.listWindow(START, START.plusDays(14), false).size(), "Ohne Aufgaben ohne Datum");
+
+        remote.setOccurrenceCompleted(weekly.getId(), START.plusDays(7), true);
+        assertEquals(Set.of(START.plusDays(7)), remote.listCompletedOccurrences(weekly.getId()));
+        remote.setOccurrenceCompleted(weekly.getId(), START.plusDays(7), false);
+        assertTrue(local.listCompletedOccurrences(weekly.getId()).isEmpty());
+
+        remote.assignOccurrence(weekly.getId(), START.plusDays(7), "bernd");
+        assertEquals("bernd", local.listOccurrences(START, START.plusDays(14)).stream()
+                .filter(t -> START.plusDays(7).equals(t.getDue())).findFirst().orElseThrow().getAssignedTo());
+        remote.saveAssignments(START, START.plusDays(14), List.of(
+                new CleaningTask(weekly.getId(), "Bad putzen", START.plusDays(14), "bernd", "Wöchentlich", false, false)));
+
+        CleaningTask stale = remote.listWindow(START, START, true).stream()
+                .filter(t -> t.getId().equals(once.getId())).findFirst().orElseThrow();
+        remote.setAssignee(once, "bernd");
+        assertEquals(1, once.getVersion(), "Version wird wie beim DAO mitgezogen");
+        VersionConflictException conflict = assertThrows(VersionConflictException.class, () -> remote.setAssignee(stale, "anna"));
+        assertEquals(once.getId().intValue(), conflict.getId());
+        assertFalse(conflict.isDeleted());
+
+        CleaningTask series = remote.listRecurring().get(0);
+        CleaningTask next = remote.advance(series, START.plusDays(7), "bernd");
+        assertNotEquals(series.getId(), next.getId());
+        assertEquals(START.plusDays(7), next.getDue());
+        assertThrows(VersionConflictException.class, () -> remote.advance(series, START.plusDays(7), "bernd"),
+                "Die alte Serie gibt es nicht mehr");
+
+        once.setCompleted(true);
+        remote.update(once);
+        remote.deleteCompleted();
+        remote.deleteSeries(next.getId());
+        assertTrue(local.listAll().isEmpty());
+    }
+
+    @Test
+    void testRequestsNeedATokenAndUseTheUsersHousehold() throws Exception {
+        assertEquals(401, call("GET", "/api/tasks", null, null).statusCode(), "Ohne Anmeldung kein Zugriff");
+        assertEquals(401, call("GET", "/api/tasks", "erfunden", null).statusCode());
+        assertEquals(401, call("POST", "/api/login", null, user("anna", "falsch")).statusCode());
+        assertThrows(SQLException.class, () -> ApiClient.login(base, "anna", "falsch"));
+
+        assertTrue(DatabaseManager.createHouseholdWithAdmin("Zweite WG", "carla", "pw-carla", List.of()));
+        long other = DatabaseManager.householdOf("carla");
+        assertNotEquals(household, other);
+        ApiClient first = ApiClient.login(base, "anna", "pw-anna");
+        ApiClient second = ApiClient.login(base, "carla", "pw-carla");
+        first.insertTask(new CleaningTask("Bad putzen", START, "anna", null, false));
+        second.insertTask(new CleaningTask("Küche wischen", START, "carla", null, false));
+
+        assertEquals(List.of("Bad putzen"), first.listTasks().stream().map(CleaningTask::getTitle).toList());
+        assertEquals(List.of("Küche wischen"), second.listTasks().stream().map(CleaningTask::getTitle).toList());
+
+        String token = login("anna", "pw-anna");
+        HttpResponse<String> spoofed = http.send(HttpRequest.newBuilder(base.resolve("/api/tasks"))
+                .header("Authorization", "Bearer " + token).header("X-Household", Long.toString(other)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(List.of("Bad putzen"), Json.parseArray(spoofed.body()).stream().map(m -> m.get("title")).toList(),
+                "Die WG kommt aus der Anmeldung, nicht aus einem Header");
+        assertEquals(404, call("DELETE", "/api/users/carla", token, null).statusCode(), "Benutzer anderer WGs sind nicht sichtbar");
+
+        assertEquals(204, call("POST", "/api/logout", token, null).statusCode());
+        assertEquals(401, call("GET", "/api/tasks", token, null).statusCode(), "Nach dem Abmelden ist das Token ungültig");
+
+        // abgelaufene Tokens räumt der periodische Job weg, auch wenn sie nie wieder benutzt werden
+        String expiring = login("anna", "pw-anna");
+        assertEquals(0, server.sweepSessions(), "Gültige Tokens bleiben");
+        assertTrue(server.sweepSessions(System.currentTimeMillis() + ApiServer.TOKEN_TTL.toMillis() + 1000) >= 1);
+        assertEquals(401, call("GET", "/api/tasks", expiring, null).statusCode());
+    }
+
+    @Test
+    void testUserChangesNeedTheSameUserOrAnAdmin() throws Exception {
+        String admin = login("anna", "pw-anna");
+        String member = login("bernd", "pw-bernd");
+
+        assertEquals(403, call("POST", "/api/users", member, user("anna", "übernommen")).statusCode(),
+                "Mitglieder dürfen fremde Passwörter nicht ändern");
+        assertEquals(401, call("POST", "/api/login", null, user("anna", "übernommen")).statusCode());
+        assertEquals(403, call("POST", "/api/users", member, user("dora", "pw")).statusCode(), "Nur Admins legen Benutzer an");
+        assertEquals(403, call("DELETE", "/api/users/anna", member, null).statusCode(), "Nur Admins löschen Benutzer");
+
+        assertEquals(201, call("POST", "/api/users", member, Map.of("username", "bernd", "name", "Bernd B.")).statusCode(),
+                "Umbenennen ohne Passwort ist erlaubt");
+        login("bernd", "pw-bernd");
+        assertEquals(400, call("POST", "/api/users", admin, Map.of("username", "emil", "name", "Emil")).statusCode(),
+                "Neue Benutzer brauchen ein Passwort");
+        assertEquals(201, call("POST", "/api/users", member, user("bernd", "neu-bernd")).statusCode(), "Eigenes Passwort ist erlaubt");
+        login("bernd", "neu-bernd");
+        assertEquals(200, call("GET", "/api/tasks", member, null).statusCode(), "Eigene Sitzung bleibt gültig");
+
+        assertEquals(201, call("POST", "/api/users", admin, user("bernd", "vom-admin")).statusCode(), "Admin darf Passwörter setzen");
+        assertEquals(401, call("GET", "/api/tasks", member, null).statusCode(), "Sitzungen des Benutzers werden beendet");
+        login("bernd", "vom-admin");
+        assertEquals(201, call("POST", "/api/users", admin, user("dora", "pw-dora")).statusCode());
+        String dora = login("dora", "pw-dora");
+        assertEquals(204, call("DELETE", "/api/users/dora", admin, null).statusCode());
+        assertEquals(401, call("GET", "/api/tasks", dora, null).statusCode(), "Gelöschte Benutzer sind abgemeldet");
+    }
+
+    @Test
+    void testFailedWriteDoesNotAffectItsBatch() throws Exception {
+        SingleWriter writer = server.writer();
+        CleaningTaskDao dao = new CleaningTaskDao();
+        dao.init();
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            results.add(writer.submit(DatabaseManager.DEFAULT_HOUSEHOLD, () -> {
+                dao.insert(new CleaningTask("Aufgabe " + n, START, null, null, false));
+                if (n % 5 == 0) throw new IllegalStateException("Abbruch " + n);
+                return null;
+            }));
+        }
+        int failed = 0;
+        for (Future<Object> f : results) {
+            try {
+                f.get(10, TimeUnit.SECONDS);
+            } catch (java.util.concurrent.ExecutionException e) {
+                failed++;
+            }
+        }
+        assertEquals(4, failed);
+        assertEquals(16, dao.listAll().size(), "Nur die fehlgeschlagenen Zugriffe werden zurückgenommen");
+    }
+
+    @Test
+    void testLoadAgainstLocalhost() throws Exception {
+        int clients = 16;
+        int requestsPerClient = 150;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<int[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int clientNo = c;
+            futures.add(pool.submit(() -> {
+                ApiClient client = ApiClient.login(base, "anna", "pw-anna");
+                int writes = 0;
+                for (int i = 0; i < requestsPerClient; i++) {
+                    switch (i % 4) {
+                        case 0:
+                            client.insertShoppingItem(new ShoppingItem(0, "Artikel " + clientNo + "-" + i, "1", "last", "Sonstiges", null, false));
+                            writes++;
+                            break;
+                        case 1:
+                            client.insertTask(new CleaningTask("Aufgabe " + clientNo + "-" + i, START.plusDays(i % 28), "last", null, false));
+                            writes++;
+                            break;
+                        case 2:
+                            client.listTasks(START, START.plusDays(7));
+                            break;
+                        default:
+                            client.listShoppingItems();
+                    }
+                }
+                return new int[]{writes};
+            }));
+        }
+        int writes = 0;
+        for (Future<int[]> f : futures) writes += f.get(300, TimeUnit.SECONDS)[0];
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        ApiClient client = ApiClient.login(base, "anna", "pw-anna");
+        assertEquals(writes / 2, client.listShoppingItems().size());
+        assertEquals(writes / 2, client.listTasks().size());
+        SingleWriter writer = server.writer();
+        assertTrue(writer.batches() < writer.writes(), "Gleichzeitige Schreibzugriffe werden gebündelt: " + writer.writes()
+                + " Schreibzugriffe in " + writer.batches() + " Transaktionen, " + clients * requestsPerClient
+                + " Anfragen in " + seconds + " s");
+        Map<String, Object> health = Json.parseObject(new String(base.resolve("/api/health").toURL().openStream().readAllBytes()));
+        assertEquals("ok", health.get("status"));
+    }
+}
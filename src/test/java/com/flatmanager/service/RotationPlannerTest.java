@@ -0,0 +1,115 @@
+package com.flatmanager.service;
+
+import com.flatmanager.dao.CleaningTaskDao;
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.model.CleaningTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RotationPlannerTest {
+
+    private final CleaningTaskDao dao = new CleaningTaskDao();
+    private final LocalDate from = LocalDate.of(2024, 1, 1);
+
+    @BeforeEach
+    void before() throws Exception {
+        File db = new File("target/rotation_planner_test.db");
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        dao.init();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/rotation_planner_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static CleaningTask series(int id, String title, String recurrence) {
+        return new CleaningTask(id, title, LocalDate.of(2024, 1, 1), null, recurrence, false, false);
+    }
+
+    @Test
+    void testLoadIsBalancedByEffort() {
+        RotationPlanner planner = new RotationPlanner(dao).withEffort("Bad", 3).withEffort("Müll", 0.5);
+        List<CleaningTask> tasks = List.of(series(1, "Bad", "Wöchentlich"), series(2, "Müll", "Täglich"), series(3, "Flur", "Wöchentlich"));
+
+        RotationPlanner.Plan plan = planner.plan(tasks, List.of("anna", "ben", "cem"), from, from.plusWeeks(8).minusDays(1), List.of());
+        assertEquals(8 + 56 + 8, plan.assignments.size());
+        assertTrue(plan.assignments.stream().allMatch(CleaningTask::hasAssignee));
+
+        double max = plan.loadByUser.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        double min = plan.loadByUser.values().stream().mapToDouble(Double::doubleValue).min().orElse(0);
+        assertTrue(max - min <= 3.0, "Lastunterschied darf höchstens den größten Einzelaufwand betragen: " + plan.loadByUser);
+    }
+
+    @Test
+    void testAbsencesAndExistingAssignmentsAreRespected() {
+        RotationPlanner planner = new RotationPlanner(dao);
+        CleaningTask oneOff = new CleaningTask(9, "Keller", from.plusDays(2), "anna", null, false, false);
+        List<CleaningTask> tasks = List.of(series(1, "Küche", "Täglich"), oneOff);
+        List<RotationPlanner.Absence> away = List.of(new RotationPlanner.Absence("BEN", from.plusDays(3), from.plusDays(5)));
+
+        RotationPlanner.Plan plan = planner.plan(tasks, List.of("anna", "ben"), from, from.plusDays(9), away);
+        for (CleaningTask o : plan.assignments) {
+            if (!o.getDue().isBefore(from.plusDays(3)) && !o.getDue().isAfter(from.plusDays(5))) {
+                assertEquals("anna", o.getAssignedTo(), "Abwesende bekommen keine Termine");
+            }
+        }
+        // 10 Termine + 1 Vorlast: beide landen bei gleicher Last
+        assertEquals(Map.of("anna", 6.0, "ben", 5.0), plan.loadByUser);
+
+        List<RotationPlanner.Absence> allAway = List.of(new RotationPlanner.Absence("anna", from, from), new RotationPlanner.Absence("ben", from, from));
+        RotationPlanner.Plan empty = planner.plan(List.of(series(1, "Küche", "Täglich")), List.of("anna", "ben"), from, from, allAway);
+        assertNull(empty.assignments.get(0).getAssignedTo(), "Sind alle abwesend, bleibt der Termin offen");
+    }
+
+    @Test
+    void testPlanIsPersistedAndShownPerOccurrence() throws Exception {
+        CleaningTask weekly = new CleaningTask("Bad", from, "anna", "Wöchentlich", false);
+        dao.insert(weekly);
+
+        RotationPlanner.Plan plan = new RotationPlanner(dao).planAndSave(from, from.plusWeeks(3), List.of("anna", "ben"), List.of());
+        assertEquals(4, plan.assignments.size());
+
+        List<String> shown = dao.listOccurrences(from, from.plusWeeks(3)).stream()
+                .map(CleaningTask::getAssignedTo).collect(Collectors.toList());
+        assertEquals(List.of("anna", "ben", "anna", "ben"), shown);
+        assertEquals("anna", dao.listRecurring().get(0).getAssignedTo(), "Starttermin wird in die Serie übernommen");
+
+        // erneutes Planen ersetzt den alten Plan im Zeitraum
+        new RotationPlanner(dao).planAndSave(from, from.plusWeeks(3), List.of("ben"), List.of());
+        assertTrue(dao.listOccurrences(from, from.plusWeeks(3)).stream().allMatch(t -> "ben".equals(t.getAssignedTo())));
+    }
+
+    @Test
+    void testYearForTenPeopleIsFast() {
+        List<CleaningTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) tasks.add(series(i + 1, "Aufgabe " + i, i % 3 == 0 ? "Täglich" : "Wöchentlich"));
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) users.add("user" + i);
+
+        RotationPlanner planner = new RotationPlanner(dao);
+        planner.plan(tasks, users, from, from.plusYears(1), List.of()); // Aufwärmen
+        long start = System.nanoTime();
+        RotationPlanner.Plan plan = planner.plan(tasks, users, from, from.plusYears(1), List.of());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(plan.assignments.size() > 4000);
+        assertTrue(millis < 1000, "Jahresplanung sollte im Millisekundenbereich liegen, war " + millis + " ms");
+    }
+}
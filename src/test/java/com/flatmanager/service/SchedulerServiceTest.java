@@ -0,0 +1,139 @@
+package com.flatmanager.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchedulerServiceTest {
+
+    /** Von Hand verstellbare Uhr, damit die Tests nicht warten müssen. */
+    private static final class ManualClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T08:00:00Z");
+
+        void advance(Duration d) { now = now.plus(d); }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+
+    private ManualClock clock;
+    private SchedulerService scheduler;
+
+    @BeforeEach
+    void before() {
+        clock = new ManualClock();
+        scheduler = new SchedulerService(clock);
+        scheduler.setIdleTimeout(Duration.ofDays(365));
+    }
+
+    @Test
+    void testJobRunsWhenDueAndSameNameReplaces() {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        scheduler.schedule("refresh", Duration.ofSeconds(5), Duration.ofSeconds(5), first::incrementAndGet);
+
+        assertEquals(0, scheduler.runDueJobs(), "Vor Ablauf der Startverzögerung darf nichts laufen");
+        clock.advance(Duration.ofSeconds(5));
+        assertEquals(1, scheduler.runDueJobs());
+        assertEquals(1, first.get());
+
+        SchedulerService.Job replaced = scheduler.schedule("refresh", Duration.ZERO, Duration.ofSeconds(5), second::incrementAndGet);
+        scheduler.runDueJobs();
+        assertEquals(1, first.get(), "Ersetzter Job darf nicht mehr laufen");
+        assertEquals(1, second.get());
+        assertEquals(1, scheduler.jobs().size(), "Gleicher Name ergibt nur einen Job");
+        assertFalse(replaced.isCancelled());
+    }
+
+    @Test
+    void testOverdueRunsAreCoalesced() {
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule("daily", Duration.ZERO, Duration.ofMinutes(1), runs::incrementAndGet);
+        scheduler.runDueJobs();
+
+        // z.B. Standby: zehn Perioden verpasst
+        clock.advance(Duration.ofMinutes(10));
+        assertEquals(1, scheduler.runDueJobs());
+        assertEquals(0, scheduler.runDueJobs(), "Verpasste Läufe werden nicht nachgeholt");
+        assertEquals(2, runs.get());
+
+        SchedulerService.JobInfo info = scheduler.jobs().get(0);
+        assertEquals("daily", info.name);
+        assertEquals(2, info.runs);
+        assertEquals(9, info.coalesced);
+        assertEquals(clock.instant().plus(Duration.ofMinutes(1)), info.nextRun);
+    }
+
+    @Test
+    void testPausesWhileMinimizedOrIdle() {
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule("refresh", Duration.ZERO, Duration.ofSeconds(5), runs::incrementAndGet);
+
+        scheduler.setMinimized(true);
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(scheduler.isPaused());
+        assertEquals(0, scheduler.runDueJobs());
+        scheduler.setMinimized(false);
+        assertEquals(1, scheduler.runDueJobs(), "Nach dem Wiederherstellen läuft der Job genau einmal");
+
+        scheduler.setIdleTimeout(Duration.ofMinutes(10));
+        clock.advance(Duration.ofMinutes(11));
+        assertTrue(scheduler.isPaused(), "Ohne Eingabe pausiert der Scheduler");
+        assertEquals(0, scheduler.runDueJobs());
+        scheduler.markActivity();
+        assertFalse(scheduler.isPaused());
+        assertEquals(1, scheduler.runDueJobs());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testCancelByHandleKeepsReplacementAndFailuresAreIsolated() {
+        AtomicInteger runs = new AtomicInteger();
+        SchedulerService.Job old = scheduler.schedule("view", Duration.ZERO, Duration.ofSeconds(1), () -> { });
+        scheduler.schedule("view", Duration.ZERO, Duration.ofSeconds(1), runs::incrementAndGet);
+        scheduler.schedule("broken", Duration.ZERO, Duration.ofSeconds(1), () -> { throw new IllegalStateException("kaputt"); });
+
+        assertFalse(scheduler.cancel(old), "Altes Handle darf den neuen Job nicht abmelden");
+        assertEquals(2, scheduler.runDueJobs());
+        assertEquals(1, runs.get(), "Fehler eines Jobs darf andere nicht verhindern");
+
+        assertTrue(scheduler.cancel("view"));
+        clock.advance(Duration.ofSeconds(1));
+        scheduler.runDueJobs();
+        assertEquals(1, runs.get());
+        List<SchedulerService.JobInfo> jobs = scheduler.jobs();
+        assertEquals(1, jobs.size());
+        assertEquals("broken", jobs.get(0).name);
+    }
+
+    @Test
+    void testStartAndStopLifecycle() throws Exception {
+        SchedulerService real = new SchedulerService(Clock.systemUTC());
+        CountDownLatch ran = new CountDownLatch(1);
+        real.schedule("tick", Duration.ZERO, Duration.ofMinutes(1), ran::countDown);
+        assertFalse(real.isRunning());
+
+        real.start();
+        real.start();
+        try {
+            assertTrue(real.isRunning());
+            assertTrue(ran.await(5, TimeUnit.SECONDS), "Job sollte nach dem Start laufen");
+        } finally {
+            real.stop();
+        }
+        assertFalse(real.isRunning());
+        assertTrue(real.jobs().isEmpty(), "stop() verwirft alle Jobs");
+    }
+}
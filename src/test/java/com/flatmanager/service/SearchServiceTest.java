@@ -0,0 +1,183 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import com.flatmanager.database.SearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchServiceTest {
+
+    private static final String DB_FILE = "target/search_service_test.db";
+
+    private final SearchService search = SearchService.get();
+
+    @BeforeEach
+    void before() {
+        DatabaseManager.closeConnection();
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of(DB_FILE));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static void exec(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    private List<String> texts(String query) throws Exception {
+        return search.search(query, SearchService.DEFAULT_LIMIT).stream().map(h -> h.text).toList();
+    }
+
+    @Test
+    void testPrefixMatchesAllSourcesAndIgnoresUmlauts() throws Exception {
+        exec("INSERT INTO cleaning_tasks (id, title) VALUES (3, 'Küche wischen')");
+        exec("INSERT INTO shopping_items (id, item_name) VALUES (4, 'Küchenrolle')");
+        exec("INSERT INTO budget_transactions (id, description, amount) VALUES (5, 'Neue Kuchenform', 12)");
+        exec("INSERT INTO users (id, username, name) VALUES (6, 'kuba', 'Kuba Nowak')");
+
+        List<SearchService.Hit> hits = search.search("kuch", 10);
+        assertEquals(3, hits.size(), "Präfix ohne Umlaut findet Küche, Küchenrolle und Kuchenform: " + hits);
+        SearchService.Hit task = hits.stream().filter(h -> h.kind == SearchIndex.Kind.TASK).findFirst().orElseThrow();
+        assertEquals(3, task.id);
+        assertEquals("Küche wischen", task.text);
+
+        assertEquals(List.of("kuba Kuba Nowak"), texts("nowak"));
+        assertEquals(List.of(SearchIndex.Kind.SHOPPING),
+                search.search("kü", 10, SearchIndex.Kind.SHOPPING).stream().map(h -> h.kind).toList());
+        assertTrue(texts("  \"*( ").isEmpty(), "Eingabe ohne Wörter liefert nichts statt eines Syntaxfehlers");
+    }
+
+    @Test
+    void testAllWordsMustMatchAndBetterMatchesRankFirst() throws Exception {
+        exec("INSERT INTO budget_transactions (description, amount) VALUES ('Strom Abschlag Januar mit Nachzahlung für Zählerwechsel', 80)");
+        exec("INSERT INTO budget_transactions (description, amount) VALUES ('Strom', 50)");
+        exec("INSERT INTO budget_transactions (description, amount) VALUES ('Wasser Januar', 30)");
+
+        assertEquals(List.of("Strom", "Strom Abschlag Januar mit Nachzahlung für Zählerwechsel"), texts("strom"),
+                "Kurzer, genauer Treffer vor langem Text");
+        assertEquals(List.of("Strom Abschlag Januar mit Nachzahlung für Zählerwechsel"), texts("jan str"));
+    }
+
+    @Test
+    void testTriggersKeepIndexInSync() throws Exception {
+        exec("INSERT INTO shopping_items (id, item_name) VALUES (1, 'Milch')");
+        assertEquals(List.of("Milch"), texts("mil"));
+
+        exec("UPDATE shopping_items SET item_name = 'Hafermilch' WHERE id = 1");
+        assertTrue(texts("milch").isEmpty(), "Nur ganze Wortpräfixe treffen");
+        assertEquals(List.of("Hafermilch"), texts("hafer"));
+
+        exec("UPDATE shopping_items SET quantity = 3 WHERE id = 1");
+        assertEquals(List.of("Hafermilch"), texts("hafer"), "Andere Spalten ändern den Index nicht");
+
+        exec("DELETE FROM shopping_items WHERE id = 1");
+        assertTrue(texts("hafer").isEmpty());
+    }
+
+    @Test
+    void testIndexIsBuiltForExistingDataAndRebuildable() throws Exception {
+        exec("INSERT INTO cleaning_tasks (title) VALUES ('Fenster putzen')");
+        exec("DROP TABLE " + SearchIndex.TABLE);
+        DatabaseManager.closeConnection();
+        // neue Connection legt den Index wieder an und füllt ihn aus den Basistabellen
+        assertEquals(List.of("Fenster putzen"), texts("fenst"));
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            SearchIndex.rebuild(conn);
+        }
+        assertEquals(List.of("Fenster putzen"), texts("putz"));
+    }
+
+    @Test
+    void testSearchUsersUsesIndex() throws Exception {
+        exec("INSERT INTO users (username, name, password, is_admin) VALUES ('anna', 'Anna Schmidt', 'geheimespasswort', 1)");
+        exec("INSERT INTO users (username, name, password) VALUES ('bernd', 'Bernd Schmitz', 'pw')");
+        exec("INSERT INTO users (username, name, password) VALUES ('clara', 'Clara Meier', 'pw')");
+
+        List<DatabaseManager.UserInfo> found = DatabaseManager.searchUsers("schm");
+        assertEquals(List.of("anna", "bernd"), found.stream().map(u -> u.username).sorted().toList());
+        DatabaseManager.UserInfo anna = found.stream().filter(u -> u.username.equals("anna")).findFirst().orElseThrow();
+        assertTrue(anna.isAdmin);
+        assertNotEquals("geheimespasswort", anna.passwordHash, "Passwort wird maskiert");
+        assertTrue(DatabaseManager.searchUsers("").isEmpty());
+    }
+
+    @Test
+    void testLargeLedgerQueriesInMilliseconds() throws Exception {
+        String[] words = {"Miete", "Strom", "Internet", "Lebensmittel", "Drogerie", "Putzmittel", "Pizza", "Getränke",
+                "Versicherung", "Handwerker", "Möbel", "Pflanzen", "Geschenk", "Kino", "Taxi", "Bahn"};
+        int rows = 100_000;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO budget_transactions (description, amount) VALUES (?, 1)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                ps.setString(1, words[i % words.length] + " " + words[(i / 7) % words.length] + " Beleg" + i);
+                ps.addBatch();
+                if (i % 1000 == 999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        search.search("beleg4242", 20); // Aufwärmen
+        int runs = 50;
+        long start = System.nanoTime();
+        List<SearchService.Hit> hits = null;
+        for (int i = 0; i < runs; i++) hits = search.search("beleg" + (4200 + i), 20);
+        double avgMillis = (System.nanoTime() - start) / 1e6 / runs;
+
+        // häufiges Wort: jede achte Buchung trifft, sortiert wird trotzdem nur über den Index
+        start = System.nanoTime();
+        List<SearchService.Hit> common = search.search("strom", 20);
+        double commonMillis = (System.nanoTime() - start) / 1e6;
+        assertEquals(20, common.size());
+        assertTrue(commonMillis < 200, "Auch häufige Wörter bleiben schnell, war " + commonMillis + " ms");
+
+        // Beleg4249 und Beleg42490 bis Beleg42499
+        assertEquals(11, hits.size());
+        assertTrue(hits.stream().allMatch(h -> h.kind == SearchIndex.Kind.TRANSACTION && h.text.contains("Beleg4249")));
+        assertTrue(avgMillis < 50, "Suche sollte im Millisekundenbereich bleiben, war " + avgMillis + " ms");
+    }
+
+    @Test
+    void testOlderSourcesAreNotCrowdedOutByNewLedgerRows() throws Exception {
+        exec("INSERT INTO cleaning_tasks (id, title) VALUES (1, 'Stromzähler ablesen')");
+        exec("INSERT INTO shopping_items (id, item_name) VALUES (2, 'Stromkabel')");
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO budget_transactions (description, amount) VALUES (?, 1)")) {
+            conn.setAutoCommit(false);
+            // mehr passende Buchungen, als ein Kandidatenfenster fasst, alle mit höheren IDs
+            for (int i = 0; i < SearchService.CANDIDATES + 500; i++) {
+                ps.setString(1, "Strom Abschlag Monat " + i + " laut Vertrag mit dem Versorger");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        List<SearchService.Hit> hits = search.search("strom", 5);
+        assertTrue(hits.stream().anyMatch(h -> h.kind == SearchIndex.Kind.TASK && h.id == 1), "Aufgabe wird gefunden: " + hits);
+        assertTrue(hits.stream().anyMatch(h -> h.kind == SearchIndex.Kind.SHOPPING && h.id == 2), "Artikel wird gefunden: " + hits);
+    }
+}
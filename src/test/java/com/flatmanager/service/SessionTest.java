@@ -0,0 +1,105 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionTest {
+
+    @BeforeEach
+    void before() throws Exception {
+        File db = new File("target/session_test.db");
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        Session.end();
+    }
+
+    @AfterEach
+    void after() {
+        Session.end();
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/session_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void exec(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+        assertTrue(DatabaseManager.awaitChangeDelivery(5000));
+    }
+
+    @Test
+    void testStartResolvesIdentityAndRolesOnce() throws Exception {
+        exec("INSERT INTO users (username, name, is_admin) VALUES ('boss', 'Chefin', 1)");
+        exec("INSERT INTO users (username, name, is_admin) VALUES ('u1', NULL, 0)");
+
+        Session s = Session.start("boss");
+        assertSame(s, Session.current());
+        assertEquals("boss", s.getUsername());
+        assertEquals("Chefin", s.getDisplayName());
+        assertTrue(s.isAdmin());
+
+        assertSame(s, Session.forUser(" boss "), "Views sollten die aktive Sitzung teilen");
+        Session other = Session.forUser("u1");
+        assertNotSame(s, other);
+        assertFalse(other.isAdmin());
+        assertSame(s, Session.current(), "forUser darf die aktive Sitzung nicht ersetzen");
+
+        // Rolle per direktem SQL geändert: die Änderungs-Hooks lösen die Sitzung neu auf
+        exec("UPDATE users SET is_admin = 0 WHERE username = 'boss'");
+        assertFalse(s.isAdmin());
+    }
+
+    @Test
+    void testRoleChangeInvalidatesActiveSession() throws Exception {
+        exec("INSERT INTO users (username, is_admin) VALUES ('root', 1)");
+        exec("INSERT INTO users (username, is_admin) VALUES ('bob', 0)");
+        Session s = Session.start("bob");
+        assertFalse(s.isAdmin());
+
+        exec("UPDATE users SET is_admin = 1 WHERE username = 'bob'");
+        DatabaseManager.fireUsersChanged();
+        assertTrue(s.isAdmin(), "Rollenänderung sollte die Sitzung neu auflösen");
+
+        assertTrue(DatabaseManager.deleteUser("bob"));
+        assertFalse(s.isAdmin(), "Gelöschter Benutzer verliert seine Rollen");
+        assertNull(s.getUsername());
+    }
+
+    @Test
+    void testRolesRequireExactUsername() throws Exception {
+        exec("INSERT INTO users (username, name, is_admin) VALUES ('Geoff', 'Geoffrey', 1)");
+
+        Session exact = Session.forUser("Geoff");
+        assertTrue(exact.isAdmin());
+
+        Session fuzzy = Session.forUser("geoffrey");
+        assertEquals("Geoff", fuzzy.getUsername(), "Identität darf über den Anzeigenamen aufgelöst werden");
+        assertFalse(fuzzy.isAdmin(), "Admin-Rolle nur bei exakt gleichem Username");
+
+        assertTrue(Session.forUser(" ADMIN ").isAdmin());
+        assertFalse(Session.forUser(null).isAdmin());
+        assertFalse(Session.forUser("   ").isAdmin());
+    }
+
+    @Test
+    void testEndClearsActiveSession() {
+        Session.start("someone");
+        assertNotNull(Session.current());
+        Session.end();
+        assertNull(Session.current());
+        assertNull(Session.forUser("someone").getUsername());
+    }
+}
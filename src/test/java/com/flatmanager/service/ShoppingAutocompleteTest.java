@@ -0,0 +1,197 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShoppingAutocompleteTest {
+
+    private static final String DB_FILE = "target/shopping_autocomplete_test.db";
+    private static final long DAY = 86_400;
+
+    private final ShoppingAutocomplete autocomplete = ShoppingAutocomplete.get();
+
+    @BeforeEach
+    void before() {
+        DatabaseManager.closeConnection();
+        File db = new File(DB_FILE);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        autocomplete.reload();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of(DB_FILE));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static void exec(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+        assertTrue(DatabaseManager.awaitChangeDelivery(5000));
+    }
+
+    private static void addItem(String name, String category, String quantity) throws Exception {
+        exec("INSERT INTO shopping_items (item_name, category, quantity) VALUES ('" + name + "', '" + category + "', '" + quantity + "')");
+    }
+
+    private List<String> names(String prefix) {
+        return autocomplete.complete(prefix, ShoppingAutocomplete.MAX_SUGGESTIONS).stream().map(s -> s.name).toList();
+    }
+
+    @Test
+    void testSuggestsUsualCategoryAndQuantity() throws Exception {
+        for (int i = 0; i < 3; i++) addItem("Milch", "Milchprodukte", "2");
+        addItem("milch", "Getränke", "1");
+        addItem("Mehl", "Backwaren", "1kg");
+        addItem("Äpfel", "Obst & Gemüse", "6");
+
+        List<ShoppingAutocomplete.Suggestion> found = autocomplete.complete("MI", 5);
+        assertEquals(1, found.size());
+        ShoppingAutocomplete.Suggestion milch = found.get(0);
+        assertEquals("milch", milch.name, "Zuletzt benutzte Schreibweise");
+        assertEquals("Milchprodukte", milch.category, "Häufigste Kategorie");
+        assertEquals("2", milch.quantity);
+        assertEquals(4, milch.uses);
+
+        assertEquals(List.of("milch", "Mehl"), names("m"));
+        assertEquals(List.of("Äpfel"), names("apf"), "Umlaute werden beim Vergleich ignoriert");
+        assertTrue(names("x").isEmpty());
+        assertTrue(names("  ").isEmpty());
+    }
+
+    @Test
+    void testHistorySurvivesClearedListAndUpdatesIncrementally() throws Exception {
+        assertTrue(names("br").isEmpty());
+        addItem("Brot", "Backwaren", "1");
+        assertEquals(List.of("Brot"), names("br"), "Neuer Artikel ist ohne Neuladen sofort vorschlagbar");
+
+        exec("DELETE FROM shopping_items WHERE 1");
+        addItem("Brötchen", "Backwaren", "6");
+        addItem("Brötchen", "Backwaren", "6");
+        assertEquals(List.of("Brötchen", "Brot"), names("br"), "Historie bleibt nach dem Leeren der Liste erhalten");
+    }
+
+    @Test
+    void testFrequencyDecaysWithAge() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        exec("INSERT INTO shopping_history (name_key, name, uses, last_used) VALUES "
+                + "('milch', 'Milch', 8, " + (now - 90 * DAY) + "), "       // 8 * 2^-3 = 1
+                + "('mineralwasser', 'Mineralwasser', 2, " + now + "), "     // 2
+                + "('minze', 'Minze', 3, " + (now - 60 * DAY) + ")");       // 3 * 2^-2 = 0.75
+        autocomplete.reload();
+        assertEquals(List.of("Mineralwasser", "Milch", "Minze"), names("mi"));
+    }
+
+    @Test
+    void testHistoryIsSeededFromExistingItems() throws Exception {
+        exec("DROP TRIGGER trg_shopping_history_ins");
+        exec("DROP TABLE shopping_history");
+        addItem("Kaffee", "Getränke", "1");
+        addItem("Kaffee", "Getränke", "1");
+        autocomplete.reload();
+        List<ShoppingAutocomplete.Suggestion> found = autocomplete.complete("kaf", 5);
+        assertEquals(1, found.size());
+        assertEquals(2, found.get(0).uses);
+        assertEquals("Getränke", found.get(0).category);
+    }
+
+    @Test
+    void testCompletionTakesMicroseconds() throws Exception {
+        int names = 20_000;
+        Random rnd = new Random(42);
+        long now = System.currentTimeMillis() / 1000;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT OR IGNORE INTO shopping_history (name_key, name, category, uses, last_used) VALUES (?, ?, 'Sonstiges', ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < names; i++) {
+                StringBuilder sb = new StringBuilder();
+                int len = 4 + rnd.nextInt(10);
+                for (int c = 0; c < len; c++) sb.append((char) ('a' + rnd.nextInt(26)));
+                ps.setString(1, sb.toString());
+                ps.setString(2, sb.toString());
+                ps.setInt(3, 1 + rnd.nextInt(50));
+                ps.setLong(4, now - rnd.nextInt(365) * DAY);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        assertTrue(DatabaseManager.awaitChangeDelivery(5000));
+        long start = System.nanoTime();
+        autocomplete.reload();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String[] prefixes = new String[1000];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = String.valueOf((char) ('a' + rnd.nextInt(26))) + (char) ('a' + rnd.nextInt(26)) + (i % 2 == 0 ? "" : "e");
+        }
+        int runs = 200_000;
+        int hits = 0;
+        for (int i = 0; i < runs; i++) hits += autocomplete.complete(prefixes[i % prefixes.length], 5).size(); // Aufwärmen
+        start = System.nanoTime();
+        for (int i = 0; i < runs; i++) hits += autocomplete.complete(prefixes[i % prefixes.length], 5).size();
+        double micros = (System.nanoTime() - start) / 1e3 / runs;
+
+        assertTrue(hits > 0);
+        assertTrue(micros < 50, "Vervollständigung sollte Mikrosekunden dauern, war " + micros + " µs (Aufbau "
+                + buildMillis + " ms für " + autocomplete.size() + " Artikel)");
+    }
+
+    @Test
+    void testCompleteDoesNotBlockWhileLoading() throws Exception {
+        addItem("Milch", "Milchprodukte", "1");
+        DatabaseManager.closeConnection(); // neuer Pool: geladener Trie gilt nicht mehr
+
+        long start = System.nanoTime();
+        List<ShoppingAutocomplete.Suggestion> first = autocomplete.complete("mi", 5);
+        long micros = (System.nanoTime() - start) / 1000;
+        assertTrue(first.isEmpty(), "Ohne aktuellen Trie wird nichts vorgeschlagen, statt auf die Datenbank zu warten");
+        assertTrue(micros < 100_000, "complete() darf nicht auf das Laden warten, dauerte " + micros + " µs");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (names("mi").isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(List.of("Milch"), names("mi"), "Laden im Hintergrund veröffentlicht den neuen Trie");
+    }
+
+    @Test
+    void testUpdatesDoNotChangePublishedNodes() throws Exception {
+        addItem("Milch", "Milchprodukte", "1");
+        List<ShoppingAutocomplete.Suggestion> before = autocomplete.complete("m", 5);
+        addItem("Mehl", "Backwaren", "1");
+        addItem("Mehl", "Backwaren", "1");
+        assertEquals(List.of("Milch"), before.stream().map(s -> s.name).toList());
+        assertEquals(List.of("Mehl", "Milch"), names("m"));
+    }
+
+    @Test
+    void testSchemaSetupInstallsHistoryTriggerOnce() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement();
+             java.sql.ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM schema_versions WHERE component = 'shopping_history'")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1), "Kaufhistorie wird beim Schema-Aufbau angelegt");
+        }
+        DatabaseManager.closeConnection();
+        autocomplete.reload();
+        addItem("Brot", "Backwaren", "1");
+        assertEquals(List.of("Brot"), names("br"), "Trigger bleibt beim erneuten Öffnen aktiv");
+    }
+}
@@ -0,0 +1,94 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserDirectoryTest {
+
+    private final UserDirectory dir = UserDirectory.get();
+
+    @BeforeEach
+    void before() throws Exception {
+        File db = new File("target/user_directory_test.db");
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+    }
+
+    @AfterEach
+    void after() {
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/user_directory_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void exec(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+        assertTrue(DatabaseManager.awaitChangeDelivery(5000));
+    }
+
+    @Test
+    void testLookupByUsernameNameAndDisplayFormat() throws Exception {
+        exec("INSERT INTO users (username, name, is_admin) VALUES ('u1', 'Full Name', 0)");
+        exec("INSERT INTO users (username, name, is_admin) VALUES ('boss', 'Chefin', 1)");
+
+        assertEquals("u1", dir.resolveUsername("U1"));
+        assertEquals("u1", dir.resolveUsername(" full name "));
+        assertEquals("u1", dir.resolveUsername("Full Name (u1)"));
+        assertNull(dir.resolveUsername("unbekannt"));
+        assertTrue(dir.isAdmin("boss"));
+        assertTrue(dir.isAdmin("Chefin"));
+        assertFalse(dir.isAdmin("u1"));
+        assertEquals("Full Name", dir.find("u1").displayName());
+    }
+
+    @Test
+    void testCacheIsReusedUntilUsersChange() throws Exception {
+        exec("INSERT INTO users (username) VALUES ('alice')");
+        List<UserDirectory.Entry> first = dir.snapshot();
+        assertSame(first, dir.snapshot(), "Ohne Änderung sollte der Cache wiederverwendet werden");
+
+        // direkte SQL-Änderung ohne fireUsersChanged() wird über die Änderungs-Hooks erkannt
+        exec("INSERT INTO users (username) VALUES ('bob')");
+        assertEquals(List.of("alice", "bob"), dir.usernames());
+
+        assertTrue(DatabaseManager.createOrUpdateUser("carol", "pw", "Carol"));
+        assertEquals(List.of("alice", "bob", "carol"), dir.usernames(), "createOrUpdateUser sollte den Cache invalidieren");
+        assertEquals(3, dir.getEntries().size(), "Beobachtbare Liste sollte mitgezogen werden");
+
+        assertTrue(DatabaseManager.deleteUser("bob"));
+        assertEquals(List.of("alice", "carol"), dir.usernames(), "deleteUser sollte den Cache invalidieren");
+    }
+
+    @Test
+    void testClosingPoolInvalidatesCache() throws Exception {
+        exec("INSERT INTO users (username) VALUES ('alice')");
+        assertEquals(List.of("alice"), dir.usernames());
+
+        DatabaseManager.closeConnection();
+        exec("DELETE FROM users");
+        assertTrue(dir.usernames().isEmpty(), "Nach closeConnection sollte neu geladen werden");
+    }
+
+    @Test
+    void testInvalidateForcesReload() throws Exception {
+        dir.snapshot();
+        exec("INSERT INTO users (username) VALUES ('dave')");
+        dir.invalidate();
+        assertEquals(List.of("dave"), dir.usernames());
+    }
+}
@@ -0,0 +1,208 @@
+package com.flatmanager.service;
+
+import com.flatmanager.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindBufferTest {
+
+    private WriteBehindBuffer buffer;
+
+    @BeforeEach
+    void before() throws Exception {
+        File db = new File("target/write_behind_test.db");
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        DatabaseManager.closeConnection();
+        // langes Fenster: in den Tests wird explizit geflusht
+        buffer = new WriteBehindBuffer(Duration.ofHours(1));
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement st = conn.createStatement()) {
+            // Spalte legt sonst die ShoppingListView an
+            st.executeUpdate("ALTER TABLE shopping_items ADD COLUMN purchased INTEGER DEFAULT 0");
+            st.executeUpdate("INSERT INTO shopping_items (id, item_name, purchased) VALUES (1, 'Milch', 0)");
+            st.executeUpdate("INSERT INTO shopping_items (id, item_name, purchased) VALUES (2, 'Brot', 0)");
+        }
+    }
+
+    @AfterEach
+    void after() {
+        buffer.close();
+        DatabaseManager.closeConnection();
+        try {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Path.of("target/write_behind_test.db"));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void togglePurchased(int id, boolean value, AtomicInteger executed) {
+        buffer.submit("shopping_items.purchased#" + id, value, conn -> {
+            executed.incrementAndGet();
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE shopping_items SET purchased = ? WHERE id = ?")) {
+                ps.setInt(1, value ? 1 : 0);
+                ps.setInt(2, id);
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    private int purchased(int id) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT purchased FROM shopping_items WHERE id = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    @Test
+    void testRepeatedTogglesCollapseToOneWritePerRow() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 9; i++) togglePurchased(1, i % 2 == 0, executed);
+        togglePurchased(2, true, executed);
+
+        assertEquals(2, buffer.pendingCount());
+        assertEquals(0, purchased(1), "Vor dem Flush darf nichts geschrieben sein");
+
+        assertEquals(2, buffer.flush());
+        assertEquals(2, executed.get(), "Je Zeile nur ein Schreibzugriff");
+        assertEquals(1, purchased(1), "Letzter Klick gewinnt");
+        assertEquals(1, purchased(2));
+        assertEquals(10, buffer.submittedCount());
+        assertEquals(2, buffer.flushedCount());
+        assertEquals(0, buffer.flush(), "Leerer Puffer schreibt nichts");
+    }
+
+    @Test
+    void testReadYourWrites() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        togglePurchased(1, true, executed);
+        buffer.submit("cleaning_tasks.assigned_to#7", null, conn -> { });
+
+        assertTrue(buffer.pendingValue("shopping_items.purchased#1", false));
+        assertFalse(buffer.pendingValue("shopping_items.purchased#2", false), "Ohne offene Änderung gilt der Datenbankwert");
+        assertTrue(buffer.hasPending("cleaning_tasks.assigned_to#7"));
+        assertNull(buffer.pendingValue("cleaning_tasks.assigned_to#7", "alice"), "Auch null ist ein offener Wert");
+
+        buffer.flush();
+        assertFalse(buffer.hasPending("shopping_items.purchased#1"));
+        assertEquals(1, purchased(1));
+    }
+
+    @Test
+    void testFlushIsOneTransaction() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        togglePurchased(1, true, executed);
+        buffer.submit("broken", null, conn -> {
+            throw new SQLException("kaputt");
+        });
+
+        assertThrows(SQLException.class, () -> buffer.flush());
+        assertEquals(0, purchased(1), "Fehlgeschlagener Flush darf nichts teilweise schreiben");
+        assertEquals(2, buffer.pendingCount(), "Änderungen bleiben für den nächsten Versuch gepuffert");
+        assertTrue(buffer.pendingValue("shopping_items.purchased#1", false), "Optimistischer Wert bleibt sichtbar");
+    }
+
+    @Test
+    void testFailedFlushKeepsOnlyWritesNotSupersededMeanwhile() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        togglePurchased(1, true, executed);
+        togglePurchased(2, true, executed);
+        buffer.submit("broken", null, conn -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Klick während des Flushs, danach scheitert die Transaktion
+                togglePurchased(1, false, executed);
+                throw new SQLException("database is locked");
+            }
+        });
+
+        assertThrows(SQLException.class, () -> buffer.flush());
+        assertEquals(3, buffer.pendingCount());
+        assertFalse(buffer.pendingValue("shopping_items.purchased#1", true), "Neuere Änderung ersetzt die fehlgeschlagene");
+
+        executed.set(0);
+        assertEquals(3, buffer.flush());
+        assertEquals(2, executed.get(), "Alte Änderung an Zeile 1 wird nicht mehr geschrieben");
+        assertEquals(0, purchased(1));
+        assertEquals(1, purchased(2));
+    }
+
+    @Test
+    void testRetriesWithBackoffUntilTheWriteSucceeds() throws Exception {
+        WriteBehindBuffer timed = new WriteBehindBuffer(Duration.ofMillis(10));
+        CountDownLatch flushed = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        timed.addFlushListener(flushed::countDown);
+        timed.addFailureListener(ex -> failures.incrementAndGet());
+        try {
+            timed.submit("shopping_items.purchased#2", true, conn -> {
+                if (attempts.incrementAndGet() < 3) throw new SQLException("database is locked");
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("UPDATE shopping_items SET purchased = 1 WHERE id = 2");
+                }
+            });
+            assertTrue(flushed.await(5, TimeUnit.SECONDS), "Puffer sollte nach Fehlschlägen erneut schreiben");
+            assertEquals(3, attempts.get());
+            assertEquals(1, purchased(2));
+            assertEquals(0, failures.get(), "Erfolgreicher Wiederholungsversuch ist kein Fehler");
+        } finally {
+            timed.close();
+        }
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttemptsAndNotifiesFailureListeners() throws Exception {
+        WriteBehindBuffer timed = new WriteBehindBuffer(Duration.ofMillis(10));
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        timed.addFailureListener(ex -> failed.countDown());
+        try {
+            timed.submit("shopping_items.purchased#1", true, conn -> {
+                attempts.incrementAndGet();
+                throw new SQLException("database is locked");
+            });
+            assertTrue(failed.await(5, TimeUnit.SECONDS), "Ansichten sollten nach dem letzten Versuch benachrichtigt werden");
+            assertEquals(WriteBehindBuffer.MAX_ATTEMPTS, attempts.get());
+            assertEquals(0, timed.pendingCount(), "Aufgegebene Änderungen werden verworfen");
+            assertFalse(timed.hasPending("shopping_items.purchased#1"));
+            assertEquals(0, purchased(1));
+        } finally {
+            timed.close();
+        }
+    }
+
+    @Test
+    void testFlushesAfterWindowAndNotifiesListeners() throws Exception {
+        WriteBehindBuffer timed = new WriteBehindBuffer(Duration.ofMillis(50));
+        CountDownLatch flushed = new CountDownLatch(1);
+        timed.addFlushListener(flushed::countDown);
+        try {
+            timed.submit("shopping_items.purchased#2", true, conn -> {
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("UPDATE shopping_items SET purchased = 1 WHERE id = 2");
+                }
+            });
+            assertTrue(flushed.await(5, TimeUnit.SECONDS), "Puffer sollte nach dem Zeitfenster schreiben");
+            assertEquals(1, purchased(2));
+        } finally {
+            timed.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.flatmanager.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataGeneratorTest {
+
+    private static final String DB_PATH = "target/data_generator_test.db";
+
+    @BeforeEach
+    void setup() {
+        freshDatabase();
+    }
+
+    @AfterEach
+    void cleanup() {
+        Database.closeConnection();
+        try { Files.deleteIfExists(Path.of(DB_PATH)); } catch (Exception ignore) {}
+    }
+
+    private static void freshDatabase() {
+        Database.closeConnection();
+        File db = new File(DB_PATH);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+    }
+
+    // Inhalt ohne IDs, damit zwei Läufe vergleichbar sind
+    private static List<String> dump(String sql) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = Database.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            int n = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 1; i <= n; i++) sb.append(rs.getString(i)).append('|');
+                rows.add(sb.toString());
+            }
+        }
+        return rows;
+    }
+
+    private static long count(String sql) throws Exception {
+        try (Connection conn = Database.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    private static List<List<String>> snapshot() throws Exception {
+        return List.of(
+                dump("SELECT username, name, password, is_admin FROM users ORDER BY id"),
+                dump("SELECT title, due, assigned_to, recurrence, urgent, completed FROM cleaning_tasks ORDER BY id"),
+                dump("SELECT t.title, c.occurrence FROM cleaning_task_completions c JOIN cleaning_tasks t ON t.id = c.task_id ORDER BY t.id, c.occurrence"),
+                dump("SELECT item_name, quantity, bought, category, added_by, purchased_for, created_at FROM shopping_items ORDER BY id"),
+                dump("SELECT description, amount, date, paid_by, category FROM budget_transactions ORDER BY id"),
+                dump("SELECT s.username, s.share FROM budget_shares s ORDER BY s.transaction_id, s.id"));
+    }
+
+    @Test
+    void testSameSeedGivesSameData() throws Exception {
+        new DataGenerator(7).households(2).users(3).tasks(15).shoppingItems(300).transactions(200).generate();
+        List<List<String>> first = snapshot();
+
+        freshDatabase();
+        new DataGenerator(7).households(2).users(3).tasks(15).shoppingItems(300).transactions(200).generate();
+        assertEquals(first, snapshot(), "Gleicher Seed ergibt dieselben Daten");
+
+        freshDatabase();
+        new DataGenerator(8).households(2).users(3).tasks(15).shoppingItems(300).transactions(200).generate();
+        assertNotEquals(first.get(3), snapshot().get(3), "Anderer Seed ergibt andere Einkäufe");
+
+        freshDatabase();
+        new DataGenerator(7).households(2).users(3).tasks(15).shoppingItems(50).transactions(200).generate();
+        assertEquals(first.get(4), snapshot().get(4), "Die Zahl der Einkäufe ändert die Buchungen nicht");
+    }
+
+    @Test
+    void testCountsMatchDatabaseAndSharesAreUneven() throws Exception {
+        DataGenerator.Result r = new DataGenerator(42).households(3).users(4).tasks(30).shoppingItems(500).transactions(400).generate();
+
+        assertEquals(3, r.households.size());
+        assertEquals(12, r.usernames.size());
+        Map<String, Long> counts = r.counts;
+        for (String table : List.of("users", "cleaning_tasks", "cleaning_task_completions", "shopping_items", "budget_transactions", "budget_shares")) {
+            assertEquals(count("SELECT COUNT(*) FROM " + table), counts.get(table), "Zeilenzahl von " + table);
+        }
+        assertEquals(3 * 500L, counts.get("shopping_items"));
+        assertEquals(3L, count("SELECT COUNT(*) FROM users WHERE is_admin = 1"), "Ein Admin je WG");
+        for (long household : r.households) {
+            assertEquals(4L, count("SELECT COUNT(*) FROM users WHERE household_id = " + household));
+            assertEquals(400L, count("SELECT COUNT(*) FROM budget_transactions WHERE household_id = " + household));
+        }
+
+        assertTrue(count("SELECT COUNT(*) FROM cleaning_tasks WHERE recurrence IS NOT NULL") > 0, "Es gibt wiederkehrende Aufgaben");
+        assertTrue(counts.get("cleaning_task_completions") > 0, "Wiederkehrende Aufgaben haben Erledigungen");
+        assertTrue(count("SELECT COUNT(DISTINCT category) FROM shopping_items") > 3);
+        assertTrue(count("SELECT COUNT(*) FROM shopping_items WHERE purchased_for IS NOT NULL") > 0);
+
+        assertEquals(0L, count("SELECT COUNT(*) FROM (SELECT transaction_id, SUM(share) AS total FROM budget_shares GROUP BY transaction_id) WHERE ABS(total - 1) > 1e-9"),
+                "Anteile jeder Buchung ergeben zusammen 1");
+        assertEquals(0L, count("SELECT COUNT(*) FROM budget_transactions t WHERE NOT EXISTS (SELECT 1 FROM budget_shares s WHERE s.transaction_id = t.id)"));
+        assertTrue(count("SELECT COUNT(*) FROM (SELECT transaction_id FROM budget_shares GROUP BY transaction_id HAVING MAX(share) - MIN(share) > 0.01)") > 0,
+                "Anteile sind ungleich verteilt");
+        assertTrue(count("SELECT COUNT(*) FROM (SELECT transaction_id FROM budget_shares GROUP BY transaction_id HAVING COUNT(*) < 4)") > 0,
+                "Manche Buchungen betreffen nur einen Teil der WG");
+
+        // ein zweiter Lauf mit anderem Seed kommt sich nicht in die Quere
+        DataGenerator.Result second = new DataGenerator(43).shoppingItems(10).generate();
+        assertEquals(16L, count("SELECT COUNT(*) FROM users"), "Standard: 4 Benutzer je WG");
+        assertEquals(1510L, count("SELECT COUNT(*) FROM shopping_items"));
+        assertFalse(r.households.contains(second.households.get(0)));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testMillionRowsInSeconds() throws Exception {
+        long start = System.nanoTime();
+        DataGenerator.Result r = new DataGenerator(1).households(4).users(5).tasks(200)
+                .shoppingItems(125_000).transactions(55_000).generate();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("[DataGeneratorTest] " + r.total() + " Zeilen in " + String.format("%.2f", seconds) + " s " + r.counts);
+        assertTrue(r.total() >= 1_000_000, "Mindestens eine Million Zeilen: " + r.total());
+        assertEquals(r.counts.get("shopping_items"), count("SELECT COUNT(*) FROM shopping_items"));
+        assertTrue(seconds < 60, "Eine Million Zeilen in Sekunden, nicht Minuten: " + seconds + " s");
+    }
+}
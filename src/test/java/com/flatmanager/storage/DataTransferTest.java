@@ -0,0 +1,186 @@
+package com.flatmanager.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataTransferTest {
+
+    private static final String DB_PATH = "target/data_transfer_test.db";
+    private static final Path OUT = Path.of("target/data_transfer_test_out");
+
+    @BeforeEach
+    void setup() throws Exception {
+        Database.closeConnection();
+        File db = new File(DB_PATH);
+        if (db.exists()) db.delete();
+        System.setProperty("db.url", "jdbc:sqlite:" + db.getAbsolutePath());
+        deleteOut();
+        try (Connection conn = Database.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM users WHERE 1");
+            st.executeUpdate("INSERT INTO users (id, username, name, password, is_admin) VALUES (1, 'alice', 'Alice, \"A\"', 'pw', 1)");
+            st.executeUpdate("INSERT INTO users (id, username, name, password) VALUES (2, 'bob', NULL, '')");
+            st.executeUpdate("INSERT INTO cleaning_tasks (id, title, due, assigned_to, recurrence) VALUES (5, 'Bad\nputzen', '2024-06-03', 'alice', 'WEEKLY')");
+            st.executeUpdate("INSERT INTO shopping_items (id, item_name, quantity, added_by) VALUES (7, 'Milch', 2, 1)");
+            st.executeUpdate("INSERT INTO budget_transactions (id, description, amount, date, paid_by) VALUES (9, 'Einkauf', 12.5, '2024-06-01', 1)");
+            st.executeUpdate("INSERT INTO budget_shares (transaction_id, username, share) VALUES (9, 'alice', 6.25), (9, 'bob', 6.25)");
+        }
+    }
+
+    @AfterEach
+    void cleanup() throws Exception {
+        Database.closeConnection();
+        try { Files.deleteIfExists(Path.of(DB_PATH)); } catch (Exception ignore) {}
+        deleteOut();
+    }
+
+    private static void deleteOut() throws IOException {
+        if (!Files.exists(OUT)) return;
+        try (var files = Files.list(OUT)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(OUT);
+    }
+
+    private static List<String> dump(String table) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = Database.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + table + " ORDER BY rowid")) {
+            int n = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 1; i <= n; i++) {
+                    Object v = rs.getObject(i);
+                    sb.append(v == null ? "NULL" : v.getClass().getSimpleName() + ":" + v).append('|');
+                }
+                rows.add(sb.toString());
+            }
+        }
+        return rows;
+    }
+
+    private static void wipe() throws Exception {
+        try (Connection conn = Database.getConnection(); Statement st = conn.createStatement()) {
+            for (String t : DataExporter.TABLES) st.executeUpdate("DELETE FROM " + t + " WHERE 1");
+        }
+    }
+
+    @Test
+    void testCsvRoundTripKeepsValuesQuotesAndNulls() throws Exception {
+        Map<String, List<String>> before = new java.util.HashMap<>();
+        for (String t : DataExporter.TABLES) before.put(t, dump(t));
+
+        Map<String, Long> exported = DataExporter.exportCsv(OUT);
+        assertEquals(2L, exported.get("users"));
+        assertEquals(2L, exported.get("budget_shares"));
+        String users = Files.readString(OUT.resolve("users.csv"), StandardCharsets.UTF_8);
+        assertTrue(users.contains("\"Alice, \"\"A\"\"\""), "Kommas und Anführungszeichen werden maskiert");
+        assertTrue(users.contains(",,\"\","), "NULL bleibt leer, leerer Text wird \"\"");
+
+        wipe();
+        Map<String, Long> imported = DataImporter.importCsv(OUT);
+        assertEquals(exported, imported);
+        for (String t : DataExporter.TABLES) assertEquals(before.get(t), dump(t), "Tabelle " + t + " nach CSV-Import");
+        assertEquals(1, com.flatmanager.service.SearchService.get().search("milch", 5).size(),
+                "Suchindex wird nach dem Import neu aufgebaut");
+    }
+
+    @Test
+    void testJsonRoundTripKeepsTypes() throws Exception {
+        Map<String, List<String>> before = new java.util.HashMap<>();
+        for (String t : DataExporter.TABLES) before.put(t, dump(t));
+
+        Path file = OUT.resolve("export.json");
+        Map<String, Long> exported = DataExporter.exportJson(file);
+        assertEquals(1L, exported.get("cleaning_tasks"));
+        assertTrue(Files.readString(file).contains("\"title\":\"Bad\\nputzen\""));
+
+        wipe();
+        assertEquals(exported, DataImporter.importJson(file));
+        for (String t : DataExporter.TABLES) assertEquals(before.get(t), dump(t), "Tabelle " + t + " nach JSON-Import");
+    }
+
+    @Test
+    void testMalformedInputRollsBackEverything() throws Exception {
+        Files.createDirectories(OUT);
+        Files.writeString(OUT.resolve("users.csv"), "id,username\r\n10,carol\r\n");
+        Files.writeString(OUT.resolve("shopping_items.csv"), "id,item_name\r\n1,\"offen\r\n");
+
+        IOException ex = assertThrows(IOException.class, () -> DataImporter.importCsv(OUT));
+        assertTrue(ex.getMessage().contains("nicht geschlossen"), ex.getMessage());
+        assertEquals(2, dump("users").size(), "Benutzer-Import wurde mit zurückgerollt");
+        assertEquals(1, dump("shopping_items").size());
+    }
+
+    @Test
+    void testJsonIgnoresUnknownTablesAndColumns() throws Exception {
+        String json = "{\"format\":\"flatmanager-export\",\"version\":1,\"extra\":{\"a\":[1,2,{\"b\":null}]},"
+                + "\"tables\":{\"fremd\":[{\"x\":1}],\"shopping_items\":[{\"id\":3,\"item_name\":\"Brot \\u00e4\",\"farbe\":\"rot\",\"bought\":true}]}}";
+        try (Connection conn = Database.getConnection()) {
+            Map<String, Long> counts = DataImporter.loadJson(conn, new StringReader(json));
+            assertEquals(Map.of("shopping_items", 1L), counts);
+        }
+        try (Connection conn = Database.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, item_name, bought, version FROM shopping_items")) {
+            assertTrue(rs.next());
+            assertEquals(3, rs.getInt("id"));
+            assertEquals("Brot ä", rs.getString("item_name"));
+            assertEquals(1, rs.getInt("bought"), "true wird als 1 gespeichert");
+            assertEquals(0, rs.getInt("version"), "fehlende Spalten behalten ihren Default");
+            assertFalse(rs.next(), "Bestehende Einträge wurden ersetzt");
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testLargeLedgerStreamsInSeconds() throws Exception {
+        int rows = 200_000;
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO budget_transactions (description, amount, date, paid_by, category) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    ps.setString(1, "Posten " + i);
+                    ps.setDouble(2, i % 1000 / 10.0);
+                    ps.setString(3, "2024-01-01");
+                    ps.setInt(4, 1 + i % 2);
+                    ps.setString(5, i % 3 == 0 ? null : "Lebensmittel");
+                    ps.addBatch();
+                    if (i % 1000 == 999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        long start = System.nanoTime();
+        Map<String, Long> exported = DataExporter.exportCsv(OUT);
+        long exportMillis = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        Map<String, Long> imported = DataImporter.importCsv(OUT);
+        long importMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[DataTransferTest] " + rows + " Buchungen: Export " + exportMillis + " ms, Import " + importMillis + " ms");
+
+        assertEquals(rows + 1L, exported.get("budget_transactions"));
+        assertEquals(exported, imported);
+        assertTrue(exportMillis + importMillis < 30_000, "Export und Import sollten wenige Sekunden dauern");
+    }
+}
@@ -247,13 +247,11 @@ public class DashboardScreenTest {
             }
         }
 
+        // das Dashboard löst den Anzeigenamen beim Laden der Karten über den Benutzer-Cache auf
         DashboardScreen ds = new DashboardScreen("Full Name (u1)");
-        try (Connection c = DriverManager.getConnection(System.getProperty("db.url"))) {
-            Method resolve = DashboardScreen.class.getDeclaredMethod("resolveUsername", java.sql.Connection.class, String.class);
-            resolve.setAccessible(true);
-            String resolved = (String) resolve.invoke(ds, c, "Full Name (u1)");
-            assertEquals("u1", resolved);
-        }
+        Field resolvedUser = DashboardScreen.class.getDeclaredField("resolvedUser");
+        resolvedUser.setAccessible(true);
+        assertEquals("u1", resolvedUser.get(ds));
     }
 
     @Test
@@ -0,0 +1,60 @@
+package com.flatmanager.ui;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageCacheTest {
+
+    @BeforeAll
+    public static void initToolkit() {
+        try {
+            Platform.startup(() -> {});
+        } catch (IllegalStateException ignore) {
+            // already initialized
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        ImageCache.clear();
+    }
+
+    @Test
+    public void testSameResourceAndSizeIsDecodedOnce() {
+        long before = ImageCache.decodeCount();
+        Image first = ImageCache.get("Putzplan_icon.png", 16);
+        assertNotNull(first);
+        assertSame(first, ImageCache.get("Putzplan_icon.png", 16), "Gleiches Icon und gleiche Größe teilen eine Instanz");
+        assertEquals(before + 1, ImageCache.decodeCount());
+        assertTrue(first.getWidth() <= 16 && first.getHeight() <= 16, "Bild sollte vorskaliert dekodiert werden");
+
+        Image larger = ImageCache.get("Putzplan_icon.png", 20);
+        assertNotSame(first, larger, "Andere Größe ist eine eigene Variante");
+        assertEquals(2, ImageCache.size());
+    }
+
+    @Test
+    public void testViewsShareTheImage() {
+        ImageView a = ImageCache.view("Dashboard_icon.png", 18);
+        ImageView b = ImageCache.view("Dashboard_icon.png", 18);
+        assertNotNull(a);
+        assertNotSame(a, b, "Jede Verwendung braucht einen eigenen Knoten");
+        assertSame(a.getImage(), b.getImage());
+        assertEquals(18, a.getFitWidth());
+    }
+
+    @Test
+    public void testMissingIconIsRememberedAndReturnsNull() {
+        long before = ImageCache.decodeCount();
+        assertNull(ImageCache.get("gibt_es_nicht.png", 18));
+        assertNull(ImageCache.view("gibt_es_nicht.png", 18));
+        assertEquals(before, ImageCache.decodeCount());
+        assertEquals(0, ImageCache.size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.flatmanager.ui;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThemeManagerTest {
+
+    @BeforeAll
+    public static void initToolkit() {
+        try {
+            Platform.startup(() -> {});
+        } catch (IllegalStateException ignore) {
+            // already initialized
+        }
+    }
+
+    @AfterEach
+    public void reset() throws Exception {
+        onFx(() -> { ThemeManager.setDark(false); return null; });
+    }
+
+    private static <T> T onFx(Callable<T> action) throws Exception {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                f.complete(action.call());
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        });
+        return f.get(30, TimeUnit.SECONDS);
+    }
+
+    private static Scene sceneWithLabels(int count) {
+        VBox root = new VBox();
+        for (int i = 0; i < count; i++) {
+            VBox card = new VBox(new Label("Eintrag " + i));
+            card.getStyleClass().add("card");
+            root.getChildren().add(card);
+        }
+        Scene scene = new Scene(root, 400, 300);
+        ThemeManager.addStylesheet(scene);
+        ThemeManager.applyToScene(scene);
+        root.applyCss();
+        return scene;
+    }
+
+    private static int countDark(Node node) {
+        int n = node.getPseudoClassStates().contains(ThemeManager.DARK) ? 1 : 0;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) n += countDark(child);
+        }
+        return n;
+    }
+
+    // Median eines vollständigen Umschaltens in Nanosekunden: setDark, Zustand auf die Szene, CSS-Durchlauf
+    // und Layout, also auch die Arbeit, die JavaFX erst im nächsten Puls erledigen würde
+    private static long medianToggleNanos(Scene scene, int rounds) {
+        long[] samples = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            ThemeManager.setDark(!ThemeManager.isDark());
+            ThemeManager.applyToScene(scene);
+            scene.getRoot().applyCss();
+            scene.getRoot().layout();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[rounds / 2];
+    }
+
+    @Test
+    public void testToggleMarksOnlyTheRootAndRestylesChildren() throws Exception {
+        onFx(() -> {
+            Scene scene = sceneWithLabels(3);
+            Label label = (Label) ((VBox) ((VBox) scene.getRoot()).getChildren().get(0)).getChildren().get(0);
+            Color light = (Color) label.getTextFill();
+
+            ThemeManager.setDark(true);
+            ThemeManager.applyToScene(scene);
+            scene.getRoot().applyCss();
+            assertEquals(1, countDark(scene.getRoot()), "Nur die Wurzel trägt :dark");
+            assertNotEquals(light, label.getTextFill(), "Dunkle Regeln sollten auf die Kinder wirken");
+
+            ThemeManager.setDark(false);
+            ThemeManager.applyToScene(scene);
+            scene.getRoot().applyCss();
+            assertEquals(0, countDark(scene.getRoot()));
+            assertEquals(light, label.getTextFill());
+            return null;
+        });
+    }
+
+    @Test
+    public void testReplacedRootFollowsTheTheme() throws Exception {
+        onFx(() -> {
+            Scene scene = sceneWithLabels(1);
+            ThemeManager.setDark(true);
+            ThemeManager.applyToScene(scene);
+            Parent old = scene.getRoot();
+
+            VBox next = new VBox(new Label("Neu"));
+            scene.setRoot(next);
+            assertTrue(next.getPseudoClassStates().contains(ThemeManager.DARK), "setRoot übernimmt den Zustand");
+            assertFalse(old.getPseudoClassStates().contains(ThemeManager.DARK));
+            return null;
+        });
+    }
+
+    @Test
+    public void testStylesheetUrlIsResolvedOnce() {
+        String first = ThemeManager.stylesheetUrl();
+        assertNotNull(first);
+        assertSame(first, ThemeManager.stylesheetUrl());
+    }
+
+    /**
+     * Messung: vollständiges Umschalten inklusive CSS-Durchlauf und Layout auf einer Szene mit 200 und einer
+     * mit 2000 Karten. Jede Beschriftung ändert ihre Farbe, der CSS-Durchlauf ist also zwangsläufig linear in
+     * der Zahl der Knoten; geprüft wird, dass er nicht stärker wächst und auf der großen Szene unter einer
+     * spürbaren Verzögerung bleibt (großzügige Schranken gegen Messrauschen).
+     */
+    @Test
+    public void testToggleCostGrowsAtMostLinearlyWithSceneSize() throws Exception {
+        long[] medians = onFx(() -> {
+            Scene small = sceneWithLabels(200);
+            Scene large = sceneWithLabels(2000);
+            medianToggleNanos(small, 50); // Aufwärmen
+            medianToggleNanos(large, 50);
+            return new long[]{medianToggleNanos(small, 100), medianToggleNanos(large, 100)};
+        });
+        assertTrue(medians[1] < Math.max(medians[0], 10_000) * 10 * 2,
+                "Umschalten sollte höchstens linear mit der Knotenzahl wachsen: 200 Karten " + medians[0]
+                        + " ns, 2000 Karten " + medians[1] + " ns");
+        assertTrue(medians[1] < 200_000_000L, "Umschalten mit 2000 Karten dauert " + medians[1] / 1_000_000 + " ms");
+    }
+}